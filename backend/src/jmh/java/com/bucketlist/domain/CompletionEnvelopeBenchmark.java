@@ -0,0 +1,32 @@
+package com.bucketlist.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Direct API path: raw chat completion bytes to suggestions
+@State(Scope.Benchmark)
+public class CompletionEnvelopeBenchmark {
+
+	private byte[] body;
+
+	@Setup
+	public void setUp() {
+		body = Fixtures.load("openai-envelope").getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public ChatCompletion readCompletion() throws IOException {
+		return SuggestionJsonParser.readCompletion(body);
+	}
+
+	@Benchmark
+	public SuggestionService.SuggestionResponse envelopeToSuggestions() throws IOException {
+		return SuggestionJsonParser.parseSuggestions(SuggestionJsonParser.readCompletion(body).content());
+	}
+
+}
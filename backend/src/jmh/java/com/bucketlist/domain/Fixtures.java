@@ -0,0 +1,25 @@
+package com.bucketlist.domain;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// Recorded LLM completions under src/jmh/resources/fixtures
+final class Fixtures {
+
+	private Fixtures() {
+	}
+
+	static String load(String name) {
+		try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name + ".txt")) {
+			if (in == null) {
+				throw new IllegalArgumentException("No fixture named " + name);
+			}
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Prompt assembly and category lookup, with regeneration prompts over a growing feedback history
+@State(Scope.Benchmark)
+public class PromptBuildingBenchmark {
+
+	private static final String PERSON_DESCRIPTION = "34-year-old software engineer in Lisbon, loves hiking and cooking, "
+			+ "saving for a house but wants one memorable trip a year, medium budget";
+
+	private static final String[] CATEGORY_NAMES = { "Travel & Vacation", "optional add-ons", "Health",
+			"Social & Lifestyle Experiences", "Hobbies & Learning" };
+
+	// The bucketlist.prompt.feedback-token-budget default
+	private static final int FEEDBACK_TOKEN_BUDGET = 400;
+
+	@Param({ "0", "5", "25", "250" })
+	public int reviewedSuggestions;
+
+	private final SuggestionMetrics metrics = new SuggestionMetrics(new SimpleMeterRegistry());
+
+	private final PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+	private SessionSuggestionState state;
+
+	@Setup
+	public void setUp() {
+		SuggestionResponse response = new BeanOutputConverter<>(SuggestionResponse.class)
+			.convert(Fixtures.load("well-formed"));
+
+		// Replay enough batches to have the requested number of accepted/rejected suggestions
+		state = new SessionSuggestionState("benchmark");
+		List<BucketListSuggestion> reviewed = new ArrayList<>();
+		for (int epoch = 1; reviewed.size() < reviewedSuggestions; epoch++) {
+			List<BucketListSuggestion> batch = SuggestionResponseMapper.toSuggestions(response, metrics);
+			state.commitBatch(epoch, batch);
+			reviewed.addAll(batch);
+		}
+		for (int i = 0; i < reviewedSuggestions; i++) {
+			BucketListSuggestion suggestion = reviewed.get(i);
+			if (i % 2 == 0) {
+				state.accept(suggestion.getId());
+			} else {
+				state.reject(new RejectionFeedback(suggestion.getId(), suggestion.getRejectionReasons().get(0), false));
+			}
+		}
+	}
+
+	@Benchmark
+	public String initialPrompt() {
+		return prompts.initialPrompt(PERSON_DESCRIPTION);
+	}
+
+	@Benchmark
+	public String regenerationPrompt() {
+		return prompts.regenerationPrompt(state.renderPreferences(FEEDBACK_TOKEN_BUDGET), PERSON_DESCRIPTION);
+	}
+
+	@Benchmark
+	public String displayNames() {
+		return SuggestionPrompts.displayNames();
+	}
+
+	// Exact, case-insensitive, partial and unmatched names
+	@Benchmark
+	public void findCategoryByDisplayName(Blackhole blackhole) {
+		for (String name : CATEGORY_NAMES) {
+			blackhole.consume(SuggestionResponseMapper.findCategoryByDisplayName(name, metrics));
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.List;
+
+// Cost of turning one recorded completion into domain suggestions, per fixture. Malformed
+// fixtures exercise the failure path of the converter and the recovery of the token parser.
+@State(Scope.Benchmark)
+public class SuggestionPipelineBenchmark {
+
+	@Param({ "well-formed", "fenced", "unknown-categories", "prose-wrapped", "truncated" })
+	public String fixture;
+
+	private final BeanOutputConverter<SuggestionResponse> converter = new BeanOutputConverter<>(SuggestionResponse.class);
+
+	private final SuggestionMetrics metrics = new SuggestionMetrics(new SimpleMeterRegistry());
+
+	private String content;
+
+	private SuggestionResponse parsed;
+
+	@Setup
+	public void setUp() {
+		content = Fixtures.load(fixture);
+		parsed = parseOrFallback(content);
+	}
+
+	// ChatClient path: schema-driven conversion of the raw completion
+	@Benchmark
+	public Object beanOutputConverter() {
+		try {
+			return converter.convert(content);
+		} catch (RuntimeException e) {
+			return e;
+		}
+	}
+
+	// Direct API path
+	@Benchmark
+	public SuggestionResponse parseSuggestions() {
+		return SuggestionJsonParser.parseSuggestions(content);
+	}
+
+	// Category matching, price breakdowns and the diversity check on an already parsed response
+	@Benchmark
+	public List<BucketListSuggestion> convertToSuggestions() {
+		return SuggestionResponseMapper.toSuggestions(parsed, metrics);
+	}
+
+	// Everything between receiving the completion and having domain suggestions
+	@Benchmark
+	public List<BucketListSuggestion> endToEnd() {
+		return SuggestionResponseMapper.toSuggestions(parseOrFallback(content), metrics);
+	}
+
+	private SuggestionResponse parseOrFallback(String content) {
+		try {
+			return converter.convert(content);
+		} catch (RuntimeException e) {
+			return SuggestionJsonParser.parseSuggestions(content);
+		}
+	}
+
+}
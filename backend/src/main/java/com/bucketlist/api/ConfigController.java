@@ -1,20 +1,30 @@
 package com.bucketlist.api;
 
 import com.bucketlist.domain.ApiKeyService;
+import com.bucketlist.domain.PromptTemplateRegistry;
+import com.bucketlist.domain.SuggestionGeneratorRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/config")
 @CrossOrigin(origins = "http://localhost:5173")
 public class ConfigController {
     
     private final ApiKeyService apiKeyService;
+    private final SuggestionGeneratorRouter generators;
+    private final PromptTemplateRegistry prompts;
     
     @Autowired
-    public ConfigController(ApiKeyService apiKeyService) {
+    public ConfigController(ApiKeyService apiKeyService, SuggestionGeneratorRouter generators,
+                            PromptTemplateRegistry prompts) {
         this.apiKeyService = apiKeyService;
+        this.generators = generators;
+        this.prompts = prompts;
     }
     
     @PostMapping("/api-key")
@@ -35,7 +45,8 @@ public class ConfigController {
     
     @GetMapping("/api-key/status")
     public ResponseEntity<ApiKeyStatusResponse> getApiKeyStatus() {
-        boolean hasValidKey = apiKeyService.hasValidApiKey();
+        // Deployments routed to a local or template generator don't need a key to get going
+        boolean hasValidKey = generators.hasAvailableGenerator();
         return ResponseEntity.ok(new ApiKeyStatusResponse(hasValidKey));
     }
     
@@ -45,6 +56,41 @@ public class ConfigController {
         return ResponseEntity.ok(new ApiKeyResponse(true, "API key cleared successfully"));
     }
     
+    @GetMapping("/prompts")
+    public ResponseEntity<List<PromptVersionsResponse>> getPromptVersions() {
+        return ResponseEntity.ok(Arrays.stream(PromptTemplateRegistry.Kind.values())
+            .map(this::promptVersions)
+            .toList());
+    }
+    
+    // Registers a new template version from the plain-text body; it is not used until activated
+    @PutMapping(value = "/prompts/{kind}/{version}", consumes = "text/plain")
+    public ResponseEntity<?> registerPrompt(@PathVariable String kind, @PathVariable String version,
+                                            @RequestBody String template) {
+        try {
+            PromptTemplateRegistry.Kind promptKind = PromptTemplateRegistry.Kind.fromId(kind);
+            prompts.register(promptKind, version, template);
+            return ResponseEntity.ok(promptVersions(promptKind));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @PutMapping("/prompts/{kind}/active")
+    public ResponseEntity<?> activatePrompt(@PathVariable String kind, @RequestBody ActivatePromptRequest request) {
+        try {
+            PromptTemplateRegistry.Kind promptKind = PromptTemplateRegistry.Kind.fromId(kind);
+            prompts.activate(promptKind, request.getVersion());
+            return ResponseEntity.ok(promptVersions(promptKind));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    private PromptVersionsResponse promptVersions(PromptTemplateRegistry.Kind kind) {
+        return new PromptVersionsResponse(kind.getId(), prompts.activeVersion(kind), prompts.versions(kind));
+    }
+    
     public static class ApiKeyRequest {
         private String apiKey;
         
@@ -78,4 +124,27 @@ public class ConfigController {
         public boolean isHasValidKey() { return hasValidKey; }
         public void setHasValidKey(boolean hasValidKey) { this.hasValidKey = hasValidKey; }
     }
-}
\ No newline at end of file
+    
+    public static class ActivatePromptRequest {
+        private String version;
+        
+        public String getVersion() { return version; }
+        public void setVersion(String version) { this.version = version; }
+    }
+    
+    public static class PromptVersionsResponse {
+        private String kind;
+        private String active;
+        private List<String> versions;
+        
+        public PromptVersionsResponse(String kind, String active, List<String> versions) {
+            this.kind = kind;
+            this.active = active;
+            this.versions = versions;
+        }
+        
+        public String getKind() { return kind; }
+        public String getActive() { return active; }
+        public List<String> getVersions() { return versions; }
+    }
+}
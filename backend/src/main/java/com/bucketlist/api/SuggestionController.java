@@ -1,51 +1,208 @@
 package com.bucketlist.api;
 
 import com.bucketlist.domain.BucketListSuggestion;
+import com.bucketlist.domain.BulkSuggestionService;
+import com.bucketlist.domain.GenerationQueuedException;
+import com.bucketlist.domain.LlmOverloadedException;
+import com.bucketlist.domain.LlmUnavailableException;
+import com.bucketlist.domain.RegenerationMode;
 import com.bucketlist.domain.RejectionFeedback;
+import com.bucketlist.domain.RejectionReasonService;
 import com.bucketlist.domain.SuggestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api/suggestions")
 @CrossOrigin(origins = "http://localhost:5173")
 public class SuggestionController {
     
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionController.class);
+    
+    private static final long STREAM_TIMEOUT_MS = 120_000L;
+    private static final long BATCH_TIMEOUT_MS = 3_600_000L;
+    
+    // Queued clients poll at least this often so they see their position move
+    private static final long MAX_QUEUE_POLL_SECONDS = 10;
+    
     private final SuggestionService suggestionService;
+    private final BulkSuggestionService bulkSuggestionService;
+    private final RejectionReasonService rejectionReasonService;
+    private final Executor streamExecutor;
     
     @Autowired
-    public SuggestionController(SuggestionService suggestionService) {
+    public SuggestionController(SuggestionService suggestionService, BulkSuggestionService bulkSuggestionService,
+                                RejectionReasonService rejectionReasonService,
+                                @Qualifier("streamExecutor") Executor streamExecutor) {
         this.suggestionService = suggestionService;
+        this.bulkSuggestionService = bulkSuggestionService;
+        this.rejectionReasonService = rejectionReasonService;
+        this.streamExecutor = streamExecutor;
     }
     
     @GetMapping("/{sessionId}")
-    public ResponseEntity<SuggestionsResponse> getSuggestions(@PathVariable String sessionId) {
+    public ResponseEntity<SuggestionsResponse> getSuggestions(@PathVariable String sessionId,
+                                                              @RequestParam(defaultValue = "true") boolean cache) {
         try {
             List<BucketListSuggestion> suggestions = suggestionService.getSuggestions(sessionId);
             
             if (suggestions.isEmpty()) {
-                suggestions = suggestionService.generateSuggestionsForPerson(sessionId);
+                suggestions = suggestionService.generateSuggestionsForPerson(sessionId, cache);
             }
             
+            // The client shows the first unreviewed suggestion next
+            suggestionService.getNextUnreviewedSuggestion(sessionId)
+                .ifPresent(suggestion -> rejectionReasonService.prefetch(sessionId, suggestion));
+            
             List<SuggestionDto> dtos = suggestions.stream().map(this::toDto).toList();
             return ResponseEntity.ok(new SuggestionsResponse(dtos));
             
+        } catch (GenerationQueuedException | LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
         } catch (IllegalStateException e) {
-            if (e.getMessage().contains("API key")) {
-                return ResponseEntity.status(401).build(); // Unauthorized - API key required
-            }
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error generating suggestions: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating suggestions for session {}", sessionId, e);
             return ResponseEntity.status(500).build();
         }
     }
     
+    @GetMapping(value = "/stream/{sessionId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSuggestions(@PathVariable String sessionId,
+                                        @RequestParam(defaultValue = "true") boolean cache) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        
+        // The job waits on generation work, so it must not hold a generation thread itself
+        streamExecutor.execute(() -> {
+            try {
+                // The first streamed suggestion is the card the client shows first
+                AtomicBoolean first = new AtomicBoolean(true);
+                suggestionService.streamSuggestionsForPerson(sessionId, cache,
+                    position -> sendEvent(emitter, "queued", new QueuePositionDto(position)),
+                    suggestion -> {
+                        sendEvent(emitter, "suggestion", toDto(suggestion));
+                        if (first.getAndSet(false)) {
+                            rejectionReasonService.prefetch(sessionId, suggestion);
+                        }
+                    });
+                sendEvent(emitter, "complete", "");
+                emitter.complete();
+                
+            } catch (LlmOverloadedException e) {
+                sendError(emitter, 503, e.getMessage());
+            } catch (LlmUnavailableException e) {
+                sendError(emitter, 401, e.getMessage());
+            } catch (IllegalStateException e) {
+                sendError(emitter, 400, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendError(emitter, 400, e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error streaming suggestions for session {}", sessionId, e);
+                sendError(emitter, 500, "Failed to generate suggestions");
+            }
+        });
+        
+        return emitter;
+    }
+    
+    // Suggestions for many person descriptions without creating sessions. Answers with one JSON line
+    // per description, in completion order, each carrying the description's index in the request and
+    // either its suggestions or the error that stopped them.
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> generateBatch(@RequestBody BatchRequest request,
+                                                             @RequestParam(defaultValue = "true") boolean cache) {
+        try {
+            bulkSuggestionService.checkRequest(request.getDescriptions());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(BATCH_TIMEOUT_MS);
+        streamExecutor.execute(() -> {
+            try {
+                bulkSuggestionService.generate(request.getDescriptions(), cache,
+                    result -> sendLine(emitter, toBatchResultDto(result)));
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("Error generating batch suggestions", e);
+                emitter.completeWithError(e);
+            }
+        });
+        
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
+    }
+    
+    // The generation keeps its place in the queue; the client polls the same endpoint again
+    @ExceptionHandler(GenerationQueuedException.class)
+    public ResponseEntity<QueuedResponse> handleQueued(GenerationQueuedException e) {
+        long retryAfter = Math.min(MAX_QUEUE_POLL_SECONDS, retryAfterSeconds(e.getEstimatedWait()));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+            .body(new QueuedResponse(e.getPosition(), retryAfter));
+    }
+    
+    // Unauthorized: the client asks for an API key
+    @ExceptionHandler(LlmUnavailableException.class)
+    public ResponseEntity<Void> handleUnavailable(LlmUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+    }
+    
+    @ExceptionHandler(LlmOverloadedException.class)
+    public ResponseEntity<Void> handleOverloaded(LlmOverloadedException e) {
+        logger.warn("Rejecting suggestion request: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(e.getRetryAfter())))
+            .build();
+    }
+    
+    private static long retryAfterSeconds(Duration wait) {
+        return Math.max(1, (wait.toMillis() + 999) / 1000);
+    }
+    
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void sendLine(ResponseBodyEmitter emitter, Object data) {
+        try {
+            emitter.send(data, MediaType.APPLICATION_JSON);
+            emitter.send("\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void sendError(SseEmitter emitter, int status, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(new StreamErrorDto(status, message)));
+            emitter.complete();
+        } catch (Exception e) {
+            // Client already went away
+            emitter.completeWithError(e);
+        }
+    }
+    
     @PostMapping("/accept")
     public ResponseEntity<Void> acceptSuggestion(@RequestBody AcceptRequest request) {
         suggestionService.acceptSuggestion(request.getSessionId(), request.getSuggestionId());
@@ -86,25 +243,49 @@ public class SuggestionController {
             
             if (nextSuggestion.isEmpty()) {
                 // Check if we need to regenerate suggestions with feedback
+                // A partial regeneration keeps the accepted suggestions, so the first new one isn't
+                // necessarily first in the batch
                 if (suggestionService.shouldRegenerateWithFeedback(sessionId)) {
-                    List<BucketListSuggestion> newSuggestions = suggestionService.regenerateSuggestionsWithFeedback(sessionId);
-                    if (!newSuggestions.isEmpty()) {
-                        return ResponseEntity.ok(toDto(newSuggestions.get(0)));
+                    suggestionService.regenerateSuggestionsWithFeedback(sessionId);
+                    Optional<BucketListSuggestion> regenerated = suggestionService.getNextUnreviewedSuggestion(sessionId);
+                    if (regenerated.isPresent()) {
+                        rejectionReasonService.prefetch(sessionId, regenerated.get());
+                        return ResponseEntity.ok(toDto(regenerated.get()));
                     }
                 }
                 return ResponseEntity.notFound().build();
             }
             
+            rejectionReasonService.prefetch(sessionId, nextSuggestion.get());
             return ResponseEntity.ok(toDto(nextSuggestion.get()));
             
+        } catch (GenerationQueuedException | LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            logger.error("Error generating next suggestion for session {}", sessionId, e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+    
+    // Generates the suggestion's rejection reasons the first time they're asked for when batches
+    // are generated without them; afterwards, and in the default mode, they're simply returned
+    @GetMapping("/{sessionId}/{suggestionId}/rejection-reasons")
+    public ResponseEntity<RejectionReasonsDto> getRejectionReasons(@PathVariable String sessionId,
+                                                                   @PathVariable String suggestionId) {
+        try {
+            List<String> reasons = rejectionReasonService.getRejectionReasons(sessionId, suggestionId);
+            return ResponseEntity.ok(new RejectionReasonsDto(reasons));
+            
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
         } catch (IllegalStateException e) {
-            if (e.getMessage().contains("API key")) {
-                return ResponseEntity.status(401).build();
-            }
             return ResponseEntity.badRequest().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
         } catch (Exception e) {
-            System.err.println("Error generating suggestions: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating rejection reasons for suggestion {} in session {}", suggestionId, sessionId, e);
             return ResponseEntity.status(500).build();
         }
     }
@@ -112,18 +293,22 @@ public class SuggestionController {
     @PostMapping("/regenerate")
     public ResponseEntity<SuggestionsResponse> regenerateSuggestions(@RequestBody RegenerateRequest request) {
         try {
-            List<BucketListSuggestion> suggestions = suggestionService.regenerateSuggestionsWithFeedback(request.getSessionId());
+            // mode is optional; without it bucketlist.regeneration.mode applies
+            List<BucketListSuggestion> suggestions = request.getMode() == null
+                ? suggestionService.regenerateSuggestionsWithFeedback(request.getSessionId())
+                : suggestionService.regenerateSuggestionsWithFeedback(request.getSessionId(),
+                    RegenerationMode.fromId(request.getMode()));
             List<SuggestionDto> dtos = suggestions.stream().map(this::toDto).toList();
             return ResponseEntity.ok(new SuggestionsResponse(dtos));
             
+        } catch (GenerationQueuedException | LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
         } catch (IllegalStateException e) {
-            if (e.getMessage().contains("API key")) {
-                return ResponseEntity.status(401).build();
-            }
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
-            System.err.println("Error generating suggestions: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error regenerating suggestions for session {}", request.getSessionId(), e);
             return ResponseEntity.status(500).build();
         }
     }
@@ -147,6 +332,11 @@ public class SuggestionController {
         );
     }
     
+    private BatchResultDto toBatchResultDto(BulkSuggestionService.PersonaResult result) {
+        return new BatchResultDto(result.index(), result.description(),
+            result.suggestions().stream().map(this::toDto).toList(), result.error());
+    }
+    
     private RejectedSuggestionDto toRejectedDto(BucketListSuggestion suggestion, String sessionId) {
         PriceBreakdownDto priceDto = new PriceBreakdownDto(
             suggestion.getPriceBreakdown().getLineItems().stream()
@@ -220,6 +410,17 @@ public class SuggestionController {
         public void setSuggestions(List<SuggestionDto> suggestions) { this.suggestions = suggestions; }
     }
     
+    public static class RejectionReasonsDto {
+        private List<String> rejectionReasons;
+        
+        public RejectionReasonsDto(List<String> rejectionReasons) {
+            this.rejectionReasons = rejectionReasons;
+        }
+        
+        public List<String> getRejectionReasons() { return rejectionReasons; }
+        public void setRejectionReasons(List<String> rejectionReasons) { this.rejectionReasons = rejectionReasons; }
+    }
+    
     public static class AcceptRequest {
         private String sessionId;
         private String suggestionId;
@@ -294,9 +495,13 @@ public class SuggestionController {
     
     public static class RegenerateRequest {
         private String sessionId;
+        private String mode;
         
         public String getSessionId() { return sessionId; }
         public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+        
+        public String getMode() { return mode; }
+        public void setMode(String mode) { this.mode = mode; }
     }
     
     public static class RejectedSuggestionDto extends SuggestionDto {
@@ -318,6 +523,82 @@ public class SuggestionController {
         public void setCustomReason(boolean customReason) { isCustomReason = customReason; }
     }
     
+    public static class BatchRequest {
+        private List<String> descriptions;
+        
+        public List<String> getDescriptions() { return descriptions; }
+        public void setDescriptions(List<String> descriptions) { this.descriptions = descriptions; }
+    }
+    
+    public static class BatchResultDto {
+        private int index;
+        private String description;
+        private List<SuggestionDto> suggestions;
+        private String error;
+        
+        public BatchResultDto(int index, String description, List<SuggestionDto> suggestions, String error) {
+            this.index = index;
+            this.description = description;
+            this.suggestions = suggestions;
+            this.error = error;
+        }
+        
+        public int getIndex() { return index; }
+        public void setIndex(int index) { this.index = index; }
+        
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        
+        public List<SuggestionDto> getSuggestions() { return suggestions; }
+        public void setSuggestions(List<SuggestionDto> suggestions) { this.suggestions = suggestions; }
+        
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+    
+    public static class StreamErrorDto {
+        private int status;
+        private String message;
+        
+        public StreamErrorDto(int status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+        
+        public int getStatus() { return status; }
+        public void setStatus(int status) { this.status = status; }
+        
+        public String getMessage() { return message; }
+        public void setMessage(String message) { this.message = message; }
+    }
+    
+    public static class QueuedResponse {
+        private int position;
+        private long retryAfterSeconds;
+        
+        public QueuedResponse(int position, long retryAfterSeconds) {
+            this.position = position;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+        
+        public int getPosition() { return position; }
+        public void setPosition(int position) { this.position = position; }
+        
+        public long getRetryAfterSeconds() { return retryAfterSeconds; }
+        public void setRetryAfterSeconds(long retryAfterSeconds) { this.retryAfterSeconds = retryAfterSeconds; }
+    }
+    
+    public static class QueuePositionDto {
+        private int position;
+        
+        public QueuePositionDto(int position) {
+            this.position = position;
+        }
+        
+        public int getPosition() { return position; }
+        public void setPosition(int position) { this.position = position; }
+    }
+    
     public static class RejectedSuggestionsResponse {
         private List<RejectedSuggestionDto> suggestions;
         
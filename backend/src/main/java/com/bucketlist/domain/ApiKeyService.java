@@ -1,92 +1,116 @@
 package com.bucketlist.domain;
 
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.openai.OpenAiChatModel;
-import org.springframework.ai.openai.api.OpenAiApi;
-import org.springframework.ai.openai.OpenAiChatOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.ClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.util.EnumMap;
+import java.util.Map;
 
 @Service
 public class ApiKeyService {
     
-    private String storedApiKey;
-    private ChatClient validatedChatClient;
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyService.class);
+    
+    // The models one key is used with: the primary for quality, and a faster, cheaper one that
+    // routing can send some workloads to (bucketlist.llm.routing.fast-workloads)
+    public enum Tier {
+        PRIMARY,
+        FAST
+    }
+    
+    // Shared across all calls so connections to OpenAI are pooled and reused
+    private final HttpClient llmHttpClient;
+    private final ClientHttpRequestFactory llmRequestFactory;
+    private final Map<Tier, LlmConcurrencyLimiter> limiters = new EnumMap<>(Tier.class);
+    private final String baseUrl;
+    private final Map<Tier, String> models = new EnumMap<>(Tier.class);
+    private final Map<Tier, Double> temperatures = new EnumMap<>(Tier.class);
+    private final int maxTokens;
+    private final boolean structuredOutput;
+    private final MeterRegistry meterRegistry;
+    
+    private volatile String storedApiKey;
+    // One client per model the key passed the check with, built when the key is validated and
+    // reused for every call
+    private volatile Map<Tier, OpenAiCompatibleClient> validatedClients = Map.of();
     
     // Constructor to load API key from environment on startup
-    public ApiKeyService() {
+    @Autowired
+    public ApiKeyService(HttpClient llmHttpClient, ClientHttpRequestFactory llmRequestFactory,
+                         @Qualifier("openAiLimiter") LlmConcurrencyLimiter limiter,
+                         @Qualifier("fastOpenAiLimiter") LlmConcurrencyLimiter fastLimiter,
+                         @Value("${bucketlist.llm.openai.base-url:https://api.openai.com}") String baseUrl,
+                         @Value("${bucketlist.llm.openai.model:gpt-4o}") String model,
+                         @Value("${bucketlist.llm.openai.temperature:0.7}") double temperature,
+                         @Value("${bucketlist.llm.openai.fast-model:gpt-4o-mini}") String fastModel,
+                         @Value("${bucketlist.llm.openai.fast-temperature:0.7}") double fastTemperature,
+                         @Value("${bucketlist.llm.openai.max-tokens:4096}") int maxTokens,
+                         @Value("${bucketlist.llm.openai.structured-output:true}") boolean structuredOutput,
+                         MeterRegistry meterRegistry) {
+        this.llmHttpClient = llmHttpClient;
+        this.llmRequestFactory = llmRequestFactory;
+        this.limiters.put(Tier.PRIMARY, limiter);
+        this.limiters.put(Tier.FAST, fastLimiter);
+        this.baseUrl = baseUrl;
+        this.models.put(Tier.PRIMARY, model);
+        this.temperatures.put(Tier.PRIMARY, temperature);
+        // A blank fast-model leaves the fast tier unavailable
+        if (!fastModel.isBlank()) {
+            this.models.put(Tier.FAST, fastModel);
+            this.temperatures.put(Tier.FAST, fastTemperature);
+        }
+        this.maxTokens = maxTokens;
+        this.structuredOutput = structuredOutput;
+        this.meterRegistry = meterRegistry;
+        
         String envApiKey = System.getenv("OPENAI_API_KEY");
         if (envApiKey != null && !envApiKey.trim().isEmpty()) {
             if (validateAndStoreApiKey(envApiKey)) {
-                System.out.println("Successfully loaded API key from OPENAI_API_KEY environment variable");
+                logger.info("Loaded API key from the OPENAI_API_KEY environment variable");
             } else {
-                System.err.println("Invalid API key found in OPENAI_API_KEY environment variable");
+                logger.warn("Invalid API key in the OPENAI_API_KEY environment variable");
             }
         }
     }
     
     public boolean validateAndStoreApiKey(String apiKey) {
-        try {
-            // Validate the API key by making a simple call to OpenAI API
-            RestTemplate restTemplate = new RestTemplate();
-            HttpHeaders headers = new HttpHeaders();
-            headers.set("Authorization", "Bearer " + apiKey);
-            headers.set("Content-Type", "application/json");
-            
-            String requestBody = "{\n" +
-                "  \"model\": \"gpt-4o\",\n" +
-                "  \"messages\": [{\"role\": \"user\", \"content\": \"Hello\"}],\n" +
-                "  \"max_tokens\": 5\n" +
-                "}";
-            
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-            ResponseEntity<String> response = restTemplate.exchange(
-                "https://api.openai.com/v1/chat/completions", 
-                HttpMethod.POST, 
-                entity, 
-                String.class
-            );
-            
-            // If we get here without exception, the API key is valid
-            if (response.getStatusCode().is2xxSuccessful()) {
-                this.storedApiKey = apiKey;
-                
-                // Create ChatClient dynamically with the validated API key using builder pattern
-                try {
-                    OpenAiApi openAiApi = OpenAiApi.builder()
-                        .apiKey(apiKey)
-                        .build();
-                    
-                    OpenAiChatOptions chatOptions = OpenAiChatOptions.builder()
-                        .model("gpt-4o")
-                        .temperature(0.7)
-                        .maxTokens(2000)
-                        .build();
-                    
-                    OpenAiChatModel openAiChatModel = OpenAiChatModel.builder()
-                        .openAiApi(openAiApi)
-                        .defaultOptions(chatOptions)
-                        .build();
-                    
-                    this.validatedChatClient = ChatClient.create(openAiChatModel);
-                } catch (Exception e) {
-                    // If ChatClient creation fails, we'll use REST calls directly
-                    this.validatedChatClient = null;
-                }
-                
-                return true;
+        // Only OpenAI reports rate limits the limiter understands; each model's headers go to the
+        // limiter of its own tier. The clients share the pooled connections of llmHttpClient.
+        Map<Tier, OpenAiCompatibleClient> clients = new EnumMap<>(Tier.class);
+        for (Tier tier : models.keySet()) {
+            clients.put(tier, new OpenAiCompatibleClient(baseUrl, apiKey, models.get(tier), temperatures.get(tier),
+                maxTokens, structuredOutput, llmHttpClient, llmRequestFactory, limiters.get(tier)));
+        }
+        
+        // Validate the API key by making a simple call to OpenAI API with every model it will be
+        // used with, so a model the key can't reach is found now rather than on its first request.
+        // The key stands or falls with the primary model; a fast model it can't reach is left out,
+        // so routing sends fast workloads to the primary one instead. A blank fast-model leaves the
+        // fast tier out of the check.
+        for (Tier tier : Tier.values()) {
+            OpenAiCompatibleClient client = clients.get(tier);
+            if (client == null || client.ping()) {
+                continue;
+            }
+            meterRegistry.counter("bucketlist.llm.key-check.failures", "tier", tier.name().toLowerCase()).increment();
+            if (tier == Tier.PRIMARY) {
+                logger.warn("OpenAI API key check failed with the primary model {}", models.get(tier));
+                return false;
             }
-            
-            return false;
-            
-        } catch (Exception e) {
-            // API key validation failed
-            return false;
+            logger.warn("OpenAI API key check failed with the {} model {}; that tier stays unavailable",
+                tier.name().toLowerCase(), models.get(tier));
+            clients.remove(tier);
         }
+        this.storedApiKey = apiKey;
+        this.validatedClients = clients;
+        return true;
     }
     
     public boolean hasValidApiKey() {
@@ -95,67 +119,44 @@ public class ApiKeyService {
     
     public void clearApiKey() {
         this.storedApiKey = null;
-        this.validatedChatClient = null;
-    }
-    
-    public ChatClient getValidatedChatClient() {
-        return validatedChatClient;
+        this.validatedClients = Map.of();
     }
     
     public String getStoredApiKey() {
         return storedApiKey;
     }
     
-    // Direct API call method for when ChatClient is not available
-    public String callOpenAiDirectly(String prompt) throws Exception {
-        if (storedApiKey == null) {
-            throw new IllegalStateException("No API key stored");
-        }
-        
-        RestTemplate restTemplate = new RestTemplate();
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("Authorization", "Bearer " + storedApiKey);
-        headers.set("Content-Type", "application/json");
-        
-        String escapedPrompt = escapeJsonString(prompt);
-        String requestBody = String.format("{\n" +
-            "  \"model\": \"gpt-4o\",\n" +
-            "  \"messages\": [{\"role\": \"user\", \"content\": \"%s\"}],\n" +
-            "  \"max_tokens\": 2000\n" +
-            "}", escapedPrompt);
-        
-        HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-        ResponseEntity<String> response = restTemplate.exchange(
-            "https://api.openai.com/v1/chat/completions", 
-            HttpMethod.POST, 
-            entity, 
-            String.class
-        );
-        
-        if (response.getStatusCode().is2xxSuccessful()) {
-            // Parse the JSON response to get the content
-            String responseBody = response.getBody();
-            // Simple extraction - in production you'd use proper JSON parsing
-            int contentStart = responseBody.indexOf("\"content\":\"") + 11;
-            int contentEnd = responseBody.indexOf("\"", contentStart);
-            return responseBody.substring(contentStart, contentEnd)
-                .replace("\\n", "\n")
-                .replace("\\\"", "\"");
-        } else {
-            throw new Exception("OpenAI API call failed: " + response.getStatusCode());
-        }
+    // Whether the stored key passed the check with the tier's model
+    public boolean hasTier(Tier tier) {
+        return validatedClients.containsKey(tier);
     }
     
-    private String escapeJsonString(String input) {
-        if (input == null) return null;
-        
-        return input
-            .replace("\\", "\\\\")  // Escape backslashes first
-            .replace("\"", "\\\"")  // Escape quotes
-            .replace("\n", "\\n")   // Escape newlines
-            .replace("\r", "\\r")   // Escape carriage returns
-            .replace("\t", "\\t")   // Escape tabs
-            .replace("\b", "\\b")   // Escape backspace
-            .replace("\f", "\\f");  // Escape form feed
+    public String getModel(Tier tier) {
+        return models.get(tier);
+    }
+    
+    public double getTemperature(Tier tier) {
+        return temperatures.getOrDefault(tier, 0.0);
+    }
+    
+    // Paces calls to the tier's model and follows its rate limits
+    LlmConcurrencyLimiter getLimiter(Tier tier) {
+        return limiters.get(tier);
+    }
+    
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+    
+    OpenAiCompatibleClient getValidatedClient() {
+        return getValidatedClient(Tier.PRIMARY);
+    }
+    
+    OpenAiCompatibleClient getValidatedClient(Tier tier) {
+        OpenAiCompatibleClient client = validatedClients.get(tier);
+        if (client == null) {
+            throw new IllegalStateException("No API key stored");
+        }
+        return client;
     }
 }
\ No newline at end of file
@@ -9,11 +9,18 @@ public class BucketListSuggestion {
     private final String description;
     private final SpendingCategory category;
     private final PriceBreakdown priceBreakdown;
-    private final List<String> rejectionReasons;
+    // Empty until filled in when suggestions are generated without them
+    private volatile List<String> rejectionReasons;
     
     public BucketListSuggestion(String title, String description, SpendingCategory category, 
                                PriceBreakdown priceBreakdown, List<String> rejectionReasons) {
-        this.id = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), title, description, category, priceBreakdown, rejectionReasons);
+    }
+    
+    // Used when restoring a suggestion from the archive
+    public BucketListSuggestion(String id, String title, String description, SpendingCategory category, 
+                               PriceBreakdown priceBreakdown, List<String> rejectionReasons) {
+        this.id = id;
         this.title = title;
         this.description = description;
         this.category = category;
@@ -44,4 +51,13 @@ public class BucketListSuggestion {
     public List<String> getRejectionReasons() {
         return rejectionReasons;
     }
+    
+    // Only the first reasons written stick; returns whether these did
+    public synchronized boolean fillRejectionReasons(List<String> reasons) {
+        if (!rejectionReasons.isEmpty() || reasons.isEmpty()) {
+            return false;
+        }
+        rejectionReasons = List.copyOf(reasons);
+        return true;
+    }
 }
\ No newline at end of file
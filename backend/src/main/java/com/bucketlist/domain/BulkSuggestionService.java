@@ -0,0 +1,291 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.SuggestionGeneratorRouter.Routed;
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// First batches for many person descriptions in one request, without sessions, for pre-computed
+// persona lists. Descriptions that aren't cached are packed several to a prompt as far as the
+// generator's completion cap and the prompt budget allow, packs run in parallel under the LLM
+// limiter, and each person's result is reported as soon as it is known. People missing from a
+// packed answer are retried on their own; failures are reported per person.
+@Service
+public class BulkSuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkSuggestionService.class);
+
+    // "PERSON n: " plus the line break
+    private static final int PERSONA_LINE_TOKENS = 4;
+
+    private final SuggestionService suggestionService;
+    private final SuggestionGeneratorRouter generators;
+    private final PromptTemplateRegistry prompts;
+    private final SuggestionResponseCache responseCache;
+    private final SuggestionMetrics metrics;
+    private final TokenBudgetPlanner tokenBudget;
+    private final Executor executor;
+    private final int maxDescriptions;
+    private final int maxPersonasPerPrompt;
+    private final int maxPromptTokens;
+    private final int parallelism;
+
+    @Autowired
+    public BulkSuggestionService(SuggestionService suggestionService,
+                                 SuggestionGeneratorRouter generators,
+                                 PromptTemplateRegistry prompts,
+                                 SuggestionResponseCache responseCache,
+                                 SuggestionMetrics metrics, TokenBudgetPlanner tokenBudget,
+                                 @Qualifier("fanOutExecutor") Executor executor,
+                                 @Value("${bucketlist.bulk.max-descriptions:5000}") int maxDescriptions,
+                                 @Value("${bucketlist.bulk.max-personas-per-prompt:4}") int maxPersonasPerPrompt,
+                                 @Value("${bucketlist.bulk.max-prompt-tokens:8000}") int maxPromptTokens,
+                                 @Value("${bucketlist.bulk.parallelism:8}") int parallelism) {
+        this.suggestionService = suggestionService;
+        this.generators = generators;
+        this.prompts = prompts;
+        this.responseCache = responseCache;
+        this.metrics = metrics;
+        this.tokenBudget = tokenBudget;
+        this.executor = executor;
+        this.maxDescriptions = maxDescriptions;
+        this.maxPersonasPerPrompt = Math.max(1, maxPersonasPerPrompt);
+        this.maxPromptTokens = maxPromptTokens;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // Rejects requests that can't be served, before any output is produced
+    public void checkRequest(List<String> descriptions) {
+        if (descriptions == null || descriptions.isEmpty()) {
+            throw new IllegalArgumentException("No person descriptions given");
+        }
+        if (descriptions.size() > maxDescriptions) {
+            throw new IllegalArgumentException("At most " + maxDescriptions + " person descriptions per request");
+        }
+        if (descriptions.stream().anyMatch(description -> description == null || description.isBlank())) {
+            throw new IllegalArgumentException("Person descriptions must not be blank");
+        }
+        if (!generators.hasAvailableGenerator()) {
+            throw new LlmUnavailableException();
+        }
+    }
+
+    // Blocks until every description has a result. onResult is called by one thread at a time; once
+    // it throws (e.g. the client went away) no further packs are started.
+    public void generate(List<String> descriptions, boolean useCache, Consumer<PersonaResult> onResult) {
+        checkRequest(descriptions);
+
+        // One fairness key for the whole job, so the LLM queue serves it like a single session and
+        // interactive users keep their turns
+        String queueKey = "bulk-" + UUID.randomUUID();
+        ResultSink sink = new ResultSink(onResult);
+
+        SuggestionGenerator primary = generators.primary(PromptTemplateRegistry.Kind.PACKED);
+        List<Integer> pending = new ArrayList<>();
+        for (int index = 0; index < descriptions.size(); index++) {
+            String description = descriptions.get(index);
+            Optional<SuggestionResponse> cached = useCache
+                ? responseCache.get(description, suggestionService.cacheModel(primary), primary.getTemperature())
+                : Optional.empty();
+            if (cached.isPresent()) {
+                sink.success(index, description, SuggestionResponseMapper.toSuggestions(cached.get(), metrics));
+            } else {
+                pending.add(index);
+            }
+        }
+
+        List<List<Integer>> packs = pack(descriptions, pending, primary);
+        logger.info("Bulk generation of {} descriptions: {} cached, {} prompts", descriptions.size(),
+            descriptions.size() - pending.size(), packs.size());
+
+        // Bounded so a large job doesn't flood the LLM queue past its max size. Packs run on the
+        // fan-out pool since this thread waits for them.
+        Semaphore slots = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        try {
+            for (List<Integer> pack : packs) {
+                if (sink.isClosed()) {
+                    break;
+                }
+                slots.acquire();
+                running.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        generatePack(queueKey, descriptions, pack, useCache, sink);
+                    } finally {
+                        slots.release();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating suggestions", e);
+        }
+    }
+
+    // Greedy in request order: a pack closes when the next person would take it past
+    // max-personas-per-prompt, past what the generator's completion cap leaves room for, or past
+    // the prompt token budget
+    private List<List<Integer>> pack(List<String> descriptions, List<Integer> pending, SuggestionGenerator generator) {
+        int perPersona = tokenBudget.completionAllowance(PromptTemplateRegistry.Kind.PACKED, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH);
+        int perPack = Math.min(maxPersonasPerPrompt, Math.max(1, generator.getMaxTokens() / perPersona));
+        List<List<Integer>> packs = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        // Measured per job, since the active packed prompt version can change at runtime
+        int basePromptTokens = TokenCounter.count(prompts.packedPrompt(List.of()));
+        int promptTokens = basePromptTokens;
+        for (int index : pending) {
+            int tokens = TokenCounter.count(descriptions.get(index)) + PERSONA_LINE_TOKENS;
+            if (!current.isEmpty() && (current.size() >= perPack || promptTokens + tokens > maxPromptTokens)) {
+                packs.add(current);
+                current = new ArrayList<>();
+                promptTokens = basePromptTokens;
+            }
+            current.add(index);
+            promptTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            packs.add(current);
+        }
+        return packs;
+    }
+
+    private void generatePack(String queueKey, List<String> descriptions, List<Integer> pack, boolean useCache,
+                              ResultSink sink) {
+        if (sink.isClosed()) {
+            return;
+        }
+        if (pack.size() == 1) {
+            generateAlone(queueKey, pack.get(0), descriptions.get(pack.get(0)), useCache, sink);
+            return;
+        }
+
+        Timer.Sample generation = metrics.start();
+        boolean success = false;
+        Map<Integer, SuggestionResponse> answers;
+        SuggestionGenerator answered;
+        try {
+            String prompt = prompts.packedPrompt(pack.stream().map(descriptions::get).toList());
+            Routed<ChatCompletion> completion = suggestionService.requestCompletion(queueKey, PromptTemplateRegistry.Kind.PACKED,
+                pack.size() * TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, prompt);
+            answered = completion.generator();
+
+            Timer.Sample conversion = metrics.start();
+            answers = SuggestionJsonParser.parsePackedSuggestions(completion.value().content());
+            metrics.recordConversion(conversion, SuggestionMetrics.PATH_CALL);
+            success = true;
+        } catch (Exception e) {
+            logger.warn("Packed generation for {} people failed: {}", pack.size(), e.getMessage());
+            for (int index : pack) {
+                sink.failure(index, descriptions.get(index), e);
+            }
+            return;
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_BULK, success);
+        }
+
+        for (int person = 0; person < pack.size(); person++) {
+            int index = pack.get(person);
+            String description = descriptions.get(index);
+            SuggestionResponse response = answers.get(person + 1);
+            if (response == null) {
+                // Left out or cut off; one person alone is more likely to fit
+                metrics.parseFailure(SuggestionMetrics.PATH_CALL);
+                generateAlone(queueKey, index, description, useCache, sink);
+                continue;
+            }
+            responseCache.put(description, suggestionService.cacheModel(answered), answered.getTemperature(), response);
+            sink.success(index, description, SuggestionResponseMapper.toSuggestions(response, metrics));
+        }
+    }
+
+    private void generateAlone(String queueKey, int index, String description, boolean useCache, ResultSink sink) {
+        if (sink.isClosed()) {
+            return;
+        }
+        try {
+            sink.success(index, description, suggestionService.fetchInitialSuggestions(queueKey, description, useCache));
+        } catch (RuntimeException e) {
+            logger.warn("Generation for bulk description {} failed: {}", index, e.getMessage());
+            sink.failure(index, description, e);
+        }
+    }
+
+    // index is the description's position in the request; exactly one of suggestions and error is set
+    public record PersonaResult(int index, String description, List<BucketListSuggestion> suggestions, String error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    // Serializes delivery and stops delivering once the receiver has failed
+    private static final class ResultSink {
+
+        private final Consumer<PersonaResult> onResult;
+        private volatile boolean closed;
+
+        ResultSink(Consumer<PersonaResult> onResult) {
+            this.onResult = onResult;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        void success(int index, String description, List<BucketListSuggestion> suggestions) {
+            deliver(new PersonaResult(index, description, suggestions, null));
+        }
+
+        void failure(int index, String description, Exception error) {
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            deliver(new PersonaResult(index, description, List.of(), message));
+        }
+
+        private synchronized void deliver(PersonaResult result) {
+            if (closed) {
+                return;
+            }
+            try {
+                onResult.accept(result);
+            } catch (RuntimeException e) {
+                closed = true;
+                logger.info("Bulk generation receiver failed, not starting further prompts: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Response class for packed prompts, one entry per person
+    public static class PackedSuggestionResponse {
+        private List<PersonaSuggestions> personas;
+
+        public List<PersonaSuggestions> getPersonas() { return personas; }
+        public void setPersonas(List<PersonaSuggestions> personas) { this.personas = personas; }
+
+        public static class PersonaSuggestions {
+            private int persona;
+            private List<SuggestionResponse.SuggestionItem> suggestions;
+
+            public int getPersona() { return persona; }
+            public void setPersona(int persona) { this.persona = persona; }
+
+            public List<SuggestionResponse.SuggestionItem> getSuggestions() { return suggestions; }
+            public void setSuggestions(List<SuggestionResponse.SuggestionItem> suggestions) { this.suggestions = suggestions; }
+        }
+    }
+}
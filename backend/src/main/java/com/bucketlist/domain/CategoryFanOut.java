@@ -0,0 +1,129 @@
+package com.bucketlist.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Fills a batch with one call per category, all in flight at once, so the batch takes about as
+// long as its slowest single-suggestion call and can't hold two suggestions of one category.
+// Answers are handed on as they arrive. Slots whose call failed are asked again, only those, up to
+// slot-retries more times; a batch is returned short rather than not at all.
+final class CategoryFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryFanOut.class);
+
+    @FunctionalInterface
+    interface SlotCall<T> {
+        T run(SpendingCategory category) throws Exception;
+    }
+
+    private final Executor executor;
+    private final int slotRetries;
+    private final SuggestionMetrics metrics;
+
+    CategoryFanOut(Executor executor, int slotRetries, SuggestionMetrics metrics) {
+        this.executor = executor;
+        this.slotRetries = slotRetries;
+        this.metrics = metrics;
+    }
+
+    // Returns the filled slots in the order the categories were given. onFilled sees each answer
+    // as soon as its call returns, one at a time; if it throws, the fan-out fails with that. With
+    // no slot filled, the last call failure is thrown.
+    <T> List<T> run(List<SpendingCategory> categories, SlotCall<T> call, Consumer<T> onFilled) throws Exception {
+        Map<SpendingCategory, T> filled = new ConcurrentHashMap<>();
+        // A lock rather than a monitor, since onFilled may block and virtual threads waiting on it
+        // shouldn't pin their carrier
+        ReentrantLock delivery = new ReentrantLock();
+        List<SpendingCategory> open = List.copyOf(categories);
+        Exception lastFailure = null;
+        for (int round = 0; round <= slotRetries && !open.isEmpty(); round++) {
+            Map<SpendingCategory, CompletableFuture<T>> calls = new EnumMap<>(SpendingCategory.class);
+            for (SpendingCategory category : open) {
+                calls.put(category, CompletableFuture.supplyAsync(() -> {
+                    T answer;
+                    try {
+                        answer = call.run(category);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                    delivery.lock();
+                    try {
+                        filled.put(category, answer);
+                        onFilled.accept(answer);
+                    } catch (RuntimeException e) {
+                        throw new DeliveryFailure(e);
+                    } finally {
+                        delivery.unlock();
+                    }
+                    return answer;
+                }, executor));
+            }
+
+            List<SpendingCategory> failed = new ArrayList<>();
+            boolean overloaded = false;
+            for (Map.Entry<SpendingCategory, CompletableFuture<T>> slot : calls.entrySet()) {
+                try {
+                    slot.getValue().join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof DeliveryFailure delivered) {
+                        throw delivered.getCause();
+                    }
+                    lastFailure = e.getCause() instanceof Exception cause ? cause : e;
+                    overloaded |= lastFailure instanceof LlmOverloadedException;
+                    failed.add(slot.getKey());
+                    logger.debug("Fan-out slot {} failed: {}", slot.getKey(), lastFailure.getMessage());
+                }
+            }
+            open = failed;
+            // Asking an overloaded provider again right away only adds to the queue
+            if (overloaded) {
+                break;
+            }
+            if (!failed.isEmpty() && round < slotRetries) {
+                metrics.fanOutSlots("retried", failed.size());
+            }
+        }
+
+        metrics.fanOutSlots("filled", filled.size());
+        if (filled.isEmpty()) {
+            metrics.fanOutSlots("failed", open.size());
+            throw lastFailure;
+        }
+        if (!open.isEmpty()) {
+            metrics.fanOutSlots("failed", open.size());
+            logger.warn("Fan-out batch is {} short, no answer for {}: {}", open.size(), open, lastFailure.getMessage());
+        }
+        List<T> answers = new ArrayList<>(filled.size());
+        for (SpendingCategory category : categories) {
+            T answer = filled.get(category);
+            if (answer != null) {
+                answers.add(answer);
+            }
+        }
+        return answers;
+    }
+
+    // onFilled failing is the caller's problem, not the slot's, so it isn't retried
+    private static final class DeliveryFailure extends RuntimeException {
+
+        DeliveryFailure(RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+}
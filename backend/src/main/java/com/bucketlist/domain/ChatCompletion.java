@@ -0,0 +1,5 @@
+package com.bucketlist.domain;
+
+// Completion text plus the token usage OpenAI reported for it (null when not reported)
+public record ChatCompletion(String content, Integer promptTokens, Integer completionTokens) {
+}
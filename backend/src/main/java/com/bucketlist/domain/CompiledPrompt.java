@@ -0,0 +1,96 @@
+package com.bucketlist.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A prompt template parsed once into literal text and variable slots. Constants (the category list,
+// the format schema) are folded into the literals at compile time, so rendering is a single
+// pre-sized StringBuilder pass over the slots.
+final class CompiledPrompt {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-z]+)}");
+
+    private final String name;
+    private final String version;
+    // literals.length == slots.length + 1; slots index into the render arguments
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private CompiledPrompt(String name, String version, String[] literals, int[] slots) {
+        this.name = name;
+        this.version = version;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    // Every variable must appear in the text; any other placeholder must be one of the constants
+    static CompiledPrompt compile(String name, String version, String text, List<String> variables,
+                                  Map<String, String> constants) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        boolean[] used = new boolean[variables.size()];
+        StringBuilder literal = new StringBuilder();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        int position = 0;
+        while (matcher.find()) {
+            literal.append(text, position, matcher.start());
+            position = matcher.end();
+            String placeholder = matcher.group(1);
+            String constant = constants.get(placeholder);
+            if (constant != null) {
+                literal.append(constant);
+                continue;
+            }
+            int slot = variables.indexOf(placeholder);
+            if (slot < 0) {
+                throw new IllegalArgumentException("Unknown placeholder {" + placeholder + "} in " + name + " prompt "
+                    + version + "; expected one of " + variables + " or " + constants.keySet());
+            }
+            used[slot] = true;
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slot);
+        }
+        literal.append(text, position, text.length());
+        literals.add(literal.toString());
+
+        for (int slot = 0; slot < variables.size(); slot++) {
+            if (!used[slot]) {
+                throw new IllegalArgumentException(name + " prompt " + version + " is missing {" + variables.get(slot) + "}");
+            }
+        }
+        return new CompiledPrompt(name, version, literals.toArray(String[]::new),
+            slots.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    // values are in the order of the variables the prompt was compiled with
+    String render(String... values) {
+        int length = literalLength;
+        for (int slot : slots) {
+            length += values[slot].length();
+        }
+        StringBuilder prompt = new StringBuilder(length);
+        prompt.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            prompt.append(values[slots[i]]).append(literals[i + 1]);
+        }
+        return prompt.toString();
+    }
+}
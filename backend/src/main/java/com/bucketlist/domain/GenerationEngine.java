@@ -0,0 +1,19 @@
+package com.bucketlist.domain;
+
+import java.util.Locale;
+
+// How a batch is asked for. BATCH sends one prompt for the whole batch; FANOUT picks the batch's
+// categories up front and sends one single-suggestion prompt per category, all at once.
+public enum GenerationEngine {
+    BATCH,
+    FANOUT;
+
+    public static GenerationEngine fromId(String id) {
+        for (GenerationEngine engine : values()) {
+            if (engine.name().equals(id.strip().toUpperCase(Locale.ROOT))) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown generation engine: " + id);
+    }
+}
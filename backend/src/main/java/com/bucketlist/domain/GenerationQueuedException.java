@@ -0,0 +1,25 @@
+package com.bucketlist.domain;
+
+import java.time.Duration;
+
+// A generation is still waiting for an LLM slot. It keeps its place in the queue; asking for
+// the same batch again joins it.
+public class GenerationQueuedException extends RuntimeException {
+    
+    private final int position;
+    private final Duration estimatedWait;
+    
+    public GenerationQueuedException(int position, Duration estimatedWait) {
+        super("Suggestion generation is queued at position " + position);
+        this.position = position;
+        this.estimatedWait = estimatedWait;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public Duration getEstimatedWait() {
+        return estimatedWait;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bucketlist.domain;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// In-process embedder for offline use and as the fallback: word stems and character trigrams are
+// feature-hashed into a fixed number of signed dimensions. It catches reworded copies of the same
+// idea rather than meaning, which is what regenerations mostly repeat.
+@Component
+public class HashingSuggestionEmbedder implements SuggestionEmbedder {
+
+    public static final String NAME = "hashing";
+
+    static final int DIMENSIONS = 256;
+
+    // Stems are word prefixes, so "hiking" and "hike" or "trips" and "trip" meet
+    private static final int STEM_LENGTH = 5;
+    private static final float STEM_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.3f;
+
+    private static final Set<String> STOP_WORDS = Set.of("the", "and", "for", "with", "you", "your", "that", "this",
+        "from", "into", "are", "was", "will", "can", "all", "one", "out", "its", "has", "have", "our");
+
+    private final double duplicateThreshold;
+
+    public HashingSuggestionEmbedder(@Value("${bucketlist.dedup.hashing.threshold:0.6}") double duplicateThreshold) {
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public double getDuplicateThreshold() {
+        return duplicateThreshold;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) {
+        return texts.stream().map(HashingSuggestionEmbedder::embed).toList();
+    }
+
+    static float[] embed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT)
+            .replaceAll("[^\\p{L}\\p{N}]+", " ")
+            .strip();
+        for (String word : normalized.split(" ")) {
+            if (word.length() < 3 || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            add(vector, "w:" + word.substring(0, Math.min(STEM_LENGTH, word.length())), STEM_WEIGHT);
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                add(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+        }
+        return SuggestionVectorIndex.normalize(vector);
+    }
+
+    private static void add(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode() * 0x9E3779B1;
+        hash ^= hash >>> 15;
+        vector[Math.floorMod(hash, DIMENSIONS)] += (hash & 0x10000) == 0 ? weight : -weight;
+    }
+}
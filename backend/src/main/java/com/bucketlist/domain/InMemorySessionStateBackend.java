@@ -0,0 +1,57 @@
+package com.bucketlist.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Single-node backend: the logs live in this JVM next to the near cache and hold references to the
+// same suggestion objects, so they cost little extra heap. A session leaves with the near cache's
+// copy; the SessionArchive brings it back. There are no other nodes to notify.
+public class InMemorySessionStateBackend implements SessionStateBackend {
+
+    public static final String NAME = "memory";
+
+    private final Map<String, List<SessionEvent>> logs = new ConcurrentHashMap<>();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public long append(String sessionId, SessionEvent event) {
+        List<SessionEvent> log = logs.computeIfAbsent(sessionId, id -> new ArrayList<>());
+        synchronized (log) {
+            log.add(event);
+            return log.size();
+        }
+    }
+
+    @Override
+    public LogSlice read(String sessionId, long offset) {
+        List<SessionEvent> log = logs.get(sessionId);
+        if (log == null) {
+            return LogSlice.empty(0);
+        }
+        synchronized (log) {
+            return offset >= log.size()
+                ? LogSlice.empty(log.size())
+                : new LogSlice(List.copyOf(log.subList((int) offset, log.size())), log.size());
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        logs.remove(sessionId);
+    }
+
+    @Override
+    public void release(String sessionId) {
+        logs.remove(sessionId);
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+    }
+}
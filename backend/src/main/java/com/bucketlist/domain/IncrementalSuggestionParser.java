@@ -0,0 +1,66 @@
+package com.bucketlist.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits a streamed {"suggestions": [...]} completion into one JSON string per suggestion
+// object as soon as that object closes. Chunks may cut anywhere, including inside strings.
+public class IncrementalSuggestionParser {
+    
+    // Suggestion objects open at depth 2: root object -> suggestions array
+    private static final int ITEM_DEPTH = 2;
+    
+    private final StringBuilder currentItem = new StringBuilder();
+    private int depth = 0;
+    private boolean inString = false;
+    private boolean escaped = false;
+    private boolean capturing = false;
+    
+    public List<String> feed(String chunk) {
+        List<String> completed = new ArrayList<>();
+        
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            
+            if (capturing) {
+                currentItem.append(c);
+            }
+            
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            
+            switch (c) {
+                case '"' -> inString = depth > 0;
+                case '{', '[' -> {
+                    if (c == '{' && depth == ITEM_DEPTH && !capturing) {
+                        capturing = true;
+                        currentItem.setLength(0);
+                        currentItem.append(c);
+                    }
+                    depth++;
+                }
+                case '}', ']' -> {
+                    depth--;
+                    if (capturing && depth == ITEM_DEPTH) {
+                        completed.add(currentItem.toString());
+                        currentItem.setLength(0);
+                        capturing = false;
+                    }
+                }
+                default -> {
+                    // Whitespace, separators and scalar values need no tracking
+                }
+            }
+        }
+        
+        return completed;
+    }
+}
@@ -0,0 +1,456 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Caps concurrent LLM calls with a limit that adapts to observed latency (AIMD): the limit grows
+// by one per window of calls finishing within latency-tolerance x the baseline of their prompt kind
+// (a short reasons list and a packed bulk prompt take very different times), and shrinks
+// multiplicatively when calls slow down or fail. Calls over the limit wait in a bounded queue
+// served round-robin across sessions, and OpenAI's Retry-After / x-ratelimit-* headers pause
+// dispatch until the quota resets. Quotas and latencies are per model, so each rate-limited model
+// gets a limiter of its own (see OpenAIConfig).
+public class LlmConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmConcurrencyLimiter.class);
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double RATE_LIMITED_RATIO = 0.5;
+    private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
+    // OpenAI reset values look like "20ms", "1s" or "6m0s"
+    private static final Pattern RESET_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final long minRemainingTokens;
+    private final int maxQueueSize;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Sessions in round-robin order, each with its own FIFO of waiting calls
+    private final LinkedHashMap<String, ArrayDeque<Waiter>> waiting = new LinkedHashMap<>();
+
+    // Guarded by lock; volatile only so gauges read current values
+    private volatile double limit;
+    private volatile int inFlight;
+    private volatile int queued;
+    private final Map<Kind, Long> baselineNanos = new EnumMap<>(Kind.class);
+    private double averageNanos;
+    private long pausedUntilNanos;
+
+    private final Timer queueWait;
+    private final Counter queueFull;
+    private final Counter queueTimeout;
+    private final Counter rateLimited;
+
+    // Shared by every limiter, from bucketlist.llm.limiter.* and bucketlist.llm.queue.*
+    public record Settings(int initialLimit, int minLimit, int maxLimit, double latencyTolerance,
+                           long minRemainingTokens, int maxQueueSize, Duration maxWait) {
+    }
+
+    // name tells the limiter's meters apart, e.g. the provider it guards
+    public LlmConcurrencyLimiter(MeterRegistry meterRegistry, String name, Settings settings) {
+        this.name = name;
+        this.minLimit = settings.minLimit();
+        this.maxLimit = settings.maxLimit();
+        this.latencyTolerance = settings.latencyTolerance();
+        this.minRemainingTokens = settings.minRemainingTokens();
+        this.maxQueueSize = settings.maxQueueSize();
+        this.maxWaitNanos = settings.maxWait().toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, settings.initialLimit()));
+        this.pausedUntilNanos = System.nanoTime();
+
+        Gauge.builder("bucketlist.llm.limit", this, limiter -> limiter.limit)
+            .description("Current adaptive limit on concurrent LLM calls")
+            .tag("limiter", name)
+            .register(meterRegistry);
+        Gauge.builder("bucketlist.llm.inflight", this, limiter -> limiter.inFlight)
+            .description("LLM calls currently holding a permit")
+            .tag("limiter", name)
+            .register(meterRegistry);
+        Gauge.builder("bucketlist.llm.queued", this, limiter -> limiter.queued)
+            .description("LLM calls waiting for a permit")
+            .tag("limiter", name)
+            .register(meterRegistry);
+        queueWait = Timer.builder("bucketlist.llm.queue.wait")
+            .description("Time LLM calls spent queued before getting a permit")
+            .tag("limiter", name)
+            .register(meterRegistry);
+        queueFull = meterRegistry.counter("bucketlist.llm.rejected", "limiter", name, "reason", "queue-full");
+        queueTimeout = meterRegistry.counter("bucketlist.llm.rejected", "limiter", name, "reason", "timeout");
+        rateLimited = meterRegistry.counter("bucketlist.llm.rate.limited", "limiter", name);
+    }
+
+    public Permit acquire(String sessionId, Kind kind) {
+        return acquire(sessionId, kind, position -> {});
+    }
+
+    // Blocks until a permit is free, up to queue.max-wait. onQueued gets the 1-based queue
+    // position if the call has to wait.
+    public Permit acquire(String sessionId, Kind kind, IntConsumer onQueued) {
+        long start = System.nanoTime();
+        Waiter waiter;
+        int position;
+        lock.lock();
+        try {
+            if (queued == 0 && canDispatch(start)) {
+                inFlight++;
+                return new Permit(kind, inFlight);
+            }
+            if (queued >= maxQueueSize) {
+                queueFull.increment();
+                throw new LlmOverloadedException("LLM request queue is full", estimateWait(queued));
+            }
+            waiter = new Waiter(lock.newCondition());
+            waiting.computeIfAbsent(sessionId, key -> new ArrayDeque<>()).add(waiter);
+            queued++;
+            position = positionOf(sessionId, waiter);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            onQueued.accept(position);
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                if (waiter.granted) {
+                    inFlight--;
+                    dispatch();
+                } else {
+                    remove(sessionId, waiter);
+                }
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            while (!waiter.granted) {
+                long now = System.nanoTime();
+                long remaining = start + maxWaitNanos - now;
+                if (remaining <= 0) {
+                    remove(sessionId, waiter);
+                    queueTimeout.increment();
+                    throw new LlmOverloadedException("Timed out waiting for an LLM slot", estimateWait(queued));
+                }
+                // While paused nobody releases a permit, so wake up when the pause ends
+                long pause = pausedUntilNanos - now;
+                waiter.ready.awaitNanos(pause > 0 ? Math.min(remaining, pause) : remaining);
+                dispatch();
+            }
+            queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return new Permit(kind, inFlight);
+        } catch (InterruptedException e) {
+            if (waiter.granted) {
+                inFlight--;
+                dispatch();
+            } else {
+                remove(sessionId, waiter);
+            }
+            Thread.currentThread().interrupt();
+            throw new LlmOverloadedException("Interrupted while waiting for an LLM slot", Duration.ZERO);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // A permit only if one is free right now and nobody is queued for it; never waits
+    public Optional<Permit> tryAcquire(Kind kind) {
+        lock.lock();
+        try {
+            if (queued == 0 && canDispatch(System.nanoTime())) {
+                inFlight++;
+                return Optional.of(new Permit(kind, inFlight));
+            }
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 1-based position of the session's next queued call, empty if nothing of it is waiting
+    public OptionalInt queuePosition(String sessionId) {
+        lock.lock();
+        try {
+            ArrayDeque<Waiter> calls = waiting.get(sessionId);
+            if (calls == null || calls.isEmpty()) {
+                return OptionalInt.empty();
+            }
+            return OptionalInt.of(positionOf(sessionId, calls.peekFirst()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rough time until a call at this queue position starts: one average call per round of limit slots
+    public Duration estimateWait(int position) {
+        lock.lock();
+        try {
+            long rounds = (long) Math.ceil(position / Math.floor(limit));
+            long pause = Math.max(0, pausedUntilNanos - System.nanoTime());
+            return Duration.ofNanos(rounds * (long) averageNanos + pause);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Time left on a rate-limit pause, zero when calls may go out
+    public Duration remainingPause() {
+        lock.lock();
+        try {
+            return Duration.ofNanos(Math.max(0, pausedUntilNanos - System.nanoTime()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Fed from the HTTP clients with every OpenAI response, whichever path made the call
+    public void onResponse(int status, HttpHeaders headers) {
+        Duration pause = null;
+        if (status == 429) {
+            rateLimited.increment();
+            pause = retryAfter(headers);
+        } else if (remaining(headers, "x-ratelimit-remaining-requests") == 0) {
+            pause = parseResetDuration(headers.getFirst("x-ratelimit-reset-requests"));
+        } else if (remaining(headers, "x-ratelimit-remaining-tokens") < minRemainingTokens) {
+            pause = parseResetDuration(headers.getFirst("x-ratelimit-reset-tokens"));
+        }
+        if (pause == null) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long until = System.nanoTime() + pause.toNanos();
+            if (until - pausedUntilNanos > 0) {
+                pausedUntilNanos = until;
+            }
+            if (status == 429) {
+                decrease(RATE_LIMITED_RATIO);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (status == 429) {
+            logger.warn("OpenAI rate limit hit, pausing {} calls for {} (limit now {})", name, pause, (int) limit);
+        } else {
+            logger.debug("OpenAI rate limit quota exhausted, pausing {} calls for {}", name, pause);
+        }
+    }
+
+    private void release(Kind kind, int inFlightAtStart, long latencyNanos, boolean success) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (success) {
+                // The baseline follows new minimums at once and creeps up slowly otherwise, so a
+                // model that got slower for good doesn't hold the limit at its floor forever
+                long previous = baselineNanos.getOrDefault(kind, Long.MAX_VALUE);
+                long baseline = latencyNanos < previous ? latencyNanos : previous + (latencyNanos - previous) / 100;
+                baselineNanos.put(kind, baseline);
+                averageNanos = averageNanos == 0 ? latencyNanos : averageNanos * 0.8 + latencyNanos * 0.2;
+
+                if (latencyNanos > baseline * latencyTolerance) {
+                    decrease(BACKOFF_RATIO);
+                } else if (inFlightAtStart * 2 >= limit) {
+                    // Only grow when the limit is actually being used
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            } else {
+                decrease(BACKOFF_RATIO);
+            }
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(double ratio) {
+        limit = Math.max(minLimit, limit * ratio);
+    }
+
+    private boolean canDispatch(long now) {
+        return inFlight < (int) limit && pausedUntilNanos - now <= 0;
+    }
+
+    // Hands free permits to waiting calls, taking one call per session in turn
+    private void dispatch() {
+        long now = System.nanoTime();
+        while (queued > 0 && canDispatch(now)) {
+            Iterator<Map.Entry<String, ArrayDeque<Waiter>>> sessions = waiting.entrySet().iterator();
+            Map.Entry<String, ArrayDeque<Waiter>> next = sessions.next();
+            sessions.remove();
+            Waiter waiter = next.getValue().pollFirst();
+            if (!next.getValue().isEmpty()) {
+                waiting.put(next.getKey(), next.getValue());
+            }
+            queued--;
+            inFlight++;
+            waiter.granted = true;
+            waiter.ready.signal();
+        }
+    }
+
+    private void remove(String sessionId, Waiter waiter) {
+        ArrayDeque<Waiter> calls = waiting.get(sessionId);
+        if (calls != null && calls.remove(waiter)) {
+            queued--;
+            if (calls.isEmpty()) {
+                waiting.remove(sessionId);
+            }
+        }
+    }
+
+    // Sessions ahead in the rotation get one more turn before this call than sessions behind it
+    private int positionOf(String sessionId, Waiter waiter) {
+        int ownIndex = 0;
+        for (Waiter call : waiting.get(sessionId)) {
+            if (call == waiter) {
+                break;
+            }
+            ownIndex++;
+        }
+
+        int ahead = 0;
+        boolean beforeOwnSession = true;
+        for (Map.Entry<String, ArrayDeque<Waiter>> session : waiting.entrySet()) {
+            if (session.getKey().equals(sessionId)) {
+                beforeOwnSession = false;
+                ahead += ownIndex;
+            } else {
+                ahead += Math.min(session.getValue().size(), beforeOwnSession ? ownIndex + 1 : ownIndex);
+            }
+        }
+        return ahead + 1;
+    }
+
+    private static Duration retryAfter(HttpHeaders headers) {
+        String millis = headers.getFirst("retry-after-ms");
+        if (millis != null) {
+            try {
+                return Duration.ofMillis((long) Double.parseDouble(millis));
+            } catch (NumberFormatException e) {
+                // Fall through to Retry-After
+            }
+        }
+        String value = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                Duration untilDate = Duration.between(ZonedDateTime.now(),
+                    ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return untilDate.isNegative() ? DEFAULT_RETRY_AFTER : untilDate;
+            } catch (DateTimeParseException ignored) {
+                return DEFAULT_RETRY_AFTER;
+            }
+        }
+    }
+
+    private static long remaining(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null) {
+            return Long.MAX_VALUE;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    static Duration parseResetDuration(String value) {
+        if (value == null) {
+            return DEFAULT_RETRY_AFTER;
+        }
+        Matcher parts = RESET_PART.matcher(value.trim());
+        double millis = 0;
+        boolean matched = false;
+        while (parts.find()) {
+            matched = true;
+            double amount = Double.parseDouble(parts.group(1));
+            millis += switch (parts.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return matched ? Duration.ofMillis(Math.round(millis)) : DEFAULT_RETRY_AFTER;
+    }
+
+    // Held for the duration of one LLM call. Call success() when the call completed normally;
+    // closing without it counts as a failure and backs the limit off.
+    public final class Permit implements AutoCloseable {
+
+        private final Kind kind;
+        private final int inFlightAtStart;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(Kind kind, int inFlightAtStart) {
+            this.kind = kind;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        public void success() {
+            release(true);
+        }
+
+        @Override
+        public void close() {
+            release(false);
+        }
+
+        private void release(boolean success) {
+            if (released) {
+                return;
+            }
+            released = true;
+            LlmConcurrencyLimiter.this.release(kind, inFlightAtStart, System.nanoTime() - startNanos, success);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Condition ready;
+        private boolean granted;
+
+        private Waiter(Condition ready) {
+            this.ready = ready;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.bucketlist.domain;
+
+import java.time.Duration;
+
+// The LLM can't take the call right now (queue full, queue wait exceeded or OpenAI rate limit);
+// callers should come back after retryAfter
+public class LlmOverloadedException extends RuntimeException {
+    
+    private final Duration retryAfter;
+    
+    public LlmOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    public LlmOverloadedException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
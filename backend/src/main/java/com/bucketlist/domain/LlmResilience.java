@@ -0,0 +1,414 @@
+package com.bucketlist.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+// Retries, hedging and a circuit breaker around individual LLM requests. Transient failures
+// (5xx, timeouts, connection errors) are retried with jittered exponential backoff; once enough
+// latencies are known, a request still running past the observed p95 gets a hedged twin and the
+// first success wins. When most recent requests failed the circuit opens and callers fail fast
+// with a 503 until a single probe request succeeds again. Circuits and latencies are tracked per
+// generator, so one failing provider doesn't stop traffic to the others.
+@Component
+public class LlmResilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResilience.class);
+
+    private static final int LATENCY_SAMPLES = 100;
+
+    private final Executor hedgeExecutor;
+    private final int maxAttempts;
+    private final long backoffBaseMillis;
+    private final long backoffMaxMillis;
+    private final boolean hedgingEnabled;
+    private final int hedgingMinSamples;
+    private final double hedgingPercentile;
+    private final double failureRateThreshold;
+    private final int window;
+    private final int minimumCalls;
+    private final Duration openDuration;
+
+    private final Map<String, ProviderHealth> providers = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry;
+    private final Counter hedges;
+    private final Counter hedgesWon;
+
+    @Autowired
+    public LlmResilience(MeterRegistry meterRegistry,
+                         @Qualifier("hedgeExecutor") Executor hedgeExecutor,
+                         @Value("${bucketlist.llm.retry.max-attempts:3}") int maxAttempts,
+                         @Value("${bucketlist.llm.retry.backoff:500ms}") Duration backoffBase,
+                         @Value("${bucketlist.llm.retry.max-backoff:5s}") Duration backoffMax,
+                         @Value("${bucketlist.llm.hedging.enabled:false}") boolean hedgingEnabled,
+                         @Value("${bucketlist.llm.hedging.min-samples:20}") int hedgingMinSamples,
+                         @Value("${bucketlist.llm.hedging.percentile:0.95}") double hedgingPercentile,
+                         @Value("${bucketlist.llm.circuit.failure-rate:0.5}") double failureRateThreshold,
+                         @Value("${bucketlist.llm.circuit.window:20}") int window,
+                         @Value("${bucketlist.llm.circuit.minimum-calls:10}") int minimumCalls,
+                         @Value("${bucketlist.llm.circuit.open-duration:30s}") Duration openDuration) {
+        this.meterRegistry = meterRegistry;
+        this.hedgeExecutor = hedgeExecutor;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMillis = backoffBase.toMillis();
+        this.backoffMaxMillis = backoffMax.toMillis();
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgingMinSamples = hedgingMinSamples;
+        this.hedgingPercentile = hedgingPercentile;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = window;
+        this.minimumCalls = minimumCalls;
+        this.openDuration = openDuration;
+
+        hedges = meterRegistry.counter("bucketlist.llm.hedges");
+        hedgesWon = meterRegistry.counter("bucketlist.llm.hedges.won");
+    }
+
+    public <T> T call(SuggestionGenerator generator, String path, Policy policy, Attempt<T> attempt) throws Exception {
+        String provider = generator.getName();
+        ProviderHealth health = health(provider);
+        CircuitBreaker circuit = health.circuit;
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            Duration open = circuit.tryAcquire();
+            if (open != null) {
+                meterRegistry.counter("bucketlist.llm.circuit.rejected", "provider", provider).increment();
+                throw new LlmOverloadedException("LLM provider " + provider + " is failing, circuit is open", open);
+            }
+
+            long start = System.nanoTime();
+            try {
+                long hedgeAfter = policy.hedge() && hedgingEnabled ? health.latencyPercentile(hedgingPercentile, hedgingMinSamples) : -1;
+                T result = hedgeAfter > 0 ? hedged(attempt, hedgeAfter) : attempt.run(false);
+                health.recordLatency(System.nanoTime() - start);
+                circuit.onSuccess();
+                return result;
+            } catch (LlmOverloadedException e) {
+                // Queue and rate-limit rejections say nothing about the provider's health
+                circuit.onIgnored();
+                throw e;
+            } catch (Exception e) {
+                boolean transientFailure = isTransient(e);
+                if (transientFailure) {
+                    circuit.onFailure();
+                } else {
+                    circuit.onIgnored();
+                }
+                if (!transientFailure || attemptNumber >= maxAttempts || !policy.retryable().getAsBoolean()) {
+                    throw e;
+                }
+                long backoff = backoffMillis(attemptNumber, generator.getLimiter());
+                meterRegistry.counter("bucketlist.llm.retries", "provider", provider, "path", path).increment();
+                logger.warn("Transient {} {} LLM failure (attempt {} of {}), retrying in {} ms: {}",
+                    provider, path, attemptNumber, maxAttempts, backoff, e.getMessage());
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    // True while the provider's circuit is open; a half-open circuit still lets its probe through
+    public boolean isCircuitOpen(String provider) {
+        return health(provider).circuit.isOpen();
+    }
+
+    // The given percentile of the provider's recent successful latencies, once minSamples are known
+    public Optional<Duration> latencyPercentile(String provider, double percentile, int minSamples) {
+        long nanos = health(provider).latencyPercentile(percentile, minSamples);
+        return nanos < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(nanos));
+    }
+
+    // Forgets the provider's latencies, e.g. so it is judged afresh after being routed around
+    public void resetLatencies(String provider) {
+        health(provider).resetLatencies();
+    }
+
+    private ProviderHealth health(String provider) {
+        return providers.computeIfAbsent(provider, name -> {
+            ProviderHealth health = new ProviderHealth(
+                new CircuitBreaker(name, failureRateThreshold, window, minimumCalls, openDuration));
+            Gauge.builder("bucketlist.llm.circuit.state", health.circuit, breaker -> breaker.state.ordinal())
+                .description("LLM circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("provider", name)
+                .register(meterRegistry);
+            return health;
+        });
+    }
+
+    // Full jitter on an exponential backoff, and never earlier than the provider's rate-limit pause ends
+    private long backoffMillis(int attemptNumber, LlmConcurrencyLimiter limiter) {
+        long ceiling = Math.min(backoffMaxMillis, backoffBaseMillis << Math.min(attemptNumber - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return limiter != null ? Math.max(jittered, limiter.remainingPause().toMillis()) : jittered;
+    }
+
+    // Runs the request, and if it is still going after hedgeAfter starts a second one. The first
+    // success wins; the loser runs to completion and its result is dropped.
+    private <T> T hedged(Attempt<T> attempt, long hedgeAfterNanos) throws Exception {
+        CompletableFuture<T> primary = CompletableFuture.supplyAsync(() -> run(attempt, false), hedgeExecutor);
+        try {
+            return primary.get(hedgeAfterNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual: hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+
+        hedges.increment();
+        CompletableFuture<T> hedge = CompletableFuture.supplyAsync(() -> run(attempt, true), hedgeExecutor);
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> {
+            if (error == null) {
+                winner.complete(result);
+            } else if (failures.incrementAndGet() == 2) {
+                winner.completeExceptionally(error);
+            }
+        });
+        hedge.whenComplete((result, error) -> {
+            if (error == null) {
+                if (winner.complete(result)) {
+                    hedgesWon.increment();
+                }
+            } else if (failures.incrementAndGet() == 2) {
+                // Report the primary's failure; the hedge may just not have found a free slot
+                winner.completeExceptionally(primary.exceptionNow());
+            }
+        });
+
+        try {
+            return winner.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static <T> T run(Attempt<T> attempt, boolean hedge) {
+        try {
+            return attempt.run(hedge);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static Exception unwrap(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof Exception exception) {
+            return exception;
+        }
+        throw (Error) cause;
+    }
+
+    // 5xx, timeouts and connection failures; 4xx (including 429, which the limiter handles) are not.
+    // Other I/O errors, such as a reply that isn't valid JSON, would fail the same way again.
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NonTransientAiException || cause instanceof JsonProcessingException) {
+                return false;
+            }
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientAiException
+                || cause instanceof HttpServerErrorException
+                || cause instanceof WebClientRequestException
+                || cause instanceof SocketException
+                || cause instanceof SocketTimeoutException
+                || cause instanceof HttpTimeoutException) {
+                return true;
+            }
+            if (cause instanceof WebClientResponseException response) {
+                return response.getStatusCode().is5xxServerError();
+            }
+        }
+        return false;
+    }
+
+    // One LLM request; hedge is true for the speculative second copy
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run(boolean hedge) throws Exception;
+    }
+
+    public record Policy(boolean hedge, BooleanSupplier retryable) {
+
+        // Idempotent requests: retried and hedged
+        public static final Policy IDEMPOTENT = new Policy(true, () -> true);
+
+        // Retried only while the condition holds, e.g. until a stream has delivered output
+        public static Policy retryWhile(BooleanSupplier condition) {
+            return new Policy(false, condition);
+        }
+    }
+
+    // Circuit plus a ring of recent successful request latencies for one provider
+    private static final class ProviderHealth {
+
+        private final CircuitBreaker circuit;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private int latencyCount;
+        private int latencyNext;
+
+        ProviderHealth(CircuitBreaker circuit) {
+            this.circuit = circuit;
+        }
+
+        synchronized void recordLatency(long nanos) {
+            latencies[latencyNext] = nanos;
+            latencyNext = (latencyNext + 1) % LATENCY_SAMPLES;
+            latencyCount = Math.min(latencyCount + 1, LATENCY_SAMPLES);
+        }
+
+        // -1 until minSamples latencies are known
+        synchronized long latencyPercentile(double percentile, int minSamples) {
+            if (latencyCount == 0 || latencyCount < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.max(0, Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1))];
+        }
+
+        synchronized void resetLatencies() {
+            latencyCount = 0;
+            latencyNext = 0;
+        }
+    }
+
+    enum CircuitState {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    // Count-based sliding window over the outcomes of the last requests
+    static final class CircuitBreaker {
+
+        private final String provider;
+        private final double failureRateThreshold;
+        private final boolean[] outcomes;
+        private final int minimumCalls;
+        private final long openNanos;
+
+        private volatile CircuitState state = CircuitState.CLOSED;
+        private int recorded;
+        private int next;
+        private int failures;
+        private long openedAt;
+        private boolean probeInFlight;
+
+        CircuitBreaker(String provider, double failureRateThreshold, int window, int minimumCalls, Duration openDuration) {
+            this.provider = provider;
+            this.failureRateThreshold = failureRateThreshold;
+            this.outcomes = new boolean[Math.max(1, window)];
+            this.minimumCalls = Math.min(minimumCalls, outcomes.length);
+            this.openNanos = openDuration.toNanos();
+        }
+
+        // Null if the request may go out, otherwise how long the circuit stays open
+        synchronized Duration tryAcquire() {
+            if (state == CircuitState.OPEN) {
+                long remaining = openedAt + openNanos - System.nanoTime();
+                if (remaining > 0) {
+                    return Duration.ofNanos(remaining);
+                }
+                state = CircuitState.HALF_OPEN;
+                probeInFlight = false;
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                if (probeInFlight) {
+                    return Duration.ofSeconds(1);
+                }
+                probeInFlight = true;
+            }
+            return null;
+        }
+
+        synchronized boolean isOpen() {
+            return state == CircuitState.OPEN && openedAt + openNanos - System.nanoTime() > 0;
+        }
+
+        synchronized void onSuccess() {
+            if (state == CircuitState.HALF_OPEN) {
+                logger.info("LLM provider {} recovered, closing circuit", provider);
+                reset(CircuitState.CLOSED);
+                return;
+            }
+            record(false);
+        }
+
+        synchronized void onFailure() {
+            if (state == CircuitState.HALF_OPEN) {
+                open();
+                return;
+            }
+            record(true);
+            if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                open();
+            }
+        }
+
+        // Lets the half-open probe slot go without judging the provider
+        synchronized void onIgnored() {
+            probeInFlight = false;
+        }
+
+        private void record(boolean failure) {
+            if (recorded == outcomes.length && outcomes[next]) {
+                failures--;
+            }
+            outcomes[next] = failure;
+            if (failure) {
+                failures++;
+            }
+            next = (next + 1) % outcomes.length;
+            recorded = Math.min(recorded + 1, outcomes.length);
+        }
+
+        private void open() {
+            logger.warn("LLM provider {} failing ({} of last {} requests), opening circuit for {} s",
+                provider, failures, recorded, TimeUnit.NANOSECONDS.toSeconds(openNanos));
+            reset(CircuitState.OPEN);
+            openedAt = System.nanoTime();
+        }
+
+        private void reset(CircuitState newState) {
+            Arrays.fill(outcomes, false);
+            recorded = 0;
+            next = 0;
+            failures = 0;
+            probeInFlight = false;
+            state = newState;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.bucketlist.domain;
+
+// No LLM provider can take requests: there's no OpenAI API key and no other generator is configured.
+// Callers answer 401, so the client asks for a key.
+public class LlmUnavailableException extends RuntimeException {
+    
+    public LlmUnavailableException() {
+        super("API key not configured and no other LLM provider available");
+    }
+}
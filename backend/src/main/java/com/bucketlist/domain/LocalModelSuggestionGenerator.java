@@ -0,0 +1,100 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.util.function.Consumer;
+
+// A self-hosted model behind an OpenAI-compatible endpoint, e.g. llama.cpp's server or Ollama
+// (base-url http://localhost:11434). Unavailable until a base URL is configured.
+@Component
+public class LocalModelSuggestionGenerator implements SuggestionGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalModelSuggestionGenerator.class);
+
+    public static final String NAME = "local";
+
+    private final String model;
+    private final double temperature;
+    private final int maxTokens;
+    private final OpenAiCompatibleClient client;
+
+    @Autowired
+    public LocalModelSuggestionGenerator(HttpClient llmHttpClient, ClientHttpRequestFactory llmRequestFactory,
+                                         @Value("${bucketlist.llm.local.base-url:}") String baseUrl,
+                                         @Value("${bucketlist.llm.local.api-key:}") String apiKey,
+                                         @Value("${bucketlist.llm.local.model:llama3.1}") String model,
+                                         @Value("${bucketlist.llm.local.temperature:0.7}") double temperature,
+                                         @Value("${bucketlist.llm.local.max-tokens:4096}") int maxTokens,
+                                         @Value("${bucketlist.llm.local.structured-output:false}") boolean structuredOutput) {
+        this.model = model;
+        this.temperature = temperature;
+        this.maxTokens = maxTokens;
+        if (baseUrl.isBlank()) {
+            this.client = null;
+            return;
+        }
+        this.client = new OpenAiCompatibleClient(baseUrl, apiKey, model, temperature, maxTokens,
+            structuredOutput, llmHttpClient, llmRequestFactory, null);
+        logger.info("Local model {} configured at {}", model, baseUrl);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getModel() {
+        return model;
+    }
+
+    @Override
+    public double getTemperature() {
+        return temperature;
+    }
+
+    @Override
+    public int getMaxTokens() {
+        return maxTokens;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return client != null;
+    }
+
+    @Override
+    public ChatCompletion complete(String prompt) throws Exception {
+        return requireClient().complete(prompt);
+    }
+
+    @Override
+    public ChatCompletion complete(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens) throws Exception {
+        return requireClient().complete(prompt, schema, maxTokens);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Consumer<String> onChunk) throws Exception {
+        return requireClient().stream(prompt, onChunk);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens,
+                                 Consumer<String> onChunk) throws Exception {
+        return requireClient().stream(prompt, schema, maxTokens, onChunk);
+    }
+
+    private OpenAiCompatibleClient requireClient() {
+        if (client == null) {
+            throw new IllegalStateException("No local model endpoint configured");
+        }
+        return client;
+    }
+}
@@ -0,0 +1,293 @@
+package com.bucketlist.domain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.NoopApiKey;
+import org.springframework.ai.model.SimpleApiKey;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
+import org.springframework.ai.openai.api.ResponseFormat;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Chat completions against OpenAI or any server speaking its API (llama.cpp, Ollama, vLLM).
+// Requests go through Spring AI's OpenAiChatModel, or straight over HTTP when no ChatClient
+// could be built for the endpoint. With structured output on, prompts that come with a response
+// schema ask the server to enforce it (response_format json_schema). A request's own max_tokens is
+// capped at the configured one.
+class OpenAiCompatibleClient {
+
+    private static final String COMPLETIONS_PATH = "/v1/chat/completions";
+    private static final String EMBEDDINGS_PATH = "/v1/embeddings";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String completionsUrl;
+    private final String embeddingsUrl;
+    private final String apiKey;
+    private final String model;
+    private final int maxTokens;
+    private final boolean structuredOutput;
+    private final LlmConcurrencyLimiter rateLimitObserver;
+    private final RestClient restClient;
+    private final ChatClient chatClient;
+
+    // apiKey may be blank for local servers. rateLimitObserver, when set, is handed the status and
+    // rate-limit headers of every response.
+    OpenAiCompatibleClient(String baseUrl, String apiKey, String model, double temperature, int maxTokens,
+                           boolean structuredOutput, HttpClient httpClient, ClientHttpRequestFactory requestFactory,
+                           LlmConcurrencyLimiter rateLimitObserver) {
+        String root = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.completionsUrl = root + COMPLETIONS_PATH;
+        this.embeddingsUrl = root + EMBEDDINGS_PATH;
+        this.apiKey = apiKey;
+        this.model = model;
+        this.maxTokens = maxTokens;
+        this.structuredOutput = structuredOutput;
+        this.rateLimitObserver = rateLimitObserver;
+        this.restClient = RestClient.builder()
+            .requestFactory(requestFactory)
+            .requestInterceptor(this::observeRateLimits)
+            .build();
+
+        ChatClient client;
+        try {
+            OpenAiApi openAiApi = OpenAiApi.builder()
+                .baseUrl(root)
+                .apiKey(hasApiKey() ? new SimpleApiKey(apiKey) : new NoopApiKey())
+                .restClientBuilder(RestClient.builder()
+                    .requestFactory(requestFactory)
+                    .requestInterceptor(this::observeRateLimits))
+                .webClientBuilder(WebClient.builder()
+                    .clientConnector(new JdkClientHttpConnector(httpClient))
+                    .filter(ExchangeFilterFunction.ofResponseProcessor(this::observeStreamRateLimits)))
+                .build();
+
+            OpenAiChatOptions chatOptions = OpenAiChatOptions.builder()
+                .model(model)
+                .temperature(temperature)
+                .maxTokens(maxTokens)
+                .streamUsage(true)
+                .build();
+
+            // Retries happen in LlmResilience, so Spring AI's own retry loop is switched off
+            OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .openAiApi(openAiApi)
+                .defaultOptions(chatOptions)
+                .retryTemplate(RetryTemplate.builder().maxAttempts(1).build())
+                .build();
+
+            client = ChatClient.create(chatModel);
+        } catch (Exception e) {
+            // If ChatClient creation fails, we'll use REST calls directly
+            client = null;
+        }
+        this.chatClient = client;
+    }
+
+    // A tiny completion to check the endpoint and credentials
+    boolean ping() {
+        try {
+            String requestBody = "{\n" +
+                "  \"model\": \"" + model + "\",\n" +
+                "  \"messages\": [{\"role\": \"user\", \"content\": \"Hello\"}],\n" +
+                "  \"max_tokens\": 5\n" +
+                "}";
+            return postChatCompletion(requestBody).getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    ChatCompletion complete(String prompt) throws Exception {
+        return complete(prompt, null, 0);
+    }
+
+    // schema may be null, and is ignored unless structured output is on; maxTokens 0 leaves the configured cap
+    ChatCompletion complete(String prompt, ResponseSchema schema, int maxTokens) throws Exception {
+        if (chatClient == null) {
+            return completeDirectly(prompt, schema, maxTokens);
+        }
+
+        ChatResponse response = chatClient.prompt(toPrompt(prompt, schema, maxTokens)).call().chatResponse();
+        if (response == null) {
+            return new ChatCompletion(null, null, null);
+        }
+        Usage usage = response.getMetadata().getUsage();
+        String content = response.getResult() != null ? response.getResult().getOutput().getText() : null;
+        return usage != null
+            ? new ChatCompletion(content, usage.getPromptTokens(), usage.getCompletionTokens())
+            : new ChatCompletion(content, null, null);
+    }
+
+    ChatCompletion stream(String prompt, Consumer<String> onChunk) throws Exception {
+        return stream(prompt, null, 0, onChunk);
+    }
+
+    ChatCompletion stream(String prompt, ResponseSchema schema, int maxTokens, Consumer<String> onChunk) throws Exception {
+        if (chatClient == null) {
+            ChatCompletion completion = completeDirectly(prompt, schema, maxTokens);
+            if (completion.content() != null) {
+                onChunk.accept(completion.content());
+            }
+            return completion;
+        }
+
+        StringBuilder content = new StringBuilder();
+        Usage lastUsage = null;
+        for (ChatResponse response : chatClient.prompt(toPrompt(prompt, schema, maxTokens)).stream().chatResponse().toIterable()) {
+            // Usage arrives on the final chunk; the others report none
+            Usage chunkUsage = response.getMetadata().getUsage();
+            if (chunkUsage != null && chunkUsage.getTotalTokens() != null && chunkUsage.getTotalTokens() > 0) {
+                lastUsage = chunkUsage;
+            }
+            String chunk = response.getResult() != null ? response.getResult().getOutput().getText() : null;
+            if (chunk == null) {
+                continue;
+            }
+            content.append(chunk);
+            onChunk.accept(chunk);
+        }
+        return lastUsage != null
+            ? new ChatCompletion(content.toString(), lastUsage.getPromptTokens(), lastUsage.getCompletionTokens())
+            : new ChatCompletion(content.toString(), null, null);
+    }
+
+    // One unit vector per text, in input order. dimensions shortens text-embedding-3 vectors.
+    List<float[]> embed(List<String> texts, String embeddingModel, int dimensions) throws Exception {
+        ObjectNode requestBody = objectMapper.createObjectNode()
+            .put("model", embeddingModel)
+            .put("dimensions", dimensions);
+        ArrayNode input = requestBody.putArray("input");
+        texts.forEach(input::add);
+
+        RestClient.RequestBodySpec request = restClient.post()
+            .uri(embeddingsUrl)
+            .contentType(MediaType.APPLICATION_JSON);
+        if (hasApiKey()) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+        ResponseEntity<byte[]> response = request
+            .body(objectMapper.writeValueAsBytes(requestBody))
+            .retrieve()
+            .toEntity(byte[].class);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new Exception("Embedding call failed: " + response.getStatusCode());
+        }
+
+        float[][] vectors = new float[texts.size()][];
+        for (JsonNode item : objectMapper.readTree(response.getBody()).path("data")) {
+            JsonNode embedding = item.path("embedding");
+            float[] vector = new float[embedding.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = (float) embedding.get(i).asDouble();
+            }
+            vectors[item.path("index").asInt()] = SuggestionVectorIndex.normalize(vector);
+        }
+        for (float[] vector : vectors) {
+            if (vector == null) {
+                throw new Exception("Embedding response is missing vectors");
+            }
+        }
+        return List.of(vectors);
+    }
+
+    // Runtime options are merged over the chat model's defaults
+    private Prompt toPrompt(String prompt, ResponseSchema schema, int maxTokens) {
+        OpenAiChatOptions.Builder options = OpenAiChatOptions.builder()
+            .maxTokens(cappedMaxTokens(maxTokens));
+        if (structuredOutput && schema != null) {
+            options.responseFormat(new ResponseFormat(ResponseFormat.Type.JSON_SCHEMA, schema.json()));
+        }
+        return new Prompt(prompt, options.build());
+    }
+
+    private int cappedMaxTokens(int requested) {
+        return requested > 0 ? Math.min(requested, maxTokens) : maxTokens;
+    }
+
+    // Direct API call for when ChatClient is not available
+    private ChatCompletion completeDirectly(String prompt, ResponseSchema schema, int maxTokens) throws Exception {
+        ObjectNode requestBody = objectMapper.createObjectNode()
+            .put("model", model)
+            .put("max_tokens", cappedMaxTokens(maxTokens));
+        requestBody.putArray("messages").addObject()
+            .put("role", "user")
+            .put("content", prompt);
+        if (structuredOutput && schema != null) {
+            ObjectNode jsonSchema = requestBody.putObject("response_format")
+                .put("type", "json_schema")
+                .putObject("json_schema")
+                .put("name", schema.name())
+                .put("strict", true);
+            jsonSchema.set("schema", objectMapper.readTree(schema.json()));
+        }
+
+        ResponseEntity<byte[]> response = postChatCompletion(objectMapper.writeValueAsString(requestBody));
+
+        if (response.getStatusCode().is2xxSuccessful()) {
+            // Read the completion text and token usage straight off the response bytes
+            return SuggestionJsonParser.readCompletion(response.getBody());
+        } else {
+            throw new Exception("Chat completion call failed: " + response.getStatusCode());
+        }
+    }
+
+    private ResponseEntity<byte[]> postChatCompletion(String requestBody) {
+        RestClient.RequestBodySpec request = restClient.post()
+            .uri(completionsUrl)
+            .contentType(MediaType.APPLICATION_JSON);
+        if (hasApiKey()) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+        return request
+            .body(requestBody)
+            .retrieve()
+            .toEntity(byte[].class);
+    }
+
+    private boolean hasApiKey() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    // Every response hands its status and rate-limit headers to the limiter, whichever client
+    // made the call
+    private ClientHttpResponse observeRateLimits(HttpRequest request, byte[] body,
+                                                 ClientHttpRequestExecution execution) throws IOException {
+        ClientHttpResponse response = execution.execute(request, body);
+        if (rateLimitObserver != null) {
+            rateLimitObserver.onResponse(response.getStatusCode().value(), response.getHeaders());
+        }
+        return response;
+    }
+
+    private Mono<ClientResponse> observeStreamRateLimits(ClientResponse response) {
+        if (rateLimitObserver != null) {
+            rateLimitObserver.onResponse(response.statusCode().value(), response.headers().asHttpHeaders());
+        }
+        return Mono.just(response);
+    }
+}
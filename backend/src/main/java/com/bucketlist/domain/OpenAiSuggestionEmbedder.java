@@ -0,0 +1,51 @@
+package com.bucketlist.domain;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// OpenAI's embeddings endpoint, with the API key held by ApiKeyService. text-embedding-3 models
+// can be cut down to a few hundred dimensions, which keeps the per-session index small.
+@Component
+public class OpenAiSuggestionEmbedder implements SuggestionEmbedder {
+
+    public static final String NAME = "openai";
+
+    private final ApiKeyService apiKeyService;
+    private final String model;
+    private final int dimensions;
+    private final double duplicateThreshold;
+
+    @Autowired
+    public OpenAiSuggestionEmbedder(ApiKeyService apiKeyService,
+                                    @Value("${bucketlist.dedup.openai.model:text-embedding-3-small}") String model,
+                                    @Value("${bucketlist.dedup.openai.dimensions:256}") int dimensions,
+                                    @Value("${bucketlist.dedup.openai.threshold:0.85}") double duplicateThreshold) {
+        this.apiKeyService = apiKeyService;
+        this.model = model;
+        this.dimensions = dimensions;
+        this.duplicateThreshold = duplicateThreshold;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return apiKeyService.hasValidApiKey();
+    }
+
+    @Override
+    public double getDuplicateThreshold() {
+        return duplicateThreshold;
+    }
+
+    @Override
+    public List<float[]> embed(List<String> texts) throws Exception {
+        return apiKeyService.getValidatedClient().embed(texts, model, dimensions);
+    }
+}
@@ -0,0 +1,72 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+
+import java.util.function.Consumer;
+
+// OpenAI with the API key held by ApiKeyService, on one of its model tiers. Both tiers are
+// registered in OpenAIConfig and routed to like any other provider.
+public class OpenAiSuggestionGenerator implements SuggestionGenerator {
+
+    public static final String NAME = "openai";
+    public static final String FAST_NAME = "openai-fast";
+
+    private final ApiKeyService apiKeyService;
+    private final ApiKeyService.Tier tier;
+
+    public OpenAiSuggestionGenerator(ApiKeyService apiKeyService, ApiKeyService.Tier tier) {
+        this.apiKeyService = apiKeyService;
+        this.tier = tier;
+    }
+
+    @Override
+    public String getName() {
+        return tier == ApiKeyService.Tier.FAST ? FAST_NAME : NAME;
+    }
+
+    @Override
+    public String getModel() {
+        return apiKeyService.getModel(tier);
+    }
+
+    @Override
+    public double getTemperature() {
+        return apiKeyService.getTemperature(tier);
+    }
+
+    @Override
+    public int getMaxTokens() {
+        return apiKeyService.getMaxTokens();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return apiKeyService.hasTier(tier);
+    }
+
+    @Override
+    public LlmConcurrencyLimiter getLimiter() {
+        return apiKeyService.getLimiter(tier);
+    }
+
+    @Override
+    public ChatCompletion complete(String prompt) throws Exception {
+        return apiKeyService.getValidatedClient(tier).complete(prompt);
+    }
+
+    @Override
+    public ChatCompletion complete(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens) throws Exception {
+        return apiKeyService.getValidatedClient(tier).complete(prompt, schema, maxTokens);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Consumer<String> onChunk) throws Exception {
+        return apiKeyService.getValidatedClient(tier).stream(prompt, onChunk);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens,
+                                 Consumer<String> onChunk) throws Exception {
+        return apiKeyService.getValidatedClient(tier).stream(prompt, schema, maxTokens, onChunk);
+    }
+}
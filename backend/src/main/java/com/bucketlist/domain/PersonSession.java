@@ -1,5 +1,6 @@
 package com.bucketlist.domain;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -7,11 +8,18 @@ public class PersonSession {
     private final String sessionId;
     private final String personDescription;
     private final LocalDateTime createdAt;
+    private volatile Instant lastAccessedAt;
     
     public PersonSession(String personDescription) {
-        this.sessionId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), personDescription, LocalDateTime.now());
+    }
+    
+    // Used when restoring a session from the archive
+    public PersonSession(String sessionId, String personDescription, LocalDateTime createdAt) {
+        this.sessionId = sessionId;
         this.personDescription = personDescription;
-        this.createdAt = LocalDateTime.now();
+        this.createdAt = createdAt;
+        this.lastAccessedAt = Instant.now();
     }
     
     public String getSessionId() {
@@ -25,4 +33,12 @@ public class PersonSession {
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
-}
\ No newline at end of file
+    
+    public Instant getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+    
+    public void touch() {
+        this.lastAccessedAt = Instant.now();
+    }
+}
@@ -1,25 +1,193 @@
 package com.bucketlist.domain;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class PersonSessionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PersonSessionService.class);
+    
     private final Map<String, PersonSession> sessions = new ConcurrentHashMap<>();
     
+    private final SessionArchive sessionArchive;
+    private final SessionStateBackend stateBackend;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration idleTtl;
+    private final Duration maxLifetime;
+    private final int maxSessions;
+    private final Map<SessionEvictedEvent.Reason, Counter> evictionCounters = new EnumMap<>(SessionEvictedEvent.Reason.class);
+    private final Map<String, Counter> restoredCounters = new ConcurrentHashMap<>();
+    
+    @Autowired
+    public PersonSessionService(SessionArchive sessionArchive, SessionStateBackend stateBackend,
+                                ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                                @Value("${bucketlist.sessions.idle-ttl:30m}") Duration idleTtl,
+                                @Value("${bucketlist.sessions.max-lifetime:24h}") Duration maxLifetime,
+                                @Value("${bucketlist.sessions.max-sessions:10000}") int maxSessions) {
+        this.sessionArchive = sessionArchive;
+        this.stateBackend = stateBackend;
+        this.eventPublisher = eventPublisher;
+        this.idleTtl = idleTtl;
+        this.maxLifetime = maxLifetime;
+        this.maxSessions = maxSessions;
+        
+        for (SessionEvictedEvent.Reason reason : SessionEvictedEvent.Reason.values()) {
+            evictionCounters.put(reason, Counter.builder("bucketlist.sessions.evicted")
+                .description("Sessions dropped from memory")
+                .tag("reason", reason.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        for (String source : List.of(stateBackend.getName(), "archive")) {
+            restoredCounters.put(source, Counter.builder("bucketlist.sessions.restored")
+                .description("Sessions brought back into memory from the state backend or the archive")
+                .tag("source", source)
+                .register(meterRegistry));
+        }
+        
+        // Sessions another node removed go for this node too
+        stateBackend.addListener(new SessionStateBackend.Listener() {
+            @Override
+            public void removed(String sessionId) {
+                evict(sessionId, SessionEvictedEvent.Reason.REMOVED);
+            }
+        });
+        Gauge.builder("bucketlist.sessions.active", sessions, Map::size)
+            .description("Sessions currently held in memory")
+            .register(meterRegistry);
+    }
+    
     public PersonSession createSession(String personDescription) {
         PersonSession session = new PersonSession(personDescription);
+        stateBackend.append(session.getSessionId(), created(session));
         sessions.put(session.getSessionId(), session);
+        sessionArchive.sessionCreated(session);
+        
+        if (sessions.size() > maxSessions) {
+            evictLeastRecentlyUsed(sessions.size() - maxSessions);
+        }
         return session;
     }
     
     public Optional<PersonSession> getSession(String sessionId) {
-        return Optional.ofNullable(sessions.get(sessionId));
+        PersonSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = restoreSession(sessionId);
+        }
+        if (session != null) {
+            session.touch();
+        }
+        return Optional.ofNullable(session);
     }
     
     public void removeSession(String sessionId) {
-        sessions.remove(sessionId);
+        evict(sessionId, SessionEvictedEvent.Reason.REMOVED);
+        stateBackend.remove(sessionId);
+        sessionArchive.sessionRemoved(sessionId);
+    }
+    
+    public int getSessionCount() {
+        return sessions.size();
+    }
+    
+    @Scheduled(fixedDelayString = "${bucketlist.sessions.sweep-interval-ms:60000}")
+    public void evictExpiredSessions() {
+        Instant idleCutoff = Instant.now().minus(idleTtl);
+        LocalDateTime lifetimeCutoff = LocalDateTime.now().minus(maxLifetime);
+        
+        for (PersonSession session : List.copyOf(sessions.values())) {
+            if (session.getLastAccessedAt().isBefore(idleCutoff)) {
+                evict(session.getSessionId(), SessionEvictedEvent.Reason.IDLE);
+            } else if (session.getCreatedAt().isBefore(lifetimeCutoff)) {
+                evict(session.getSessionId(), SessionEvictedEvent.Reason.EXPIRED);
+            }
+        }
+        
+        if (sessions.size() > maxSessions) {
+            evictLeastRecentlyUsed(sessions.size() - maxSessions);
+        }
+    }
+    
+    // Sessions this node doesn't hold (created on another node, dropped from memory, or from before
+    // a restart) come from the state backend, or failing that the archive, on first access, unless
+    // they are past their max lifetime or were removed. A session found only in the archive is
+    // written back to the backend. Listeners restore their per-session data before the session is
+    // published, so no caller sees the session without its history.
+    private PersonSession restoreSession(String sessionId) {
+        List<SessionEvent> log = stateBackend.read(sessionId, 0).events();
+        if (!log.isEmpty() && log.getLast() instanceof SessionEvent.Removed) {
+            return null;
+        }
+        String source = stateBackend.getName();
+        Optional<PersonSession> restored = log.stream()
+            .filter(SessionEvent.Created.class::isInstance)
+            .map(SessionEvent.Created.class::cast)
+            .findFirst()
+            .map(created -> new PersonSession(created.sessionId(), created.personDescription(), created.createdAt()));
+        if (restored.isEmpty()) {
+            source = "archive";
+            restored = sessionArchive.findSession(sessionId);
+        }
+        
+        LocalDateTime lifetimeCutoff = LocalDateTime.now().minus(maxLifetime);
+        restored = restored.filter(session -> session.getCreatedAt().isAfter(lifetimeCutoff));
+        if (restored.isEmpty()) {
+            return null;
+        }
+        if (log.isEmpty()) {
+            stateBackend.append(sessionId, created(restored.get()));
+        }
+        
+        eventPublisher.publishEvent(new SessionRestoredEvent(sessionId));
+        PersonSession existing = sessions.putIfAbsent(sessionId, restored.get());
+        if (existing != null) {
+            return existing;
+        }
+        
+        restoredCounters.get(source).increment();
+        logger.debug("Restored session {} from {}", sessionId, source);
+        return restored.get();
+    }
+    
+    private static SessionEvent.Created created(PersonSession session) {
+        return new SessionEvent.Created(session.getSessionId(), session.getPersonDescription(), session.getCreatedAt());
+    }
+    
+    private void evictLeastRecentlyUsed(int count) {
+        sessions.values().stream()
+            .sorted(Comparator.comparing(PersonSession::getLastAccessedAt))
+            .limit(count)
+            .map(PersonSession::getSessionId)
+            .toList()
+            .forEach(sessionId -> evict(sessionId, SessionEvictedEvent.Reason.CAPACITY));
+    }
+    
+    private void evict(String sessionId, SessionEvictedEvent.Reason reason) {
+        if (sessions.remove(sessionId) == null) {
+            return;
+        }
+        
+        evictionCounters.get(reason).increment();
+        logger.debug("Evicted session {} ({})", sessionId, reason);
+        eventPublisher.publishEvent(new SessionEvictedEvent(sessionId, reason));
+        stateBackend.release(sessionId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,254 @@
+package com.bucketlist.domain;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SequencedMap;
+
+// A session's feedback boiled down to what the next batch needs: per-category verdicts, the price
+// bands accepted and rejected, recurring rejection reasons and the latest titles. It is updated on
+// every accept and reject rather than rebuilt from the history, stays the same size however long
+// the session runs, and renders into a fixed token budget. Guarded by the owning
+// SessionSuggestionState's monitor.
+final class PreferenceProfile {
+
+    private static final int RECENT_TITLES = 8;
+    private static final int TOP_REASONS = 5;
+    private static final int MAX_REASONS = 50;
+
+    // Upper bounds of the price bands, in the person's currency; the last band is open-ended
+    private static final int[] PRICE_BAND_LIMITS = {100, 500, 2000, 5000};
+
+    private final int[] acceptedByCategory = new int[SpendingCategory.values().length];
+    private final int[] rejectedByCategory = new int[SpendingCategory.values().length];
+    private final int[] acceptedByPriceBand = new int[PRICE_BAND_LIMITS.length + 1];
+    private final int[] rejectedByPriceBand = new int[PRICE_BAND_LIMITS.length + 1];
+    private int acceptedCount = 0;
+    private int rejectedCount = 0;
+
+    // Normalized reason -> count, and the spelling it was first seen with
+    private final Map<String, Integer> reasonCounts = new HashMap<>();
+    private final Map<String, String> reasonLabels = new HashMap<>();
+
+    // Suggestion ID -> prompt line, oldest first
+    private final SequencedMap<String, String> recentAccepted = recentMap();
+    private final SequencedMap<String, String> recentRejected = recentMap();
+
+    void addAccepted(BucketListSuggestion suggestion) {
+        acceptedCount++;
+        acceptedByCategory[suggestion.getCategory().ordinal()]++;
+        acceptedByPriceBand[priceBand(suggestion)]++;
+        recentAccepted.put(suggestion.getId(), suggestion.getTitle() + " (" + suggestion.getCategory().getDisplayName() + ")");
+    }
+
+    void removeAccepted(BucketListSuggestion suggestion) {
+        acceptedCount--;
+        acceptedByCategory[suggestion.getCategory().ordinal()]--;
+        acceptedByPriceBand[priceBand(suggestion)]--;
+        recentAccepted.remove(suggestion.getId());
+    }
+
+    void addRejected(BucketListSuggestion suggestion, RejectionFeedback feedback) {
+        rejectedCount++;
+        rejectedByCategory[suggestion.getCategory().ordinal()]++;
+        rejectedByPriceBand[priceBand(suggestion)]++;
+        String reason = normalize(feedback.getReason());
+        if (reason != null) {
+            if (!reasonCounts.containsKey(reason) && reasonCounts.size() >= MAX_REASONS) {
+                evictRarestReason();
+            }
+            reasonCounts.merge(reason, 1, Integer::sum);
+            reasonLabels.putIfAbsent(reason, feedback.getReason().strip());
+        }
+        String line = suggestion.getTitle() + " (" + suggestion.getCategory().getDisplayName() + ")";
+        recentRejected.put(suggestion.getId(), reason != null ? line + ": " + feedback.getReason().strip() : line);
+    }
+
+    void removeRejected(BucketListSuggestion suggestion, RejectionFeedback feedback) {
+        rejectedCount--;
+        rejectedByCategory[suggestion.getCategory().ordinal()]--;
+        rejectedByPriceBand[priceBand(suggestion)]--;
+        String reason = normalize(feedback.getReason());
+        if (reason != null && reasonCounts.computeIfPresent(reason, (key, count) -> count > 1 ? count - 1 : null) == null) {
+            reasonLabels.remove(reason);
+        }
+        recentRejected.remove(suggestion.getId());
+    }
+
+    boolean isEmpty() {
+        return acceptedCount == 0 && rejectedCount == 0;
+    }
+
+    // The feedback section of a regeneration prompt, most telling lines first. Lines that would
+    // take it past tokenBudget are left out, so the section never exceeds the budget.
+    String render(int tokenBudget) {
+        if (isEmpty()) {
+            return "";
+        }
+        Section section = new Section(tokenBudget);
+        section.add("FEEDBACK SO FAR: " + acceptedCount + " accepted, " + rejectedCount + " rejected");
+        section.add(categoryLine("Liked categories", acceptedByCategory, rejectedByCategory, "accepted"));
+        section.add(categoryLine("Disliked categories", rejectedByCategory, acceptedByCategory, "rejected"));
+        section.add(priceLine("Accepted price range", acceptedByPriceBand));
+        section.add(priceLine("Rejected price range", rejectedByPriceBand));
+        section.add(reasonLine());
+        section.addList("Recently accepted (do not repeat)", recentAccepted);
+        section.addList("Recently rejected (do not repeat)", recentRejected);
+        return section.toString();
+    }
+
+    // Categories where this verdict outweighs the other, strongest first
+    private static String categoryLine(String label, int[] counts, int[] opposite, String verdict) {
+        List<SpendingCategory> categories = new ArrayList<>();
+        for (SpendingCategory category : SpendingCategory.values()) {
+            if (counts[category.ordinal()] > opposite[category.ordinal()]) {
+                categories.add(category);
+            }
+        }
+        if (categories.isEmpty()) {
+            return null;
+        }
+        categories.sort(Comparator.comparingInt((SpendingCategory category) -> counts[category.ordinal()]).reversed());
+        StringBuilder line = new StringBuilder(label).append(": ");
+        for (int i = 0; i < categories.size(); i++) {
+            SpendingCategory category = categories.get(i);
+            int total = counts[category.ordinal()] + opposite[category.ordinal()];
+            line.append(i > 0 ? ", " : "").append(category.getDisplayName())
+                .append(" (").append(counts[category.ordinal()]).append(" of ").append(total).append(' ')
+                .append(verdict).append(')');
+        }
+        return line.toString();
+    }
+
+    private static String priceLine(String label, int[] bands) {
+        StringBuilder line = new StringBuilder();
+        for (int band = 0; band < bands.length; band++) {
+            if (bands[band] > 0) {
+                line.append(line.isEmpty() ? "" : ", ").append(bandName(band)).append(" x").append(bands[band]);
+            }
+        }
+        return line.isEmpty() ? null : label + ": " + line;
+    }
+
+    private String reasonLine() {
+        List<Map.Entry<String, Integer>> recurring = reasonCounts.entrySet().stream()
+            .filter(entry -> entry.getValue() > 1)
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(TOP_REASONS)
+            .toList();
+        if (recurring.isEmpty()) {
+            return null;
+        }
+        StringBuilder line = new StringBuilder("Recurring rejection reasons: ");
+        for (int i = 0; i < recurring.size(); i++) {
+            Map.Entry<String, Integer> entry = recurring.get(i);
+            line.append(i > 0 ? "; " : "").append(reasonLabels.get(entry.getKey()))
+                .append(" (x").append(entry.getValue()).append(')');
+        }
+        return line.toString();
+    }
+
+    private void evictRarestReason() {
+        reasonCounts.entrySet().stream()
+            .min(Map.Entry.comparingByValue())
+            .map(Map.Entry::getKey)
+            .ifPresent(reason -> {
+                reasonCounts.remove(reason);
+                reasonLabels.remove(reason);
+            });
+    }
+
+    private static int priceBand(BucketListSuggestion suggestion) {
+        BigDecimal total = suggestion.getPriceBreakdown().getTotalCost();
+        for (int band = 0; band < PRICE_BAND_LIMITS.length; band++) {
+            if (total.compareTo(BigDecimal.valueOf(PRICE_BAND_LIMITS[band])) < 0) {
+                return band;
+            }
+        }
+        return PRICE_BAND_LIMITS.length;
+    }
+
+    private static String bandName(int band) {
+        if (band == 0) {
+            return "under " + PRICE_BAND_LIMITS[0];
+        }
+        if (band == PRICE_BAND_LIMITS.length) {
+            return PRICE_BAND_LIMITS[band - 1] + "+";
+        }
+        return PRICE_BAND_LIMITS[band - 1] + "-" + PRICE_BAND_LIMITS[band];
+    }
+
+    // Case and surrounding whitespace don't make a different reason
+    private static String normalize(String reason) {
+        if (reason == null || reason.isBlank()) {
+            return null;
+        }
+        return reason.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static SequencedMap<String, String> recentMap() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > RECENT_TITLES;
+            }
+        };
+    }
+
+    // Appends whole lines while they fit the token budget
+    private static final class Section {
+
+        private final StringBuilder text = new StringBuilder();
+        private final int tokenBudget;
+        private int tokens = 0;
+
+        Section(int tokenBudget) {
+            this.tokenBudget = tokenBudget;
+        }
+
+        void add(String line) {
+            if (line == null) {
+                return;
+            }
+            int lineTokens = TokenCounter.count(line + "\n");
+            if (tokens + lineTokens <= tokenBudget) {
+                text.append(line).append('\n');
+                tokens += lineTokens;
+            }
+        }
+
+        // A heading plus the newest entries that fit; nothing if not even one does
+        void addList(String heading, SequencedMap<String, String> entries) {
+            if (entries.isEmpty()) {
+                return;
+            }
+            List<String> newestFirst = new ArrayList<>(entries.sequencedValues().reversed());
+            String header = heading + ":";
+            int used = TokenCounter.count(header + "\n");
+            StringBuilder lines = new StringBuilder();
+            for (String entry : newestFirst) {
+                String line = "- " + entry;
+                int lineTokens = TokenCounter.count(line + "\n");
+                if (tokens + used + lineTokens > tokenBudget) {
+                    break;
+                }
+                lines.append(line).append('\n');
+                used += lineTokens;
+            }
+            if (!lines.isEmpty()) {
+                text.append(header).append('\n').append(lines);
+                tokens += used;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.BulkSuggestionService.PackedSuggestionResponse;
+import com.bucketlist.domain.RejectionReasonService.RejectionReasonsResponse;
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Versioned prompt templates, compiled once. Bundled versions are read from classpath
+// prompts/<kind>-<version>.txt at startup and bucketlist.prompt.<kind>-version picks the active
+// one; further versions can be registered and activated at runtime through /api/config/prompts.
+// The output-format schemas are generated once here, folded into the compiled text and kept for
+// providers that enforce them. Strict providers (OpenAI) reject a schema with any property left out of
+// its object's required list, so the kept schemas list them all.
+@Component
+public class PromptTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+
+    private static final Pattern RESOURCE_NAME = Pattern.compile("([a-z]+)-([A-Za-z0-9._]+)\\.txt");
+    private static final Pattern VERSION = Pattern.compile("[A-Za-z0-9._]+");
+    private static final ObjectMapper SCHEMA_MAPPER = new ObjectMapper();
+
+    public enum Kind {
+        INITIAL("initial", SuggestionResponse.class, "description"),
+        PACKED("packed", PackedSuggestionResponse.class, "count", "people"),
+        REGENERATION("regeneration", SuggestionResponse.class, "description", "feedback"),
+        REFILL("refill", SuggestionResponse.class, "description", "feedback", "count", "slots", "avoid"),
+        SLOT("slot", SuggestionResponse.class, "description", "feedback", "category"),
+        REASONS("reasons", RejectionReasonsResponse.class, "description", "suggestion"),
+        REPAIR("repair", SuggestionResponse.class, "description", "count", "items");
+
+        private final String id;
+        private final Class<?> responseType;
+        private final List<String> variables;
+
+        Kind(String id, Class<?> responseType, String... variables) {
+            this.id = id;
+            this.responseType = responseType;
+            this.variables = List.of(variables);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public static Kind fromId(String id) {
+            for (Kind kind : values()) {
+                if (kind.id.equals(id)) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown prompt kind: " + id);
+        }
+    }
+
+    private final Map<Kind, Map<String, String>> constants = new EnumMap<>(Kind.class);
+    private final Map<Kind, Map<String, CompiledPrompt>> versions = new EnumMap<>(Kind.class);
+    private final Map<Kind, CompiledPrompt> active = new ConcurrentHashMap<>();
+    private final Map<Kind, ResponseSchema> schemas = new EnumMap<>(Kind.class);
+    private final boolean lazyRejectionReasons;
+
+    @Autowired
+    public PromptTemplateRegistry(@Value("${bucketlist.prompt.initial-version:v1}") String initialVersion,
+                                  @Value("${bucketlist.prompt.packed-version:v1}") String packedVersion,
+                                  @Value("${bucketlist.prompt.regeneration-version:v1}") String regenerationVersion,
+                                  @Value("${bucketlist.prompt.refill-version:v1}") String refillVersion,
+                                  @Value("${bucketlist.prompt.slot-version:v1}") String slotVersion,
+                                  @Value("${bucketlist.prompt.reasons-version:v1}") String reasonsVersion,
+                                  @Value("${bucketlist.prompt.repair-version:v1}") String repairVersion,
+                                  @Value("${bucketlist.rejection-reasons.lazy:false}") boolean lazyRejectionReasons) {
+        this.lazyRejectionReasons = lazyRejectionReasons;
+        String categories = SuggestionPrompts.displayNames();
+        // With lazy rejection reasons the batch prompts leave them out; a reasons prompt writes
+        // them for one suggestion when they are first needed
+        String reasons = lazyRejectionReasons
+            ? "Leave rejectionReasons empty ([]); they are asked for separately"
+            : "Include 5 rejection reasons per suggestion";
+        for (Kind kind : Kind.values()) {
+            BeanOutputConverter<?> converter = new BeanOutputConverter<>(kind.responseType);
+            constants.put(kind, Map.of("categories", categories, "format", converter.getFormat(), "reasons", reasons));
+            schemas.put(kind, new ResponseSchema(kind.responseType.getSimpleName(), requireAllProperties(converter.getJsonSchema())));
+            versions.put(kind, new ConcurrentHashMap<>());
+        }
+        loadBundledTemplates();
+
+        activate(Kind.INITIAL, initialVersion);
+        activate(Kind.PACKED, packedVersion);
+        activate(Kind.REGENERATION, regenerationVersion);
+        activate(Kind.REFILL, refillVersion);
+        activate(Kind.SLOT, slotVersion);
+        activate(Kind.REASONS, reasonsVersion);
+        activate(Kind.REPAIR, repairVersion);
+    }
+
+    public String initialPrompt(String personDescription) {
+        return active.get(Kind.INITIAL).render(personDescription);
+    }
+
+    // Several people in one prompt, answered together as {"personas": [...]} keyed by PERSON number
+    public String packedPrompt(List<String> personDescriptions) {
+        return active.get(Kind.PACKED).render(String.valueOf(personDescriptions.size()),
+            SuggestionPrompts.personaLines(personDescriptions));
+    }
+
+    // feedbackSummary is the session's rendered PreferenceProfile, already within its token budget
+    public String regenerationPrompt(String feedbackSummary, String personDescription) {
+        return active.get(Kind.REGENERATION).render(personDescription,
+            feedbackSummary.isEmpty() ? "" : feedbackSummary + "\n");
+    }
+
+    // A few suggestions for the given categories, to fill places in a batch. avoidTitles are
+    // suggestions the person has seen whose ideas must not come back.
+    public String refillPrompt(String feedbackSummary, String personDescription, List<SpendingCategory> slots,
+                               List<String> avoidTitles) {
+        StringBuilder avoid = new StringBuilder();
+        for (String title : avoidTitles) {
+            avoid.append("- ").append(title.replaceAll("\\s+", " ").strip()).append('\n');
+        }
+        return active.get(Kind.REFILL).render(personDescription,
+            feedbackSummary.isEmpty() ? "" : feedbackSummary + "\n",
+            String.valueOf(slots.size()),
+            slots.stream().map(SpendingCategory::getDisplayName).collect(Collectors.joining(", ")),
+            avoid.toString());
+    }
+
+    // One suggestion in one category, for the fan-out engine. feedbackSummary is empty for first batches.
+    public String slotPrompt(String feedbackSummary, String personDescription, SpendingCategory category) {
+        return active.get(Kind.SLOT).render(personDescription,
+            feedbackSummary.isEmpty() ? "" : feedbackSummary + "\n",
+            category.getDisplayName());
+    }
+
+    // Rejection reasons for one suggestion that was generated without them
+    public String reasonsPrompt(String personDescription, BucketListSuggestion suggestion) {
+        PriceBreakdown price = suggestion.getPriceBreakdown();
+        String described = suggestion.getTitle() + " (" + suggestion.getCategory().getDisplayName() + ", "
+            + price.getTotalCost().toPlainString() + " " + price.getCurrency() + ") - " + suggestion.getDescription();
+        return active.get(Kind.REASONS).render(personDescription, described.replaceAll("\\s+", " ").strip());
+    }
+
+    // Suggestions that failed validation, each as the JSON that came back followed by what is wrong with it
+    public String repairPrompt(String personDescription, List<String> itemJsons, List<List<String>> problems) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < itemJsons.size(); i++) {
+            items.append("ITEM ").append(i + 1).append(": ").append(itemJsons.get(i).replaceAll("\\s+", " ").strip()).append('\n')
+                .append("PROBLEMS: ").append(String.join("; ", problems.get(i))).append('\n');
+        }
+        return active.get(Kind.REPAIR).render(personDescription, String.valueOf(itemJsons.size()), items.toString());
+    }
+
+    // Lists every property of every object in the schema as required, and closes the objects
+    static String requireAllProperties(String schema) {
+        try {
+            JsonNode root = SCHEMA_MAPPER.readTree(schema);
+            requireAllProperties(root);
+            return SCHEMA_MAPPER.writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Generated response schema is not valid JSON", e);
+        }
+    }
+
+    private static void requireAllProperties(JsonNode node) {
+        if (node instanceof ObjectNode object && object.get("properties") instanceof ObjectNode properties) {
+            ArrayNode required = object.putArray("required");
+            properties.fieldNames().forEachRemaining(required::add);
+            object.put("additionalProperties", false);
+        }
+        for (JsonNode child : node) {
+            requireAllProperties(child);
+        }
+    }
+
+    public ResponseSchema schema(Kind kind) {
+        return schemas.get(kind);
+    }
+
+    // Whether batch prompts leave rejection reasons out, so an empty list isn't a defect
+    public boolean isLazyRejectionReasons() {
+        return lazyRejectionReasons;
+    }
+
+    public String activeVersion(Kind kind) {
+        return active.get(kind).getVersion();
+    }
+
+    public List<String> versions(Kind kind) {
+        return versions.get(kind).keySet().stream().sorted().toList();
+    }
+
+    // Compiles and stores a template version without activating it. Templates are rejected when they
+    // use unknown placeholders or leave out a variable or the format schema.
+    public void register(Kind kind, String version, String text) {
+        if (version == null || !VERSION.matcher(version).matches()) {
+            throw new IllegalArgumentException("Invalid prompt version: " + version);
+        }
+        if (text == null || !text.contains("{format}")) {
+            throw new IllegalArgumentException(kind.id + " prompt " + version + " is missing {format}");
+        }
+        CompiledPrompt prompt = CompiledPrompt.compile(kind.id, version, text, kind.variables, constants.get(kind));
+        versions.get(kind).put(version, prompt);
+        logger.info("Registered {} prompt {}", kind.id, version);
+    }
+
+    // Requests that build their prompt after this call use the new version
+    public void activate(Kind kind, String version) {
+        CompiledPrompt prompt = versions.get(kind).get(version);
+        if (prompt == null) {
+            throw new IllegalArgumentException("No " + kind.id + " prompt version " + version
+                + " (known: " + versions(kind) + ")");
+        }
+        CompiledPrompt previous = active.put(kind, prompt);
+        if (previous != prompt) {
+            logger.info("Active {} prompt is now {}", kind.id, version);
+        }
+    }
+
+    private void loadBundledTemplates() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:prompts/*.txt");
+            for (Resource resource : resources) {
+                Matcher name = RESOURCE_NAME.matcher(String.valueOf(resource.getFilename()));
+                if (!name.matches()) {
+                    logger.warn("Ignoring prompt resource with unexpected name: {}", resource.getFilename());
+                    continue;
+                }
+                try (InputStream in = resource.getInputStream()) {
+                    register(Kind.fromId(name.group(1)), name.group(2), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the bundled prompt templates", e);
+        }
+    }
+}
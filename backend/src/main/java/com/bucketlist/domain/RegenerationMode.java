@@ -0,0 +1,19 @@
+package com.bucketlist.domain;
+
+import java.util.Locale;
+
+// How a reviewed batch is followed up. FULL asks for a whole new batch; PARTIAL keeps every
+// suggestion that wasn't rejected and only asks for replacements of the rejected ones.
+public enum RegenerationMode {
+    FULL,
+    PARTIAL;
+
+    public static RegenerationMode fromId(String id) {
+        for (RegenerationMode mode : values()) {
+            if (mode.name().equals(id.strip().toUpperCase(Locale.ROOT))) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown regeneration mode: " + id);
+    }
+}
@@ -0,0 +1,152 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Rejection reasons for suggestions generated without them (bucketlist.rejection-reasons.lazy).
+// The first request for a suggestion's reasons asks the LLM for them; the answer is kept on the
+// suggestion and recorded as a session event, so later requests and other nodes get it for free.
+// The card on screen can be prefetched so its reasons are usually there before the user rejects it.
+@Service
+public class RejectionReasonService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RejectionReasonService.class);
+
+    private final SuggestionService suggestionService;
+    private final SuggestionGeneratorRouter generators;
+    private final PersonSessionService sessionService;
+    private final SuggestionStateStore stateStore;
+    private final PromptTemplateRegistry prompts;
+    private final SessionArchive sessionArchive;
+    private final SuggestionMetrics metrics;
+    private final Executor generationExecutor;
+    private final boolean prefetchEnabled;
+
+    // A prefetch and the user's own request for the same suggestion share one LLM call
+    private final SingleFlight<ReasonsKey, List<String>> inFlight = new SingleFlight<>();
+
+    @Autowired
+    public RejectionReasonService(SuggestionService suggestionService, SuggestionGeneratorRouter generators,
+                                  PersonSessionService sessionService, SuggestionStateStore stateStore,
+                                  PromptTemplateRegistry prompts, SessionArchive sessionArchive,
+                                  SuggestionMetrics metrics,
+                                  @Qualifier("generationExecutor") Executor generationExecutor,
+                                  @Value("${bucketlist.rejection-reasons.lazy:false}") boolean lazy,
+                                  @Value("${bucketlist.rejection-reasons.prefetch:true}") boolean prefetch) {
+        this.suggestionService = suggestionService;
+        this.generators = generators;
+        this.sessionService = sessionService;
+        this.stateStore = stateStore;
+        this.prompts = prompts;
+        this.sessionArchive = sessionArchive;
+        this.metrics = metrics;
+        this.generationExecutor = generationExecutor;
+        this.prefetchEnabled = lazy && prefetch;
+    }
+
+    public List<String> getRejectionReasons(String sessionId, String suggestionId) {
+        PersonSession session = sessionService.getSession(sessionId)
+            .orElseThrow(() -> new IllegalArgumentException("Invalid session ID"));
+        SessionSuggestionState state = stateStore.find(sessionId)
+            .orElseThrow(() -> new IllegalArgumentException("Invalid session ID"));
+        BucketListSuggestion suggestion = state.getSuggestion(suggestionId)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown suggestion: " + suggestionId));
+
+        if (!suggestion.getRejectionReasons().isEmpty()) {
+            metrics.rejectionReasonsServed("cached");
+            return suggestion.getRejectionReasons();
+        }
+        if (!generators.hasAvailableGenerator()) {
+            throw new LlmUnavailableException();
+        }
+
+        metrics.rejectionReasonsServed("generated");
+        try {
+            return submit(state, session.getPersonDescription(), suggestion).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Starts generating the reasons of the card about to be shown, if nothing has them yet
+    public void prefetch(String sessionId, BucketListSuggestion suggestion) {
+        if (!prefetchEnabled || !suggestion.getRejectionReasons().isEmpty()
+                || inFlight.isInFlight(new ReasonsKey(sessionId, suggestion.getId()))
+                || !generators.hasAvailableGenerator()) {
+            return;
+        }
+        sessionService.getSession(sessionId).ifPresent(session -> stateStore.find(sessionId).ifPresent(state ->
+            submit(state, session.getPersonDescription(), suggestion).whenComplete((reasons, error) -> {
+                if (error != null) {
+                    logger.debug("Prefetching rejection reasons for {} failed: {}", suggestion.getId(), error.getMessage());
+                }
+            })));
+    }
+
+    // Once the reasons are on the suggestion nobody needs the shared call any more
+    private CompletableFuture<List<String>> submit(SessionSuggestionState state, String personDescription,
+                                                   BucketListSuggestion suggestion) {
+        ReasonsKey key = new ReasonsKey(state.getSessionId(), suggestion.getId());
+        CompletableFuture<List<String>> call = inFlight.submit(key,
+            () -> generate(state, personDescription, suggestion), generationExecutor);
+        call.whenComplete((reasons, error) -> inFlight.forget(key::equals));
+        return call;
+    }
+
+    private List<String> generate(SessionSuggestionState state, String personDescription, BucketListSuggestion suggestion) {
+        // A racing caller may have filled them while this call waited for the executor
+        if (!suggestion.getRejectionReasons().isEmpty()) {
+            return suggestion.getRejectionReasons();
+        }
+        String sessionId = state.getSessionId();
+        Timer.Sample generation = metrics.start();
+        boolean success = false;
+        try {
+            String prompt = prompts.reasonsPrompt(personDescription, suggestion);
+            String content = suggestionService.requestCompletion(sessionId, PromptTemplateRegistry.Kind.REASONS, 1, prompt).value().content();
+            List<String> reasons = SuggestionJsonParser.parseRejectionReasons(content);
+            if (reasons.isEmpty()) {
+                metrics.parseFailure(SuggestionMetrics.PATH_CALL);
+                throw new IllegalStateException("No rejection reasons could be read from the completion");
+            }
+            if (stateStore.record(state, new SessionEvent.RejectionReasonsAdded(suggestion.getId(), reasons))) {
+                sessionArchive.rejectionReasonsAdded(sessionId, suggestion.getId(), reasons);
+            }
+            success = true;
+            // Whatever was recorded first wins, on this node or another
+            return state.getSuggestion(suggestion.getId())
+                .map(BucketListSuggestion::getRejectionReasons)
+                .orElse(reasons);
+        } catch (LlmOverloadedException | LlmUnavailableException | IllegalStateException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate rejection reasons: " + e.getMessage(), e);
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_REASONS, success);
+        }
+    }
+
+    private record ReasonsKey(String sessionId, String suggestionId) {
+    }
+
+    // Response class for AI conversion
+    public static class RejectionReasonsResponse {
+        private List<String> rejectionReasons;
+
+        public List<String> getRejectionReasons() { return rejectionReasons; }
+        public void setRejectionReasons(List<String> rejectionReasons) { this.rejectionReasons = rejectionReasons; }
+    }
+}
@@ -0,0 +1,6 @@
+package com.bucketlist.domain;
+
+// The JSON schema a prompt's answer must follow, for providers that can enforce it
+// (response_format json_schema). name identifies it to the provider; json is the schema itself.
+public record ResponseSchema(String name, String json) {
+}
@@ -0,0 +1,39 @@
+package com.bucketlist.domain;
+
+import java.util.List;
+import java.util.Optional;
+
+// Durable copy of sessions and their suggestion history. Writes are fire-and-forget so the
+// request path never waits on the database; reads are only used to lazily restore a session
+// that is no longer held in memory (after eviction or a restart).
+public interface SessionArchive {
+    
+    void sessionCreated(PersonSession session);
+    
+    // Suggestions appended to the batch for the given epoch, starting at firstPosition
+    void suggestionsAdded(String sessionId, int epoch, int firstPosition, List<BucketListSuggestion> suggestions);
+    
+    // A suggestion carried over into a later batch, now at the given place in it
+    void suggestionMoved(String sessionId, String suggestionId, int epoch, int position);
+    
+    // Rejection reasons written after the suggestion itself, by the lazy rejection reasons mode
+    void rejectionReasonsAdded(String sessionId, String suggestionId, List<String> reasons);
+    
+    void suggestionAccepted(String sessionId, String suggestionId);
+    
+    void suggestionRejected(String sessionId, RejectionFeedback feedback);
+    
+    void sessionRemoved(String sessionId);
+    
+    Optional<PersonSession> findSession(String sessionId);
+    
+    Optional<SuggestionHistory> findSuggestionHistory(String sessionId);
+    
+    // Everything needed to rebuild a SessionSuggestionState; suggestions are in epoch and batch order
+    record SuggestionHistory(int epoch,
+                             List<BucketListSuggestion> suggestions,
+                             List<BucketListSuggestion> currentBatch,
+                             List<String> acceptedIds,
+                             List<RejectionFeedback> rejections) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.bucketlist.domain;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// One change to a session, as appended to its log in the SessionStateBackend. Replaying a log in
+// order rebuilds the session on any node; every event can be applied more than once without
+// changing the outcome.
+public sealed interface SessionEvent {
+
+    record Created(String sessionId, String personDescription, LocalDateTime createdAt) implements SessionEvent {
+    }
+
+    // History brought back from the SessionArchive, for sessions no longer in the backend
+    record Restored(SessionArchive.SuggestionHistory history) implements SessionEvent {
+    }
+
+    record BatchCommitted(int epoch, List<BucketListSuggestion> suggestions) implements SessionEvent {
+    }
+
+    record SuggestionAppended(int epoch, BucketListSuggestion suggestion) implements SessionEvent {
+    }
+
+    // Rejection reasons written for a suggestion that was generated without them
+    record RejectionReasonsAdded(String suggestionId, List<String> reasons) implements SessionEvent {
+    }
+
+    record Accepted(String suggestionId) implements SessionEvent {
+    }
+
+    record Rejected(RejectionFeedback feedback) implements SessionEvent {
+    }
+
+    // Tombstone: nothing after it counts and the session is not restored from the archive either
+    record Removed() implements SessionEvent {
+    }
+}
@@ -0,0 +1,28 @@
+package com.bucketlist.domain;
+
+// Published when a session is dropped so every component holding per-session data can release it
+public class SessionEvictedEvent {
+    
+    public enum Reason {
+        IDLE,
+        EXPIRED,
+        CAPACITY,
+        REMOVED
+    }
+    
+    private final String sessionId;
+    private final Reason reason;
+    
+    public SessionEvictedEvent(String sessionId, Reason reason) {
+        this.sessionId = sessionId;
+        this.reason = reason;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public Reason getReason() {
+        return reason;
+    }
+}
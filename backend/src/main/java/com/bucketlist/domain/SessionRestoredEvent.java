@@ -0,0 +1,15 @@
+package com.bucketlist.domain;
+
+// Published when a session is brought back from the archive, before it becomes visible to callers
+public class SessionRestoredEvent {
+    
+    private final String sessionId;
+    
+    public SessionRestoredEvent(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+}
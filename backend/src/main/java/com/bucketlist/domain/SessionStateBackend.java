@@ -0,0 +1,55 @@
+package com.bucketlist.domain;
+
+import java.util.List;
+
+// Where session state lives beyond this node's near cache (the in-memory maps in
+// PersonSessionService and SuggestionStateStore). Each session is an append-only log of
+// SessionEvents; any node can rebuild the session from it, and nodes that already hold the session
+// only read the events appended since. bucketlist.state.backend picks the implementation.
+public interface SessionStateBackend extends AutoCloseable {
+
+    String getName();
+
+    // Appends to the session's log and returns the log's length afterwards, so a caller that knows
+    // how long the log was can tell whether another node appended in between
+    long append(String sessionId, SessionEvent event);
+
+    // The session's events from offset on, oldest first, and the log length they end at. A backend
+    // that compacts logs answers a reader whose offset was compacted away with the snapshot that
+    // replaced those events and everything after it; events can be applied again, so the reader
+    // simply applies them all.
+    LogSlice read(String sessionId, long offset);
+
+    // The session is gone for every node
+    void remove(String sessionId);
+
+    // This node dropped the session from its near cache. Shared backends keep it for other nodes.
+    void release(String sessionId);
+
+    void addListener(Listener listener);
+
+    @Override
+    default void close() {
+    }
+
+    record LogSlice(List<SessionEvent> events, long end) {
+
+        public static LogSlice empty(long end) {
+            return new LogSlice(List.of(), end);
+        }
+    }
+
+    // Changes made by other nodes; a node is never told about its own
+    interface Listener {
+
+        default void changed(String sessionId) {
+        }
+
+        default void removed(String sessionId) {
+        }
+
+        // Notifications may have been missed, e.g. while reconnecting to the store
+        default void resync() {
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.bucketlist.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Everything SuggestionService tracks for one session, guarded by the instance's own monitor.
+// Sessions never contend with each other, and every suggestion the session has been shown
+// stays addressable by ID so accepted/rejected history survives batch replacement.
+public class SessionSuggestionState {
+
+    private static final long BASE_OVERHEAD_BYTES = 1024;
+    private static final long SUGGESTION_OVERHEAD_BYTES = 256;
+    private static final long LINE_ITEM_OVERHEAD_BYTES = 96;
+    private static final long FEEDBACK_OVERHEAD_BYTES = 96;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    private final String sessionId;
+
+    private final Map<String, BucketListSuggestion> suggestionsById = new LinkedHashMap<>();
+    private final Set<String> accepted = new LinkedHashSet<>();
+    private final Map<String, RejectionFeedback> rejected = new LinkedHashMap<>();
+    private final PreferenceProfile preferences = new PreferenceProfile();
+    private final SuggestionVectorIndex vectors = new SuggestionVectorIndex();
+
+    // Current batch and its review progress
+    private List<BucketListSuggestion> currentBatch = List.of();
+    private final Set<String> currentBatchIds = new HashSet<>();
+    private final Set<String> reviewed = new HashSet<>();
+    private int nextUnreviewedIndex = 0;
+
+    // Number of batches committed so far; each generation targets the next one
+    private int epoch = 0;
+    private boolean streaming = false;
+
+    public SessionSuggestionState(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    // Rebuilds a session from its archived history; the latest batch becomes current again and
+    // its review progress is derived from the feedback already recorded against it
+    public static SessionSuggestionState restore(String sessionId, SessionArchive.SuggestionHistory history) {
+        SessionSuggestionState state = new SessionSuggestionState(sessionId);
+        state.apply(new SessionEvent.Restored(history));
+        return state;
+    }
+
+    // Applies one event from the session's log. Returns whether it changed anything: false for a
+    // batch whose epoch was already committed, a suggestion already in the batch or rejection
+    // reasons for a suggestion that already has some.
+    public synchronized boolean apply(SessionEvent event) {
+        return switch (event) {
+            case SessionEvent.Created created -> false;
+            case SessionEvent.Restored restored -> {
+                SessionArchive.SuggestionHistory history = restored.history();
+                for (BucketListSuggestion suggestion : history.suggestions()) {
+                    suggestionsById.put(suggestion.getId(), suggestion);
+                }
+                commitBatch(history.epoch(), history.currentBatch());
+                history.acceptedIds().forEach(this::accept);
+                history.rejections().forEach(this::reject);
+                yield true;
+            }
+            case SessionEvent.BatchCommitted committed -> {
+                boolean won = epoch < committed.epoch();
+                commitBatch(committed.epoch(), committed.suggestions());
+                yield won;
+            }
+            case SessionEvent.SuggestionAppended appended -> appendToBatch(appended.epoch(), appended.suggestion());
+            case SessionEvent.RejectionReasonsAdded added -> {
+                BucketListSuggestion suggestion = suggestionsById.get(added.suggestionId());
+                yield suggestion != null && suggestion.fillRejectionReasons(added.reasons());
+            }
+            case SessionEvent.Accepted accepted -> {
+                accept(accepted.suggestionId());
+                yield true;
+            }
+            case SessionEvent.Rejected rejected -> {
+                reject(rejected.feedback());
+                yield true;
+            }
+            case SessionEvent.Removed removed -> false;
+        };
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    // Everything the applied events add up to, as one Restored event brings it back
+    public synchronized SessionArchive.SuggestionHistory toHistory() {
+        return new SessionArchive.SuggestionHistory(epoch, List.copyOf(suggestionsById.values()), currentBatch,
+            List.copyOf(accepted), List.copyOf(rejected.values()));
+    }
+
+    public synchronized List<BucketListSuggestion> getCurrentBatch() {
+        return currentBatch;
+    }
+
+    public synchronized int getEpoch() {
+        return epoch;
+    }
+
+    // Only the first commit for an epoch wins; later callers get the installed batch back. Suggestions
+    // carried over from an earlier batch keep the review they already have.
+    public synchronized List<BucketListSuggestion> commitBatch(int targetEpoch, List<BucketListSuggestion> suggestions) {
+        if (epoch >= targetEpoch) {
+            return currentBatch;
+        }
+
+        epoch = targetEpoch;
+        currentBatch = List.copyOf(suggestions);
+        currentBatchIds.clear();
+        reviewed.clear();
+        nextUnreviewedIndex = 0;
+        for (BucketListSuggestion suggestion : currentBatch) {
+            suggestionsById.put(suggestion.getId(), suggestion);
+            currentBatchIds.add(suggestion.getId());
+            if (accepted.contains(suggestion.getId()) || rejected.containsKey(suggestion.getId())) {
+                reviewed.add(suggestion.getId());
+            }
+        }
+        return currentBatch;
+    }
+
+    public synchronized boolean appendToBatch(int targetEpoch, BucketListSuggestion suggestion) {
+        if (epoch != targetEpoch || currentBatchIds.contains(suggestion.getId())) {
+            return false;
+        }
+
+        List<BucketListSuggestion> batch = new ArrayList<>(currentBatch);
+        batch.add(suggestion);
+        currentBatch = List.copyOf(batch);
+        currentBatchIds.add(suggestion.getId());
+        suggestionsById.put(suggestion.getId(), suggestion);
+        return true;
+    }
+
+    // Reviews only count towards the batch they belong to; a late click on a card from a
+    // replaced batch is still recorded as feedback but marks nothing in the new batch reviewed
+    public synchronized void accept(String suggestionId) {
+        BucketListSuggestion suggestion = suggestionsById.get(suggestionId);
+        RejectionFeedback previous = rejected.remove(suggestionId);
+        if (previous != null && suggestion != null) {
+            preferences.removeRejected(suggestion, previous);
+        }
+        if (accepted.add(suggestionId) && suggestion != null) {
+            preferences.addAccepted(suggestion);
+        }
+        markReviewed(suggestionId);
+    }
+
+    public synchronized void reject(RejectionFeedback feedback) {
+        String suggestionId = feedback.getSuggestionId();
+        BucketListSuggestion suggestion = suggestionsById.get(suggestionId);
+        boolean wasAccepted = accepted.remove(suggestionId);
+        RejectionFeedback previous = rejected.put(suggestionId, feedback);
+        if (suggestion != null) {
+            if (wasAccepted) {
+                preferences.removeAccepted(suggestion);
+            }
+            if (previous != null) {
+                preferences.removeRejected(suggestion, previous);
+            }
+            preferences.addRejected(suggestion, feedback);
+        }
+        markReviewed(suggestionId);
+    }
+
+    // The regeneration prompt's feedback section, kept within tokenBudget estimated tokens
+    public synchronized String renderPreferences(int tokenBudget) {
+        return preferences.render(tokenBudget);
+    }
+
+    private void markReviewed(String suggestionId) {
+        if (currentBatchIds.contains(suggestionId)) {
+            reviewed.add(suggestionId);
+        }
+    }
+
+    // Shown suggestions, and pending ones not yet in a batch, that the embedder has no vector for
+    public synchronized List<BucketListSuggestion> unindexedSuggestions(String embedder, List<BucketListSuggestion> pending) {
+        List<BucketListSuggestion> unindexed = new ArrayList<>();
+        for (BucketListSuggestion suggestion : suggestionsById.values()) {
+            if (!vectors.contains(embedder, suggestion.getId())) {
+                unindexed.add(suggestion);
+            }
+        }
+        for (BucketListSuggestion suggestion : pending) {
+            if (!suggestionsById.containsKey(suggestion.getId()) && !vectors.contains(embedder, suggestion.getId())) {
+                unindexed.add(suggestion);
+            }
+        }
+        return unindexed;
+    }
+
+    public synchronized void indexVector(String embedder, String suggestionId, float[] vector) {
+        vectors.put(embedder, suggestionId, vector);
+    }
+
+    // Highest similarity to a shown suggestion or one of pendingIds; vectors of suggestions that
+    // never made it into a batch don't count
+    public synchronized double maxSimilarity(String embedder, float[] vector, Set<String> pendingIds) {
+        return vectors.maxSimilarity(embedder, vector,
+            suggestionId -> suggestionsById.containsKey(suggestionId) || pendingIds.contains(suggestionId));
+    }
+
+    // Every category, those the session has been shown fewest suggestions in first (ties in
+    // declaration order)
+    public synchronized List<SpendingCategory> leastShownCategories() {
+        int[] shown = new int[SpendingCategory.values().length];
+        for (BucketListSuggestion suggestion : suggestionsById.values()) {
+            shown[suggestion.getCategory().ordinal()]++;
+        }
+        return Arrays.stream(SpendingCategory.values())
+            .sorted(Comparator.comparingInt(category -> shown[category.ordinal()]))
+            .toList();
+    }
+
+    public synchronized Optional<BucketListSuggestion> getSuggestion(String suggestionId) {
+        return Optional.ofNullable(suggestionsById.get(suggestionId));
+    }
+
+    public synchronized List<BucketListSuggestion> getAcceptedSuggestions() {
+        return resolve(accepted);
+    }
+
+    public synchronized List<BucketListSuggestion> getRejectedSuggestions() {
+        return resolve(rejected.keySet());
+    }
+
+    public synchronized Optional<RejectionFeedback> getRejectionFeedback(String suggestionId) {
+        return Optional.ofNullable(rejected.get(suggestionId));
+    }
+
+    public synchronized Map<String, RejectionFeedback> getRejectionFeedback() {
+        return Map.copyOf(rejected);
+    }
+
+    public synchronized Optional<BucketListSuggestion> nextUnreviewed() {
+        // Reviews mostly arrive in batch order, so the cursor rarely has to move more than one step
+        while (nextUnreviewedIndex < currentBatch.size()
+                && reviewed.contains(currentBatch.get(nextUnreviewedIndex).getId())) {
+            nextUnreviewedIndex++;
+        }
+        for (int i = nextUnreviewedIndex; i < currentBatch.size(); i++) {
+            BucketListSuggestion suggestion = currentBatch.get(i);
+            if (!reviewed.contains(suggestion.getId())) {
+                return Optional.of(suggestion);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public synchronized boolean isBatchFullyReviewed() {
+        return !currentBatch.isEmpty() && reviewed.size() >= currentBatch.size();
+    }
+
+    public synchronized double getReviewedFraction() {
+        return currentBatch.isEmpty() ? 0.0 : (double) reviewed.size() / currentBatch.size();
+    }
+
+    // Claims the session for streaming its first batch; fails if a batch exists or a stream is running
+    public synchronized boolean startStreaming(int targetEpoch) {
+        if (streaming || !currentBatch.isEmpty()) {
+            return false;
+        }
+        streaming = true;
+        commitBatch(targetEpoch, List.of());
+        return true;
+    }
+
+    public synchronized void finishStreaming() {
+        streaming = false;
+    }
+
+    public synchronized boolean isStreaming() {
+        return streaming;
+    }
+
+    // Rough retained size of this session's data: string payloads plus per-object overhead
+    public synchronized long estimateHeapBytes() {
+        long bytes = BASE_OVERHEAD_BYTES;
+        for (BucketListSuggestion suggestion : suggestionsById.values()) {
+            bytes += SUGGESTION_OVERHEAD_BYTES
+                + stringBytes(suggestion.getId())
+                + stringBytes(suggestion.getTitle())
+                + stringBytes(suggestion.getDescription());
+            for (String reason : suggestion.getRejectionReasons()) {
+                bytes += stringBytes(reason);
+            }
+            for (LineItem lineItem : suggestion.getPriceBreakdown().getLineItems()) {
+                bytes += LINE_ITEM_OVERHEAD_BYTES + stringBytes(lineItem.getName()) + stringBytes(lineItem.getDescription());
+            }
+        }
+        for (RejectionFeedback feedback : rejected.values()) {
+            bytes += FEEDBACK_OVERHEAD_BYTES + stringBytes(feedback.getReason());
+        }
+        return bytes + vectors.estimateHeapBytes();
+    }
+    
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_OVERHEAD_BYTES + 2L * value.length();
+    }
+    
+    private List<BucketListSuggestion> resolve(Set<String> suggestionIds) {
+        List<BucketListSuggestion> result = new ArrayList<>(suggestionIds.size());
+        for (String suggestionId : suggestionIds) {
+            BucketListSuggestion suggestion = suggestionsById.get(suggestionId);
+            if (suggestion != null) {
+                result.add(suggestion);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bucketlist.domain;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Lets concurrent callers asking for the same key share one computation instead of each
+// starting their own. Successful results stay shared until forget() is called, so a caller
+// arriving just after completion still gets the same result; failed calls are dropped
+// immediately so the next caller retries.
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+    // Starts the work in the background unless another caller already started it
+    public CompletableFuture<V> submit(K key, Supplier<V> work, Executor executor) {
+        CompletableFuture<V> call = calls.computeIfAbsent(key, k -> CompletableFuture.supplyAsync(work, executor));
+        call.whenComplete((result, error) -> {
+            if (error != null) {
+                calls.remove(key, call);
+            }
+        });
+        return call;
+    }
+
+    public boolean isInFlight(K key) {
+        return calls.containsKey(key);
+    }
+
+    public void forget(Predicate<K> keys) {
+        calls.keySet().removeIf(keys);
+    }
+}
@@ -0,0 +1,128 @@
+package com.bucketlist.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Drops regenerated suggestions that are near-copies of ones the session has already been shown,
+// or of each other. Suggestions are embedded by the configured SuggestionEmbedder and compared with
+// the session's SuggestionVectorIndex; vectors for shown suggestions are computed on first use, in
+// the same embedding request as the candidates. If the embedder is unavailable or fails, the
+// hashing embedder stands in.
+@Component
+public class SuggestionDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionDeduplicator.class);
+
+    private final SuggestionEmbedder preferred;
+    private final SuggestionEmbedder fallback;
+    private final SuggestionMetrics metrics;
+    private final boolean enabled;
+
+    @Autowired
+    public SuggestionDeduplicator(List<SuggestionEmbedder> embedders,
+                                  SuggestionMetrics metrics,
+                                  @Value("${bucketlist.dedup.enabled:true}") boolean enabled,
+                                  @Value("${bucketlist.dedup.embedder:hashing}") String embedder) {
+        Map<String, SuggestionEmbedder> byName = embedders.stream()
+            .collect(Collectors.toMap(SuggestionEmbedder::getName, Function.identity()));
+        this.preferred = byName.get(embedder.trim());
+        if (preferred == null) {
+            throw new IllegalArgumentException("Unknown embedder in bucketlist.dedup.embedder: " + embedder
+                + " (known: " + byName.keySet() + ")");
+        }
+        this.fallback = byName.get(HashingSuggestionEmbedder.NAME);
+        this.metrics = metrics;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Candidates in order, split into kept and dropped. pending are suggestions already kept for the
+    // same batch, which count as shown.
+    public Result filter(SessionSuggestionState state, List<BucketListSuggestion> candidates,
+                         List<BucketListSuggestion> pending) {
+        if (!enabled || candidates.isEmpty()) {
+            return new Result(candidates, List.of());
+        }
+        SuggestionEmbedder embedder = preferred.isAvailable() ? preferred : fallback;
+        try {
+            return filter(embedder, state, candidates, pending);
+        } catch (Exception e) {
+            if (embedder == fallback) {
+                throw new IllegalStateException("Suggestion embedding failed: " + e.getMessage(), e);
+            }
+            metrics.embedderFallback(embedder.getName());
+            logger.warn("Embedder {} failed, deduplicating with {}: {}", embedder.getName(), fallback.getName(),
+                e.getMessage());
+            try {
+                return filter(fallback, state, candidates, pending);
+            } catch (Exception fallbackFailure) {
+                throw new IllegalStateException("Suggestion embedding failed: " + fallbackFailure.getMessage(),
+                    fallbackFailure);
+            }
+        }
+    }
+
+    private Result filter(SuggestionEmbedder embedder, SessionSuggestionState state,
+                          List<BucketListSuggestion> candidates, List<BucketListSuggestion> pending) throws Exception {
+        String name = embedder.getName();
+        List<BucketListSuggestion> unindexed = state.unindexedSuggestions(name, pending);
+        List<String> texts = new ArrayList<>(unindexed.size() + candidates.size());
+        unindexed.forEach(suggestion -> texts.add(text(suggestion)));
+        candidates.forEach(suggestion -> texts.add(text(suggestion)));
+
+        // Embedding may be a network call, so it happens outside the session lock
+        List<float[]> vectors = embedder.embed(texts);
+        if (vectors.size() != texts.size()) {
+            throw new IllegalStateException("Expected " + texts.size() + " embeddings, got " + vectors.size());
+        }
+
+        List<BucketListSuggestion> kept = new ArrayList<>();
+        List<BucketListSuggestion> dropped = new ArrayList<>();
+        Set<String> pendingIds = new HashSet<>();
+        pending.forEach(suggestion -> pendingIds.add(suggestion.getId()));
+        synchronized (state) {
+            for (int i = 0; i < unindexed.size(); i++) {
+                state.indexVector(name, unindexed.get(i).getId(), vectors.get(i));
+            }
+            for (int i = 0; i < candidates.size(); i++) {
+                BucketListSuggestion candidate = candidates.get(i);
+                float[] vector = vectors.get(unindexed.size() + i);
+                double similarity = state.maxSimilarity(name, vector, pendingIds);
+                if (similarity >= embedder.getDuplicateThreshold()) {
+                    dropped.add(candidate);
+                    logger.debug("Dropping near-duplicate suggestion '{}' for session {} (similarity {})",
+                        candidate.getTitle(), state.getSessionId(), String.format("%.2f", similarity));
+                } else {
+                    kept.add(candidate);
+                    state.indexVector(name, candidate.getId(), vector);
+                    pendingIds.add(candidate.getId());
+                }
+            }
+        }
+        if (!dropped.isEmpty()) {
+            metrics.duplicatesDropped(name, dropped.size());
+        }
+        return new Result(kept, dropped);
+    }
+
+    private static String text(BucketListSuggestion suggestion) {
+        return suggestion.getTitle() + ". " + suggestion.getDescription();
+    }
+
+    public record Result(List<BucketListSuggestion> kept, List<BucketListSuggestion> dropped) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.bucketlist.domain;
+
+import java.util.List;
+
+// Turns suggestion text into vectors for SuggestionDeduplicator. Implementations are Spring beans
+// chosen by bucketlist.dedup.embedder; the hashing embedder is always there as the offline fallback.
+public interface SuggestionEmbedder {
+
+    // Selection name, e.g. "hashing"
+    String getName();
+
+    // False while the embedder lacks configuration or credentials
+    boolean isAvailable();
+
+    // Cosine similarity at or above which two suggestions count as the same idea
+    double getDuplicateThreshold();
+
+    // One unit-length vector per text, in order
+    List<float[]> embed(List<String> texts) throws Exception;
+}
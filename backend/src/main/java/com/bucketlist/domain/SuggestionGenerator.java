@@ -0,0 +1,57 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+
+import java.util.function.Consumer;
+
+// A backend that turns a suggestion prompt into completion text. Implementations are Spring beans;
+// SuggestionGeneratorRouter picks among them according to bucketlist.llm.routing.*. Prompts
+// already carry the JSON format instructions, and the completion is parsed the same way whichever
+// generator produced it.
+public interface SuggestionGenerator {
+
+    // Routing name, e.g. "openai"
+    String getName();
+
+    String getModel();
+
+    double getTemperature();
+
+    // Completion length cap, which bounds how many people fit into one packed prompt
+    int getMaxTokens();
+
+    // False while the generator lacks configuration or credentials
+    boolean isAvailable();
+
+    // Calls to rate-limited providers go through their own LlmConcurrencyLimiter, which tracks their
+    // quota headers; null for providers without rate limits
+    default LlmConcurrencyLimiter getLimiter() {
+        return null;
+    }
+
+    ChatCompletion complete(String prompt) throws Exception;
+
+    // The prompt's answer should follow schema and fit in maxTokens (0 for the generator's own cap).
+    // Generators that can't enforce a schema rely on the format instructions in the prompt, which is
+    // also what the answer is validated against. kind is the prompt's template and items how many
+    // entries its answer should hold (suggestions, or people times SUGGESTIONS_PER_BATCH for packed
+    // prompts), for generators that answer without reading the prompt.
+    default ChatCompletion complete(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens) throws Exception {
+        return complete(prompt);
+    }
+
+    // Passes completion text to onChunk as it arrives and returns the finished completion.
+    // Generators that can't stream hand over the whole text in one chunk.
+    default ChatCompletion stream(String prompt, Consumer<String> onChunk) throws Exception {
+        ChatCompletion completion = complete(prompt);
+        if (completion.content() != null) {
+            onChunk.accept(completion.content());
+        }
+        return completion;
+    }
+
+    default ChatCompletion stream(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens,
+                                  Consumer<String> onChunk) throws Exception {
+        return stream(prompt, onChunk);
+    }
+}
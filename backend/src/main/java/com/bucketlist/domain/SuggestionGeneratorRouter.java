@@ -0,0 +1,202 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Picks the SuggestionGenerator for each request from the per-deployment routing order. Prompt kinds
+// listed in fast-workloads follow fast-order instead, which usually leads with a faster, cheaper
+// model. Generators that aren't configured are skipped and ones with an open circuit go last. When
+// latency-budget is set, a generator whose recent latency percentile exceeds it is routed around for
+// the demotion period and then judged afresh, so with the fast tier next in order it takes over the
+// slow model's traffic. A failed request falls over to the next generator in line.
+@Component
+public class SuggestionGeneratorRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionGeneratorRouter.class);
+
+    private final List<SuggestionGenerator> order;
+    private final List<SuggestionGenerator> fastOrder;
+    private final Set<Kind> fastWorkloads = EnumSet.noneOf(Kind.class);
+    private final LlmResilience resilience;
+    private final MeterRegistry meterRegistry;
+    private final Duration latencyBudget;
+    private final double latencyPercentile;
+    private final int minSamples;
+    private final long demotionNanos;
+
+    // Provider name -> System.nanoTime() until which it is routed around
+    private final Map<String, Long> demotedUntil = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SuggestionGeneratorRouter(List<SuggestionGenerator> generators,
+                                     LlmResilience resilience,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${bucketlist.llm.routing.order:openai}") List<String> order,
+                                     @Value("${bucketlist.llm.routing.fast-order:openai-fast,openai}") List<String> fastOrder,
+                                     @Value("${bucketlist.llm.routing.fast-workloads:}") List<String> fastWorkloads,
+                                     @Value("${bucketlist.llm.routing.latency-budget:0s}") Duration latencyBudget,
+                                     @Value("${bucketlist.llm.routing.latency-percentile:0.95}") double latencyPercentile,
+                                     @Value("${bucketlist.llm.routing.min-samples:10}") int minSamples,
+                                     @Value("${bucketlist.llm.routing.demotion:60s}") Duration demotion) {
+        Map<String, SuggestionGenerator> byName = generators.stream()
+            .collect(Collectors.toMap(SuggestionGenerator::getName, Function.identity()));
+        this.order = resolve(byName, order, "order");
+        // Fast workloads fall back on the rest of the routing order, e.g. when no key is stored
+        this.fastOrder = resolve(byName, fastOrder, "fast-order");
+        for (SuggestionGenerator generator : this.order) {
+            if (!this.fastOrder.contains(generator)) {
+                this.fastOrder.add(generator);
+            }
+        }
+        for (String workload : fastWorkloads) {
+            if (!workload.isBlank()) {
+                this.fastWorkloads.add(Kind.fromId(workload.trim()));
+            }
+        }
+        this.resilience = resilience;
+        this.meterRegistry = meterRegistry;
+        this.latencyBudget = latencyBudget;
+        this.latencyPercentile = latencyPercentile;
+        this.minSamples = minSamples;
+        this.demotionNanos = demotion.toNanos();
+        logger.info("LLM routing order: {}, for {}: {}", order, this.fastWorkloads,
+            this.fastOrder.stream().map(SuggestionGenerator::getName).toList());
+    }
+
+    private static List<SuggestionGenerator> resolve(Map<String, SuggestionGenerator> byName, List<String> names,
+                                                     String property) {
+        List<SuggestionGenerator> resolved = new ArrayList<>();
+        for (String name : names) {
+            SuggestionGenerator generator = byName.get(name.trim());
+            if (generator == null) {
+                throw new IllegalArgumentException("Unknown LLM provider in bucketlist.llm.routing." + property + ": "
+                    + name + " (known: " + byName.keySet() + ")");
+            }
+            resolved.add(generator);
+        }
+        return resolved;
+    }
+
+    public boolean hasAvailableGenerator() {
+        return order.stream().anyMatch(SuggestionGenerator::isAvailable);
+    }
+
+    // The generator a request of this kind would go to first; its model identifies cached responses
+    public SuggestionGenerator primary(Kind kind) {
+        List<SuggestionGenerator> candidates = candidates(kind);
+        if (candidates.isEmpty()) {
+            throw new LlmUnavailableException();
+        }
+        return candidates.get(0);
+    }
+
+    // Available generators in the order a request of this kind should try them
+    public List<SuggestionGenerator> candidates(Kind kind) {
+        List<SuggestionGenerator> preferred = new ArrayList<>();
+        List<SuggestionGenerator> demoted = new ArrayList<>();
+        List<SuggestionGenerator> open = new ArrayList<>();
+        long now = System.nanoTime();
+        for (SuggestionGenerator generator : fastWorkloads.contains(kind) ? fastOrder : order) {
+            if (!generator.isAvailable()) {
+                continue;
+            }
+            if (resilience.isCircuitOpen(generator.getName())) {
+                // Still listed, so a request with nowhere else to go fails fast with Retry-After
+                open.add(generator);
+            } else if (isDemoted(generator.getName(), now)) {
+                demoted.add(generator);
+            } else {
+                preferred.add(generator);
+            }
+        }
+        preferred.addAll(demoted);
+        preferred.addAll(open);
+        return preferred;
+    }
+
+    // Runs the call on the first candidate for its kind, moving on to the next one when it fails and
+    // canFailOver still holds. If every candidate fails, the first failure is thrown.
+    public <T> Routed<T> route(Kind kind, BooleanSupplier canFailOver, GeneratorCall<T> call) throws Exception {
+        List<SuggestionGenerator> candidates = candidates(kind);
+        if (candidates.isEmpty()) {
+            throw new LlmUnavailableException();
+        }
+
+        Exception firstFailure = null;
+        for (int i = 0; ; i++) {
+            SuggestionGenerator generator = candidates.get(i);
+            try {
+                T value = call.run(generator);
+                meterRegistry.counter("bucketlist.llm.routed", "kind", kind.getId(), "provider", generator.getName())
+                    .increment();
+                return new Routed<>(generator, value);
+            } catch (Exception e) {
+                if (firstFailure == null) {
+                    firstFailure = e;
+                } else {
+                    firstFailure.addSuppressed(e);
+                }
+                if (i + 1 >= candidates.size() || !canFailOver.getAsBoolean()) {
+                    throw firstFailure;
+                }
+                SuggestionGenerator next = candidates.get(i + 1);
+                meterRegistry.counter("bucketlist.llm.failovers", "from", generator.getName(), "to", next.getName())
+                    .increment();
+                logger.warn("LLM provider {} failed, failing over to {}: {}", generator.getName(), next.getName(),
+                    e.getMessage());
+            }
+        }
+    }
+
+    private boolean isDemoted(String provider, long now) {
+        if (latencyBudget.isZero()) {
+            return false;
+        }
+        Long until = demotedUntil.get(provider);
+        if (until != null) {
+            if (until - now > 0) {
+                return true;
+            }
+            demotedUntil.remove(provider, until);
+        }
+
+        Optional<Duration> latency = resilience.latencyPercentile(provider, latencyPercentile, minSamples);
+        if (latency.isEmpty() || latency.get().compareTo(latencyBudget) <= 0) {
+            return false;
+        }
+        // Nothing new is learnt while routed around, so it starts from a clean slate when it's back
+        if (demotedUntil.putIfAbsent(provider, now + demotionNanos) == null) {
+            resilience.resetLatencies(provider);
+            meterRegistry.counter("bucketlist.llm.demotions", "provider", provider).increment();
+            logger.warn("LLM provider {} p{} latency {} ms is over the {} ms budget, routing around it for {} s",
+                provider, Math.round(latencyPercentile * 100), latency.get().toMillis(), latencyBudget.toMillis(),
+                Duration.ofNanos(demotionNanos).toSeconds());
+        }
+        return true;
+    }
+
+    public record Routed<T>(SuggestionGenerator generator, T value) {
+    }
+
+    @FunctionalInterface
+    public interface GeneratorCall<T> {
+        T run(SuggestionGenerator generator) throws Exception;
+    }
+}
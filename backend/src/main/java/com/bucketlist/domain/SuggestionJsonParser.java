@@ -0,0 +1,398 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Token-level parsing for the direct API path: pulls the completion text out of the OpenAI
+// response envelope, then reads suggestions straight off the token stream. Field names come
+// from Jackson's symbol table, so only the values we keep are materialized as strings.
+final class SuggestionJsonParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionJsonParser.class);
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String DEFAULT_CURRENCY = "USD";
+
+    private SuggestionJsonParser() {
+    }
+
+    // Reads choices[0].message.content and the usage block from a chat completion response body
+    static ChatCompletion readCompletion(byte[] body) throws IOException {
+        String content = null;
+        Integer promptTokens = null;
+        Integer completionTokens = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Chat completion response is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                        if (content == null && token == JsonToken.START_OBJECT) {
+                            content = readChoiceContent(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else if ("usage".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String usageField = parser.currentName();
+                        JsonToken usageValue = parser.nextToken();
+                        if (usageValue == JsonToken.VALUE_NUMBER_INT && "prompt_tokens".equals(usageField)) {
+                            promptTokens = parser.getIntValue();
+                        } else if (usageValue == JsonToken.VALUE_NUMBER_INT && "completion_tokens".equals(usageField)) {
+                            completionTokens = parser.getIntValue();
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (content == null) {
+            throw new IOException("Chat completion response has no message content");
+        }
+        return new ChatCompletion(content, promptTokens, completionTokens);
+    }
+
+    private static String readChoiceContent(JsonParser parser) throws IOException {
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String messageField = parser.currentName();
+                    JsonToken messageValue = parser.nextToken();
+                    if ("content".equals(messageField) && messageValue == JsonToken.VALUE_STRING) {
+                        content = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    // Parses a suggestions payload as models actually return it: possibly wrapped in a code
+    // fence or prose, possibly cut off. Every suggestion whose object closed before a syntax
+    // error is kept, even one missing fields, so it can be validated and repaired; only objects
+    // with neither a title nor a description are dropped.
+    static SuggestionResponse parseSuggestions(String content) {
+        List<SuggestionResponse.SuggestionItem> suggestions = new ArrayList<>();
+        SuggestionResponse response = new SuggestionResponse();
+        response.setSuggestions(suggestions);
+
+        int start = payloadStart(content);
+        if (start < 0) {
+            return response;
+        }
+
+        try (JsonParser parser = JSON.createParser(content.substring(start))) {
+            JsonToken root = parser.nextToken();
+            if (root == JsonToken.START_ARRAY) {
+                readSuggestionArray(parser, suggestions);
+            } else {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("suggestions".equals(field) && value == JsonToken.START_ARRAY) {
+                        readSuggestionArray(parser, suggestions);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Suggestions payload is malformed, keeping {} complete suggestions: {}",
+                suggestions.size(), e.getOriginalMessage());
+        } catch (IOException e) {
+            logger.error("Failed to parse suggestions JSON", e);
+        }
+
+        return response;
+    }
+
+    // Parses a packed answer for several personas, {"personas": [{"persona": 1, "suggestions": [...]}]},
+    // into suggestions by persona number. Only personas whose object closed are returned, so a cut-off
+    // answer leaves the remaining personas missing rather than half-filled.
+    static Map<Integer, SuggestionResponse> parsePackedSuggestions(String content) {
+        Map<Integer, SuggestionResponse> personas = new HashMap<>();
+
+        int start = payloadStart(content);
+        if (start < 0) {
+            return personas;
+        }
+
+        try (JsonParser parser = JSON.createParser(content.substring(start))) {
+            JsonToken root = parser.nextToken();
+            if (root == JsonToken.START_ARRAY) {
+                readPersonaArray(parser, personas);
+            } else {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("personas".equals(field) && value == JsonToken.START_ARRAY) {
+                        readPersonaArray(parser, personas);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Packed suggestions payload is malformed, keeping {} complete personas: {}",
+                personas.size(), e.getOriginalMessage());
+        } catch (IOException e) {
+            logger.error("Failed to parse packed suggestions JSON", e);
+        }
+
+        return personas;
+    }
+
+    // Parses {"rejectionReasons": [...]} the same forgiving way; a bare array is accepted too, and a
+    // cut-off answer keeps the reasons that closed
+    static List<String> parseRejectionReasons(String content) {
+        List<String> reasons = new ArrayList<>();
+        int start = payloadStart(content);
+        if (start < 0) {
+            return reasons;
+        }
+
+        try (JsonParser parser = JSON.createParser(content.substring(start))) {
+            JsonToken root = parser.nextToken();
+            if (root == JsonToken.START_ARRAY) {
+                readStrings(parser, reasons);
+            } else {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    if ("rejectionReasons".equals(field) && value == JsonToken.START_ARRAY) {
+                        readStrings(parser, reasons);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (JsonProcessingException e) {
+            logger.warn("Rejection reasons payload is malformed, keeping {} reasons: {}", reasons.size(), e.getOriginalMessage());
+        } catch (IOException e) {
+            logger.error("Failed to parse rejection reasons JSON", e);
+        }
+
+        reasons.removeIf(SuggestionJsonParser::isBlank);
+        return reasons;
+    }
+
+    private static void readPersonaArray(JsonParser parser, Map<Integer, SuggestionResponse> personas) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            Integer persona = null;
+            List<SuggestionResponse.SuggestionItem> suggestions = new ArrayList<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("persona".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    persona = parser.getIntValue();
+                } else if ("suggestions".equals(field) && value == JsonToken.START_ARRAY) {
+                    readSuggestionArray(parser, suggestions);
+                    // Packed answers aren't repaired item by item
+                    suggestions.removeIf(item -> isBlank(item.getTitle()) || isBlank(item.getDescription()));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (persona != null && !suggestions.isEmpty()) {
+                SuggestionResponse response = new SuggestionResponse();
+                response.setSuggestions(suggestions);
+                personas.put(persona, response);
+            }
+        }
+    }
+
+    // The first '{' or '[' starts the payload; anything before it is a fence or preamble
+    private static int payloadStart(String content) {
+        if (content == null) {
+            return -1;
+        }
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '{' || c == '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void readSuggestionArray(JsonParser parser, List<SuggestionResponse.SuggestionItem> suggestions) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            SuggestionResponse.SuggestionItem item = readSuggestion(parser);
+            if (!isBlank(item.getTitle()) || !isBlank(item.getDescription())) {
+                suggestions.add(item);
+            }
+        }
+    }
+
+    private static SuggestionResponse.SuggestionItem readSuggestion(JsonParser parser) throws IOException {
+        SuggestionResponse.SuggestionItem item = new SuggestionResponse.SuggestionItem();
+        List<String> rejectionReasons = List.of();
+        SuggestionResponse.PriceBreakdownItem priceBreakdown = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "title" -> item.setTitle(readText(parser, value));
+                case "description" -> item.setDescription(readText(parser, value));
+                case "category" -> item.setCategory(readText(parser, value));
+                case "priceBreakdown" -> {
+                    if (value == JsonToken.START_OBJECT) {
+                        priceBreakdown = readPriceBreakdown(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                case "rejectionReasons" -> {
+                    if (value == JsonToken.START_ARRAY) {
+                        rejectionReasons = readStrings(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (priceBreakdown == null) {
+            priceBreakdown = new SuggestionResponse.PriceBreakdownItem();
+            priceBreakdown.setLineItems(List.of());
+            priceBreakdown.setCurrency(DEFAULT_CURRENCY);
+        }
+        item.setPriceBreakdown(priceBreakdown);
+        item.setRejectionReasons(rejectionReasons);
+        return item;
+    }
+
+    private static SuggestionResponse.PriceBreakdownItem readPriceBreakdown(JsonParser parser) throws IOException {
+        List<SuggestionResponse.LineItemData> lineItems = new ArrayList<>();
+        String currency = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("lineItems".equals(field) && value == JsonToken.START_ARRAY) {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    if (token == JsonToken.START_OBJECT) {
+                        lineItems.add(readLineItem(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if ("currency".equals(field)) {
+                currency = readText(parser, value);
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        SuggestionResponse.PriceBreakdownItem priceBreakdown = new SuggestionResponse.PriceBreakdownItem();
+        priceBreakdown.setLineItems(lineItems);
+        priceBreakdown.setCurrency(isBlank(currency) ? DEFAULT_CURRENCY : currency);
+        return priceBreakdown;
+    }
+
+    private static SuggestionResponse.LineItemData readLineItem(JsonParser parser) throws IOException {
+        SuggestionResponse.LineItemData lineItem = new SuggestionResponse.LineItemData();
+        lineItem.setPrice(BigDecimal.ZERO);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "name" -> lineItem.setName(readText(parser, value));
+                case "description" -> lineItem.setDescription(readText(parser, value));
+                case "price" -> lineItem.setPrice(readPrice(parser, value));
+                default -> parser.skipChildren();
+            }
+        }
+        return lineItem;
+    }
+
+    // Numbers are read as exact decimals; prices sent as strings like "$1,200.50" are cleaned up
+    private static BigDecimal readPrice(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT || value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            String digits = parser.getText().replaceAll("[^0-9.\\-]", "");
+            try {
+                return digits.isEmpty() ? BigDecimal.ZERO : new BigDecimal(digits);
+            } catch (NumberFormatException e) {
+                return BigDecimal.ZERO;
+            }
+        }
+        parser.skipChildren();
+        return BigDecimal.ZERO;
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        List<String> values = new ArrayList<>();
+        readStrings(parser, values);
+        return values;
+    }
+
+    private static void readStrings(JsonParser parser, List<String> values) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (token == JsonToken.VALUE_STRING) {
+                values.add(parser.getText());
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static String readText(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,156 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Meters for the suggestion pipeline. Histogram buckets and SLO boundaries are configured per
+// meter name in application.properties, so p95 generation latency can be alerted on from Prometheus.
+@Component
+public class SuggestionMetrics {
+
+    public static final String PATH_CALL = "call";
+    public static final String PATH_STREAM = "stream";
+
+    public static final String KIND_INITIAL = "initial";
+    public static final String KIND_REGENERATION = "regeneration";
+    public static final String KIND_PARTIAL = "partial";
+    public static final String KIND_BULK = "bulk";
+    public static final String KIND_REASONS = "reasons";
+
+    private final MeterRegistry registry;
+
+    // Token counts of the most recent completion
+    private final AtomicInteger lastPromptTokens = new AtomicInteger();
+    private final AtomicInteger lastCompletionTokens = new AtomicInteger();
+
+    @Autowired
+    public SuggestionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+
+        Gauge.builder("bucketlist.llm.tokens.last", lastPromptTokens, AtomicInteger::get)
+            .description("Prompt tokens of the most recent completion")
+            .tag("type", "prompt")
+            .register(registry);
+        Gauge.builder("bucketlist.llm.tokens.last", lastCompletionTokens, AtomicInteger::get)
+            .description("Completion tokens of the most recent completion")
+            .tag("type", "completion")
+            .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    // End-to-end time from a generation request to converted suggestions
+    public void recordGeneration(Timer.Sample sample, String kind, boolean success) {
+        sample.stop(registry.timer("bucketlist.generation", "kind", kind, "outcome", outcome(success)));
+    }
+
+    public void recordPromptBuild(Timer.Sample sample, String kind) {
+        sample.stop(registry.timer("bucketlist.generation.prompt", "kind", kind));
+    }
+
+    public void recordLlmCall(Timer.Sample sample, String provider, String path, boolean success) {
+        sample.stop(registry.timer("bucketlist.llm.call", "provider", provider, "path", path, "outcome", outcome(success)));
+    }
+
+    public void recordConversion(Timer.Sample sample, String path) {
+        sample.stop(registry.timer("bucketlist.generation.conversion", "path", path));
+    }
+
+    public void recordValidation(Timer.Sample sample) {
+        sample.stop(registry.timer("bucketlist.generation.validation"));
+    }
+
+    public void recordTokenUsage(String provider, String path, Integer promptTokens, Integer completionTokens) {
+        if (promptTokens != null) {
+            lastPromptTokens.set(promptTokens);
+            tokenSummary(provider, path, "prompt").record(promptTokens);
+        }
+        if (completionTokens != null) {
+            lastCompletionTokens.set(completionTokens);
+            tokenSummary(provider, path, "completion").record(completionTokens);
+        }
+    }
+
+    // type: "prompt" or "completion". The ratio is actual over predicted, in percent, so 100 is a
+    // perfect plan and anything far off either way shows up in its distribution.
+    public void recordTokenPrediction(String kind, String type, int predicted, int actual) {
+        DistributionSummary.builder("bucketlist.llm.tokens.predicted")
+            .description("Tokens per request as planned before sending")
+            .baseUnit("tokens")
+            .tags("kind", kind, "type", type)
+            .register(registry)
+            .record(predicted);
+        DistributionSummary.builder("bucketlist.llm.tokens.prediction.ratio")
+            .description("Actual tokens per request as a percentage of the planned tokens")
+            .baseUnit("percent")
+            .tags("kind", kind, "type", type)
+            .register(registry)
+            .record(predicted > 0 ? 100.0 * actual / predicted : 0);
+    }
+
+    // A completion that used all of its planned max_tokens, and was probably cut off
+    public void completionCapped(String kind) {
+        registry.counter("bucketlist.llm.tokens.capped", "kind", kind).increment();
+    }
+
+    // reason: "missing" when the model sent no category, "unmatched" when it matched nothing
+    public void categoryFallback(String reason) {
+        registry.counter("bucketlist.category.fallback", "reason", reason).increment();
+    }
+
+    public void duplicateCategoryBatch() {
+        registry.counter("bucketlist.category.duplicate.batches").increment();
+    }
+
+    public void duplicatesDropped(String embedder, int count) {
+        registry.counter("bucketlist.dedup.dropped", "embedder", embedder).increment(count);
+    }
+
+    public void embedderFallback(String embedder) {
+        registry.counter("bucketlist.dedup.fallbacks", "embedder", embedder).increment();
+    }
+
+    // outcome: "filled", "partial" or "failed"
+    public void duplicateRefill(String outcome) {
+        registry.counter("bucketlist.dedup.refills", "outcome", outcome).increment();
+    }
+
+    // outcome: "filled", "retried" or "failed"
+    public void fanOutSlots(String outcome, int count) {
+        registry.counter("bucketlist.fanout.slots", "outcome", outcome).increment(count);
+    }
+
+    // source: "cached" when the suggestion already had its reasons, "generated" otherwise
+    public void rejectionReasonsServed(String source) {
+        registry.counter("bucketlist.reasons.served", "source", source).increment();
+    }
+
+    // outcome: "repaired" or "dropped", for suggestions that failed validation
+    public void repairedItems(String outcome, int count) {
+        registry.counter("bucketlist.repair.items", "outcome", outcome).increment(count);
+    }
+
+    public void parseFailure(String path) {
+        registry.counter("bucketlist.parse.failures", "path", path).increment();
+    }
+
+    private DistributionSummary tokenSummary(String provider, String path, String type) {
+        return DistributionSummary.builder("bucketlist.llm.tokens")
+            .description("Tokens per completion as reported by the provider")
+            .baseUnit("tokens")
+            .tags("provider", provider, "path", path, "type", type)
+            .register(registry);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+}
@@ -0,0 +1,31 @@
+package com.bucketlist.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Helpers shared by the prompt templates in PromptTemplateRegistry and the code reading their answers
+final class SuggestionPrompts {
+    
+    private static final String PERSONA_LINE = "PERSON %d: %s";
+    private static final String DISPLAY_NAMES = Arrays.stream(SpendingCategory.values())
+        .map(SpendingCategory::getDisplayName)
+        .collect(Collectors.joining(", "));
+    
+    private SuggestionPrompts() {
+    }
+    
+    // One line per person, so a description can't pass itself off as another PERSON line
+    static String personaLines(List<String> personDescriptions) {
+        StringBuilder people = new StringBuilder();
+        for (int i = 0; i < personDescriptions.size(); i++) {
+            String description = personDescriptions.get(i).replaceAll("\\s+", " ").strip();
+            people.append(String.format(PERSONA_LINE, i + 1, description)).append('\n');
+        }
+        return people.toString();
+    }
+    
+    static String displayNames() {
+        return DISPLAY_NAMES;
+    }
+}
@@ -0,0 +1,144 @@
+package com.bucketlist.domain;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// Caches parsed LLM responses for first-batch generation, keyed on a normalized person
+// description plus the model options used. Cached responses are converted into fresh
+// BucketListSuggestion instances on every hit, so suggestion IDs are never shared between sessions.
+@Component
+public class SuggestionResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionResponseCache.class);
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Access-ordered so the eldest entry is always the least recently used one
+    private final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+    public SuggestionResponseCache(@Value("${bucketlist.cache.enabled:true}") boolean enabled,
+                                   @Value("${bucketlist.cache.max-entries:500}") int maxEntries,
+                                   @Value("${bucketlist.cache.ttl:30m}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttl.toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+                boolean evict = size() > SuggestionResponseCache.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public Optional<SuggestionService.SuggestionResponse> get(String personDescription, String model, double temperature) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CacheKey key = new CacheKey(normalize(personDescription), model, temperature);
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+                hits.incrementAndGet();
+                logger.debug("Suggestion cache hit for '{}'", key.description());
+                return Optional.of(entry.response());
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    // Peeks without counting a hit or miss
+    public boolean contains(String personDescription, String model, double temperature) {
+        if (!enabled) {
+            return false;
+        }
+
+        CacheKey key = new CacheKey(normalize(personDescription), model, temperature);
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            return entry != null && entry.expiresAt() > System.currentTimeMillis();
+        }
+    }
+
+    public void put(String personDescription, String model, double temperature, SuggestionService.SuggestionResponse response) {
+        if (!enabled || response == null || response.getSuggestions() == null || response.getSuggestions().isEmpty()) {
+            return;
+        }
+
+        CacheKey key = new CacheKey(normalize(personDescription), model, temperature);
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(response, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // Case, accents, punctuation and whitespace differences don't change the suggestions we'd get back
+    static String normalize(String personDescription) {
+        if (personDescription == null) {
+            return "";
+        }
+
+        String folded = Normalizer.normalize(personDescription, Normalizer.Form.NFKD)
+            .replaceAll("\\p{M}", "")
+            .toLowerCase(Locale.ROOT);
+        return NON_WORD.matcher(folded).replaceAll(" ").trim();
+    }
+
+    private record CacheKey(String description, String model, double temperature) {
+    }
+
+    private record CacheEntry(SuggestionService.SuggestionResponse response, long expiresAt) {
+    }
+}
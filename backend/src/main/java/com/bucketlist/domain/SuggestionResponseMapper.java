@@ -0,0 +1,166 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Turns parsed LLM responses into domain suggestions
+final class SuggestionResponseMapper {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionResponseMapper.class);
+    
+    private SuggestionResponseMapper() {
+    }
+    
+    static List<BucketListSuggestion> toSuggestions(SuggestionResponse response, SuggestionMetrics metrics) {
+        List<BucketListSuggestion> suggestions = response.getSuggestions().stream()
+            .map(item -> toSuggestion(item, metrics))
+            .toList();
+            
+        validateCategoryDiversity(suggestions, metrics);
+        return suggestions;
+    }
+    
+    static void validateCategoryDiversity(List<BucketListSuggestion> suggestions, SuggestionMetrics metrics) {
+        Timer.Sample sample = metrics.start();
+        Map<SpendingCategory, Long> categoryCount = suggestions.stream()
+            .collect(java.util.stream.Collectors.groupingBy(
+                BucketListSuggestion::getCategory,
+                java.util.stream.Collectors.counting()
+            ));
+            
+        logger.info("Generated suggestions category distribution: {}", categoryCount);
+        
+        // Check for duplicates
+        List<SpendingCategory> duplicateCategories = categoryCount.entrySet().stream()
+            .filter(entry -> entry.getValue() > 1)
+            .map(Map.Entry::getKey)
+            .toList();
+            
+        if (!duplicateCategories.isEmpty()) {
+            metrics.duplicateCategoryBatch();
+            logger.warn("Found duplicate categories in suggestions: {}. This may indicate AI prompt issues.", duplicateCategories);
+        }
+        
+        // Check if we have the expected number of different categories
+        if (categoryCount.size() < suggestions.size()) {
+            logger.warn("Expected {} different categories but got {}. Category diversity requirement not met.", 
+                       suggestions.size(), categoryCount.size());
+        } else {
+            logger.info("Category diversity validation passed: {} suggestions with {} different categories", 
+                       suggestions.size(), categoryCount.size());
+        }
+        metrics.recordValidation(sample);
+    }
+    
+    static BucketListSuggestion toSuggestion(SuggestionResponse.SuggestionItem item, SuggestionMetrics metrics) {
+        SpendingCategory category = findCategoryByDisplayName(item.getCategory(), metrics);
+        PriceBreakdown priceBreakdown = convertToPriceBreakdown(item.getPriceBreakdown());
+        
+        return new BucketListSuggestion(
+            item.getTitle(),
+            item.getDescription(),
+            category,
+            priceBreakdown,
+            item.getRejectionReasons()
+        );
+    }
+    
+    static SpendingCategory findCategoryByDisplayName(String displayName, SuggestionMetrics metrics) {
+        if (displayName == null || displayName.trim().isEmpty()) {
+            metrics.categoryFallback("missing");
+            logger.warn("Category display name is null or empty, falling back to SMALL_LUXURY");
+            return SpendingCategory.SMALL_LUXURY;
+        }
+        
+        String trimmedDisplayName = displayName.trim();
+        Optional<SpendingCategory> match = matchCategory(trimmedDisplayName);
+        if (match.isPresent()) {
+            logger.debug("Matched category: '{}' -> {}", trimmedDisplayName, match.get());
+            return match.get();
+        }
+        
+        // Log all available categories for debugging
+        metrics.categoryFallback("unmatched");
+        String availableCategories = SuggestionPrompts.displayNames();
+        logger.warn("No category match found for: '{}'. Available categories: [{}]. Falling back to SMALL_LUXURY", 
+                    trimmedDisplayName, availableCategories);
+        
+        return SpendingCategory.SMALL_LUXURY;
+    }
+    
+    // Exact match first (case insensitive), then partial matches or common variations
+    static Optional<SpendingCategory> matchCategory(String displayName) {
+        if (displayName == null || displayName.isBlank()) {
+            return Optional.empty();
+        }
+        String trimmedDisplayName = displayName.trim();
+        for (SpendingCategory category : SpendingCategory.values()) {
+            if (category.getDisplayName().equalsIgnoreCase(trimmedDisplayName)) {
+                return Optional.of(category);
+            }
+        }
+        String lowerDisplayName = trimmedDisplayName.toLowerCase();
+        for (SpendingCategory category : SpendingCategory.values()) {
+            String categoryLower = category.getDisplayName().toLowerCase();
+            if (categoryLower.contains(lowerDisplayName) || lowerDisplayName.contains(categoryLower)) {
+                return Optional.of(category);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    // What is wrong with a parsed suggestion, in words a repair prompt can hand back to the model.
+    // Empty means it can be shown as is.
+    static List<String> validate(SuggestionResponse.SuggestionItem item, boolean reasonsRequired) {
+        List<String> problems = new ArrayList<>();
+        if (isBlank(item.getTitle())) {
+            problems.add("title is missing");
+        }
+        if (isBlank(item.getDescription())) {
+            problems.add("description is missing");
+        }
+        if (isBlank(item.getCategory())) {
+            problems.add("category is missing");
+        } else if (matchCategory(item.getCategory()).isEmpty()) {
+            problems.add("category \"" + item.getCategory().trim() + "\" is not one of the listed categories");
+        }
+        SuggestionResponse.PriceBreakdownItem prices = item.getPriceBreakdown();
+        if (prices == null || prices.getLineItems() == null || prices.getLineItems().isEmpty()) {
+            problems.add("priceBreakdown has no line items");
+        } else {
+            List<SuggestionResponse.LineItemData> lineItems = prices.getLineItems();
+            for (int i = 0; i < lineItems.size(); i++) {
+                SuggestionResponse.LineItemData lineItem = lineItems.get(i);
+                if (isBlank(lineItem.getName())) {
+                    problems.add("line item " + (i + 1) + " has no name");
+                }
+                if (lineItem.getPrice() == null || lineItem.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+                    problems.add("line item " + (i + 1) + " has no valid price");
+                }
+            }
+        }
+        if (reasonsRequired && (item.getRejectionReasons() == null || item.getRejectionReasons().isEmpty())) {
+            problems.add("rejectionReasons is empty");
+        }
+        return problems;
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+    
+    private static PriceBreakdown convertToPriceBreakdown(SuggestionResponse.PriceBreakdownItem item) {
+        List<LineItem> lineItems = item.getLineItems().stream()
+            .map(li -> new LineItem(li.getName(), li.getPrice(), li.getDescription()))
+            .toList();
+        return new PriceBreakdown(lineItems, item.getCurrency());
+    }
+}
@@ -1,485 +1,993 @@
 package com.bucketlist.domain;
 
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
-import org.springframework.ai.converter.BeanOutputConverter;
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import com.bucketlist.domain.SuggestionGeneratorRouter.GeneratorCall;
+import com.bucketlist.domain.SuggestionGeneratorRouter.Routed;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
 
 @Service
 public class SuggestionService {
     
     private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
     
-    private final ApiKeyService apiKeyService;
+    private final SuggestionGeneratorRouter generators;
+    private final PromptTemplateRegistry prompts;
+    private final SuggestionDeduplicator deduplicator;
     private final PersonSessionService sessionService;
+    private final SuggestionResponseCache responseCache;
+    private final SessionArchive sessionArchive;
+    private final SuggestionMetrics metrics;
+    private final TokenBudgetPlanner tokenBudget;
+    // One per rate-limited provider
+    private final List<LlmConcurrencyLimiter> limiters;
+    private final LlmResilience resilience;
+    private final Executor generationExecutor;
+    private final Duration queueRespondAfter;
+    private final boolean prefetchEnabled;
+    private final double prefetchThreshold;
+    private final int feedbackTokenBudget;
+    private final int maxDuplicateRefills;
+    private final RegenerationMode regenerationMode;
+    private final GenerationEngine engine;
+    private final int fanOutSlots;
+    private final CategoryFanOut fanOut;
+    private final boolean repairEnabled;
     
-    // Store suggestions per session
-    private final Map<String, List<BucketListSuggestion>> sessionSuggestions = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> acceptedSuggestions = new ConcurrentHashMap<>();
-    private final Map<String, Map<String, RejectionFeedback>> rejectedSuggestions = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> reviewedSuggestions = new ConcurrentHashMap<>();
+    // All per-session state lives in one aggregate per session
+    private final SuggestionStateStore stateStore;
+    
+    // Concurrent callers (and the background prefetch) for the same session epoch share one LLM call
+    private final SingleFlight<GenerationKey, List<BucketListSuggestion>> inFlightBatches = new SingleFlight<>();
+    
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     
     @Autowired
-    public SuggestionService(ApiKeyService apiKeyService, PersonSessionService sessionService) {
-        this.apiKeyService = apiKeyService;
+    public SuggestionService(SuggestionGeneratorRouter generators, PromptTemplateRegistry prompts,
+                             SuggestionDeduplicator deduplicator, PersonSessionService sessionService,
+                             SuggestionResponseCache responseCache, SuggestionStateStore stateStore,
+                             SessionArchive sessionArchive, SuggestionMetrics metrics, TokenBudgetPlanner tokenBudget,
+                             List<LlmConcurrencyLimiter> limiters, LlmResilience resilience,
+                             @Qualifier("generationExecutor") Executor generationExecutor,
+                             @Value("${bucketlist.llm.queue.respond-after:2s}") Duration queueRespondAfter,
+                             @Value("${bucketlist.prefetch.enabled:true}") boolean prefetchEnabled,
+                             @Value("${bucketlist.prefetch.threshold:0.6}") double prefetchThreshold,
+                             @Value("${bucketlist.prompt.feedback-token-budget:400}") int feedbackTokenBudget,
+                             @Value("${bucketlist.dedup.max-refills:1}") int maxDuplicateRefills,
+                             @Value("${bucketlist.regeneration.mode:full}") String regenerationMode,
+                             @Qualifier("fanOutExecutor") Executor fanOutExecutor,
+                             @Value("${bucketlist.generation.engine:batch}") String engine,
+                             @Value("${bucketlist.generation.fanout.slots:5}") int fanOutSlots,
+                             @Value("${bucketlist.generation.fanout.slot-retries:1}") int fanOutSlotRetries,
+                             @Value("${bucketlist.repair.enabled:true}") boolean repairEnabled) {
+        this.generators = generators;
+        this.prompts = prompts;
+        this.deduplicator = deduplicator;
         this.sessionService = sessionService;
+        this.responseCache = responseCache;
+        this.stateStore = stateStore;
+        this.sessionArchive = sessionArchive;
+        this.metrics = metrics;
+        this.tokenBudget = tokenBudget;
+        this.limiters = limiters;
+        this.resilience = resilience;
+        this.generationExecutor = generationExecutor;
+        this.queueRespondAfter = queueRespondAfter;
+        this.prefetchEnabled = prefetchEnabled;
+        this.prefetchThreshold = prefetchThreshold;
+        this.feedbackTokenBudget = feedbackTokenBudget;
+        this.maxDuplicateRefills = maxDuplicateRefills;
+        this.regenerationMode = RegenerationMode.fromId(regenerationMode);
+        this.engine = GenerationEngine.fromId(engine);
+        this.fanOutSlots = Math.min(fanOutSlots, SpendingCategory.values().length);
+        this.fanOut = new CategoryFanOut(fanOutExecutor, fanOutSlotRetries, metrics);
+        this.repairEnabled = repairEnabled;
     }
     
     public List<BucketListSuggestion> generateSuggestionsForPerson(String sessionId) {
+        return generateSuggestionsForPerson(sessionId, true);
+    }
+    
+    public List<BucketListSuggestion> generateSuggestionsForPerson(String sessionId, boolean useCache) {
+        Optional<PersonSession> sessionOpt = sessionService.getSession(sessionId);
+        if (sessionOpt.isEmpty()) {
+            throw new IllegalArgumentException("Invalid session ID");
+        }
+        
+        if (!generators.hasAvailableGenerator()) {
+            throw new LlmUnavailableException();
+        }
+        
+        PersonSession session = sessionOpt.get();
+        SessionSuggestionState state = stateStore.getOrCreate(sessionId);
+        
+        // Callers racing to create the first batch all end up with the same one
+        int targetEpoch;
+        synchronized (state) {
+            List<BucketListSuggestion> existing = state.getCurrentBatch();
+            if (!existing.isEmpty() || state.isStreaming()) {
+                return existing;
+            }
+            targetEpoch = state.getEpoch() + 1;
+        }
+        
+        // The generation commits its own batch, so the batch lands even if every caller was sent
+        // away with a queue position in the meantime
+        CompletableFuture<List<BucketListSuggestion>> generation = inFlightBatches.submit(
+            new GenerationKey(sessionId, targetEpoch),
+            () -> commitBatch(state, targetEpoch, fetchInitialSuggestions(sessionId, session.getPersonDescription(), useCache)),
+            generationExecutor);
+        return awaitGeneration(sessionId, generation);
+    }
+    
+    public List<BucketListSuggestion> streamSuggestionsForPerson(String sessionId, Consumer<BucketListSuggestion> onSuggestion) {
+        return streamSuggestionsForPerson(sessionId, true, onSuggestion);
+    }
+    
+    public List<BucketListSuggestion> streamSuggestionsForPerson(String sessionId, boolean useCache,
+                                                                 Consumer<BucketListSuggestion> onSuggestion) {
+        return streamSuggestionsForPerson(sessionId, useCache, position -> {}, onSuggestion);
+    }
+    
+    // onQueued receives the queue position while the generation waits for an LLM slot
+    public List<BucketListSuggestion> streamSuggestionsForPerson(String sessionId, boolean useCache, IntConsumer onQueued,
+                                                                 Consumer<BucketListSuggestion> onSuggestion) {
         Optional<PersonSession> sessionOpt = sessionService.getSession(sessionId);
         if (sessionOpt.isEmpty()) {
             throw new IllegalArgumentException("Invalid session ID");
         }
         
-        if (!apiKeyService.hasValidApiKey()) {
-            throw new IllegalStateException("API key not configured");
+        if (!generators.hasAvailableGenerator()) {
+            throw new LlmUnavailableException();
         }
         
         PersonSession session = sessionOpt.get();
+        String description = session.getPersonDescription();
+        SuggestionGenerator primary = generators.primary(firstBatchKind());
+        boolean cached = useCache 
+            && responseCache.contains(description, firstBatchCacheModel(primary), primary.getTemperature());
+        
+        if (cached) {
+            // Cache hits deliver the whole batch at once. A stream has nobody to hand a 202 to,
+            // so it keeps waiting and reports its position.
+            List<BucketListSuggestion> suggestions = null;
+            while (suggestions == null) {
+                try {
+                    suggestions = generateSuggestionsForPerson(sessionId, useCache);
+                } catch (GenerationQueuedException e) {
+                    onQueued.accept(e.getPosition());
+                }
+            }
+            suggestions.forEach(onSuggestion);
+            return suggestions;
+        }
+        
+        // Claim the first batch for this stream, unless another caller already produced one
+        SessionSuggestionState state = stateStore.getOrCreate(sessionId);
+        int targetEpoch;
+        synchronized (state) {
+            targetEpoch = state.getEpoch() + 1;
+            if (!state.startStreaming(targetEpoch)) {
+                List<BucketListSuggestion> existing = state.getCurrentBatch();
+                existing.forEach(onSuggestion);
+                return existing;
+            }
+        }
+        stateStore.record(state, new SessionEvent.BatchCommitted(targetEpoch, List.of()));
         
+        Timer.Sample generation = metrics.start();
+        boolean success = false;
         try {
-            String prompt = buildSuggestionPrompt(session.getPersonDescription());
-            String content;
-            
-            ChatClient chatClient = apiKeyService.getValidatedChatClient();
-            if (chatClient != null) {
-                // Use ChatClient if available
-                BeanOutputConverter<SuggestionResponse> outputConverter = 
-                    new BeanOutputConverter<>(SuggestionResponse.class);
-                PromptTemplate promptTemplate = new PromptTemplate(prompt + "\n\n{format}");
-                Prompt chatPrompt = promptTemplate.create(Map.of("format", outputConverter.getFormat()));
-                content = chatClient.prompt(chatPrompt).call().content();
-                
-                SuggestionResponse suggestionResponse = outputConverter.convert(content);
-                List<BucketListSuggestion> suggestions = convertToSuggestions(suggestionResponse);
-                sessionSuggestions.put(sessionId, suggestions);
-                return suggestions;
+            List<SuggestionResponse.SuggestionItem> streamedItems = new ArrayList<>();
+            List<BucketListSuggestion> streamed = new ArrayList<>();
+            List<InvalidItem> heldBack = new ArrayList<>();
+            SuggestionGenerator answered;
+            if (engine == GenerationEngine.FANOUT) {
+                // Each category's suggestion is published as soon as its own call returns
+                answered = requestFanOut(sessionId, "", description, firstBatchCategories(), onQueued,
+                    item -> publishItem(item, sessionId, state, targetEpoch, streamedItems, streamed, onSuggestion))
+                    .generator();
             } else {
-                // Fall back to direct API call with simplified JSON parsing
-                content = apiKeyService.callOpenAiDirectly(prompt + 
-                    "\n\nRespond with valid JSON in this exact format:\n" +
-                    "{\n" +
-                    "  \"suggestions\": [\n" +
-                    "    {\n" +
-                    "      \"title\": \"suggestion title\",\n" +
-                    "      \"description\": \"detailed description\",\n" +
-                    "      \"category\": \"one of the allowed categories\",\n" +
-                    "      \"priceBreakdown\": {\n" +
-                    "        \"lineItems\": [\n" +
-                    "          {\"name\": \"item name\", \"price\": 100.00, \"description\": \"item description\"}\n" +
-                    "        ],\n" +
-                    "        \"currency\": \"USD\"\n" +
-                    "      },\n" +
-                    "      \"rejectionReasons\": [\"reason1\", \"reason2\", \"reason3\", \"reason4\", \"reason5\"]\n" +
-                    "    }\n" +
-                    "  ]\n" +
-                    "}");
+                Timer.Sample promptBuild = metrics.start();
+                String prompt = prompts.initialPrompt(description);
+                metrics.recordPromptBuild(promptBuild, SuggestionMetrics.KIND_INITIAL);
+                
+                // Publish each suggestion into the session batch as soon as its JSON object closes.
+                // Invalid ones are held back and repaired together once the stream is done. A failed
+                // stream is only retried, or handed to another generator, while nothing has been
+                // published yet.
+                TokenBudgetPlanner.Budget budget = tokenBudget.plan(Kind.INITIAL, prompt, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH);
+                LlmResilience.Policy policy = LlmResilience.Policy.retryWhile(streamed::isEmpty);
+                Routed<ChatCompletion> completion = callLlm(sessionId, Kind.INITIAL, SuggestionMetrics.PATH_STREAM, onQueued, policy,
+                    generator -> {
+                        heldBack.clear();
+                        IncrementalSuggestionParser parser = new IncrementalSuggestionParser();
+                        return generator.stream(prompt, Kind.INITIAL, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH,
+                            prompts.schema(Kind.INITIAL), budget.maxTokens(), chunk -> publishStreamedItems(parser.feed(chunk),
+                                sessionId, state, targetEpoch, streamedItems, streamed, heldBack, onSuggestion));
+                    });
+                answered = completion.generator();
+                metrics.recordTokenUsage(answered.getName(), SuggestionMetrics.PATH_STREAM,
+                    completion.value().promptTokens(), completion.value().completionTokens());
+                tokenBudget.recordUsage(budget, completion.value());
                 
-                List<BucketListSuggestion> suggestions = parseSimpleSuggestions(content);
-                sessionSuggestions.put(sessionId, suggestions);
-                return suggestions;
+                if (!heldBack.isEmpty()) {
+                    // A batch with repaired items isn't the generator's own answer, so it isn't cached
+                    answered = null;
+                    for (SuggestionResponse.SuggestionItem item : repairItems(sessionId, description, heldBack).values()) {
+                        publishItem(item, sessionId, state, targetEpoch, streamedItems, streamed, onSuggestion);
+                    }
+                    if (streamed.isEmpty()) {
+                        throw new IllegalStateException("No valid suggestions could be read from the stream");
+                    }
+                }
+            }
+            
+            SuggestionResponseMapper.validateCategoryDiversity(streamed, metrics);
+            
+            if (answered != null) {
+                SuggestionResponse streamedResponse = new SuggestionResponse();
+                streamedResponse.setSuggestions(streamedItems);
+                responseCache.put(description, firstBatchCacheModel(answered), answered.getTemperature(), streamedResponse);
             }
             
+            success = true;
+            return List.copyOf(streamed);
+            
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
         } catch (Exception e) {
-            throw new RuntimeException("Failed to generate suggestions: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to stream suggestions: " + e.getMessage(), e);
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_INITIAL, success);
+            state.finishStreaming();
+        }
+    }
+    
+    private void publishStreamedItems(List<String> itemJsons, String sessionId, SessionSuggestionState state, int targetEpoch,
+                                      List<SuggestionResponse.SuggestionItem> streamedItems, List<BucketListSuggestion> streamed,
+                                      List<InvalidItem> heldBack, Consumer<BucketListSuggestion> onSuggestion) {
+        for (String itemJson : itemJsons) {
+            SuggestionResponse.SuggestionItem item;
+            try {
+                item = objectMapper.readValue(itemJson, SuggestionResponse.SuggestionItem.class);
+            } catch (JsonProcessingException e) {
+                metrics.parseFailure(SuggestionMetrics.PATH_STREAM);
+                logger.warn("Holding back malformed streamed suggestion for session {}: {}", sessionId, e.getOriginalMessage());
+                heldBack.add(new InvalidItem(itemJson, List.of("not valid JSON: " + e.getOriginalMessage()), null));
+                continue;
+            }
+            List<String> problems = SuggestionResponseMapper.validate(item, !prompts.isLazyRejectionReasons());
+            if (problems.isEmpty()) {
+                publishItem(item, sessionId, state, targetEpoch, streamedItems, streamed, onSuggestion);
+            } else {
+                heldBack.add(invalidItem(itemJson, item, problems));
+            }
+        }
+    }
+    
+    private void publishItem(SuggestionResponse.SuggestionItem item, String sessionId, SessionSuggestionState state, int targetEpoch,
+                             List<SuggestionResponse.SuggestionItem> streamedItems, List<BucketListSuggestion> streamed,
+                             Consumer<BucketListSuggestion> onSuggestion) {
+        BucketListSuggestion suggestion = SuggestionResponseMapper.toSuggestion(item, metrics);
+        streamedItems.add(item);
+        streamed.add(suggestion);
+        if (stateStore.record(state, new SessionEvent.SuggestionAppended(targetEpoch, suggestion))) {
+            sessionArchive.suggestionsAdded(sessionId, targetEpoch, streamed.size() - 1, List.of(suggestion));
         }
+        onSuggestion.accept(suggestion);
     }
     
     public List<BucketListSuggestion> getSuggestions(String sessionId) {
-        return sessionSuggestions.getOrDefault(sessionId, List.of());
+        return findState(sessionId)
+            .map(SessionSuggestionState::getCurrentBatch)
+            .orElse(List.of());
     }
     
     public void acceptSuggestion(String sessionId, String suggestionId) {
-        acceptedSuggestions.computeIfAbsent(sessionId, k -> new HashSet<>()).add(suggestionId);
-        reviewedSuggestions.computeIfAbsent(sessionId, k -> new HashSet<>()).add(suggestionId);
+        findState(sessionId).ifPresent(state -> {
+            stateStore.record(state, new SessionEvent.Accepted(suggestionId));
+            sessionArchive.suggestionAccepted(sessionId, suggestionId);
+        });
+        maybeStartPrefetch(sessionId);
     }
     
     public void rejectSuggestion(String sessionId, RejectionFeedback feedback) {
-        rejectedSuggestions.computeIfAbsent(sessionId, k -> new HashMap<>())
-            .put(feedback.getSuggestionId(), feedback);
-        reviewedSuggestions.computeIfAbsent(sessionId, k -> new HashSet<>()).add(feedback.getSuggestionId());
+        findState(sessionId).ifPresent(state -> {
+            stateStore.record(state, new SessionEvent.Rejected(feedback));
+            sessionArchive.suggestionRejected(sessionId, feedback);
+        });
+        maybeStartPrefetch(sessionId);
     }
     
     public List<BucketListSuggestion> getAcceptedSuggestions(String sessionId) {
-        Set<String> accepted = acceptedSuggestions.getOrDefault(sessionId, Set.of());
-        return getSuggestions(sessionId).stream()
-            .filter(s -> accepted.contains(s.getId()))
-            .toList();
+        return findState(sessionId)
+            .map(SessionSuggestionState::getAcceptedSuggestions)
+            .orElse(List.of());
     }
     
     public List<BucketListSuggestion> getRejectedSuggestions(String sessionId) {
-        Map<String, RejectionFeedback> rejected = rejectedSuggestions.getOrDefault(sessionId, Map.of());
-        return getSuggestions(sessionId).stream()
-            .filter(s -> rejected.containsKey(s.getId()))
-            .toList();
+        return findState(sessionId)
+            .map(SessionSuggestionState::getRejectedSuggestions)
+            .orElse(List.of());
     }
     
     public String getRejectionReason(String sessionId, String suggestionId) {
-        Map<String, RejectionFeedback> rejected = rejectedSuggestions.getOrDefault(sessionId, Map.of());
-        RejectionFeedback feedback = rejected.get(suggestionId);
-        return feedback != null ? feedback.getReason() : "No reason provided";
+        return findRejectionFeedback(sessionId, suggestionId)
+            .map(RejectionFeedback::getReason)
+            .orElse("No reason provided");
     }
     
     public boolean isCustomRejectionReason(String sessionId, String suggestionId) {
-        Map<String, RejectionFeedback> rejected = rejectedSuggestions.getOrDefault(sessionId, Map.of());
-        RejectionFeedback feedback = rejected.get(suggestionId);
-        return feedback != null && feedback.isCustomReason();
+        return findRejectionFeedback(sessionId, suggestionId)
+            .map(RejectionFeedback::isCustomReason)
+            .orElse(false);
+    }
+    
+    private Optional<RejectionFeedback> findRejectionFeedback(String sessionId, String suggestionId) {
+        return findState(sessionId).flatMap(state -> state.getRejectionFeedback(suggestionId));
     }
     
     public Optional<BucketListSuggestion> getNextUnreviewedSuggestion(String sessionId) {
-        List<BucketListSuggestion> suggestions = getSuggestions(sessionId);
-        Set<String> reviewed = reviewedSuggestions.getOrDefault(sessionId, Set.of());
-        
-        return suggestions.stream()
-            .filter(s -> !reviewed.contains(s.getId()))
-            .findFirst();
+        return findState(sessionId).flatMap(SessionSuggestionState::nextUnreviewed);
     }
     
     public boolean shouldRegenerateWithFeedback(String sessionId) {
-        List<BucketListSuggestion> suggestions = getSuggestions(sessionId);
-        Set<String> reviewed = reviewedSuggestions.getOrDefault(sessionId, Set.of());
-        
-        // Regenerate if all current suggestions have been reviewed
-        return !suggestions.isEmpty() && reviewed.size() >= suggestions.size();
+        // Regenerate if all current suggestions have been reviewed and the batch isn't still arriving
+        return findState(sessionId)
+            .map(state -> !state.isStreaming() && state.isBatchFullyReviewed())
+            .orElse(false);
     }
     
     public List<BucketListSuggestion> regenerateSuggestionsWithFeedback(String sessionId) {
+        return regenerateSuggestionsWithFeedback(sessionId, regenerationMode);
+    }
+    
+    public List<BucketListSuggestion> regenerateSuggestionsWithFeedback(String sessionId, RegenerationMode mode) {
         Optional<PersonSession> sessionOpt = sessionService.getSession(sessionId);
         if (sessionOpt.isEmpty()) {
             throw new IllegalArgumentException("Invalid session ID");
         }
         
-        if (!apiKeyService.hasValidApiKey()) {
-            throw new IllegalStateException("API key not configured");
+        if (!generators.hasAvailableGenerator()) {
+            throw new LlmUnavailableException();
         }
         
+        // /next and /regenerate racing for the same batch, or a regeneration arriving while the
+        // prefetch is still running, all join the one call for the next epoch, whichever mode started it
+        SessionSuggestionState state = stateStore.getOrCreate(sessionId);
         PersonSession session = sessionOpt.get();
+        int targetEpoch = state.getEpoch() + 1;
+        Supplier<List<BucketListSuggestion>> fetch = mode == RegenerationMode.PARTIAL
+            ? () -> fetchPartialRegeneration(state, session)
+            : () -> fetchRegeneratedSuggestions(state, session);
+        CompletableFuture<List<BucketListSuggestion>> generation = inFlightBatches.submit(
+            new GenerationKey(sessionId, targetEpoch), fetch, generationExecutor);
+        List<BucketListSuggestion> suggestions = awaitGeneration(sessionId, generation);
         
+        // Replace old suggestions with new ones and clear review tracking for new batch
+        return commitBatch(state, targetEpoch, suggestions);
+    }
+    
+    // Drops everything held for a session once PersonSessionService has let it go
+    @EventListener
+    public void onSessionEvicted(SessionEvictedEvent event) {
+        String sessionId = event.getSessionId();
+        stateStore.remove(sessionId);
+        inFlightBatches.forget(key -> key.sessionId().equals(sessionId));
+    }
+    
+    // The state backend's log is read first; the archive only fills in sessions the backend has
+    // no batches for
+    @EventListener
+    public void onSessionRestored(SessionRestoredEvent event) {
+        String sessionId = event.getSessionId();
+        if (stateStore.find(sessionId).filter(state -> state.getEpoch() > 0).isPresent()) {
+            return;
+        }
+        sessionArchive.findSuggestionHistory(sessionId)
+            .ifPresent(history -> stateStore.restore(sessionId, history));
+    }
+    
+    // Goes through the session service so the session counts as active and is restored from the
+    // archive if it's no longer in memory
+    private Optional<SessionSuggestionState> findState(String sessionId) {
+        return sessionService.getSession(sessionId).flatMap(session -> stateStore.find(sessionId));
+    }
+    
+    // sessionId is only the fairness key in the LLM queue; nothing is stored for it here
+    List<BucketListSuggestion> fetchInitialSuggestions(String sessionId, String personDescription, boolean useCache) {
+        Timer.Sample generation = metrics.start();
+        boolean success = false;
         try {
-            String prompt = buildRegenerationPrompt(sessionId, session.getPersonDescription());
-            String content;
-            
-            ChatClient chatClient = apiKeyService.getValidatedChatClient();
-            if (chatClient != null) {
-                BeanOutputConverter<SuggestionResponse> outputConverter = 
-                    new BeanOutputConverter<>(SuggestionResponse.class);
-                PromptTemplate promptTemplate = new PromptTemplate(prompt + "\n\n{format}");
-                Prompt chatPrompt = promptTemplate.create(Map.of("format", outputConverter.getFormat()));
-                content = chatClient.prompt(chatPrompt).call().content();
-                
-                SuggestionResponse suggestionResponse = outputConverter.convert(content);
-                List<BucketListSuggestion> suggestions = convertToSuggestions(suggestionResponse);
-                
-                // Replace old suggestions with new ones and clear review tracking for new batch
-                sessionSuggestions.put(sessionId, suggestions);
-                reviewedSuggestions.put(sessionId, new HashSet<>());
-                
-                return suggestions;
+            SuggestionResponse response = fetchInitialResponse(sessionId, personDescription, useCache);
+            List<BucketListSuggestion> converted = SuggestionResponseMapper.toSuggestions(response, metrics);
+            success = true;
+            return converted;
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate suggestions: " + e.getMessage(), e);
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_INITIAL, success);
+        }
+    }
+    
+    private List<BucketListSuggestion> fetchRegeneratedSuggestions(SessionSuggestionState state, PersonSession session) {
+        Timer.Sample generation = metrics.start();
+        boolean success = false;
+        try {
+            // The preference profile is rendered under the session lock: every accept/reject that
+            // completed before this point is reflected in the prompt, later ones count towards the
+            // next batch. Its size is capped, so long sessions don't grow the prompt.
+            Timer.Sample promptBuild = metrics.start();
+            String feedback = state.renderPreferences(feedbackTokenBudget);
+            SuggestionResponse response;
+            if (engine == GenerationEngine.FANOUT) {
+                // The categories the session has seen least of; the profile steers what goes in them
+                metrics.recordPromptBuild(promptBuild, SuggestionMetrics.KIND_REGENERATION);
+                response = requestFanOut(session.getSessionId(), feedback, session.getPersonDescription(),
+                    leastShownSlots(state, List.of(), fanOutSlots), position -> {}, item -> {}).value();
             } else {
-                content = apiKeyService.callOpenAiDirectly(prompt + 
-                    "\n\nRespond with valid JSON in this exact format:\n" +
-                    "{\n" +
-                    "  \"suggestions\": [\n" +
-                    "    {\n" +
-                    "      \"title\": \"suggestion title\",\n" +
-                    "      \"description\": \"detailed description\",\n" +
-                    "      \"category\": \"one of the allowed categories\",\n" +
-                    "      \"priceBreakdown\": {\n" +
-                    "        \"lineItems\": [\n" +
-                    "          {\"name\": \"item name\", \"price\": 100.00, \"description\": \"item description\"}\n" +
-                    "        ],\n" +
-                    "        \"currency\": \"USD\"\n" +
-                    "      },\n" +
-                    "      \"rejectionReasons\": [\"reason1\", \"reason2\", \"reason3\", \"reason4\", \"reason5\"]\n" +
-                    "    }\n" +
-                    "  ]\n" +
-                    "}");
-                
-                List<BucketListSuggestion> suggestions = parseSimpleSuggestions(content);
-                
-                // Replace old suggestions with new ones and clear review tracking for new batch
-                sessionSuggestions.put(sessionId, suggestions);
-                reviewedSuggestions.put(sessionId, new HashSet<>());
-                
-                return suggestions;
+                String prompt = prompts.regenerationPrompt(feedback, session.getPersonDescription());
+                metrics.recordPromptBuild(promptBuild, SuggestionMetrics.KIND_REGENERATION);
+                response = requestSuggestionResponse(session.getSessionId(), Kind.REGENERATION,
+                    TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, prompt, session.getPersonDescription()).value();
             }
             
+            List<BucketListSuggestion> suggestions = SuggestionResponseMapper.toSuggestions(response, metrics);
+            List<BucketListSuggestion> distinct = removeDuplicates(state, session, feedback, suggestions);
+            success = true;
+            return distinct;
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to regenerate suggestions: " + e.getMessage(), e);
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_REGENERATION, success);
         }
     }
     
-    private String buildSuggestionPrompt(String personDescription) {
-        return String.format("""
-            You are generating bucket list suggestions for a person based on this description: %s
-            
-            BUDGET SCALING: Analyze the description for budget level and scale accordingly:
-            - HIGH BUDGET: Premium/luxury experiences (%%1000-10000+), include 1-2 stretch goals at 70%%%% budget
-            - MEDIUM BUDGET: Balanced aspirational suggestions (%%200-2000), include stretch goals up to %%5000
-            - LOW BUDGET: Accessible local experiences (%%25-500), include 1 stretch goal up to %%1200
-            
-            REQUIREMENTS:
-            1. Generate exactly 5 suggestions using different categories: %s
-            2. Category field must EXACTLY match display names: %s
-            3. Scale pricing to inferred budget level with detailed cost breakdowns
-            4. Include 5 rejection reasons per suggestion
-            5. Infer currency from location (USD/EUR/GBP/CAD)
-            6. Validate all categories are unique and match: %s
-            
-            {format}
-            """, 
-            personDescription,
-            getDisplayNamesString(),
-            getDisplayNamesString(),
-            getDisplayNamesString()
-        ).replace("%%", "$");
-    }
-    
-    private String getDisplayNamesString() {
-        return Arrays.stream(SpendingCategory.values())
-                .map(SpendingCategory::getDisplayName)
-                .collect(java.util.stream.Collectors.joining(", "));
-    }
-    
-    private String buildRegenerationPrompt(String sessionId, String personDescription) {
-        StringBuilder feedbackSection = new StringBuilder();
-        
-        // Get accepted suggestions
-        List<BucketListSuggestion> accepted = getAcceptedSuggestions(sessionId);
-        if (!accepted.isEmpty()) {
-            feedbackSection.append("PREVIOUSLY ACCEPTED SUGGESTIONS (the user liked these):\n");
-            for (BucketListSuggestion suggestion : accepted) {
-                feedbackSection.append(String.format("- %s (%s): %s\n", 
-                    suggestion.getTitle(), 
-                    suggestion.getCategory().getDisplayName(), 
-                    suggestion.getDescription()));
+    // The current batch with only its rejected suggestions replaced: one refill prompt for that many
+    // suggestions, in the categories the session has seen least of. Accepted and unreviewed
+    // suggestions stay where they are. A batch with nothing or everything rejected, or a refill that
+    // brings back nothing usable, gets a full regeneration instead.
+    private List<BucketListSuggestion> fetchPartialRegeneration(SessionSuggestionState state, PersonSession session) {
+        List<BucketListSuggestion> batch;
+        List<BucketListSuggestion> kept = new ArrayList<>();
+        Set<Integer> openPositions = new HashSet<>();
+        String feedback;
+        synchronized (state) {
+            batch = state.getCurrentBatch();
+            for (int position = 0; position < batch.size(); position++) {
+                if (state.getRejectionFeedback(batch.get(position).getId()).isPresent()) {
+                    openPositions.add(position);
+                } else {
+                    kept.add(batch.get(position));
+                }
             }
-            feedbackSection.append("\n");
-        }
-        
-        // Get rejected suggestions with reasons
-        List<BucketListSuggestion> rejected = getRejectedSuggestions(sessionId);
-        Map<String, RejectionFeedback> rejectionMap = rejectedSuggestions.getOrDefault(sessionId, Map.of());
-        if (!rejected.isEmpty()) {
-            feedbackSection.append("PREVIOUSLY REJECTED SUGGESTIONS (the user disliked these):\n");
-            for (BucketListSuggestion suggestion : rejected) {
-                RejectionFeedback feedback = rejectionMap.get(suggestion.getId());
-                String reason = feedback != null ? feedback.getReason() : "No reason provided";
-                feedbackSection.append(String.format("- %s (%s): %s | REJECTION REASON: %s\n", 
-                    suggestion.getTitle(), 
-                    suggestion.getCategory().getDisplayName(), 
-                    suggestion.getDescription(),
-                    reason));
+            feedback = state.renderPreferences(feedbackTokenBudget);
+        }
+        if (openPositions.isEmpty() || kept.isEmpty()) {
+            return fetchRegeneratedSuggestions(state, session);
+        }
+        
+        Timer.Sample generation = metrics.start();
+        List<BucketListSuggestion> replacements = new ArrayList<>();
+        try {
+            List<String> avoid = new ArrayList<>();
+            batch.forEach(suggestion -> avoid.add(suggestion.getTitle()));
+            // Near-copies are asked for again, up to max-refills more times
+            for (int round = 0; round <= maxDuplicateRefills && replacements.size() < openPositions.size(); round++) {
+                List<BucketListSuggestion> pending = new ArrayList<>(kept);
+                pending.addAll(replacements);
+                List<SpendingCategory> slots = leastShownSlots(state, pending, openPositions.size() - replacements.size());
+                
+                SuggestionDeduplicator.Result refill;
+                try {
+                    refill = requestRefill(state, session, feedback, slots, pending, avoid);
+                } catch (Exception e) {
+                    if (round == 0) {
+                        throw e;
+                    }
+                    logger.warn("Refilling {} rejected slots for session {} failed: {}", slots.size(),
+                        session.getSessionId(), e.getMessage());
+                    break;
+                }
+                replacements.addAll(refill.kept());
+                refill.kept().forEach(suggestion -> avoid.add(suggestion.getTitle()));
+                refill.dropped().forEach(suggestion -> avoid.add(suggestion.getTitle()));
             }
-            feedbackSection.append("\n");
+        } catch (LlmOverloadedException | LlmUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to regenerate suggestions: " + e.getMessage(), e);
+        } finally {
+            metrics.recordGeneration(generation, SuggestionMetrics.KIND_PARTIAL, !replacements.isEmpty());
         }
         
-        return String.format("""
-            You are generating NEW bucket list suggestions for a person. This is a REGENERATION based on previous feedback.
-            
-            PERSON DESCRIPTION: %s
-            
-            %s
-            BUDGET SCALING: Re-analyze description and feedback patterns for budget level:
-            - HIGH BUDGET: Premium experiences (%%1000-10000+), stretch goals at 70%%%% budget
-            - MEDIUM BUDGET: Balanced suggestions (%%200-2000), stretch goals up to %%5000
-            - LOW BUDGET: Accessible experiences (%%25-500), stretch goal up to %%1200
-            - Adjust budget assessment based on accepted/rejected pricing patterns
-            
-            LEARNING: Use feedback to generate better personalized suggestions. Avoid rejected patterns, align with accepted preferences.
-            
-            REQUIREMENTS:
-            1. Generate 5 NEW suggestions using different categories: %s
-            2. Category field must EXACTLY match display names: %s  
-            3. Scale pricing to budget level with detailed breakdowns
-            4. Include 5 rejection reasons per suggestion
-            5. Infer currency from location
-            6. Validate categories are unique and match: %s
-            
-            {format}
-            """, 
-            personDescription,
-            feedbackSection.toString(),
-            getDisplayNamesString(),
-            getDisplayNamesString(),
-            getDisplayNamesString()
-        ).replace("%%", "$");
-    }
-    
-    private List<BucketListSuggestion> convertToSuggestions(SuggestionResponse response) {
-        List<BucketListSuggestion> suggestions = response.getSuggestions().stream()
-            .map(this::convertToSuggestion)
-            .toList();
-            
-        validateCategoryDiversity(suggestions);
-        return suggestions;
+        if (replacements.isEmpty()) {
+            logger.warn("No usable replacements for the {} rejected suggestions of session {}; regenerating the whole batch",
+                openPositions.size(), session.getSessionId());
+            return fetchRegeneratedSuggestions(state, session);
+        }
+        
+        // Replacements take the rejected positions in order; positions left over are dropped
+        List<BucketListSuggestion> merged = new ArrayList<>(kept.size() + replacements.size());
+        Iterator<BucketListSuggestion> next = replacements.iterator();
+        for (int position = 0; position < batch.size(); position++) {
+            if (!openPositions.contains(position)) {
+                merged.add(batch.get(position));
+            } else if (next.hasNext()) {
+                merged.add(next.next());
+            }
+        }
+        return merged;
     }
     
-    private void validateCategoryDiversity(List<BucketListSuggestion> suggestions) {
-        Map<SpendingCategory, Long> categoryCount = suggestions.stream()
-            .collect(java.util.stream.Collectors.groupingBy(
-                BucketListSuggestion::getCategory,
-                java.util.stream.Collectors.counting()
-            ));
-            
-        logger.info("Generated suggestions category distribution: {}", categoryCount);
+    // Categories not in the batch yet, those the session has been shown fewest of first, then the
+    // batch's own categories if that isn't enough
+    private static List<SpendingCategory> leastShownSlots(SessionSuggestionState state, List<BucketListSuggestion> batch,
+                                                          int count) {
+        Set<SpendingCategory> inBatch = EnumSet.noneOf(SpendingCategory.class);
+        batch.forEach(suggestion -> inBatch.add(suggestion.getCategory()));
+        List<SpendingCategory> leastShown = state.leastShownCategories();
+        List<SpendingCategory> slots = new ArrayList<>(leastShown.size());
+        leastShown.stream().filter(category -> !inBatch.contains(category)).forEach(slots::add);
+        leastShown.stream().filter(inBatch::contains).forEach(slots::add);
+        return slots.subList(0, Math.min(count, slots.size()));
+    }
+    
+    // Near-copies of suggestions the session has already seen are dropped and their places asked
+    // for again, for just the missing categories. A refill that fails or repeats itself leaves the
+    // batch short; a batch that would end up empty is kept as generated.
+    private List<BucketListSuggestion> removeDuplicates(SessionSuggestionState state, PersonSession session,
+                                                        String feedback, List<BucketListSuggestion> suggestions) {
+        SuggestionDeduplicator.Result result = deduplicator.filter(state, suggestions, List.of());
+        if (result.dropped().isEmpty()) {
+            return suggestions;
+        }
         
-        // Check for duplicates
-        List<SpendingCategory> duplicateCategories = categoryCount.entrySet().stream()
-            .filter(entry -> entry.getValue() > 1)
-            .map(Map.Entry::getKey)
-            .toList();
+        List<BucketListSuggestion> kept = new ArrayList<>(result.kept());
+        List<BucketListSuggestion> dropped = new ArrayList<>(result.dropped());
+        for (int round = 0; round < maxDuplicateRefills && kept.size() < suggestions.size(); round++) {
+            List<SpendingCategory> slots = refillSlots(kept, dropped, suggestions.size() - kept.size());
+            List<String> avoid = new ArrayList<>();
+            kept.forEach(suggestion -> avoid.add(suggestion.getTitle()));
+            dropped.forEach(suggestion -> avoid.add(suggestion.getTitle()));
             
-        if (!duplicateCategories.isEmpty()) {
-            logger.warn("Found duplicate categories in suggestions: {}. This may indicate AI prompt issues.", duplicateCategories);
+            SuggestionDeduplicator.Result refilled;
+            try {
+                refilled = requestRefill(state, session, feedback, slots, kept, avoid);
+            } catch (Exception e) {
+                logger.warn("Refilling {} duplicate slots for session {} failed: {}", slots.size(),
+                    session.getSessionId(), e.getMessage());
+                break;
+            }
+            kept.addAll(refilled.kept());
+            dropped.addAll(refilled.dropped());
         }
         
-        // Check if we have the expected number of different categories
-        if (categoryCount.size() < suggestions.size()) {
-            logger.warn("Expected {} different categories but got {}. Category diversity requirement not met.", 
-                       suggestions.size(), categoryCount.size());
-        } else {
-            logger.info("Category diversity validation passed: {} suggestions with {} different categories", 
-                       suggestions.size(), categoryCount.size());
+        int missing = suggestions.size() - kept.size();
+        metrics.duplicateRefill(missing == 0 ? "filled" : kept.isEmpty() ? "failed" : "partial");
+        if (kept.isEmpty()) {
+            logger.warn("Every regenerated suggestion for session {} repeats an earlier one; keeping them",
+                session.getSessionId());
+            return suggestions;
+        }
+        if (missing > 0) {
+            logger.info("Regenerated batch for session {} is {} short after dropping near-duplicates",
+                session.getSessionId(), missing);
         }
+        return kept;
     }
     
-    private BucketListSuggestion convertToSuggestion(SuggestionResponse.SuggestionItem item) {
-        SpendingCategory category = findCategoryByDisplayName(item.getCategory());
-        PriceBreakdown priceBreakdown = convertToPriceBreakdown(item.getPriceBreakdown());
+    // One refill prompt for the given categories. Only the requested categories are kept, one
+    // suggestion each, and near-copies of anything shown or pending are dropped.
+    private SuggestionDeduplicator.Result requestRefill(SessionSuggestionState state, PersonSession session,
+                                                        String feedback, List<SpendingCategory> slots,
+                                                        List<BucketListSuggestion> pending,
+                                                        List<String> avoid) throws Exception {
+        String prompt = prompts.refillPrompt(feedback, session.getPersonDescription(), slots, avoid);
+        List<BucketListSuggestion> refill = SuggestionResponseMapper.toSuggestions(
+            requestSuggestionResponse(session.getSessionId(), Kind.REFILL, slots.size(), prompt, session.getPersonDescription()).value(),
+            metrics);
         
-        return new BucketListSuggestion(
-            item.getTitle(),
-            item.getDescription(),
-            category,
-            priceBreakdown,
-            item.getRejectionReasons()
-        );
+        Set<SpendingCategory> open = EnumSet.noneOf(SpendingCategory.class);
+        open.addAll(slots);
+        List<BucketListSuggestion> candidates = refill.stream()
+            .filter(suggestion -> open.remove(suggestion.getCategory()))
+            .toList();
+        return deduplicator.filter(state, candidates, pending);
     }
     
-    private SpendingCategory findCategoryByDisplayName(String displayName) {
-        if (displayName == null || displayName.trim().isEmpty()) {
-            logger.warn("Category display name is null or empty, falling back to SMALL_LUXURY");
-            return SpendingCategory.SMALL_LUXURY;
-        }
-        
-        String trimmedDisplayName = displayName.trim();
-        logger.debug("Attempting to match category: '{}'", trimmedDisplayName);
-        
-        // First try exact match (case insensitive)
-        for (SpendingCategory category : SpendingCategory.values()) {
-            if (category.getDisplayName().equalsIgnoreCase(trimmedDisplayName)) {
-                logger.debug("Found exact match: '{}' -> {}", trimmedDisplayName, category);
-                return category;
+    // Categories not yet in the batch, those of the dropped suggestions first
+    private static List<SpendingCategory> refillSlots(List<BucketListSuggestion> kept,
+                                                      List<BucketListSuggestion> dropped, int count) {
+        Set<SpendingCategory> slots = new LinkedHashSet<>();
+        dropped.forEach(suggestion -> slots.add(suggestion.getCategory()));
+        slots.addAll(Arrays.asList(SpendingCategory.values()));
+        kept.forEach(suggestion -> slots.remove(suggestion.getCategory()));
+        return slots.stream().limit(count).toList();
+    }
+    
+    // Initial batches don't depend on session feedback, so they can be shared through the response cache.
+    // Opting out skips the lookup but still refreshes the cached entry. Responses are cached under
+    // the generator that produced them, so a fail-over answer never stands in for the primary's.
+    private SuggestionResponse fetchInitialResponse(String sessionId, String personDescription, boolean useCache) throws Exception {
+        if (useCache) {
+            SuggestionGenerator primary = generators.primary(firstBatchKind());
+            Optional<SuggestionResponse> cached =
+                responseCache.get(personDescription, firstBatchCacheModel(primary), primary.getTemperature());
+            if (cached.isPresent()) {
+                return cached.get();
             }
         }
         
-        // Try partial matches or common variations
-        String lowerDisplayName = trimmedDisplayName.toLowerCase();
-        for (SpendingCategory category : SpendingCategory.values()) {
-            String categoryLower = category.getDisplayName().toLowerCase();
-            if (categoryLower.contains(lowerDisplayName) || lowerDisplayName.contains(categoryLower)) {
-                logger.debug("Found partial match: '{}' -> {}", trimmedDisplayName, category);
-                return category;
+        if (engine == GenerationEngine.FANOUT) {
+            Routed<SuggestionResponse> response = requestFanOut(sessionId, "", personDescription, firstBatchCategories(),
+                position -> {}, item -> {});
+            SuggestionGenerator answered = response.generator();
+            if (answered != null) {
+                responseCache.put(personDescription, firstBatchCacheModel(answered), answered.getTemperature(), response.value());
             }
+            return response.value();
         }
         
-        // Log all available categories for debugging
-        String availableCategories = getDisplayNamesString();
-        logger.warn("No category match found for: '{}'. Available categories: [{}]. Falling back to SMALL_LUXURY", 
-                    trimmedDisplayName, availableCategories);
+        Timer.Sample promptBuild = metrics.start();
+        String prompt = prompts.initialPrompt(personDescription);
+        metrics.recordPromptBuild(promptBuild, SuggestionMetrics.KIND_INITIAL);
         
-        return SpendingCategory.SMALL_LUXURY;
+        Routed<SuggestionResponse> response = requestSuggestionResponse(sessionId, Kind.INITIAL,
+            TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, prompt, personDescription);
+        SuggestionGenerator answered = response.generator();
+        responseCache.put(personDescription, firstBatchCacheModel(answered), answered.getTemperature(), response.value());
+        return response.value();
     }
     
-    private PriceBreakdown convertToPriceBreakdown(SuggestionResponse.PriceBreakdownItem item) {
-        List<LineItem> lineItems = item.getLineItems().stream()
-            .map(li -> new LineItem(li.getName(), li.getPrice(), li.getDescription()))
-            .toList();
-        return new PriceBreakdown(lineItems, item.getCurrency());
+    // The prompt kind a first batch is asked with, which is what it is routed by
+    private Kind firstBatchKind() {
+        return engine == GenerationEngine.FANOUT ? Kind.SLOT : Kind.INITIAL;
+    }
+    
+    // Fan-out batches are cached apart from whole-batch answers, under the slot prompt's version
+    private String firstBatchCacheModel(SuggestionGenerator generator) {
+        if (engine == GenerationEngine.FANOUT) {
+            return generator.getName() + "/" + generator.getModel() + "/fanout-" + prompts.activeVersion(PromptTemplateRegistry.Kind.SLOT);
+        }
+        return cacheModel(generator);
     }
     
-    private List<BucketListSuggestion> parseSimpleSuggestions(String jsonContent) {
-        // Simple JSON parsing for fallback - in production use Jackson or Gson
-        List<BucketListSuggestion> suggestions = new ArrayList<>();
+    // A random pick of distinct categories, so first batches don't always cover the same ones
+    private List<SpendingCategory> firstBatchCategories() {
+        List<SpendingCategory> categories = new ArrayList<>(Arrays.asList(SpendingCategory.values()));
+        Collections.shuffle(categories);
+        return categories.subList(0, fanOutSlots);
+    }
+    
+    // One single-suggestion prompt per category through the fan-out, answers in category order.
+    // The generator is the one behind every slot, or null when fail-over split the slots between
+    // generators; such batches aren't cached.
+    private Routed<SuggestionResponse> requestFanOut(String sessionId, String feedback, String personDescription,
+                                                     List<SpendingCategory> categories, IntConsumer onQueued,
+                                                     Consumer<SuggestionResponse.SuggestionItem> onItem) throws Exception {
+        List<Routed<SuggestionResponse.SuggestionItem>> answers = fanOut.run(categories,
+            category -> requestSlot(sessionId, feedback, personDescription, category, onQueued),
+            answer -> onItem.accept(answer.value()));
+        
+        SuggestionResponse response = new SuggestionResponse();
+        response.setSuggestions(new ArrayList<>(answers.stream().map(Routed::value).toList()));
+        Set<SuggestionGenerator> answeredBy = new HashSet<>();
+        answers.forEach(answer -> answeredBy.add(answer.generator()));
+        return new Routed<>(answeredBy.size() == 1 ? answeredBy.iterator().next() : null, response);
+    }
+    
+    // The slot decides the category, whatever the model wrote into its answer
+    private Routed<SuggestionResponse.SuggestionItem> requestSlot(String sessionId, String feedback, String personDescription,
+                                                                  SpendingCategory category, IntConsumer onQueued) throws Exception {
+        String prompt = prompts.slotPrompt(feedback, personDescription, category);
+        Routed<SuggestionResponse> response = requestSuggestionResponse(sessionId, Kind.SLOT, 1, prompt, personDescription, onQueued);
+        SuggestionResponse.SuggestionItem item = response.value().getSuggestions().getFirst();
+        item.setCategory(category.getDisplayName());
+        return new Routed<>(response.generator(), item);
+    }
+    
+    // Cached first batches are only served for the generator and initial prompt version that produced them
+    String cacheModel(SuggestionGenerator generator) {
+        return generator.getName() + "/" + generator.getModel() + "/" + prompts.activeVersion(PromptTemplateRegistry.Kind.INITIAL);
+    }
+    
+    // Parses the completion token by token, keeping every suggestion that closed properly, then
+    // validates each one; invalid suggestions are repaired with one follow-up call for just them
+    // items is how many suggestions the prompt asks for
+    private Routed<SuggestionResponse> requestSuggestionResponse(String sessionId, Kind kind, int items, String prompt,
+                                                                 String personDescription) throws Exception {
+        return requestSuggestionResponse(sessionId, kind, items, prompt, personDescription, position -> {});
+    }
+    
+    private Routed<SuggestionResponse> requestSuggestionResponse(String sessionId, Kind kind, int items, String prompt,
+                                                                 String personDescription, IntConsumer onQueued) throws Exception {
+        Routed<ChatCompletion> completion = requestCompletion(sessionId, kind, items, prompt, onQueued);
+        ChatCompletion answer = completion.value();
+        
+        Timer.Sample conversion = metrics.start();
+        SuggestionResponse response = SuggestionJsonParser.parseSuggestions(answer.content());
+        metrics.recordConversion(conversion, SuggestionMetrics.PATH_CALL);
+        if (response.getSuggestions().isEmpty()) {
+            metrics.parseFailure(SuggestionMetrics.PATH_CALL);
+            throw new IllegalStateException("No suggestions could be read from the " + completion.generator().getName()
+                + " completion");
+        }
+        
+        List<SuggestionResponse.SuggestionItem> suggestions = response.getSuggestions();
+        List<InvalidItem> invalid = new ArrayList<>();
+        List<Integer> invalidPositions = new ArrayList<>();
+        for (int position = 0; position < suggestions.size(); position++) {
+            SuggestionResponse.SuggestionItem item = suggestions.get(position);
+            List<String> problems = SuggestionResponseMapper.validate(item, !prompts.isLazyRejectionReasons());
+            if (!problems.isEmpty()) {
+                invalid.add(invalidItem(objectMapper.writeValueAsString(item), item, problems));
+                invalidPositions.add(position);
+            }
+        }
+        if (invalid.isEmpty()) {
+            return new Routed<>(completion.generator(), response);
+        }
         
-        // This is a simplified parser - replace with proper JSON library in production
+        // Repaired suggestions take their originals' places; those that couldn't be repaired are dropped
+        Map<Integer, SuggestionResponse.SuggestionItem> repaired = repairItems(sessionId, personDescription, invalid);
+        List<SuggestionResponse.SuggestionItem> fixed = new ArrayList<>(suggestions);
+        for (int i = invalid.size() - 1; i >= 0; i--) {
+            int position = invalidPositions.get(i);
+            if (repaired.containsKey(i)) {
+                fixed.set(position, repaired.get(i));
+            } else {
+                fixed.remove(position);
+            }
+        }
+        if (fixed.isEmpty()) {
+            throw new IllegalStateException("No valid suggestions could be read from the " + completion.generator().getName()
+                + " completion");
+        }
+        response.setSuggestions(fixed);
+        return new Routed<>(completion.generator(), response);
+    }
+    
+    // One repair prompt for every invalid suggestion of an answer, keyed by their index in invalid.
+    // Only suggestions that pass validation afterwards are returned; a suggestion whose category was
+    // already valid keeps it. A repair that fails costs just the invalid suggestions, never the batch.
+    private Map<Integer, SuggestionResponse.SuggestionItem> repairItems(String sessionId, String personDescription,
+                                                                        List<InvalidItem> invalid) {
+        Map<Integer, SuggestionResponse.SuggestionItem> repaired = new HashMap<>();
+        if (repairEnabled) {
+            try {
+                String prompt = prompts.repairPrompt(personDescription, invalid.stream().map(InvalidItem::json).toList(),
+                    invalid.stream().map(InvalidItem::problems).toList());
+                Routed<ChatCompletion> completion = requestCompletion(sessionId, Kind.REPAIR, invalid.size(), prompt);
+                List<SuggestionResponse.SuggestionItem> answers =
+                    SuggestionJsonParser.parseSuggestions(completion.value().content()).getSuggestions();
+                for (int i = 0; i < Math.min(answers.size(), invalid.size()); i++) {
+                    SuggestionResponse.SuggestionItem answer = answers.get(i);
+                    if (invalid.get(i).category() != null) {
+                        answer.setCategory(invalid.get(i).category());
+                    }
+                    if (SuggestionResponseMapper.validate(answer, !prompts.isLazyRejectionReasons()).isEmpty()) {
+                        repaired.put(i, answer);
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("Repairing {} invalid suggestions for session {} failed: {}", invalid.size(), sessionId,
+                    e.getMessage());
+            }
+        }
+        metrics.repairedItems("repaired", repaired.size());
+        metrics.repairedItems("dropped", invalid.size() - repaired.size());
+        if (repaired.size() < invalid.size()) {
+            logger.warn("Dropping {} invalid suggestions for session {}: {}", invalid.size() - repaired.size(), sessionId,
+                invalid.stream().map(InvalidItem::problems).toList());
+        }
+        return repaired;
+    }
+    
+    private static InvalidItem invalidItem(String json, SuggestionResponse.SuggestionItem item, List<String> problems) {
+        return new InvalidItem(json, problems, SuggestionResponseMapper.matchCategory(item.getCategory())
+            .map(SpendingCategory::getDisplayName)
+            .orElse(null));
+    }
+    
+    // A complete prompt, format instructions included, through routing, the limiter and resilience.
+    // Generators that can enforce the kind's response schema are asked to. max_tokens is planned from
+    // the items the answer should hold (see TokenBudgetPlanner).
+    Routed<ChatCompletion> requestCompletion(String sessionId, Kind kind, int items, String prompt) throws Exception {
+        return requestCompletion(sessionId, kind, items, prompt, position -> {});
+    }
+    
+    private Routed<ChatCompletion> requestCompletion(String sessionId, Kind kind, int items, String prompt,
+                                                     IntConsumer onQueued) throws Exception {
+        ResponseSchema schema = prompts.schema(kind);
+        TokenBudgetPlanner.Budget budget = tokenBudget.plan(kind, prompt, items);
+        Routed<ChatCompletion> completion = callLlm(sessionId, kind, SuggestionMetrics.PATH_CALL, onQueued,
+            LlmResilience.Policy.IDEMPOTENT, generator -> generator.complete(prompt, kind, items, schema, budget.maxTokens()));
+        ChatCompletion answer = completion.value();
+        metrics.recordTokenUsage(completion.generator().getName(), SuggestionMetrics.PATH_CALL,
+            answer.promptTokens(), answer.completionTokens());
+        tokenBudget.recordUsage(budget, answer);
+        return completion;
+    }
+    
+    // Routes an LLM request to a generator for its kind and runs it through the resilience layer
+    // there. Attempts against a rate-limited provider each hold their own limiter permit, and a
+    // failure while that provider has us paused is reported as overload, so callers answer 503 with
+    // Retry-After instead of 500. Whatever fails on one generator is retried on the next while
+    // policy allows.
+    private <T> Routed<T> callLlm(String sessionId, Kind kind, String path, IntConsumer onQueued,
+                                  LlmResilience.Policy policy, GeneratorCall<T> call) throws Exception {
+        return generators.route(kind, policy.retryable(), generator -> {
+            LlmConcurrencyLimiter limiter = generator.getLimiter();
+            try {
+                return resilience.call(generator, path, policy, hedge -> {
+                    if (limiter == null) {
+                        return timedCall(generator, path, call, null);
+                    }
+                    // Hedged copies only go out on a free slot; they never queue behind real requests
+                    LlmConcurrencyLimiter.Permit acquired = hedge
+                        ? limiter.tryAcquire(kind).orElseThrow(() -> new LlmOverloadedException("No free LLM slot for a hedged request", Duration.ZERO))
+                        : limiter.acquire(sessionId, kind, onQueued);
+                    try (LlmConcurrencyLimiter.Permit permit = acquired) {
+                        return timedCall(generator, path, call, permit);
+                    }
+                });
+            } catch (LlmOverloadedException e) {
+                throw e;
+            } catch (Exception e) {
+                Duration pause = limiter != null ? limiter.remainingPause() : Duration.ZERO;
+                if (!pause.isZero()) {
+                    throw new LlmOverloadedException(generator.getName() + " rate limit reached", pause, e);
+                }
+                throw e;
+            }
+        });
+    }
+    
+    private <T> T timedCall(SuggestionGenerator generator, String path, GeneratorCall<T> call,
+                            LlmConcurrencyLimiter.Permit permit) throws Exception {
+        Timer.Sample sample = metrics.start();
+        boolean success = false;
         try {
-            // Extract suggestions array content between "suggestions": [ and ]
-            int startIdx = jsonContent.indexOf("\"suggestions\":");
-            if (startIdx == -1) return suggestions;
-            
-            int arrayStart = jsonContent.indexOf("[", startIdx);
-            int arrayEnd = jsonContent.lastIndexOf("]");
-            
-            if (arrayStart == -1 || arrayEnd == -1) return suggestions;
-            
-            String arrayContent = jsonContent.substring(arrayStart + 1, arrayEnd);
-            
-            // Split by object boundaries (simplified approach)
-            String[] items = arrayContent.split("\\},\\s*\\{");
-            
-            for (String item : items) {
-                item = item.replace("{", "").replace("}", "");
-                
-                String title = extractJsonValue(item, "title");
-                String description = extractJsonValue(item, "description");
-                String category = extractJsonValue(item, "category");
-                
-                // Extract rejection reasons array
-                List<String> rejectionReasons = extractJsonArray(item, "rejectionReasons");
-                
-                // Create a simple price breakdown with default values for fallback
-                List<LineItem> lineItems = List.of(
-                    new LineItem("Estimated cost", new java.math.BigDecimal("100.00"), "Approximate cost")
-                );
-                PriceBreakdown priceBreakdown = new PriceBreakdown(lineItems, "USD");
-                
-                if (!title.isEmpty() && !description.isEmpty()) {
-                    SpendingCategory spendingCategory = findCategoryByDisplayName(category);
-                    suggestions.add(new BucketListSuggestion(title, description, spendingCategory, priceBreakdown, rejectionReasons));
+            T result = call.run(generator);
+            success = true;
+            if (permit != null) {
+                permit.success();
+            }
+            return result;
+        } finally {
+            metrics.recordLlmCall(sample, generator.getName(), path, success);
+        }
+    }
+    
+    // Waits for a generation, but once it has sat in the LLM queue for queue.respond-after the
+    // caller gets its queue position instead. The generation keeps its place; asking again joins it.
+    private List<BucketListSuggestion> awaitGeneration(String sessionId, CompletableFuture<List<BucketListSuggestion>> generation) {
+        try {
+            while (true) {
+                try {
+                    return generation.get(queueRespondAfter.toMillis(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    for (LlmConcurrencyLimiter limiter : limiters) {
+                        OptionalInt position = limiter.queuePosition(sessionId);
+                        if (position.isPresent()) {
+                            throw new GenerationQueuedException(position.getAsInt(), limiter.estimateWait(position.getAsInt()));
+                        }
+                    }
+                    // Already talking to the LLM, keep waiting
                 }
             }
-        } catch (Exception e) {
-            // If parsing fails, return empty list
-            logger.error("Failed to parse suggestions JSON", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for suggestions", e);
         }
-        
-        validateCategoryDiversity(suggestions);
-        return suggestions;
     }
     
-    private String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]+)\"";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher m = p.matcher(json);
-        return m.find() ? m.group(1) : "";
+    // Swaps in a new batch and resets review tracking as one step per session. Only the first
+    // commit for an epoch wins, on this node or any other; later callers for the same epoch get the
+    // batch that was installed. Suggestions carried over from the previous batch are moved in the
+    // archive, not added again.
+    private List<BucketListSuggestion> commitBatch(SessionSuggestionState state, int epoch, List<BucketListSuggestion> suggestions) {
+        boolean committed = false;
+        Set<String> carried = new HashSet<>();
+        if (state.getEpoch() < epoch) {
+            suggestions.stream()
+                .filter(suggestion -> state.getSuggestion(suggestion.getId()).isPresent())
+                .forEach(suggestion -> carried.add(suggestion.getId()));
+            committed = stateStore.record(state, new SessionEvent.BatchCommitted(epoch, suggestions));
+        }
+        List<BucketListSuggestion> installed = state.getCurrentBatch();
+        String sessionId = state.getSessionId();
+        if (committed && !installed.isEmpty()) {
+            if (carried.isEmpty()) {
+                sessionArchive.suggestionsAdded(sessionId, epoch, 0, installed);
+            } else {
+                for (int position = 0; position < installed.size(); position++) {
+                    BucketListSuggestion suggestion = installed.get(position);
+                    if (carried.contains(suggestion.getId())) {
+                        sessionArchive.suggestionMoved(sessionId, suggestion.getId(), epoch, position);
+                    } else {
+                        sessionArchive.suggestionsAdded(sessionId, epoch, position, List.of(suggestion));
+                    }
+                }
+            }
+        }
+        inFlightBatches.forget(key -> key.sessionId().equals(sessionId) && key.epoch() <= epoch);
+        return installed;
     }
     
-    private List<String> extractJsonArray(String json, String key) {
-        List<String> result = new ArrayList<>();
-        String pattern = "\"" + key + "\"\\s*:\\s*\\[([^\\]]+)\\]";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher m = p.matcher(json);
+    // Starts building the next batch in the background once enough of the current one is reviewed.
+    // It runs under the same single-flight key a later regeneration uses, so that regeneration
+    // picks up the prefetched batch (or joins it while still running) instead of calling the LLM again.
+    // Partial regenerations aren't prefetched: they are small, and what they replace depends on
+    // reviews still to come.
+    private void maybeStartPrefetch(String sessionId) {
+        if (!prefetchEnabled || regenerationMode == RegenerationMode.PARTIAL || !generators.hasAvailableGenerator()) {
+            return;
+        }
+        
+        Optional<PersonSession> sessionOpt = sessionService.getSession(sessionId);
+        Optional<SessionSuggestionState> stateOpt = stateStore.find(sessionId);
+        if (sessionOpt.isEmpty() || stateOpt.isEmpty()) {
+            return;
+        }
         
-        if (m.find()) {
-            String arrayContent = m.group(1);
-            String[] items = arrayContent.split(",");
-            for (String item : items) {
-                String cleaned = item.trim().replaceAll("^\"|\"$", "");
-                result.add(cleaned);
+        SessionSuggestionState state = stateOpt.get();
+        GenerationKey nextBatch;
+        double reviewedFraction;
+        synchronized (state) {
+            if (state.isStreaming()) {
+                return;
             }
+            reviewedFraction = state.getReviewedFraction();
+            nextBatch = new GenerationKey(sessionId, state.getEpoch() + 1);
         }
         
-        return result;
+        if (reviewedFraction < prefetchThreshold || inFlightBatches.isInFlight(nextBatch)) {
+            return;
+        }
+        
+        logger.debug("Prefetching next suggestion batch for session {} at {} reviewed", sessionId, reviewedFraction);
+        inFlightBatches.submit(nextBatch, () -> fetchRegeneratedSuggestions(state, sessionOpt.get()), generationExecutor);
+    }
+    
+    private record GenerationKey(String sessionId, int epoch) {
+    }
+    
+    // A suggestion that failed validation: its JSON as the model wrote it, what is wrong with it, and
+    // its category if that part was valid
+    private record InvalidItem(String json, List<String> problems, String category) {
     }
     
     // Response class for AI conversion
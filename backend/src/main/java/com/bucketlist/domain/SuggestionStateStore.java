@@ -0,0 +1,208 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Near cache of one SessionSuggestionState per session over the SessionStateBackend. Reads are
+// served from memory. Every change is appended to the session's log first and then applied here in
+// log order, together with whatever other nodes appended before it. Other nodes' changes arrive as
+// invalidations and are read, from this node's position in the log on, at the next access.
+@Component
+public class SuggestionStateStore {
+
+    private final SessionStateBackend backend;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter catchUps;
+
+    @Autowired
+    public SuggestionStateStore(SessionStateBackend backend, MeterRegistry meterRegistry) {
+        this.backend = backend;
+        Gauge.builder("bucketlist.sessions.heap.bytes", this, store -> store.heapBytes().stream().mapToLong(Long::longValue).sum())
+            .description("Estimated heap held by suggestion state across all sessions")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("bucketlist.sessions.heap.bytes.per.session", this, store -> store.heapBytes().stream().mapToLong(Long::longValue).average().orElse(0))
+            .description("Average estimated heap held by one session's suggestion state")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        Gauge.builder("bucketlist.sessions.heap.bytes.max.session", this, store -> store.heapBytes().stream().mapToLong(Long::longValue).max().orElse(0))
+            .description("Largest estimated heap held by a single session's suggestion state")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        hits = Counter.builder("bucketlist.state.nearcache")
+            .description("Suggestion state lookups answered from this node's memory")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        misses = Counter.builder("bucketlist.state.nearcache")
+            .description("Suggestion state lookups that had to read the session's log")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        catchUps = Counter.builder("bucketlist.state.catchups")
+            .description("Times this node applied events another node appended to a cached session")
+            .register(meterRegistry);
+
+        backend.addListener(new SessionStateBackend.Listener() {
+            @Override
+            public void changed(String sessionId) {
+                Entry entry = entries.get(sessionId);
+                if (entry != null) {
+                    entry.stale = true;
+                }
+            }
+
+            @Override
+            public void removed(String sessionId) {
+                entries.remove(sessionId);
+            }
+
+            @Override
+            public void resync() {
+                entries.values().forEach(entry -> entry.stale = true);
+            }
+        });
+    }
+
+    public SessionSuggestionState getOrCreate(String sessionId) {
+        return find(sessionId).orElseGet(() -> entries.computeIfAbsent(sessionId,
+            id -> new Entry(new SessionSuggestionState(id), 0)).state);
+    }
+
+    // Installs archived state unless the session already has batches
+    public SessionSuggestionState restore(String sessionId, SessionArchive.SuggestionHistory history) {
+        SessionSuggestionState state = getOrCreate(sessionId);
+        if (state.getEpoch() == 0) {
+            record(state, new SessionEvent.Restored(history));
+        }
+        return state;
+    }
+
+    public Optional<SessionSuggestionState> find(String sessionId) {
+        Entry entry = entries.get(sessionId);
+        if (entry == null) {
+            misses.increment();
+            return load(sessionId);
+        }
+        hits.increment();
+        if (entry.stale) {
+            entry.lock.lock();
+            try {
+                // Cleared before reading, so an invalidation arriving meanwhile isn't lost
+                entry.stale = false;
+                catchUps.increment();
+                applyFrom(entry, backend.read(sessionId, entry.logLength), -1);
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+        return entries.get(sessionId) == entry ? Optional.of(entry.state) : Optional.empty();
+    }
+
+    // Appends the event to the session's log and applies it, after any events other nodes appended
+    // first. Returns whether the event changed the state (see SessionSuggestionState.apply).
+    public boolean record(SessionSuggestionState state, SessionEvent event) {
+        String sessionId = state.getSessionId();
+        Entry entry = entries.get(sessionId);
+        if (entry == null || entry.state != state) {
+            // Dropped from the near cache meanwhile; the log still gets the change
+            backend.append(sessionId, event);
+            return state.apply(event);
+        }
+
+        entry.lock.lock();
+        try {
+            long length = backend.append(sessionId, event);
+            if (length <= entry.logLength + 1) {
+                entry.logLength = length;
+                return state.apply(event);
+            }
+            // Another node appended in between; the read ends with this event or later ones
+            catchUps.increment();
+            SessionStateBackend.LogSlice missed = backend.read(sessionId, entry.logLength);
+            int index = missed.events().size() - 1 - (int) (missed.end() - length);
+            if (index < 0) {
+                // Folded into a snapshot before it could be read back, so its own outcome decides
+                boolean changed = state.apply(event);
+                applyFrom(entry, missed, -1);
+                return changed;
+            }
+            return applyFrom(entry, missed, index);
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    public void remove(String sessionId) {
+        entries.remove(sessionId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Optional<SessionSuggestionState> load(String sessionId) {
+        SessionStateBackend.LogSlice log = backend.read(sessionId, 0);
+        if (log.events().isEmpty()) {
+            return Optional.empty();
+        }
+        Entry loaded = new Entry(new SessionSuggestionState(sessionId), 0);
+        applyFrom(loaded, log, -1);
+        if (log.events().getLast() instanceof SessionEvent.Removed) {
+            return Optional.empty();
+        }
+        Entry existing = entries.putIfAbsent(sessionId, loaded);
+        return Optional.of((existing != null ? existing : loaded).state);
+    }
+
+    // Applies events read from entry.logLength on and returns what applying the one at index
+    // returned. A tombstone drops the session from the near cache.
+    private boolean applyFrom(Entry entry, SessionStateBackend.LogSlice slice, int index) {
+        List<SessionEvent> events = slice.events();
+        boolean result = false;
+        for (int i = 0; i < events.size(); i++) {
+            SessionEvent event = events.get(i);
+            if (event instanceof SessionEvent.Removed) {
+                entries.remove(entry.state.getSessionId(), entry);
+                return false;
+            }
+            boolean changed = entry.state.apply(event);
+            if (i == index) {
+                result = changed;
+            }
+        }
+        entry.logLength = slice.end();
+        return result;
+    }
+
+    private List<Long> heapBytes() {
+        return entries.values().stream()
+            .map(entry -> entry.state.estimateHeapBytes())
+            .toList();
+    }
+
+    // A lock rather than the state's monitor, since it is held across calls to the backend and
+    // virtual threads waiting on it shouldn't pin their carrier
+    private static final class Entry {
+
+        final SessionSuggestionState state;
+        final ReentrantLock lock = new ReentrantLock();
+        // Number of log events applied to state; guarded by lock
+        long logLength;
+        volatile boolean stale = false;
+
+        Entry(SessionSuggestionState state, long logLength) {
+            this.state = state;
+            this.logLength = logLength;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bucketlist.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// Embedding vectors of the suggestions a session has been shown, kept per embedder so a fallback
+// never compares vectors from different models. Sessions hold at most a few hundred suggestions,
+// so a flat scan is all the search needed. Guarded by the owning SessionSuggestionState's monitor.
+final class SuggestionVectorIndex {
+
+    private static final long VECTOR_OVERHEAD_BYTES = 64;
+
+    // Embedder name -> suggestion ID -> unit vector
+    private final Map<String, Map<String, float[]>> vectorsByEmbedder = new HashMap<>();
+
+    boolean contains(String embedder, String suggestionId) {
+        Map<String, float[]> vectors = vectorsByEmbedder.get(embedder);
+        return vectors != null && vectors.containsKey(suggestionId);
+    }
+
+    void put(String embedder, String suggestionId, float[] vector) {
+        vectorsByEmbedder.computeIfAbsent(embedder, name -> new HashMap<>()).put(suggestionId, vector);
+    }
+
+    // Highest cosine similarity to the embedder's vectors whose suggestion passes the filter, 0 if none
+    double maxSimilarity(String embedder, float[] vector, Predicate<String> included) {
+        Map<String, float[]> vectors = vectorsByEmbedder.get(embedder);
+        if (vectors == null) {
+            return 0;
+        }
+        double best = 0;
+        for (Map.Entry<String, float[]> entry : vectors.entrySet()) {
+            if (included.test(entry.getKey())) {
+                best = Math.max(best, dot(vector, entry.getValue()));
+            }
+        }
+        return best;
+    }
+
+    long estimateHeapBytes() {
+        long bytes = 0;
+        for (Map<String, float[]> vectors : vectorsByEmbedder.values()) {
+            for (float[] vector : vectors.values()) {
+                bytes += VECTOR_OVERHEAD_BYTES + 4L * vector.length;
+            }
+        }
+        return bytes;
+    }
+
+    // Scales to unit length in place, so cosine similarity is a dot product; zero vectors stay zero
+    static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    static double dot(float[] a, float[] b) {
+        int length = Math.min(a.length, b.length);
+        double sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,181 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+// Deterministic in-process generator: answers every prompt with as many templated ideas as its kind
+// asks for, one per spending category in consecutive categories starting from a prompt-dependent one
+// (per person for packed prompts), and rejection reasons prompts with the same five reasons. Only
+// the kind and item count passed through the SPI are read, never the prompt text. Needs no network, so
+// CI and load tests can run the whole pipeline offline. Latency, slow tail calls and transient
+// failures can be injected to exercise the limiter and the resilience layer.
+@Component
+public class TemplateSuggestionGenerator implements SuggestionGenerator {
+
+    public static final String NAME = "template";
+
+    private static final String MODEL = "template";
+    private static final int STREAM_CHUNK_CHARS = 40;
+    private static final String REJECTION_REASONS = "[\"Too expensive\", \"Not interested\", \"Bad timing\", "
+        + "\"Already done it\", \"Not for me\"]";
+
+    private static final Map<SpendingCategory, Idea> IDEAS = new EnumMap<>(Map.of(
+        SpendingCategory.TRAVEL_VACATION, new Idea("Take a week-long trip somewhere new",
+            "Pick a destination you have never visited and spend a full week exploring it", "Flights and lodging", 1800),
+        SpendingCategory.LUXURY_THINGS, new Idea("Buy a piece you will keep for decades",
+            "Invest in a watch, bag or piece of furniture made to last a lifetime", "Purchase", 1200),
+        SpendingCategory.HEALTH_WELLNESS, new Idea("Book a wellness retreat weekend",
+            "Spend a weekend on sleep, movement and good food with nothing else scheduled", "Retreat package", 650),
+        SpendingCategory.SOCIAL_LIFESTYLE, new Idea("Host a dinner for your favorite people",
+            "Bring friends together for a catered dinner and let someone else do the dishes", "Catering", 400),
+        SpendingCategory.MENTAL_EMOTIONAL, new Idea("Learn something just for fun",
+            "Sign up for a course in a craft or skill with no career angle at all", "Course fee", 300),
+        SpendingCategory.SMALL_LUXURY, new Idea("Make a monthly treat a ritual",
+            "Set aside a small budget each month for a favorite café, bookshop or massage", "Monthly treats", 60),
+        SpendingCategory.FREEDOM_COMFORT, new Idea("Pay for time back",
+            "Hire help for the chores you like least and keep the hours for yourself", "Cleaning service", 150),
+        SpendingCategory.OPTIONAL_ADDONS, new Idea("Upgrade the trip you already planned",
+            "Add the room with a view, the better seat or the extra day to plans you already have", "Upgrade", 250)));
+
+    private final Duration latency;
+    private final double slowRate;
+    private final Duration slowLatency;
+    private final double failureRate;
+
+    public TemplateSuggestionGenerator(@Value("${bucketlist.llm.template.latency:0ms}") Duration latency,
+                                       @Value("${bucketlist.llm.template.slow-rate:0.0}") double slowRate,
+                                       @Value("${bucketlist.llm.template.slow-latency:10s}") Duration slowLatency,
+                                       @Value("${bucketlist.llm.template.failure-rate:0.0}") double failureRate) {
+        this.latency = latency;
+        this.slowRate = slowRate;
+        this.slowLatency = slowLatency;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    @Override
+    public double getTemperature() {
+        return 0;
+    }
+
+    @Override
+    public int getMaxTokens() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    // Without a kind, a prompt is taken for a first batch
+    @Override
+    public ChatCompletion complete(String prompt) {
+        return complete(prompt, Kind.INITIAL, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, null, 0);
+    }
+
+    @Override
+    public ChatCompletion complete(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens) {
+        injectFaults();
+        return completion(prompt, kind, items);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Consumer<String> onChunk) {
+        return stream(prompt, Kind.INITIAL, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, null, 0, onChunk);
+    }
+
+    @Override
+    public ChatCompletion stream(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens,
+                                 Consumer<String> onChunk) {
+        injectFaults();
+        ChatCompletion completion = completion(prompt, kind, items);
+        String content = completion.content();
+        for (int i = 0; i < content.length(); i += STREAM_CHUNK_CHARS) {
+            onChunk.accept(content.substring(i, Math.min(i + STREAM_CHUNK_CHARS, content.length())));
+        }
+        return completion;
+    }
+
+    private void injectFaults() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Duration delay = random.nextDouble() < slowRate ? slowLatency : latency;
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientAiException("Template generator interrupted");
+        }
+        if (random.nextDouble() < failureRate) {
+            throw new TransientAiException("503 - Template generator injected failure");
+        }
+    }
+
+    // Packed prompts get SUGGESTIONS_PER_BATCH suggestions for each of the items / SUGGESTIONS_PER_BATCH
+    // people in them. The prompt only seeds which categories come first. Token counts are rough, so
+    // usage metrics have something to show.
+    static ChatCompletion completion(String prompt, Kind kind, int items) {
+        StringBuilder json = new StringBuilder();
+        if (kind == Kind.PACKED) {
+            int personas = Math.max(1, items / TokenBudgetPlanner.SUGGESTIONS_PER_BATCH);
+            json.append("{\"personas\": [");
+            for (int persona = 1; persona <= personas; persona++) {
+                if (persona > 1) {
+                    json.append(',');
+                }
+                json.append("{\"persona\": ").append(persona).append(", \"suggestions\": ");
+                appendSuggestions(json, prompt.hashCode() + persona, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH);
+                json.append('}');
+            }
+            json.append(']');
+        } else if (kind == Kind.REASONS) {
+            json.append("{\"rejectionReasons\": ").append(REJECTION_REASONS);
+        } else {
+            json.append("{\"suggestions\": ");
+            appendSuggestions(json, prompt.hashCode(), items);
+        }
+        String content = json.append('}').toString();
+        return new ChatCompletion(content, prompt.length() / 4, content.length() / 4);
+    }
+
+    private static void appendSuggestions(StringBuilder json, int seed, int count) {
+        SpendingCategory[] categories = SpendingCategory.values();
+        int offset = Math.floorMod(seed, categories.length);
+        json.append('[');
+        for (int i = 0; i < count; i++) {
+            SpendingCategory category = categories[(offset + i) % categories.length];
+            Idea idea = IDEAS.get(category);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"title\": \"").append(idea.title()).append('"')
+                .append(", \"description\": \"").append(idea.description()).append('"')
+                .append(", \"category\": \"").append(category.getDisplayName()).append('"')
+                .append(", \"priceBreakdown\": {\"lineItems\": [{\"name\": \"").append(idea.lineItem())
+                .append("\", \"price\": ").append(idea.price()).append(", \"description\": \"Typical cost\"}]")
+                .append(", \"currency\": \"USD\"}")
+                .append(", \"rejectionReasons\": ").append(REJECTION_REASONS).append('}');
+        }
+        json.append(']');
+    }
+
+    private record Idea(String title, String description, String lineItem, int price) {
+    }
+}
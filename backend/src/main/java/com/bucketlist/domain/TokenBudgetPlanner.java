@@ -0,0 +1,119 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Sizes each LLM request before it is sent: the prompt is counted with TokenCounter, and max_tokens
+// is set from how many items the answer should hold and which fields they carry, with some headroom,
+// instead of one cap for every call. A completion that has room for twice the answer it should give
+// is one that can ramble on at full cost and latency.
+//
+// Estimates start from suggestion-tokens and reason-tokens and learn from what the provider reports:
+// once a kind's answers turn out longer per item, that is what its next budgets are sized from.
+// Predicted and actual usage are recorded side by side in SuggestionMetrics.
+@Component
+public class TokenBudgetPlanner {
+
+    // What the initial, regeneration and packed templates ask for per person
+    static final int SUGGESTIONS_PER_BATCH = 5;
+    // What the reasons prompt, or an eager batch prompt per suggestion, asks for
+    private static final int REASONS_PER_SUGGESTION = 5;
+    // The {"suggestions": [...]} wrapper and the like
+    private static final int ANSWER_ENVELOPE_TOKENS = 16;
+    // Weight of the newest answer in the learned tokens per item
+    private static final double LEARNING_RATE = 0.2;
+
+    private final PromptTemplateRegistry prompts;
+    private final SuggestionMetrics metrics;
+    private final boolean enabled;
+    private final int suggestionTokens;
+    private final int reasonTokens;
+    private final double headroom;
+    private final int minMaxTokens;
+
+    // Learned completion tokens per answer item; guarded by this
+    private final Map<Kind, Double> observedPerItem = new EnumMap<>(Kind.class);
+
+    // The plan for one request. maxTokens is 0 when planning is off, leaving the generator's own cap.
+    public record Budget(Kind kind, int items, int promptTokens, int completionTokens, int maxTokens) {
+    }
+
+    @Autowired
+    public TokenBudgetPlanner(PromptTemplateRegistry prompts, SuggestionMetrics metrics,
+                              @Value("${bucketlist.tokens.planner.enabled:true}") boolean enabled,
+                              @Value("${bucketlist.tokens.planner.suggestion-tokens:180}") int suggestionTokens,
+                              @Value("${bucketlist.tokens.planner.reason-tokens:14}") int reasonTokens,
+                              @Value("${bucketlist.tokens.planner.headroom:1.3}") double headroom,
+                              @Value("${bucketlist.tokens.planner.min-max-tokens:256}") int minMaxTokens) {
+        this.prompts = prompts;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.suggestionTokens = suggestionTokens;
+        this.reasonTokens = reasonTokens;
+        this.headroom = Math.max(1.0, headroom);
+        this.minMaxTokens = minMaxTokens;
+    }
+
+    // items is the number of suggestions the answer should hold, or 1 for a set of rejection reasons
+    public Budget plan(Kind kind, String prompt, int items) {
+        int completionTokens = expectedCompletionTokens(kind, items);
+        int maxTokens = enabled ? withHeadroom(completionTokens) : 0;
+        return new Budget(kind, items, TokenCounter.countPrompt(prompt), completionTokens, maxTokens);
+    }
+
+    // The max_tokens an answer of items items gets, whether or not requests are planned
+    public int completionAllowance(Kind kind, int items) {
+        return withHeadroom(expectedCompletionTokens(kind, items));
+    }
+
+    // Completion tokens an answer of items items is expected to take, before headroom
+    public int expectedCompletionTokens(Kind kind, int items) {
+        double perItem = fieldTokens(kind);
+        synchronized (this) {
+            perItem = Math.max(perItem, observedPerItem.getOrDefault(kind, 0.0));
+        }
+        return ANSWER_ENVELOPE_TOKENS + (int) Math.ceil(perItem * Math.max(1, items));
+    }
+
+    // Compares the plan with what the provider reported, and learns from answers that weren't cut
+    // off by the cap. Providers that report no usage are left out.
+    public void recordUsage(Budget budget, ChatCompletion completion) {
+        String kind = budget.kind().getId();
+        if (completion.promptTokens() != null) {
+            metrics.recordTokenPrediction(kind, "prompt", budget.promptTokens(), completion.promptTokens());
+        }
+        Integer actual = completion.completionTokens();
+        if (actual == null) {
+            return;
+        }
+        metrics.recordTokenPrediction(kind, "completion", budget.completionTokens(), actual);
+        if (budget.maxTokens() > 0 && actual >= budget.maxTokens()) {
+            metrics.completionCapped(kind);
+            return;
+        }
+        double perItem = Math.max(0, actual - ANSWER_ENVELOPE_TOKENS) / (double) Math.max(1, budget.items());
+        synchronized (this) {
+            observedPerItem.merge(budget.kind(), perItem,
+                (learned, latest) -> learned + LEARNING_RATE * (latest - learned));
+        }
+    }
+
+    private int withHeadroom(int completionTokens) {
+        return Math.max(minMaxTokens, (int) Math.ceil(completionTokens * headroom));
+    }
+
+    // Tokens per item from the fields the kind's answer carries
+    private int fieldTokens(Kind kind) {
+        if (kind == Kind.REASONS) {
+            return REASONS_PER_SUGGESTION * reasonTokens;
+        }
+        return prompts.isLazyRejectionReasons()
+            ? suggestionTokens
+            : suggestionTokens + REASONS_PER_SUGGESTION * reasonTokens;
+    }
+}
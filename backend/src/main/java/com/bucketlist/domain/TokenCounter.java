@@ -0,0 +1,31 @@
+package com.bucketlist.domain;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingType;
+
+// Token counts as gpt-4o sees them: the o200k_base BPE encoding, run in-process by jtokkit with
+// the vocabulary it bundles. Local models have tokenizers of their own, for which these counts are
+// close but not exact.
+final class TokenCounter {
+
+    // A user message costs a few tokens of chat framing on top of its text, and the reply is
+    // primed with a few more
+    private static final int CHAT_MESSAGE_TOKENS = 7;
+
+    // Thread-safe, and the vocabulary is only loaded once
+    private static final Encoding ENCODING = Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.O200K_BASE);
+
+    private TokenCounter() {
+    }
+
+    // Special-token markers in the text count as the plain text they are
+    static int count(String text) {
+        return text == null || text.isEmpty() ? 0 : ENCODING.countTokensOrdinary(text);
+    }
+
+    // Prompt tokens of a chat completion whose only message is prompt
+    static int countPrompt(String prompt) {
+        return count(prompt) + CHAT_MESSAGE_TOKENS;
+    }
+}
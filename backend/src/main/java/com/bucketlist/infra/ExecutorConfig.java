@@ -0,0 +1,57 @@
+package com.bucketlist.infra;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ExecutorConfig {
+    
+    // Runs LLM generation work (e.g. prefetching the next batch) off the request thread.
+    // With virtual threads enabled each task gets its own virtual thread, so blocking on
+    // LLM latency never pins a platform thread.
+    @Bean(name = "generationExecutor", destroyMethod = "shutdown")
+    public ExecutorService generationExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                              @Value("${bucketlist.generation.threads:8}") int threads) {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+    
+    // Runs the per-category calls of a fan-out generation and the packs of a bulk job. They are
+    // started from tasks that wait for them, so they get their own threads rather than queueing
+    // behind those tasks on the fixed pool; the LLM limiter bounds how many actually talk to a provider.
+    @Bean(name = "fanOutExecutor", destroyMethod = "shutdown")
+    public ExecutorService fanOutExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newCachedThreadPool();
+    }
+    
+    // Runs the attempts of hedged LLM requests. The request waiting on them may itself be a
+    // generation task, so they can't share the fixed generation pool without risking every thread
+    // waiting on attempts that have nowhere to run.
+    @Bean(name = "hedgeExecutor", destroyMethod = "shutdown")
+    public ExecutorService hedgeExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newCachedThreadPool();
+    }
+    
+    // Runs SSE stream jobs and /batch jobs, which stay open for the whole generation and wait on
+    // the work it submits. Sharing the generation pool would let a few open streams take every
+    // thread, including the ones their own generations need.
+    @Bean(name = "streamExecutor", destroyMethod = "shutdown")
+    public ExecutorService streamExecutor(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newCachedThreadPool();
+    }
+}
@@ -0,0 +1,31 @@
+package com.bucketlist.infra;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+    
+    // One HttpClient for all LLM traffic so connections are pooled and kept alive across calls
+    @Bean
+    public HttpClient llmHttpClient(@Value("${bucketlist.llm.connect-timeout:5s}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+    }
+    
+    @Bean
+    public ClientHttpRequestFactory llmRequestFactory(HttpClient llmHttpClient,
+                                                      @Value("${bucketlist.llm.read-timeout:90s}") Duration readTimeout) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(llmHttpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+}
@@ -1,8 +1,51 @@
 package com.bucketlist.infra;
 
+import com.bucketlist.domain.ApiKeyService;
+import com.bucketlist.domain.LlmConcurrencyLimiter;
+import com.bucketlist.domain.OpenAiSuggestionGenerator;
+import com.bucketlist.domain.SuggestionGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class OpenAIConfig {
-    // No beans defined here - we'll create ChatClient dynamically when API key is provided
-}
\ No newline at end of file
+    
+    // One generator per model tier, both on the key held by ApiKeyService
+    @Bean
+    public SuggestionGenerator openAiSuggestionGenerator(ApiKeyService apiKeyService) {
+        return new OpenAiSuggestionGenerator(apiKeyService, ApiKeyService.Tier.PRIMARY);
+    }
+    
+    @Bean
+    public SuggestionGenerator fastOpenAiSuggestionGenerator(ApiKeyService apiKeyService) {
+        return new OpenAiSuggestionGenerator(apiKeyService, ApiKeyService.Tier.FAST);
+    }
+    
+    // OpenAI rate-limits each model separately and the tiers answer at very different speeds, so
+    // each gets its own limiter: its own quota pause, latency baseline and queue
+    @Bean
+    public LlmConcurrencyLimiter openAiLimiter(MeterRegistry meterRegistry, LlmConcurrencyLimiter.Settings settings) {
+        return new LlmConcurrencyLimiter(meterRegistry, OpenAiSuggestionGenerator.NAME, settings);
+    }
+    
+    @Bean
+    public LlmConcurrencyLimiter fastOpenAiLimiter(MeterRegistry meterRegistry, LlmConcurrencyLimiter.Settings settings) {
+        return new LlmConcurrencyLimiter(meterRegistry, OpenAiSuggestionGenerator.FAST_NAME, settings);
+    }
+    
+    @Bean
+    public LlmConcurrencyLimiter.Settings llmLimiterSettings(@Value("${bucketlist.llm.limiter.initial-limit:4}") int initialLimit,
+                                                             @Value("${bucketlist.llm.limiter.min-limit:1}") int minLimit,
+                                                             @Value("${bucketlist.llm.limiter.max-limit:32}") int maxLimit,
+                                                             @Value("${bucketlist.llm.limiter.latency-tolerance:2.0}") double latencyTolerance,
+                                                             @Value("${bucketlist.llm.limiter.min-remaining-tokens:4000}") long minRemainingTokens,
+                                                             @Value("${bucketlist.llm.queue.max-size:200}") int maxQueueSize,
+                                                             @Value("${bucketlist.llm.queue.max-wait:60s}") Duration maxWait) {
+        return new LlmConcurrencyLimiter.Settings(initialLimit, minLimit, maxLimit, latencyTolerance, minRemainingTokens,
+            maxQueueSize, maxWait);
+    }
+}
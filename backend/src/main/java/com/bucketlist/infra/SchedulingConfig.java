@@ -0,0 +1,10 @@
+package com.bucketlist.infra;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Enables @Scheduled maintenance tasks such as session expiry sweeps
+}
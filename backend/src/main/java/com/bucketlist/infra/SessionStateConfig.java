@@ -0,0 +1,32 @@
+package com.bucketlist.infra;
+
+import com.bucketlist.domain.InMemorySessionStateBackend;
+import com.bucketlist.domain.SessionStateBackend;
+import com.bucketlist.persistence.RedisSessionStateBackend;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class SessionStateConfig {
+
+    // "memory" keeps sessions on the node that created them; "redis" shares them between nodes
+    // so any node can serve any request of a session. Redis connections are Spring Boot's, from
+    // spring.data.redis.*, and are only opened with the redis backend.
+    @Bean(destroyMethod = "close")
+    public SessionStateBackend sessionStateBackend(@Value("${bucketlist.state.backend:memory}") String backend,
+                                                   ObjectProvider<StringRedisTemplate> redis,
+                                                   @Value("${bucketlist.state.redis.key-prefix:bucketlist:}") String keyPrefix,
+                                                   @Value("${bucketlist.state.redis.compact-after:100}") int compactAfter,
+                                                   @Value("${bucketlist.sessions.max-lifetime:24h}") Duration ttl) {
+        return switch (backend.strip().toLowerCase()) {
+            case InMemorySessionStateBackend.NAME -> new InMemorySessionStateBackend();
+            case RedisSessionStateBackend.NAME -> new RedisSessionStateBackend(redis.getObject(), keyPrefix, ttl, compactAfter);
+            default -> throw new IllegalStateException("Unknown bucketlist.state.backend: " + backend);
+        };
+    }
+}
@@ -0,0 +1,79 @@
+package com.bucketlist.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// Latest review of a suggestion; accepting a rejected suggestion (or vice versa) overwrites it
+@Entity
+@Table(name = "suggestion_feedback", indexes = @Index(name = "idx_feedback_session", columnList = "sessionId"))
+public class FeedbackRecord {
+    
+    public enum Status {
+        ACCEPTED,
+        REJECTED
+    }
+    
+    @Id
+    @Column(length = 36)
+    private String suggestionId;
+    
+    @Column(length = 36, nullable = false)
+    private String sessionId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Status status;
+    
+    @Column(length = 2000)
+    private String reason;
+    
+    private boolean customReason;
+    
+    private Instant recordedAt;
+    
+    protected FeedbackRecord() {
+    }
+    
+    public FeedbackRecord(String suggestionId, String sessionId) {
+        this.suggestionId = suggestionId;
+        this.sessionId = sessionId;
+    }
+    
+    public void update(Status status, String reason, boolean customReason, Instant recordedAt) {
+        this.status = status;
+        this.reason = reason;
+        this.customReason = customReason;
+        this.recordedAt = recordedAt;
+    }
+    
+    public String getSuggestionId() {
+        return suggestionId;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    public boolean isCustomReason() {
+        return customReason;
+    }
+    
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bucketlist.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface FeedbackRecordRepository extends JpaRepository<FeedbackRecord, String> {
+    
+    List<FeedbackRecord> findBySessionIdOrderByRecordedAtAsc(String sessionId);
+    
+    @Modifying
+    @Query("delete from FeedbackRecord f where f.sessionId = :sessionId")
+    int deleteBySessionId(String sessionId);
+}
@@ -0,0 +1,340 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.BucketListSuggestion;
+import com.bucketlist.domain.LineItem;
+import com.bucketlist.domain.PersonSession;
+import com.bucketlist.domain.PriceBreakdown;
+import com.bucketlist.domain.RejectionFeedback;
+import com.bucketlist.domain.SessionArchive;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Write-behind archive: the request path only enqueues, and a scheduled flush drains the queue
+// in batches, one transaction per batch, so inserts reach H2 as grouped JDBC batches. A batch that
+// fails to commit is split and retried in halves, so a bad write only loses itself.
+// Writes still queued when the JVM dies abruptly are lost; a clean shutdown flushes them.
+@Component
+public class JpaSessionArchive implements SessionArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(JpaSessionArchive.class);
+
+    private final EntityManager entityManager;
+    private final SessionRecordRepository sessionRepository;
+    private final SuggestionRecordRepository suggestionRepository;
+    private final FeedbackRecordRepository feedbackRepository;
+    private final TransactionTemplate writeTransaction;
+    private final TransactionTemplate readTransaction;
+    private final int batchSize;
+
+    private final ConcurrentLinkedQueue<PendingWrite> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // Writes queued or being written, per session, so reads of sessions with none never wait on a flush
+    private final Map<String, Integer> unwritten = new ConcurrentHashMap<>();
+    // A lock rather than a monitor so virtual threads waiting on a flush don't pin their carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Counter droppedWrites;
+
+    @Autowired
+    public JpaSessionArchive(EntityManager entityManager,
+                             SessionRecordRepository sessionRepository,
+                             SuggestionRecordRepository suggestionRepository,
+                             FeedbackRecordRepository feedbackRepository,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${bucketlist.persistence.batch-size:200}") int batchSize) {
+        this.entityManager = entityManager;
+        this.sessionRepository = sessionRepository;
+        this.suggestionRepository = suggestionRepository;
+        this.feedbackRepository = feedbackRepository;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+
+        Gauge.builder("bucketlist.persistence.pending", pendingCount, AtomicInteger::get)
+            .description("Archive writes waiting for the next flush")
+            .register(meterRegistry);
+        droppedWrites = Counter.builder("bucketlist.persistence.dropped")
+            .description("Archive writes lost because they failed to commit even on their own")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public void sessionCreated(PersonSession session) {
+        enqueue(new SessionCreated(session.getSessionId(), session.getPersonDescription(), session.getCreatedAt()));
+    }
+
+    @Override
+    public void suggestionsAdded(String sessionId, int epoch, int firstPosition, List<BucketListSuggestion> suggestions) {
+        enqueue(new SuggestionsAdded(sessionId, epoch, firstPosition, List.copyOf(suggestions)));
+    }
+
+    @Override
+    public void suggestionMoved(String sessionId, String suggestionId, int epoch, int position) {
+        enqueue(new SuggestionMoved(sessionId, suggestionId, epoch, position));
+    }
+
+    @Override
+    public void rejectionReasonsAdded(String sessionId, String suggestionId, List<String> reasons) {
+        enqueue(new RejectionReasonsAdded(sessionId, suggestionId, reasons));
+    }
+
+    @Override
+    public void suggestionAccepted(String sessionId, String suggestionId) {
+        enqueue(new FeedbackRecorded(sessionId, suggestionId, FeedbackRecord.Status.ACCEPTED, null, false, Instant.now()));
+    }
+
+    @Override
+    public void suggestionRejected(String sessionId, RejectionFeedback feedback) {
+        enqueue(new FeedbackRecorded(sessionId, feedback.getSuggestionId(), FeedbackRecord.Status.REJECTED,
+            feedback.getReason(), feedback.isCustomReason(), Instant.now()));
+    }
+
+    @Override
+    public void sessionRemoved(String sessionId) {
+        enqueue(new SessionRemoved(sessionId));
+    }
+
+    // Reads first write out what the session still has queued, so a session evicted moments ago
+    // comes back with its latest writes. Other sessions' writes wait for the scheduled flush.
+    @Override
+    public Optional<PersonSession> findSession(String sessionId) {
+        flushSession(sessionId);
+        return sessionRepository.findById(sessionId)
+            .map(record -> new PersonSession(record.getId(), record.getPersonDescription(), record.getCreatedAt()));
+    }
+
+    @Override
+    public Optional<SuggestionHistory> findSuggestionHistory(String sessionId) {
+        flushSession(sessionId);
+        return readTransaction.execute(status -> {
+            List<SuggestionRecord> records = suggestionRepository.findBySessionIdOrderByEpochAscPositionAsc(sessionId);
+            if (records.isEmpty()) {
+                return Optional.<SuggestionHistory>empty();
+            }
+
+            int epoch = records.get(records.size() - 1).getEpoch();
+            List<BucketListSuggestion> suggestions = new ArrayList<>(records.size());
+            List<BucketListSuggestion> currentBatch = new ArrayList<>();
+            for (SuggestionRecord record : records) {
+                BucketListSuggestion suggestion = toSuggestion(record);
+                suggestions.add(suggestion);
+                if (record.getEpoch() == epoch) {
+                    currentBatch.add(suggestion);
+                }
+            }
+
+            List<String> acceptedIds = new ArrayList<>();
+            List<RejectionFeedback> rejections = new ArrayList<>();
+            for (FeedbackRecord feedback : feedbackRepository.findBySessionIdOrderByRecordedAtAsc(sessionId)) {
+                if (feedback.getStatus() == FeedbackRecord.Status.ACCEPTED) {
+                    acceptedIds.add(feedback.getSuggestionId());
+                } else {
+                    rejections.add(new RejectionFeedback(feedback.getSuggestionId(), feedback.getReason(), feedback.isCustomReason()));
+                }
+            }
+
+            return Optional.of(new SuggestionHistory(epoch, suggestions, currentBatch, acceptedIds, rejections));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bucketlist.persistence.flush-interval-ms:500}")
+    public void flush() {
+        flush(write -> true);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Every write belongs to one session, so taking a session's writes out of the queue ahead of
+    // the others keeps them in order
+    private void flushSession(String sessionId) {
+        if (unwritten.containsKey(sessionId)) {
+            flush(write -> write.sessionId().equals(sessionId));
+        }
+    }
+
+    private void flush(Predicate<PendingWrite> include) {
+        flushLock.lock();
+        try {
+            List<PendingWrite> batch;
+            while (!(batch = drain(include)).isEmpty()) {
+                writeBatch(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void enqueue(PendingWrite write) {
+        unwritten.merge(write.sessionId(), 1, Integer::sum);
+        pending.add(write);
+        pendingCount.incrementAndGet();
+    }
+
+    private List<PendingWrite> drain(Predicate<PendingWrite> include) {
+        List<PendingWrite> batch = new ArrayList<>();
+        Iterator<PendingWrite> writes = pending.iterator();
+        while (batch.size() < batchSize && writes.hasNext()) {
+            PendingWrite write = writes.next();
+            if (include.test(write)) {
+                writes.remove();
+                batch.add(write);
+            }
+        }
+        pendingCount.addAndGet(-batch.size());
+        return batch;
+    }
+
+    private void writeBatch(List<PendingWrite> writes) {
+        try {
+            writeTransaction.executeWithoutResult(status -> write(writes));
+        } catch (RuntimeException e) {
+            if (writes.size() > 1) {
+                int half = writes.size() / 2;
+                writeBatch(writes.subList(0, half));
+                writeBatch(writes.subList(half, writes.size()));
+                return;
+            }
+            droppedWrites.increment();
+            logger.error("Failed to archive {} for session {}", writes.get(0).getClass().getSimpleName(),
+                writes.get(0).sessionId(), e);
+        }
+        for (PendingWrite write : writes) {
+            unwritten.computeIfPresent(write.sessionId(), (sessionId, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void write(List<PendingWrite> writes) {
+        // Only the latest review of each suggestion matters, so feedback is coalesced and upserted
+        // after one lookup instead of one merge per click
+        Map<String, FeedbackRecorded> feedback = new LinkedHashMap<>();
+        Set<String> removedSessions = new LinkedHashSet<>();
+
+        for (PendingWrite write : writes) {
+            switch (write) {
+                case SessionCreated created -> entityManager.persist(new SessionRecord(created.sessionId(),
+                    created.personDescription(), created.createdAt()));
+                case SuggestionsAdded added -> {
+                    for (int i = 0; i < added.suggestions().size(); i++) {
+                        entityManager.persist(toRecord(added.sessionId(), added.epoch(), added.firstPosition() + i,
+                            added.suggestions().get(i)));
+                    }
+                }
+                case SuggestionMoved moved -> {
+                    // find() sees records persisted earlier in this batch as well as stored ones
+                    SuggestionRecord record = entityManager.find(SuggestionRecord.class, moved.suggestionId());
+                    if (record != null) {
+                        record.moveTo(moved.epoch(), moved.position());
+                    }
+                }
+                case RejectionReasonsAdded added -> {
+                    SuggestionRecord record = entityManager.find(SuggestionRecord.class, added.suggestionId());
+                    if (record != null) {
+                        record.replaceRejectionReasons(added.reasons());
+                    }
+                }
+                case FeedbackRecorded recorded -> feedback.put(recorded.suggestionId(), recorded);
+                case SessionRemoved removed -> removedSessions.add(removed.sessionId());
+            }
+        }
+
+        if (!feedback.isEmpty()) {
+            Map<String, FeedbackRecord> existing = feedbackRepository.findAllById(feedback.keySet()).stream()
+                .collect(Collectors.toMap(FeedbackRecord::getSuggestionId, Function.identity()));
+            for (FeedbackRecorded recorded : feedback.values()) {
+                FeedbackRecord record = existing.get(recorded.suggestionId());
+                if (record == null) {
+                    record = new FeedbackRecord(recorded.suggestionId(), recorded.sessionId());
+                    entityManager.persist(record);
+                }
+                record.update(recorded.status(), recorded.reason(), recorded.customReason(), recorded.recordedAt());
+            }
+        }
+
+        for (String sessionId : removedSessions) {
+            feedbackRepository.deleteBySessionId(sessionId);
+            suggestionRepository.deleteAll(suggestionRepository.findBySessionIdOrderByEpochAscPositionAsc(sessionId));
+            sessionRepository.deleteById(sessionId);
+        }
+    }
+
+    private static SuggestionRecord toRecord(String sessionId, int epoch, int position, BucketListSuggestion suggestion) {
+        PriceBreakdown priceBreakdown = suggestion.getPriceBreakdown();
+        SuggestionRecord record = new SuggestionRecord(suggestion.getId(), sessionId, epoch, position,
+            suggestion.getTitle(), suggestion.getDescription(), suggestion.getCategory(),
+            priceBreakdown.getCurrency(), suggestion.getRejectionReasons());
+
+        List<LineItem> lineItems = priceBreakdown.getLineItems();
+        for (int i = 0; i < lineItems.size(); i++) {
+            LineItem lineItem = lineItems.get(i);
+            record.addLineItem(new LineItemRecord(record, i, lineItem.getName(), lineItem.getPrice(), lineItem.getDescription()));
+        }
+        return record;
+    }
+
+    private static BucketListSuggestion toSuggestion(SuggestionRecord record) {
+        List<LineItem> lineItems = record.getLineItems().stream()
+            .map(item -> new LineItem(item.getName(), item.getPrice(), item.getDescription()))
+            .toList();
+        return new BucketListSuggestion(record.getId(), record.getTitle(), record.getDescription(), record.getCategory(),
+            new PriceBreakdown(lineItems, record.getCurrency()), record.getRejectionReasons());
+    }
+
+    private sealed interface PendingWrite permits SessionCreated, SuggestionsAdded, SuggestionMoved, RejectionReasonsAdded,
+        FeedbackRecorded, SessionRemoved {
+
+        String sessionId();
+    }
+
+    private record SessionCreated(String sessionId, String personDescription, LocalDateTime createdAt) implements PendingWrite {
+    }
+
+    private record SuggestionsAdded(String sessionId, int epoch, int firstPosition,
+                                    List<BucketListSuggestion> suggestions) implements PendingWrite {
+    }
+
+    private record SuggestionMoved(String sessionId, String suggestionId, int epoch, int position) implements PendingWrite {
+    }
+
+    private record RejectionReasonsAdded(String sessionId, String suggestionId, List<String> reasons) implements PendingWrite {
+    }
+
+    private record FeedbackRecorded(String sessionId, String suggestionId, FeedbackRecord.Status status,
+                                    String reason, boolean customReason, Instant recordedAt) implements PendingWrite {
+    }
+
+    private record SessionRemoved(String sessionId) implements PendingWrite {
+    }
+}
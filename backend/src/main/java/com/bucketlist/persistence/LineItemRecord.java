@@ -0,0 +1,67 @@
+package com.bucketlist.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.math.BigDecimal;
+
+@Entity
+@Table(name = "suggestion_line_item")
+public class LineItemRecord {
+    
+    // Sequence ids (not identity) so Hibernate can still batch the inserts
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "line_item_seq")
+    @SequenceGenerator(name = "line_item_seq", sequenceName = "suggestion_line_item_seq", allocationSize = 50)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "suggestion_id")
+    private SuggestionRecord suggestion;
+    
+    private int position;
+    
+    @Column(length = 500)
+    private String name;
+    
+    @Column(precision = 12, scale = 2)
+    private BigDecimal price;
+    
+    @Column(length = 2000)
+    private String description;
+    
+    protected LineItemRecord() {
+    }
+    
+    public LineItemRecord(SuggestionRecord suggestion, int position, String name, BigDecimal price, String description) {
+        this.suggestion = suggestion;
+        this.position = position;
+        this.name = name;
+        this.price = price;
+        this.description = description;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public BigDecimal getPrice() {
+        return price;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,230 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.SessionEvent;
+import com.bucketlist.domain.SessionStateBackend;
+import com.bucketlist.domain.SessionSuggestionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.backoff.ExponentialBackOff;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Shared backend for running several nodes behind a plain, non-sticky load balancer. Each session's
+// log is a Redis list of JSON events that expires max-lifetime after its last append. Every append
+// is published on one channel so the other nodes mark their near-cached copy stale; they read the
+// new events at the session's next access on that node. Connections, timeouts and reconnects are
+// Spring Data Redis' (spring.data.redis.*).
+//
+// Once a log holds more than compact-after events, its older events are replaced by a snapshot:
+// the session's Created event and one Restored event with everything they added up to. A counter
+// next to the list holds the log offset of its first element, so offsets stay valid for every node.
+public class RedisSessionStateBackend implements SessionStateBackend {
+
+    public static final String NAME = "redis";
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisSessionStateBackend.class);
+    private static final Duration MAX_RECONNECT_BACKOFF = Duration.ofSeconds(30);
+
+    // KEYS: log, base. ARGV: event, ttl, channel, message. Answers the list's size and the log's length.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> APPEND = RedisScript.of("""
+        local size = redis.call('RPUSH', KEYS[1], ARGV[1])
+        redis.call('PEXPIRE', KEYS[1], ARGV[2])
+        redis.call('PEXPIRE', KEYS[2], ARGV[2])
+        redis.call('PUBLISH', ARGV[3], ARGV[4])
+        return {size, size + tonumber(redis.call('GET', KEYS[2]) or '0')}
+        """, List.class);
+
+    // KEYS: log, base. ARGV: offset. Answers the log's length, then the events from offset on, or
+    // the whole list when offset was compacted away.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ = RedisScript.of("""
+        local base = tonumber(redis.call('GET', KEYS[2]) or '0')
+        local events = redis.call('LRANGE', KEYS[1], math.max(0, tonumber(ARGV[1]) - base), -1)
+        table.insert(events, 1, tostring(base + redis.call('LLEN', KEYS[1])))
+        return events
+        """, List.class);
+
+    // KEYS: log, base. ARGV: base the snapshot was taken at, events it replaces, ttl, snapshot
+    // events. Answers 0 without changing anything when another node compacted the log first.
+    private static final RedisScript<Long> COMPACT = RedisScript.of("""
+        if tonumber(redis.call('GET', KEYS[2]) or '0') ~= tonumber(ARGV[1]) then
+            return 0
+        end
+        redis.call('LTRIM', KEYS[1], ARGV[2], -1)
+        for i = #ARGV, 4, -1 do
+            redis.call('LPUSH', KEYS[1], ARGV[i])
+        end
+        redis.call('INCRBY', KEYS[2], tonumber(ARGV[2]) - (#ARGV - 3))
+        redis.call('PEXPIRE', KEYS[1], ARGV[3])
+        redis.call('PEXPIRE', KEYS[2], ARGV[3])
+        return 1
+        """, Long.class);
+
+    private final StringRedisTemplate redis;
+    private final RedisMessageListenerContainer subscriber;
+    private final String keyPrefix;
+    private final String channel;
+    private final String ttlMillis;
+    private final int compactAfter;
+    // Identifies this node's own invalidations, which it already applied
+    private final String nodeId = UUID.randomUUID().toString();
+    private final SessionEventCodec codec = new SessionEventCodec();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public RedisSessionStateBackend(StringRedisTemplate redis, String keyPrefix, Duration ttl, int compactAfter) {
+        this.redis = redis;
+        this.keyPrefix = keyPrefix;
+        this.channel = keyPrefix + "invalidations";
+        this.ttlMillis = Long.toString(ttl.toMillis());
+        this.compactAfter = compactAfter;
+
+        ExponentialBackOff reconnect = new ExponentialBackOff(100, 2);
+        reconnect.setMaxInterval(MAX_RECONNECT_BACKOFF.toMillis());
+        subscriber = new RedisMessageListenerContainer();
+        subscriber.setConnectionFactory(redis.getRequiredConnectionFactory());
+        subscriber.setRecoveryBackoff(reconnect);
+        subscriber.addMessageListener(new Invalidations(), new ChannelTopic(channel));
+        subscriber.afterPropertiesSet();
+        subscriber.start();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public long append(String sessionId, SessionEvent event) {
+        String type = event instanceof SessionEvent.Removed ? "removed" : "changed";
+        List<?> reply = redis.execute(APPEND, keys(sessionId), codec.encode(event), ttlMillis, channel,
+            nodeId + " " + type + " " + sessionId);
+        // Compacting in line costs the one append that crosses the threshold a read of the log
+        if ((Long) reply.get(0) > compactAfter && !(event instanceof SessionEvent.Removed)) {
+            compact(sessionId);
+        }
+        return (Long) reply.get(1);
+    }
+
+    @Override
+    public LogSlice read(String sessionId, long offset) {
+        List<?> reply = redis.execute(READ, keys(sessionId), Long.toString(offset));
+        List<SessionEvent> events = new ArrayList<>(reply.size() - 1);
+        for (Object item : reply.subList(1, reply.size())) {
+            events.add(codec.decode((String) item));
+        }
+        return new LogSlice(events, Long.parseLong((String) reply.getFirst()));
+    }
+
+    // A tombstone rather than DEL, so a node that still holds the session, or restores it from the
+    // archive before the invalidation arrives, finds out it is gone
+    @Override
+    public void remove(String sessionId) {
+        append(sessionId, new SessionEvent.Removed());
+    }
+
+    @Override
+    public void release(String sessionId) {
+        // Other nodes may still be serving the session; the key expires on its own
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        try {
+            subscriber.destroy();
+        } catch (Exception e) {
+            logger.debug("Failed to stop the session state subscriber cleanly", e);
+        }
+    }
+
+    // Folds all but the newest compactAfter / 2 events into a snapshot. Those stay as they are, so
+    // a node that just appended normally still reads its own event back rather than the snapshot.
+    private void compact(String sessionId) {
+        List<String> keys = keys(sessionId);
+        List<?> reply = redis.execute(READ, keys, "0");
+        long end = Long.parseLong((String) reply.getFirst());
+        List<?> encoded = reply.subList(1, reply.size());
+        int compacted = encoded.size() - compactAfter / 2;
+        if (compacted <= 2) {
+            return;
+        }
+
+        SessionSuggestionState state = new SessionSuggestionState(sessionId);
+        List<String> snapshot = new ArrayList<>();
+        for (Object item : encoded.subList(0, compacted)) {
+            SessionEvent event = codec.decode((String) item);
+            if (event instanceof SessionEvent.Removed) {
+                // Nothing after a tombstone counts and the log expires on its own
+                return;
+            }
+            if (event instanceof SessionEvent.Created && snapshot.isEmpty()) {
+                snapshot.add((String) item);
+            }
+            state.apply(event);
+        }
+        snapshot.add(codec.encode(new SessionEvent.Restored(state.toHistory())));
+
+        List<String> args = new ArrayList<>(List.of(Long.toString(end - encoded.size()), Integer.toString(compacted), ttlMillis));
+        args.addAll(snapshot);
+        if (redis.execute(COMPACT, keys, args.toArray()) == 1) {
+            logger.debug("Compacted {} events of session {} into a snapshot", compacted, sessionId);
+        }
+    }
+
+    // "<nodeId> <changed|removed> <sessionId>"
+    private void dispatch(String payload) {
+        String[] parts = payload.split(" ", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            try {
+                if (parts[1].equals("removed")) {
+                    listener.removed(parts[2]);
+                } else {
+                    listener.changed(parts[2]);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Session state listener failed for session {}", parts[2], e);
+            }
+        }
+    }
+
+    // The hash tag keeps a session's list and base counter in one cluster slot, as scripts require
+    private List<String> keys(String sessionId) {
+        String log = keyPrefix + "session:{" + sessionId + "}";
+        return List.of(log, log + ":base");
+    }
+
+    private final class Invalidations implements MessageListener, SubscriptionListener {
+
+        @Override
+        public void onMessage(Message message, byte[] pattern) {
+            dispatch(new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+
+        // Anything published while this node wasn't subscribed is lost, so every (re)subscription
+        // has the listeners treat what they hold as stale
+        @Override
+        public void onChannelSubscribed(byte[] channel, long count) {
+            listeners.forEach(Listener::resync);
+        }
+    }
+}
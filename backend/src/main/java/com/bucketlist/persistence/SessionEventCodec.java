@@ -0,0 +1,160 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.BucketListSuggestion;
+import com.bucketlist.domain.LineItem;
+import com.bucketlist.domain.PriceBreakdown;
+import com.bucketlist.domain.RejectionFeedback;
+import com.bucketlist.domain.SessionArchive;
+import com.bucketlist.domain.SessionEvent;
+import com.bucketlist.domain.SpendingCategory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// SessionEvents as compact JSON, one log entry each. Written by hand rather than through Jackson
+// databinding so the domain classes stay free of serialization annotations, and so the stored
+// format only changes when this class does.
+final class SessionEventCodec {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    String encode(SessionEvent event) {
+        ObjectNode node = objectMapper.createObjectNode();
+        switch (event) {
+            case SessionEvent.Created created -> node.put("type", "created")
+                .put("sessionId", created.sessionId())
+                .put("personDescription", created.personDescription())
+                .put("createdAt", created.createdAt().toString());
+            case SessionEvent.Restored restored -> {
+                SessionArchive.SuggestionHistory history = restored.history();
+                node.put("type", "restored").put("epoch", history.epoch());
+                ArrayNode suggestions = node.putArray("suggestions");
+                history.suggestions().forEach(suggestion -> suggestions.add(encode(suggestion)));
+                ArrayNode currentBatch = node.putArray("currentBatch");
+                history.currentBatch().forEach(suggestion -> currentBatch.add(suggestion.getId()));
+                ArrayNode accepted = node.putArray("accepted");
+                history.acceptedIds().forEach(accepted::add);
+                ArrayNode rejections = node.putArray("rejections");
+                history.rejections().forEach(feedback -> rejections.add(encode(feedback)));
+            }
+            case SessionEvent.BatchCommitted committed -> {
+                node.put("type", "batch").put("epoch", committed.epoch());
+                ArrayNode suggestions = node.putArray("suggestions");
+                committed.suggestions().forEach(suggestion -> suggestions.add(encode(suggestion)));
+            }
+            case SessionEvent.SuggestionAppended appended -> node.put("type", "appended")
+                .put("epoch", appended.epoch())
+                .set("suggestion", encode(appended.suggestion()));
+            case SessionEvent.RejectionReasonsAdded added -> {
+                node.put("type", "reasons").put("suggestionId", added.suggestionId());
+                ArrayNode reasons = node.putArray("reasons");
+                added.reasons().forEach(reasons::add);
+            }
+            case SessionEvent.Accepted accepted -> node.put("type", "accepted")
+                .put("suggestionId", accepted.suggestionId());
+            case SessionEvent.Rejected rejected -> node.put("type", "rejected")
+                .set("feedback", encode(rejected.feedback()));
+            case SessionEvent.Removed removed -> node.put("type", "removed");
+        }
+        return node.toString();
+    }
+
+    SessionEvent decode(String json) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable session event: " + e.getOriginalMessage(), e);
+        }
+        String type = node.path("type").asText();
+        return switch (type) {
+            case "created" -> new SessionEvent.Created(node.get("sessionId").asText(),
+                node.get("personDescription").asText(), LocalDateTime.parse(node.get("createdAt").asText()));
+            case "restored" -> {
+                List<BucketListSuggestion> suggestions = decodeSuggestions(node.get("suggestions"));
+                Map<String, BucketListSuggestion> byId = new HashMap<>();
+                suggestions.forEach(suggestion -> byId.put(suggestion.getId(), suggestion));
+                List<BucketListSuggestion> currentBatch = new ArrayList<>();
+                node.get("currentBatch").forEach(id -> currentBatch.add(byId.get(id.asText())));
+                List<String> accepted = new ArrayList<>();
+                node.get("accepted").forEach(id -> accepted.add(id.asText()));
+                List<RejectionFeedback> rejections = new ArrayList<>();
+                node.get("rejections").forEach(feedback -> rejections.add(decodeFeedback(feedback)));
+                yield new SessionEvent.Restored(new SessionArchive.SuggestionHistory(node.get("epoch").asInt(),
+                    suggestions, currentBatch, accepted, rejections));
+            }
+            case "batch" -> new SessionEvent.BatchCommitted(node.get("epoch").asInt(), decodeSuggestions(node.get("suggestions")));
+            case "appended" -> new SessionEvent.SuggestionAppended(node.get("epoch").asInt(),
+                decodeSuggestion(node.get("suggestion")));
+            case "reasons" -> {
+                List<String> reasons = new ArrayList<>();
+                node.get("reasons").forEach(reason -> reasons.add(reason.asText()));
+                yield new SessionEvent.RejectionReasonsAdded(node.get("suggestionId").asText(), reasons);
+            }
+            case "accepted" -> new SessionEvent.Accepted(node.get("suggestionId").asText());
+            case "rejected" -> new SessionEvent.Rejected(decodeFeedback(node.get("feedback")));
+            case "removed" -> new SessionEvent.Removed();
+            default -> throw new IllegalStateException("Unknown session event type: " + type);
+        };
+    }
+
+    private ObjectNode encode(BucketListSuggestion suggestion) {
+        ObjectNode node = objectMapper.createObjectNode()
+            .put("id", suggestion.getId())
+            .put("title", suggestion.getTitle())
+            .put("description", suggestion.getDescription())
+            .put("category", suggestion.getCategory().name())
+            .put("currency", suggestion.getPriceBreakdown().getCurrency());
+        ArrayNode lineItems = node.putArray("lineItems");
+        for (LineItem lineItem : suggestion.getPriceBreakdown().getLineItems()) {
+            lineItems.addObject()
+                .put("name", lineItem.getName())
+                .put("price", lineItem.getPrice())
+                .put("description", lineItem.getDescription());
+        }
+        ArrayNode reasons = node.putArray("rejectionReasons");
+        suggestion.getRejectionReasons().forEach(reasons::add);
+        return node;
+    }
+
+    private ObjectNode encode(RejectionFeedback feedback) {
+        return objectMapper.createObjectNode()
+            .put("suggestionId", feedback.getSuggestionId())
+            .put("reason", feedback.getReason())
+            .put("customReason", feedback.isCustomReason());
+    }
+
+    private List<BucketListSuggestion> decodeSuggestions(JsonNode nodes) {
+        List<BucketListSuggestion> suggestions = new ArrayList<>(nodes.size());
+        nodes.forEach(node -> suggestions.add(decodeSuggestion(node)));
+        return suggestions;
+    }
+
+    private static BucketListSuggestion decodeSuggestion(JsonNode node) {
+        List<LineItem> lineItems = new ArrayList<>();
+        node.get("lineItems").forEach(item -> lineItems.add(new LineItem(item.get("name").asText(),
+            item.get("price").decimalValue(), textOrNull(item.get("description")))));
+        List<String> reasons = new ArrayList<>();
+        node.get("rejectionReasons").forEach(reason -> reasons.add(reason.asText()));
+        return new BucketListSuggestion(node.get("id").asText(), node.get("title").asText(), textOrNull(node.get("description")),
+            SpendingCategory.valueOf(node.get("category").asText()),
+            new PriceBreakdown(lineItems, node.get("currency").asText()), reasons);
+    }
+
+    private static RejectionFeedback decodeFeedback(JsonNode node) {
+        return new RejectionFeedback(node.get("suggestionId").asText(), textOrNull(node.get("reason")),
+            node.get("customReason").asBoolean());
+    }
+
+    private static String textOrNull(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+}
@@ -0,0 +1,43 @@
+package com.bucketlist.persistence;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "person_session")
+public class SessionRecord {
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(length = 4000)
+    private String personDescription;
+    
+    private LocalDateTime createdAt;
+    
+    protected SessionRecord() {
+    }
+    
+    public SessionRecord(String id, String personDescription, LocalDateTime createdAt) {
+        this.id = id;
+        this.personDescription = personDescription;
+        this.createdAt = createdAt;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getPersonDescription() {
+        return personDescription;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
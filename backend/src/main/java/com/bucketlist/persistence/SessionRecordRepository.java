@@ -0,0 +1,6 @@
+package com.bucketlist.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface SessionRecordRepository extends JpaRepository<SessionRecord, String> {
+}
@@ -0,0 +1,129 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.SpendingCategory;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
+import jakarta.persistence.OrderColumn;
+import jakarta.persistence.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Entity
+@Table(name = "suggestion", indexes = @Index(name = "idx_suggestion_session", columnList = "sessionId, epoch, position"))
+public class SuggestionRecord {
+    
+    @Id
+    @Column(length = 36)
+    private String id;
+    
+    @Column(length = 36, nullable = false)
+    private String sessionId;
+    
+    // Batch the suggestion belongs to, and its place within that batch
+    private int epoch;
+    private int position;
+    
+    @Column(length = 500)
+    private String title;
+    
+    @Column(length = 4000)
+    private String description;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private SpendingCategory category;
+    
+    @Column(length = 8)
+    private String currency;
+    
+    @OneToMany(mappedBy = "suggestion", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("position")
+    private List<LineItemRecord> lineItems = new ArrayList<>();
+    
+    @ElementCollection
+    @CollectionTable(name = "suggestion_rejection_reason", joinColumns = @JoinColumn(name = "suggestion_id"))
+    @OrderColumn(name = "position")
+    @Column(name = "reason", length = 1000)
+    private List<String> rejectionReasons = new ArrayList<>();
+    
+    protected SuggestionRecord() {
+    }
+    
+    public SuggestionRecord(String id, String sessionId, int epoch, int position, String title, String description,
+                            SpendingCategory category, String currency, List<String> rejectionReasons) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.epoch = epoch;
+        this.position = position;
+        this.title = title;
+        this.description = description;
+        this.category = category;
+        this.currency = currency;
+        this.rejectionReasons = new ArrayList<>(rejectionReasons);
+    }
+    
+    public void moveTo(int epoch, int position) {
+        this.epoch = epoch;
+        this.position = position;
+    }
+    
+    public void replaceRejectionReasons(List<String> reasons) {
+        rejectionReasons.clear();
+        rejectionReasons.addAll(reasons);
+    }
+    
+    public void addLineItem(LineItemRecord lineItem) {
+        lineItems.add(lineItem);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public int getEpoch() {
+        return epoch;
+    }
+    
+    public int getPosition() {
+        return position;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public SpendingCategory getCategory() {
+        return category;
+    }
+    
+    public String getCurrency() {
+        return currency;
+    }
+    
+    public List<LineItemRecord> getLineItems() {
+        return lineItems;
+    }
+    
+    public List<String> getRejectionReasons() {
+        return rejectionReasons;
+    }
+}
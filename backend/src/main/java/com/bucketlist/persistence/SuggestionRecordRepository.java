@@ -0,0 +1,10 @@
+package com.bucketlist.persistence;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface SuggestionRecordRepository extends JpaRepository<SuggestionRecord, String> {
+    
+    List<SuggestionRecord> findBySessionIdOrderByEpochAscPositionAsc(String sessionId);
+}
@@ -0,0 +1,138 @@
+package com.bucketlist.api;
+
+import com.bucketlist.domain.BulkSuggestionService;
+import com.bucketlist.domain.HashingSuggestionEmbedder;
+import com.bucketlist.domain.InMemorySessionStateBackend;
+import com.bucketlist.domain.LlmConcurrencyLimiter;
+import com.bucketlist.domain.LlmResilience;
+import com.bucketlist.domain.LlmUnavailableException;
+import com.bucketlist.domain.PersonSessionService;
+import com.bucketlist.domain.PromptTemplateRegistry;
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import com.bucketlist.domain.RejectionReasonService;
+import com.bucketlist.domain.SessionArchive;
+import com.bucketlist.domain.SessionStateBackend;
+import com.bucketlist.domain.SuggestionDeduplicator;
+import com.bucketlist.domain.SuggestionGeneratorRouter;
+import com.bucketlist.domain.SuggestionMetrics;
+import com.bucketlist.domain.SuggestionResponseCache;
+import com.bucketlist.domain.SuggestionService;
+import com.bucketlist.domain.SuggestionStateStore;
+import com.bucketlist.domain.TemplateSuggestionGenerator;
+import com.bucketlist.domain.TokenBudgetPlanner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class SuggestionControllerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	// One slot, which the test holds, behind a rate limit that lasts well past the poll cap
+	private final LlmConcurrencyLimiter limiter = new LlmConcurrencyLimiter(meterRegistry, "openai",
+			new LlmConcurrencyLimiter.Settings(1, 1, 1, 2.0, 0, 10, Duration.ofSeconds(5)));
+	private final BulkSuggestionService bulkSuggestionService = mock(BulkSuggestionService.class);
+	private final RejectionReasonService rejectionReasonService = mock(RejectionReasonService.class);
+	private LlmConcurrencyLimiter.Permit held;
+	private PersonSessionService sessions;
+	private MockMvc mvc;
+
+	@BeforeEach
+	void saturateTheLimiter() {
+		held = limiter.tryAcquire(Kind.INITIAL).orElseThrow();
+		HttpHeaders rateLimited = new HttpHeaders();
+		rateLimited.set(HttpHeaders.RETRY_AFTER, "30");
+		limiter.onResponse(429, rateLimited);
+
+		SessionStateBackend backend = new InMemorySessionStateBackend();
+		SessionArchive archive = mock(SessionArchive.class);
+		sessions = new PersonSessionService(archive, backend, event -> { }, meterRegistry, Duration.ofMinutes(30),
+				Duration.ofHours(24), 100);
+		TemplateSuggestionGenerator generator = new TemplateSuggestionGenerator(Duration.ZERO, 0, Duration.ZERO, 0) {
+			@Override
+			public LlmConcurrencyLimiter getLimiter() {
+				return limiter;
+			}
+		};
+		LlmResilience resilience = new LlmResilience(meterRegistry, executor, 1, Duration.ofMillis(1), Duration.ofMillis(5),
+				false, 1, 0.95, 0.5, 4, 4, Duration.ofMinutes(1));
+		SuggestionGeneratorRouter router = new SuggestionGeneratorRouter(List.of(generator), resilience, meterRegistry,
+				List.of(TemplateSuggestionGenerator.NAME), List.of(), List.of(), Duration.ZERO, 0.95, 1, Duration.ofMinutes(1));
+		SuggestionMetrics metrics = new SuggestionMetrics(meterRegistry);
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true);
+		SuggestionService suggestionService = new SuggestionService(router, prompts,
+				new SuggestionDeduplicator(List.of(new HashingSuggestionEmbedder(0.6)), metrics, false, "hashing"), sessions,
+				new SuggestionResponseCache(false, 10, Duration.ofMinutes(1)), new SuggestionStateStore(backend, meterRegistry),
+				archive, metrics, new TokenBudgetPlanner(prompts, metrics, true, 180, 14, 1.3, 256), List.of(limiter),
+				resilience, executor, Duration.ofMillis(50), false, 0.6, 400, 0, "full", executor, "batch", 5, 1, false);
+
+		mvc = MockMvcBuilders.standaloneSetup(new SuggestionController(suggestionService, bulkSuggestionService,
+				rejectionReasonService, executor)).build();
+	}
+
+	@AfterEach
+	void releaseTheLimiter() {
+		held.close();
+		executor.shutdownNow();
+	}
+
+	@Test
+	void queuedGenerationAnswersWithItsPositionAndACappedRetryAfter() throws Exception {
+		String first = sessions.createSession("Carpenter in Porto").getSessionId();
+		String second = sessions.createSession("Nurse in Tromsø").getSessionId();
+
+		mvc.perform(get("/api/suggestions/{sessionId}", first))
+				.andExpect(status().isAccepted())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "10"))
+				.andExpect(jsonPath("$.position").value(1))
+				.andExpect(jsonPath("$.retryAfterSeconds").value(10));
+		mvc.perform(get("/api/suggestions/{sessionId}", second))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.position").value(2));
+
+		// Polling again keeps the place the first request took
+		mvc.perform(get("/api/suggestions/{sessionId}", first))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.position").value(1));
+	}
+
+	@Test
+	void missingLlmProviderIsUnauthorized() throws Exception {
+		doThrow(new LlmUnavailableException()).when(bulkSuggestionService).checkRequest(any());
+
+		mvc.perform(post("/api/suggestions/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"descriptions\": [\"Carpenter in Porto\"]}"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	void otherIllegalStatesAreBadRequestsEvenWithoutAMessage() throws Exception {
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		when(rejectionReasonService.getRejectionReasons(sessionId, "surf")).thenThrow(new IllegalStateException());
+
+		mvc.perform(get("/api/suggestions/{sessionId}/{suggestionId}/rejection-reasons", sessionId, "surf"))
+				.andExpect(status().isBadRequest());
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.bucketlist.domain;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ApiKeyServiceTests {
+
+	private final Set<String> unreachableModels = ConcurrentHashMap.newKeySet();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private HttpServer openAi;
+
+	// Answers every key check except those for the models in unreachableModels
+	@BeforeEach
+	void startOpenAi() throws IOException {
+		openAi = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		openAi.createContext("/", exchange -> {
+			String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+			boolean unreachable = unreachableModels.stream().anyMatch(model -> body.contains("\"" + model + "\""));
+			byte[] reply = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(unreachable ? 404 : 200, reply.length);
+			exchange.getResponseBody().write(reply);
+			exchange.close();
+		});
+		openAi.start();
+	}
+
+	@AfterEach
+	void stopOpenAi() {
+		openAi.stop(0);
+	}
+
+	@Test
+	void keyWithoutTheFastModelIsStoredWithoutTheFastTier() {
+		ApiKeyService service = service();
+		unreachableModels.add("gpt-4o-mini");
+
+		assertTrue(service.validateAndStoreApiKey("sk-test"));
+
+		assertTrue(service.hasTier(ApiKeyService.Tier.PRIMARY));
+		assertFalse(service.hasTier(ApiKeyService.Tier.FAST));
+		assertFalse(new OpenAiSuggestionGenerator(service, ApiKeyService.Tier.FAST).isAvailable());
+		assertEquals(1.0, meterRegistry.counter("bucketlist.llm.key-check.failures", "tier", "fast").count());
+	}
+
+	@Test
+	void keyWithoutThePrimaryModelIsRejected() {
+		ApiKeyService service = service();
+		unreachableModels.add("gpt-4o");
+
+		assertFalse(service.validateAndStoreApiKey("sk-test"));
+
+		assertFalse(service.hasValidApiKey());
+		assertFalse(new OpenAiSuggestionGenerator(service, ApiKeyService.Tier.FAST).isAvailable());
+		assertEquals(1.0, meterRegistry.counter("bucketlist.llm.key-check.failures", "tier", "primary").count());
+	}
+
+	private ApiKeyService service() {
+		HttpClient httpClient = HttpClient.newHttpClient();
+		return new ApiKeyService(httpClient, new JdkClientHttpRequestFactory(httpClient), limiter(), limiter(),
+				"http://localhost:" + openAi.getAddress().getPort(), "gpt-4o", 0.7, "gpt-4o-mini", 0.7, 256, false,
+				meterRegistry);
+	}
+
+	private LlmConcurrencyLimiter limiter() {
+		return new LlmConcurrencyLimiter(meterRegistry, "test",
+				new LlmConcurrencyLimiter.Settings(4, 1, 4, 2.0, 0, 10, Duration.ofSeconds(1)));
+	}
+
+}
@@ -0,0 +1,86 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CategoryFanOutTests {
+
+	private static final List<SpendingCategory> CATEGORIES = List.of(SpendingCategory.TRAVEL_VACATION,
+			SpendingCategory.HEALTH_WELLNESS, SpendingCategory.SMALL_LUXURY);
+
+	@Test
+	void runsEverySlotAtOnceAndReturnsThemInCategoryOrder() throws Exception {
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CategoryFanOut fanOut = new CategoryFanOut(executor, 1, new SuggestionMetrics(new SimpleMeterRegistry()));
+		// Every call waits until all of them have started, so this only finishes if they run in parallel
+		CountDownLatch allStarted = new CountDownLatch(CATEGORIES.size());
+		List<String> arrived = Collections.synchronizedList(new ArrayList<>());
+
+		List<String> answers = fanOut.run(CATEGORIES, category -> {
+			allStarted.countDown();
+			assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+			return category.name();
+		}, arrived::add);
+
+		assertEquals(List.of("TRAVEL_VACATION", "HEALTH_WELLNESS", "SMALL_LUXURY"), answers);
+		assertEquals(3, arrived.size());
+		executor.shutdown();
+	}
+
+	@Test
+	void retriesOnlyTheSlotsThatFailed() throws Exception {
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CategoryFanOut fanOut = new CategoryFanOut(executor, 2, new SuggestionMetrics(new SimpleMeterRegistry()));
+		Map<SpendingCategory, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+		List<String> answers = fanOut.run(CATEGORIES, category -> {
+			int attempt = calls.computeIfAbsent(category, key -> new AtomicInteger()).incrementAndGet();
+			if (category == SpendingCategory.HEALTH_WELLNESS && attempt < 3) {
+				throw new IllegalStateException("No suggestions could be read");
+			}
+			return category.name();
+		}, answer -> {});
+
+		assertEquals(3, answers.size());
+		assertEquals(1, calls.get(SpendingCategory.TRAVEL_VACATION).get());
+		assertEquals(3, calls.get(SpendingCategory.HEALTH_WELLNESS).get());
+		assertEquals(1, calls.get(SpendingCategory.SMALL_LUXURY).get());
+		executor.shutdown();
+	}
+
+	@Test
+	void returnsShortBatchesAndFailsOnlyWhenNothingCameBack() throws Exception {
+		ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+		CategoryFanOut fanOut = new CategoryFanOut(executor, 1, new SuggestionMetrics(new SimpleMeterRegistry()));
+
+		List<String> answers = fanOut.run(CATEGORIES, category -> {
+			if (category == SpendingCategory.SMALL_LUXURY) {
+				throw new IllegalStateException("Provider down");
+			}
+			return category.name();
+		}, answer -> {});
+		assertEquals(List.of("TRAVEL_VACATION", "HEALTH_WELLNESS"), answers);
+
+		IllegalStateException failure = assertThrows(IllegalStateException.class, () -> fanOut.run(CATEGORIES, category -> {
+			throw new IllegalStateException("Provider down");
+		}, answer -> {}));
+		assertEquals("Provider down", failure.getMessage());
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.bucketlist.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalSuggestionParserTests {
+
+	private static final String COMPLETION = """
+		```json
+		{"suggestions": [
+		  {"title": "Sail {the} fjords", "description": "Say \\"hej\\" in Bergen", "priceBreakdown": {"lineItems": [{"name": "Boat", "price": 900}], "currency": "EUR"}},
+		  {"title": "Pottery class", "description": "Weekend course ]}", "rejectionReasons": ["Too messy"]}
+		]}
+		```""";
+
+	@Test
+	void emitsEachSuggestionWhenItsObjectCloses() {
+		IncrementalSuggestionParser parser = new IncrementalSuggestionParser();
+		List<String> items = new ArrayList<>();
+
+		// Feed in tiny chunks so boundaries fall inside strings and escapes
+		for (int i = 0; i < COMPLETION.length(); i += 3) {
+			items.addAll(parser.feed(COMPLETION.substring(i, Math.min(i + 3, COMPLETION.length()))));
+		}
+
+		assertEquals(2, items.size());
+		assertTrue(items.get(0).startsWith("{\"title\": \"Sail {the} fjords\""));
+		assertTrue(items.get(0).contains("Say \\\"hej\\\" in Bergen"));
+		assertTrue(items.get(1).endsWith("[\"Too messy\"]}"));
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmConcurrencyLimiterTests {
+
+	@Test
+	void parsesOpenAiResetDurations() {
+		assertEquals(Duration.ofMillis(20), LlmConcurrencyLimiter.parseResetDuration("20ms"));
+		assertEquals(Duration.ofMinutes(6), LlmConcurrencyLimiter.parseResetDuration("6m0s"));
+		assertEquals(Duration.ofMillis(3_723_500), LlmConcurrencyLimiter.parseResetDuration("1h2m3.5s"));
+	}
+
+	@Test
+	void queuedCallsAreServedRoundRobinAcrossSessions() throws Exception {
+		LlmConcurrencyLimiter limiter = limiter(Duration.ofSeconds(10));
+		LlmConcurrencyLimiter.Permit running = limiter.acquire("busy", Kind.INITIAL);
+
+		// "busy" queues two calls before "quiet" queues its first; quiet still goes second
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> threads = List.of(queue(limiter, "busy", order), queue(limiter, "busy", order),
+				queue(limiter, "quiet", order));
+		assertEquals(OptionalInt.of(2), limiter.queuePosition("quiet"));
+
+		running.success();
+		for (Thread thread : threads) {
+			thread.join(5_000);
+		}
+		assertEquals(List.of("busy", "quiet", "busy"), order);
+	}
+
+	@Test
+	void retryAfterPausesDispatch() {
+		LlmConcurrencyLimiter limiter = limiter(Duration.ofMillis(50));
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "30");
+		limiter.onResponse(429, headers);
+
+		LlmOverloadedException e = assertThrows(LlmOverloadedException.class, () -> limiter.acquire("session", Kind.INITIAL));
+		assertTrue(e.getRetryAfter().compareTo(Duration.ofSeconds(25)) > 0);
+	}
+
+	@Test
+	void slowPromptKindsDoNotShrinkTheLimitAgainstFastOnes() throws Exception {
+		LlmConcurrencyLimiter limiter = new LlmConcurrencyLimiter(new SimpleMeterRegistry(), "test",
+				new LlmConcurrencyLimiter.Settings(4, 1, 4, 3.0, 0, 10, Duration.ofSeconds(1)));
+
+		// Packed bulk prompts take ten times as long as reasons lists, in normal mixed traffic
+		for (int i = 0; i < 5; i++) {
+			call(limiter, Kind.REASONS, 20);
+			call(limiter, Kind.PACKED, 200);
+		}
+
+		List<LlmConcurrencyLimiter.Permit> permits = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			permits.add(limiter.tryAcquire(Kind.INITIAL).orElseThrow());
+		}
+		permits.forEach(LlmConcurrencyLimiter.Permit::success);
+	}
+
+	// A fixed limit of one so dispatch order is deterministic
+	private static LlmConcurrencyLimiter limiter(Duration maxWait) {
+		return new LlmConcurrencyLimiter(new SimpleMeterRegistry(), "test",
+				new LlmConcurrencyLimiter.Settings(1, 1, 1, 2.0, 0, 10, maxWait));
+	}
+
+	private static void call(LlmConcurrencyLimiter limiter, Kind kind, long millis) throws InterruptedException {
+		try (LlmConcurrencyLimiter.Permit permit = limiter.acquire("session", kind)) {
+			Thread.sleep(millis);
+			permit.success();
+		}
+	}
+
+	private static Thread queue(LlmConcurrencyLimiter limiter, String sessionId, List<String> order) throws InterruptedException {
+		CountDownLatch queued = new CountDownLatch(1);
+		Thread thread = Thread.ofVirtual().start(() -> {
+			try (LlmConcurrencyLimiter.Permit permit = limiter.acquire(sessionId, Kind.INITIAL, position -> queued.countDown())) {
+				order.add(sessionId);
+				permit.success();
+			}
+		});
+		assertTrue(queued.await(5, TimeUnit.SECONDS));
+		return thread;
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.bucketlist.domain;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.FileNotFoundException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmResilienceTests {
+
+	@Test
+	void retriesTransientFailures() throws Exception {
+		LlmResilience resilience = resilience(3, false);
+		AtomicInteger attempts = new AtomicInteger();
+
+		String result = resilience.call(template(0), "call", LlmResilience.Policy.IDEMPOTENT, hedge -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new TransientAiException("503 - Service Unavailable");
+			}
+			return "ok";
+		});
+
+		assertEquals("ok", result);
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	void onlyConnectionFailuresAreTransient() {
+		assertTrue(LlmResilience.isTransient(new ResourceAccessException("I/O error", new ConnectException("Connection refused"))));
+		assertTrue(LlmResilience.isTransient(new Exception("Call failed", new SocketTimeoutException("Read timed out"))));
+		assertTrue(LlmResilience.isTransient(new HttpTimeoutException("request timed out")));
+		// Jackson's exceptions are IOExceptions too, but a malformed reply is no better on a retry
+		assertFalse(LlmResilience.isTransient(new ResourceAccessException("I/O error", new JsonParseException(null, "Unexpected character"))));
+		assertFalse(LlmResilience.isTransient(new FileNotFoundException("prompts/initial-v9.txt")));
+	}
+
+	@Test
+	void opensCircuitWhenTheProviderKeepsFailing() {
+		LlmResilience resilience = resilience(1, false);
+		TemplateSuggestionGenerator failing = template(1.0);
+
+		for (int i = 0; i < 4; i++) {
+			assertThrows(TransientAiException.class, () -> resilience.call(failing, "call", LlmResilience.Policy.IDEMPOTENT,
+					hedge -> failing.complete("Suggest something")));
+		}
+
+		// Fails fast without reaching the model
+		LlmOverloadedException open = assertThrows(LlmOverloadedException.class, () -> resilience.call(failing, "call",
+				LlmResilience.Policy.IDEMPOTENT, hedge -> failing.complete("Suggest something")));
+		assertTrue(open.getRetryAfter().compareTo(Duration.ofSeconds(50)) > 0);
+		assertTrue(resilience.isCircuitOpen(TemplateSuggestionGenerator.NAME));
+	}
+
+	@Test
+	void hedgesRequestsSlowerThanUsual() throws Exception {
+		LlmResilience resilience = resilience(1, true);
+		TemplateSuggestionGenerator generator = template(0);
+		resilience.call(generator, "call", LlmResilience.Policy.IDEMPOTENT, hedge -> {
+			Thread.sleep(10);
+			return "warm-up";
+		});
+
+		long start = System.nanoTime();
+		String result = resilience.call(generator, "call", LlmResilience.Policy.IDEMPOTENT, hedge -> {
+			Thread.sleep(hedge ? 10 : 5_000);
+			return hedge ? "hedge" : "primary";
+		});
+
+		assertEquals("hedge", result);
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(2)) < 0);
+	}
+
+	// Circuit opens on four failures out of four; hedging kicks in after a single sample
+	static LlmResilience resilience(int maxAttempts, boolean hedging) {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		return new LlmResilience(registry, Executors.newVirtualThreadPerTaskExecutor(), maxAttempts,
+				Duration.ofMillis(1), Duration.ofMillis(5), hedging, 1, 0.95, 0.5, 4, 4, Duration.ofMinutes(1));
+	}
+
+	static TemplateSuggestionGenerator template(double failureRate) {
+		return new TemplateSuggestionGenerator(Duration.ZERO, 0, Duration.ZERO, failureRate);
+	}
+
+}
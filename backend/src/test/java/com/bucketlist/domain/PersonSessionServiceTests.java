@@ -0,0 +1,75 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersonSessionServiceTests {
+
+	private final List<SessionEvictedEvent> evictions = new CopyOnWriteArrayList<>();
+
+	@Test
+	void idleSessionsAreEvictedOnTheSweep() throws InterruptedException {
+		PersonSessionService sessions = sessions(Duration.ofMillis(50), Duration.ofHours(24), 100);
+		String idle = sessions.createSession("Carpenter in Porto").getSessionId();
+		String active = sessions.createSession("Nurse in Oslo").getSessionId();
+
+		Thread.sleep(100);
+		sessions.getSession(active);
+		sessions.evictExpiredSessions();
+
+		assertEquals(List.of(idle), evicted(SessionEvictedEvent.Reason.IDLE));
+		assertEquals(1, sessions.getSessionCount());
+	}
+
+	@Test
+	void sessionsPastTheirLifetimeAreEvictedAndNotRestored() throws InterruptedException {
+		PersonSessionService sessions = sessions(Duration.ofHours(1), Duration.ofMillis(50), 100);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+
+		Thread.sleep(100);
+		// Still in use, but that doesn't extend its lifetime
+		sessions.getSession(sessionId);
+		sessions.evictExpiredSessions();
+
+		assertEquals(List.of(sessionId), evicted(SessionEvictedEvent.Reason.EXPIRED));
+		assertTrue(sessions.getSession(sessionId).isEmpty());
+	}
+
+	@Test
+	void leastRecentlyUsedSessionMakesRoomForANewOne() throws InterruptedException {
+		PersonSessionService sessions = sessions(Duration.ofHours(1), Duration.ofHours(24), 2);
+		String first = sessions.createSession("Carpenter in Porto").getSessionId();
+		Thread.sleep(5);
+		String second = sessions.createSession("Nurse in Oslo").getSessionId();
+		Thread.sleep(5);
+		sessions.getSession(first);
+
+		sessions.createSession("Baker in Leeds");
+
+		assertEquals(List.of(second), evicted(SessionEvictedEvent.Reason.CAPACITY));
+		assertEquals(2, sessions.getSessionCount());
+	}
+
+	private PersonSessionService sessions(Duration idleTtl, Duration maxLifetime, int maxSessions) {
+		return new PersonSessionService(new SuggestionServiceTests.NoArchive(), new InMemorySessionStateBackend(), event -> {
+			if (event instanceof SessionEvictedEvent evicted) {
+				evictions.add(evicted);
+			}
+		}, new SimpleMeterRegistry(), idleTtl, maxLifetime, maxSessions);
+	}
+
+	private List<String> evicted(SessionEvictedEvent.Reason reason) {
+		return evictions.stream()
+				.filter(event -> event.getReason() == reason)
+				.map(SessionEvictedEvent::getSessionId)
+				.toList();
+	}
+
+}
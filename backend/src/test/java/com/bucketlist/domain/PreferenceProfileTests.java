@@ -0,0 +1,97 @@
+package com.bucketlist.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreferenceProfileTests {
+
+	@Test
+	void summarizesCategoriesPricesAndRecurringReasons() {
+		SessionSuggestionState state = new SessionSuggestionState("profile");
+		BucketListSuggestion trip = suggestion("Hike the Alps", SpendingCategory.TRAVEL_VACATION, 1500);
+		BucketListSuggestion cruise = suggestion("Caribbean cruise", SpendingCategory.TRAVEL_VACATION, 900);
+		BucketListSuggestion watch = suggestion("Swiss watch", SpendingCategory.LUXURY_THINGS, 8000);
+		BucketListSuggestion car = suggestion("Sports car weekend", SpendingCategory.LUXURY_THINGS, 6000);
+		state.commitBatch(1, List.of(trip, cruise, watch, car));
+
+		state.accept(trip.getId());
+		state.accept(cruise.getId());
+		state.reject(new RejectionFeedback(watch.getId(), "Too expensive", false));
+		state.reject(new RejectionFeedback(car.getId(), " too  EXPENSIVE", true));
+
+		String summary = state.renderPreferences(400);
+		assertTrue(summary.contains("FEEDBACK SO FAR: 2 accepted, 2 rejected"), summary);
+		assertTrue(summary.contains("Liked categories: Travel & Vacation (2 of 2 accepted)"), summary);
+		assertTrue(summary.contains("Disliked categories: Luxury Things (2 of 2 rejected)"), summary);
+		assertTrue(summary.contains("Accepted price range: 500-2000 x2"), summary);
+		assertTrue(summary.contains("Rejected price range: 5000+ x2"), summary);
+		assertTrue(summary.contains("Recurring rejection reasons: Too expensive (x2)"), summary);
+		assertTrue(summary.contains("- Sports car weekend (Luxury Things): too  EXPENSIVE"), summary);
+	}
+
+	@Test
+	void changingAVerdictMovesTheSuggestionBetweenSides() {
+		SessionSuggestionState state = new SessionSuggestionState("profile");
+		BucketListSuggestion spa = suggestion("Spa day", SpendingCategory.HEALTH_WELLNESS, 250);
+		state.commitBatch(1, List.of(spa));
+
+		state.reject(new RejectionFeedback(spa.getId(), "Not my thing", false));
+		state.accept(spa.getId());
+
+		String summary = state.renderPreferences(400);
+		assertTrue(summary.contains("FEEDBACK SO FAR: 1 accepted, 0 rejected"), summary);
+		assertTrue(summary.contains("Accepted price range: 100-500 x1"), summary);
+		assertFalse(summary.contains("Rejected"), summary);
+		assertFalse(summary.contains("Not my thing"), summary);
+	}
+
+	@Test
+	void staysWithinTheTokenBudgetHoweverLongTheSession() {
+		SessionSuggestionState state = new SessionSuggestionState("profile");
+		List<BucketListSuggestion> all = new ArrayList<>();
+		for (int epoch = 1; epoch <= 100; epoch++) {
+			List<BucketListSuggestion> batch = new ArrayList<>();
+			for (SpendingCategory category : SpendingCategory.values()) {
+				batch.add(suggestion("A rather long suggestion title number " + epoch + " for " + category.getDisplayName(),
+						category, epoch * 37));
+			}
+			state.commitBatch(epoch, batch);
+			all.addAll(batch);
+		}
+		for (int i = 0; i < all.size(); i++) {
+			if (i % 3 == 0) {
+				state.accept(all.get(i).getId());
+			} else {
+				state.reject(new RejectionFeedback(all.get(i).getId(), "Custom reason " + (i % 70), true));
+			}
+		}
+
+		for (int budget : new int[] { 40, 120, 400 }) {
+			String summary = state.renderPreferences(budget);
+			assertTrue(TokenCounter.count(summary) <= budget, summary);
+			assertTrue(summary.startsWith("FEEDBACK SO FAR: 267 accepted, 533 rejected"), summary);
+		}
+
+		// Restoring replays the feedback into the same profile
+		SessionArchive.SuggestionHistory history = new SessionArchive.SuggestionHistory(100, all, state.getCurrentBatch(),
+				state.getAcceptedSuggestions().stream().map(BucketListSuggestion::getId).toList(),
+				state.getRejectedSuggestions().stream()
+					.map(suggestion -> state.getRejectionFeedback(suggestion.getId()).orElseThrow())
+					.toList());
+		assertEquals(state.renderPreferences(400),
+				SessionSuggestionState.restore("profile", history).renderPreferences(400));
+	}
+
+	private static BucketListSuggestion suggestion(String title, SpendingCategory category, int price) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(price), "All in")), "EUR");
+		return new BucketListSuggestion(title, title + " description", category, prices, List.of("Too expensive"));
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptTemplateRegistryTests {
+
+	@Test
+	void fillsVariablesCategoriesAndFormatIntoTheBundledTemplates() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+		String prompt = prompts.initialPrompt("Nurse in Porto who loves surfing");
+
+		assertTrue(prompt.startsWith("You are generating bucket list suggestions for a person based on this description: "
+				+ "Nurse in Porto who loves surfing\n"), prompt);
+		assertTrue(prompt.contains("different categories: " + SuggestionPrompts.displayNames() + "\n"), prompt);
+		assertTrue(prompt.contains("\"suggestions\""), prompt);
+		assertTrue(prompt.contains("($1000-10000+), include 1-2 stretch goals at 70% budget"), prompt);
+		assertFalse(prompt.contains("{format}"), prompt);
+	}
+
+	@Test
+	void leavesRejectionReasonsOutOfBatchesWhenLazy() {
+		PromptTemplateRegistry eager = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+		PromptTemplateRegistry lazy = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true);
+
+		assertTrue(eager.initialPrompt("Chef in Oslo").contains("4. Include 5 rejection reasons per suggestion\n"));
+		assertTrue(lazy.initialPrompt("Chef in Oslo").contains("4. Leave rejectionReasons empty"));
+		assertTrue(lazy.regenerationPrompt("", "Chef in Oslo").contains("4. Leave rejectionReasons empty"));
+	}
+
+	@Test
+	void listsEachSuggestionToRepairWithItsProblems() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+		String prompt = prompts.repairPrompt("Chef in Oslo", List.of("{\"title\": \"Sail\",\n \"category\": \"Boats\"}", "{}"),
+				List.of(List.of("description is missing", "category \"Boats\" is not one of the listed categories"),
+						List.of("title is missing")));
+
+		assertTrue(prompt.contains("ITEM 1: {\"title\": \"Sail\", \"category\": \"Boats\"}\n"
+				+ "PROBLEMS: description is missing; category \"Boats\" is not one of the listed categories\n"
+				+ "ITEM 2: {}\nPROBLEMS: title is missing\n"), prompt);
+		assertTrue(prompt.contains("1. Return exactly 2 suggestions"), prompt);
+		assertEquals("SuggestionResponse", prompts.schema(Kind.REPAIR).name());
+	}
+
+	@Test
+	void leavesPlaceholdersInsideValuesAlone() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+		String prompt = prompts.regenerationPrompt("", "Writes {format} and {categories} everywhere");
+
+		assertTrue(prompt.contains("PERSON DESCRIPTION: Writes {format} and {categories} everywhere\n"), prompt);
+	}
+
+	@Test
+	void swapsVersionsAtRuntime() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+		prompts.register(Kind.INITIAL, "v2", "Suggest things for {description}.\n{format}\n");
+
+		assertEquals("v1", prompts.activeVersion(Kind.INITIAL));
+		prompts.activate(Kind.INITIAL, "v2");
+
+		assertEquals(List.of("v1", "v2"), prompts.versions(Kind.INITIAL));
+		assertTrue(prompts.initialPrompt("Chef in Oslo").startsWith("Suggest things for Chef in Oslo.\n"));
+	}
+
+	@Test
+	void rejectsTemplatesThatCannotBeFilled() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+		assertThrows(IllegalArgumentException.class,
+				() -> prompts.register(Kind.INITIAL, "v2", "For {description}, in {language}.\n{format}"));
+		assertThrows(IllegalArgumentException.class,
+				() -> prompts.register(Kind.REGENERATION, "v2", "For {description}.\n{format}"));
+		assertThrows(IllegalArgumentException.class, () -> prompts.register(Kind.PACKED, "v2", "{count} {people}"));
+		assertThrows(IllegalArgumentException.class, () -> prompts.activate(Kind.INITIAL, "v3"));
+		assertEquals("v1", prompts.activeVersion(Kind.INITIAL));
+	}
+
+	@Test
+	void schemasRequireEveryPropertyForStrictProviders() throws Exception {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false);
+
+		for (Kind kind : Kind.values()) {
+			JsonNode schema = new ObjectMapper().readTree(prompts.schema(kind).json());
+			assertTrue(schema.has("properties"), kind.getId());
+			assertRequiresEveryProperty(kind.getId(), schema);
+		}
+	}
+
+	private static void assertRequiresEveryProperty(String path, JsonNode node) {
+		if (node.isObject() && node.get("properties") != null && node.get("properties").isObject()) {
+			List<String> properties = new ArrayList<>();
+			node.get("properties").properties().forEach(property -> properties.add(property.getKey()));
+			List<String> required = new ArrayList<>();
+			node.path("required").forEach(name -> required.add(name.asText()));
+			assertEquals(properties, required, path);
+			assertFalse(node.path("additionalProperties").asBoolean(true), path);
+		}
+		node.properties().forEach(field -> assertRequiresEveryProperty(path + "." + field.getKey(), field.getValue()));
+		if (node.isArray()) {
+			node.forEach(element -> assertRequiresEveryProperty(path + "[]", element));
+		}
+	}
+
+}
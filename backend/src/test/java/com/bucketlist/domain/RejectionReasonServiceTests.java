@@ -0,0 +1,101 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RejectionReasonServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SuggestionServiceTests.CountingGenerator generator = new SuggestionServiceTests.CountingGenerator();
+	private final Executor executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final SessionStateBackend backend = new InMemorySessionStateBackend();
+	private final SuggestionStateStore states = new SuggestionStateStore(backend, meterRegistry);
+	private final PersonSessionService sessions = new PersonSessionService(new SuggestionServiceTests.NoArchive(), backend,
+			event -> { }, meterRegistry, Duration.ofMinutes(30), Duration.ofHours(24), 100);
+	private final AtomicInteger archivedReasons = new AtomicInteger();
+	private final RejectionReasonService reasons = new RejectionReasonService(
+			SuggestionServiceTests.service(generator, sessions, states, executor, RegenerationMode.FULL),
+			SuggestionServiceTests.router(generator), sessions, states,
+			new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true),
+			new SuggestionServiceTests.NoArchive() {
+				@Override
+				public void rejectionReasonsAdded(String sessionId, String suggestionId, List<String> reasons) {
+					archivedReasons.incrementAndGet();
+				}
+			},
+			new SuggestionMetrics(meterRegistry), executor, true, true);
+
+	@Test
+	void reasonsAreGeneratedOnceAndKeptOnTheSuggestion() {
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		BucketListSuggestion surf = lazyBatch(sessionId).getFirst();
+
+		List<String> generated = reasons.getRejectionReasons(sessionId, surf.getId());
+
+		assertFalse(generated.isEmpty());
+		assertEquals(generated, reasons.getRejectionReasons(sessionId, surf.getId()));
+		assertEquals(generated, states.find(sessionId).orElseThrow().getSuggestion(surf.getId()).orElseThrow().getRejectionReasons());
+		assertEquals(1, generator.calls.get());
+		assertRecordedOnce(sessionId);
+	}
+
+	@Test
+	void prefetchAndTheUsersRequestShareOneCall() throws Exception {
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		BucketListSuggestion surf = lazyBatch(sessionId).getFirst();
+		generator.release = new CountDownLatch(1);
+
+		reasons.prefetch(sessionId, surf);
+		awaitCalls(1);
+		// Prefetching the card again while its call runs starts nothing new
+		reasons.prefetch(sessionId, surf);
+		CompletableFuture<List<String>> requested = CompletableFuture.supplyAsync(
+				() -> reasons.getRejectionReasons(sessionId, surf.getId()), executor);
+		Thread.sleep(100);
+		generator.release.countDown();
+
+		assertFalse(requested.get().isEmpty());
+		assertEquals(1, generator.calls.get());
+		assertRecordedOnce(sessionId);
+	}
+
+	// A batch generated with rejection-reasons.lazy, so none of it has reasons yet
+	private List<BucketListSuggestion> lazyBatch(String sessionId) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(500), "All in")), "USD");
+		List<BucketListSuggestion> batch = List.of(
+				new BucketListSuggestion("Learn to surf", "Learn to surf this year", SpendingCategory.HEALTH_WELLNESS, prices, List.of()),
+				new BucketListSuggestion("Buy a sports car", "Buy a sports car this year", SpendingCategory.LUXURY_THINGS, prices, List.of()));
+		states.record(states.getOrCreate(sessionId), new SessionEvent.BatchCommitted(1, batch));
+		return batch;
+	}
+
+	private void assertRecordedOnce(String sessionId) {
+		long recorded = backend.read(sessionId, 0).events().stream()
+				.filter(SessionEvent.RejectionReasonsAdded.class::isInstance)
+				.count();
+		assertEquals(1, recorded);
+		assertEquals(1, archivedReasons.get());
+	}
+
+	private void awaitCalls(int calls) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (generator.calls.get() < calls) {
+			assertTrue(System.nanoTime() < deadline, "No call reached the model within 5s");
+			Thread.sleep(10);
+		}
+	}
+
+}
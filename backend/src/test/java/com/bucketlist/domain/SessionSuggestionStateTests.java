@@ -0,0 +1,54 @@
+package com.bucketlist.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionSuggestionStateTests {
+
+	@Test
+	void carriedOverSuggestionsKeepTheirReview() {
+		SessionSuggestionState state = new SessionSuggestionState("partial");
+		BucketListSuggestion accepted = suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS);
+		BucketListSuggestion rejected = suggestion("Buy a sports car", SpendingCategory.LUXURY_THINGS);
+		state.commitBatch(1, List.of(accepted, rejected));
+		state.accept(accepted.getId());
+		state.reject(new RejectionFeedback(rejected.getId(), "Too expensive", false));
+
+		BucketListSuggestion replacement = suggestion("Weekend in Lisbon", SpendingCategory.TRAVEL_VACATION);
+		state.commitBatch(2, List.of(accepted, replacement));
+
+		assertEquals(replacement, state.nextUnreviewed().orElseThrow());
+		assertEquals(0.5, state.getReviewedFraction());
+		state.accept(replacement.getId());
+		assertTrue(state.isBatchFullyReviewed());
+		assertEquals(List.of(accepted, replacement), state.getAcceptedSuggestions());
+	}
+
+	@Test
+	void ordersCategoriesByHowOftenTheSessionHasSeenThem() {
+		SessionSuggestionState state = new SessionSuggestionState("coverage");
+		state.commitBatch(1, List.of(suggestion("Learn to surf", SpendingCategory.TRAVEL_VACATION),
+				suggestion("Road trip", SpendingCategory.TRAVEL_VACATION),
+				suggestion("Spa day", SpendingCategory.HEALTH_WELLNESS)));
+
+		List<SpendingCategory> leastShown = state.leastShownCategories();
+
+		assertEquals(SpendingCategory.values().length, leastShown.size());
+		assertEquals(SpendingCategory.LUXURY_THINGS, leastShown.get(0));
+		assertEquals(SpendingCategory.HEALTH_WELLNESS, leastShown.get(leastShown.size() - 2));
+		assertEquals(SpendingCategory.TRAVEL_VACATION, leastShown.get(leastShown.size() - 1));
+		assertFalse(leastShown.subList(0, leastShown.size() - 2).contains(SpendingCategory.HEALTH_WELLNESS));
+	}
+
+	private static BucketListSuggestion suggestion(String title, SpendingCategory category) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(500), "All in")), "USD");
+		return new BucketListSuggestion(title, title + " this year", category, prices, List.of("Too expensive"));
+	}
+
+}
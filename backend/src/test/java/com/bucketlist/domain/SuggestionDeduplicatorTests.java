@@ -0,0 +1,93 @@
+package com.bucketlist.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionDeduplicatorTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	void dropsRewordedCopiesOfShownSuggestions() {
+		SessionSuggestionState state = new SessionSuggestionState("dedup");
+		state.commitBatch(1, List.of(suggestion("Hike the Swiss Alps",
+				"Trek through alpine meadows on a guided multi-day hut-to-hut hike", SpendingCategory.TRAVEL_VACATION)));
+
+		BucketListSuggestion copy = suggestion("Hiking in the Swiss Alps",
+				"A guided hut-to-hut trek over several days through alpine meadows", SpendingCategory.TRAVEL_VACATION);
+		BucketListSuggestion fresh = suggestion("Learn to cook Thai food",
+				"Take a week-long cooking class in Chiang Mai", SpendingCategory.MENTAL_EMOTIONAL);
+		SuggestionDeduplicator.Result result = deduplicator("hashing").filter(state, List.of(copy, fresh), List.of());
+
+		assertEquals(List.of(fresh), result.kept());
+		assertEquals(List.of(copy), result.dropped());
+		assertEquals(1.0, registry.counter("bucketlist.dedup.dropped", "embedder", "hashing").count());
+	}
+
+	@Test
+	void dropsCopiesWithinTheSameBatch() {
+		SessionSuggestionState state = new SessionSuggestionState("dedup");
+		BucketListSuggestion first = suggestion("Take a week-long trip somewhere new",
+				"Pick a destination you have never visited and spend a full week exploring it", SpendingCategory.TRAVEL_VACATION);
+		BucketListSuggestion second = suggestion("Spend a week exploring a new destination",
+				"Travel somewhere you've never been and take a whole week to explore it", SpendingCategory.OPTIONAL_ADDONS);
+
+		SuggestionDeduplicator.Result result = deduplicator("hashing").filter(state, List.of(first, second), List.of());
+
+		assertEquals(List.of(first), result.kept());
+		assertEquals(List.of(second), result.dropped());
+	}
+
+	@Test
+	void fallsBackToHashingWhenTheEmbedderFails() {
+		SessionSuggestionState state = new SessionSuggestionState("dedup");
+		BucketListSuggestion shown = suggestion("Host a dinner for your favorite people",
+				"Bring friends together for a catered dinner", SpendingCategory.SOCIAL_LIFESTYLE);
+		state.commitBatch(1, List.of(shown));
+
+		SuggestionDeduplicator.Result result = deduplicator("failing").filter(state, List.of(suggestion(shown.getTitle(),
+				shown.getDescription(), SpendingCategory.SOCIAL_LIFESTYLE)), List.of());
+
+		assertEquals(0, result.kept().size());
+		assertEquals(1.0, registry.counter("bucketlist.dedup.fallbacks", "embedder", "failing").count());
+	}
+
+	private SuggestionDeduplicator deduplicator(String embedder) {
+		return new SuggestionDeduplicator(List.of(new HashingSuggestionEmbedder(0.6), new FailingEmbedder()),
+				new SuggestionMetrics(registry), true, embedder);
+	}
+
+	private static BucketListSuggestion suggestion(String title, String description, SpendingCategory category) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(500), "All in")), "USD");
+		return new BucketListSuggestion(title, description, category, prices, List.of("Too expensive"));
+	}
+
+	private static final class FailingEmbedder implements SuggestionEmbedder {
+
+		@Override
+		public String getName() {
+			return "failing";
+		}
+
+		@Override
+		public boolean isAvailable() {
+			return true;
+		}
+
+		@Override
+		public double getDuplicateThreshold() {
+			return 0.9;
+		}
+
+		@Override
+		public List<float[]> embed(List<String> texts) throws Exception {
+			throw new Exception("503 - Service Unavailable");
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.TransientAiException;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionGeneratorRouterTests {
+
+	@Test
+	void skipsUnavailableGenerators() {
+		SuggestionGeneratorRouter router = router(Duration.ZERO, new FixedGenerator("remote", false, Duration.ZERO),
+				LlmResilienceTests.template(0));
+
+		assertEquals(TemplateSuggestionGenerator.NAME, router.primary(Kind.INITIAL).getName());
+	}
+
+	@Test
+	void failsOverToTheNextGenerator() throws Exception {
+		SuggestionGeneratorRouter router = router(Duration.ZERO, new FixedGenerator("remote", true, Duration.ZERO),
+				LlmResilienceTests.template(0));
+
+		SuggestionGeneratorRouter.Routed<ChatCompletion> routed = router.route(Kind.INITIAL, () -> true, generator -> {
+			if (generator.getName().equals("remote")) {
+				throw new TransientAiException("503 - Service Unavailable");
+			}
+			return generator.complete("Suggest something");
+		});
+
+		assertEquals(TemplateSuggestionGenerator.NAME, routed.generator().getName());
+		assertFalse(SuggestionJsonParser.parseSuggestions(routed.value().content()).getSuggestions().isEmpty());
+	}
+
+	@Test
+	void doesNotFailOverOnceTheCallerSaysNo() {
+		SuggestionGeneratorRouter router = router(Duration.ZERO, new FixedGenerator("remote", true, Duration.ZERO),
+				LlmResilienceTests.template(0));
+
+		assertThrows(TransientAiException.class, () -> router.route(Kind.INITIAL, () -> false, generator -> {
+			throw new TransientAiException("503 - Service Unavailable");
+		}));
+	}
+
+	@Test
+	void routesAroundGeneratorsOverTheLatencyBudget() throws Exception {
+		LlmResilience resilience = LlmResilienceTests.resilience(1, false);
+		FixedGenerator slow = new FixedGenerator("remote", true, Duration.ofMillis(30));
+		SuggestionGeneratorRouter router = new SuggestionGeneratorRouter(List.of(slow, LlmResilienceTests.template(0)),
+				resilience, new SimpleMeterRegistry(), List.of("remote", TemplateSuggestionGenerator.NAME),
+				List.of(), List.of(), Duration.ofMillis(10), 0.95, 1, Duration.ofMinutes(1));
+
+		resilience.call(slow, "call", LlmResilience.Policy.IDEMPOTENT, hedge -> slow.complete("Suggest something"));
+
+		assertEquals(TemplateSuggestionGenerator.NAME, router.primary(Kind.INITIAL).getName());
+		assertTrue(resilience.latencyPercentile("remote", 0.95, 1).isEmpty());
+	}
+
+	@Test
+	void sendsFastWorkloadsToTheFastTierFirst() throws Exception {
+		FixedGenerator primary = new FixedGenerator("remote", true, Duration.ZERO);
+		FixedGenerator fast = new FixedGenerator("remote-fast", true, Duration.ZERO);
+		SuggestionGeneratorRouter router = new SuggestionGeneratorRouter(
+				List.of(primary, fast, LlmResilienceTests.template(0)), LlmResilienceTests.resilience(1, false),
+				new SimpleMeterRegistry(), List.of("remote", "remote-fast"), List.of("remote-fast"),
+				List.of("reasons", "repair"), Duration.ZERO, 0.95, 1, Duration.ofMinutes(1));
+
+		assertEquals("remote", router.primary(Kind.INITIAL).getName());
+		assertEquals("remote-fast", router.primary(Kind.REASONS).getName());
+		assertEquals("remote-fast", router.route(Kind.REPAIR, () -> true, generator -> generator).generator().getName());
+		// Fast workloads fall back on the rest of the routing order
+		assertEquals(List.of("remote-fast", "remote"),
+				router.candidates(Kind.REASONS).stream().map(SuggestionGenerator::getName).toList());
+	}
+
+	private static SuggestionGeneratorRouter router(Duration latencyBudget, SuggestionGenerator... generators) {
+		List<String> order = List.of(generators).stream().map(SuggestionGenerator::getName).toList();
+		return new SuggestionGeneratorRouter(List.of(generators), LlmResilienceTests.resilience(1, false),
+				new SimpleMeterRegistry(), order, List.of(), List.of(), latencyBudget, 0.95, 1, Duration.ofMinutes(1));
+	}
+
+	private record FixedGenerator(String name, boolean available, Duration latency) implements SuggestionGenerator {
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String getModel() {
+			return name;
+		}
+
+		@Override
+		public double getTemperature() {
+			return 0;
+		}
+
+		@Override
+		public int getMaxTokens() {
+			return 2000;
+		}
+
+		@Override
+		public boolean isAvailable() {
+			return available;
+		}
+
+		@Override
+		public ChatCompletion complete(String prompt) throws Exception {
+			Thread.sleep(latency.toMillis());
+			return new ChatCompletion("{\"suggestions\": []}", null, null);
+		}
+	}
+
+}
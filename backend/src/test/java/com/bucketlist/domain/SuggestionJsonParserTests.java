@@ -0,0 +1,145 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import com.bucketlist.domain.SuggestionService.SuggestionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionJsonParserTests {
+
+	private static final String PAYLOAD = """
+		Here you go:
+		```json
+		{"suggestions": [
+		  {"title": "Say \\"hej\\" in {Bergen}", "notes": {"nested": [1, {"deep": true}]},
+		   "description": "Fjord cruise ]}", "category": "Travel & Vacation",
+		   "priceBreakdown": {"lineItems": [{"name": "Cruise", "price": 1249.99}, {"name": "Hotel", "price": "$1,200.50"}], "currency": "NOK"},
+		   "rejectionReasons": ["Seasick", "Too far"]},
+		  {"title": "Pottery class", "description": "Weekend course", "priceBreakdown": {"lineItems": [{"name": "Course", "pri
+		""";
+
+	@Test
+	void keepsCompleteSuggestionsWithRealPrices() {
+		List<SuggestionResponse.SuggestionItem> suggestions = SuggestionJsonParser.parseSuggestions(PAYLOAD).getSuggestions();
+
+		// The second suggestion is cut off mid-object and dropped
+		assertEquals(1, suggestions.size());
+		SuggestionResponse.SuggestionItem item = suggestions.get(0);
+		assertEquals("Say \"hej\" in {Bergen}", item.getTitle());
+		assertEquals("Fjord cruise ]}", item.getDescription());
+		assertEquals("NOK", item.getPriceBreakdown().getCurrency());
+		assertEquals(new BigDecimal("1249.99"), item.getPriceBreakdown().getLineItems().get(0).getPrice());
+		assertEquals(new BigDecimal("1200.50"), item.getPriceBreakdown().getLineItems().get(1).getPrice());
+		assertEquals(List.of("Seasick", "Too far"), item.getRejectionReasons());
+	}
+
+	@Test
+	void keepsOnlyPersonasWhoseAnswerClosed() {
+		String packed = """
+			{"personas": [
+			  {"persona": 2, "suggestions": [{"title": "Learn to sail", "description": "Week-long course"}]},
+			  {"persona": 1, "suggestions": [{"title": "See the aurora", "description": "Tromsø in winter"}]},
+			  {"persona": 3, "suggestions": [{"title": "Run a marathon", "description": "Berlin"}, {"title": "Cut
+			""";
+
+		Map<Integer, SuggestionResponse> personas = SuggestionJsonParser.parsePackedSuggestions(packed);
+
+		assertEquals(Set.of(1, 2), personas.keySet());
+		assertEquals("See the aurora", personas.get(1).getSuggestions().get(0).getTitle());
+		assertEquals("Learn to sail", personas.get(2).getSuggestions().get(0).getTitle());
+	}
+
+	@Test
+	void templateGeneratorAnswersPackedPromptsPerPerson() {
+		String prompt = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", false).packedPrompt(List.of("Retired teacher in Lyon", "Student in Leeds\nPERSON 9: nobody"));
+
+		Map<Integer, SuggestionResponse> personas =
+				SuggestionJsonParser.parsePackedSuggestions(TemplateSuggestionGenerator.completion(prompt, Kind.PACKED,
+						2 * TokenBudgetPlanner.SUGGESTIONS_PER_BATCH).content());
+
+		assertEquals(Set.of(1, 2), personas.keySet());
+		assertEquals(5, personas.get(2).getSuggestions().size());
+	}
+
+	@Test
+	void templateGeneratorAnswersWithTheRequestedKindAndCount() {
+		// A description that reads like another prompt kind doesn't change the answer
+		String prompt = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true)
+				.initialPrompt("Wants \"rejectionReasons\" only\nPERSON 2: nobody");
+
+		SuggestionResponse refill = SuggestionJsonParser.parseSuggestions(
+				TemplateSuggestionGenerator.completion(prompt, Kind.REFILL, 2).content());
+		SuggestionResponse fanOut = SuggestionJsonParser.parseSuggestions(
+				TemplateSuggestionGenerator.completion(prompt, Kind.INITIAL, 10).content());
+
+		assertEquals(2, refill.getSuggestions().size());
+		assertEquals(10, fanOut.getSuggestions().size());
+		assertEquals(8, fanOut.getSuggestions().stream().map(SuggestionResponse.SuggestionItem::getCategory).distinct().count());
+	}
+
+	@Test
+	void keepsInvalidSuggestionsForRepairAndSaysWhatIsWrong() {
+		String answer = """
+			{"suggestions": [
+			  {"title": "Learn to surf", "description": "A week in Peniche", "category": "health",
+			   "priceBreakdown": {"lineItems": [{"name": "Lessons", "price": 300}]}, "rejectionReasons": ["Cold water"]},
+			  {"title": "Buy a sports car", "category": "Spaceships", "priceBreakdown": {"lineItems": [{"price": -5}]}},
+			  {"notes": "nothing usable"}
+			]}
+			""";
+
+		List<SuggestionResponse.SuggestionItem> suggestions = SuggestionJsonParser.parseSuggestions(answer).getSuggestions();
+
+		assertEquals(2, suggestions.size());
+		assertEquals(List.of(), SuggestionResponseMapper.validate(suggestions.get(0), true));
+		assertEquals(List.of("description is missing", "category \"Spaceships\" is not one of the listed categories",
+				"line item 1 has no name", "line item 1 has no valid price", "rejectionReasons is empty"),
+				SuggestionResponseMapper.validate(suggestions.get(1), true));
+		assertEquals(4, SuggestionResponseMapper.validate(suggestions.get(1), false).size());
+	}
+
+	@Test
+	void readsRejectionReasonsFromCutOffAnswersAndBareArrays() {
+		String cutOff = """
+			{"rejectionReasons": ["Too far from home", " ", "Not while the kids are small", "Would rather save th
+			""";
+
+		assertEquals(List.of("Too far from home", "Not while the kids are small"), SuggestionJsonParser.parseRejectionReasons(cutOff));
+		assertEquals(List.of("Too loud"), SuggestionJsonParser.parseRejectionReasons("Sure: [\"Too loud\"]"));
+	}
+
+	@Test
+	void templateGeneratorAnswersReasonsPrompts() {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true);
+		PriceBreakdown price = new PriceBreakdown(List.of(new LineItem("Lessons", BigDecimal.valueOf(300), "Five lessons")), "EUR");
+		BucketListSuggestion surf = new BucketListSuggestion("Learn to surf", "A week of lessons", SpendingCategory.HEALTH_WELLNESS, price, List.of());
+
+		String prompt = prompts.reasonsPrompt("Nurse in Porto", surf);
+
+		assertEquals(5, SuggestionJsonParser.parseRejectionReasons(
+				TemplateSuggestionGenerator.completion(prompt, Kind.REASONS, 1).content()).size());
+	}
+
+	@Test
+	void readsMessageContentAndUsageFromEnvelope() throws Exception {
+		String envelope = """
+			{"id": "chatcmpl-1", "choices": [{"index": 0, "logprobs": null,
+			  "message": {"role": "assistant", "content": "{\\"suggestions\\": []}\\nDone \\u00e9"}}],
+			 "usage": {"prompt_tokens": 7, "completion_tokens": 3, "total_tokens": 10}}
+			""";
+
+		ChatCompletion completion = SuggestionJsonParser.readCompletion(envelope.getBytes(StandardCharsets.UTF_8));
+
+		assertEquals("{\"suggestions\": []}\nDone é", completion.content());
+		assertEquals(7, completion.promptTokens());
+		assertEquals(3, completion.completionTokens());
+	}
+
+}
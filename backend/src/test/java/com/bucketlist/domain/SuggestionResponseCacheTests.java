@@ -0,0 +1,89 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionResponseCacheTests {
+
+	@Test
+	void descriptionsThatOnlyDifferInCaseAccentsAndPunctuationShareAnEntry() {
+		SuggestionResponseCache cache = new SuggestionResponseCache(true, 10, Duration.ofMinutes(1));
+		SuggestionService.SuggestionResponse response = response("Teacher in Lyon");
+		cache.put("Teacher in Lyon", "gpt-4o", 0.7, response);
+
+		assertEquals(response, cache.get("  TEACHER, in lyón! ", "gpt-4o", 0.7).orElseThrow());
+		assertEquals(1, cache.getHits());
+		assertEquals("teacher in lyon", SuggestionResponseCache.normalize("\tTeacher —  in Lyón."));
+	}
+
+	@Test
+	void otherModelOptionsMiss() {
+		SuggestionResponseCache cache = new SuggestionResponseCache(true, 10, Duration.ofMinutes(1));
+		cache.put("Teacher in Lyon", "gpt-4o", 0.7, response("Teacher in Lyon"));
+
+		assertTrue(cache.get("Teacher in Lyon", "gpt-4o-mini", 0.7).isEmpty());
+		assertTrue(cache.get("Teacher in Lyon", "gpt-4o", 0.2).isEmpty());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void expiredEntriesMissAndAreDropped() {
+		SuggestionResponseCache cache = new SuggestionResponseCache(true, 10, Duration.ZERO);
+		cache.put("Teacher in Lyon", "gpt-4o", 0.7, response("Teacher in Lyon"));
+
+		assertFalse(cache.contains("Teacher in Lyon", "gpt-4o", 0.7));
+		assertTrue(cache.get("Teacher in Lyon", "gpt-4o", 0.7).isEmpty());
+		assertEquals(0, cache.size());
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void leastRecentlyUsedEntryMakesRoom() {
+		SuggestionResponseCache cache = new SuggestionResponseCache(true, 2, Duration.ofMinutes(1));
+		cache.put("Teacher in Lyon", "gpt-4o", 0.7, response("Teacher in Lyon"));
+		cache.put("Baker in Leeds", "gpt-4o", 0.7, response("Baker in Leeds"));
+		cache.get("Teacher in Lyon", "gpt-4o", 0.7);
+
+		cache.put("Nurse in Oslo", "gpt-4o", 0.7, response("Nurse in Oslo"));
+
+		assertTrue(cache.contains("Teacher in Lyon", "gpt-4o", 0.7));
+		assertFalse(cache.contains("Baker in Leeds", "gpt-4o", 0.7));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void everyHitBecomesSuggestionsWithTheirOwnIds() {
+		SuggestionResponseCache cache = new SuggestionResponseCache(true, 10, Duration.ofMinutes(1));
+		SuggestionMetrics metrics = new SuggestionMetrics(new SimpleMeterRegistry());
+		cache.put("Teacher in Lyon", "gpt-4o", 0.7, response("Teacher in Lyon"));
+
+		List<BucketListSuggestion> first = SuggestionResponseMapper.toSuggestions(
+				cache.get("Teacher in Lyon", "gpt-4o", 0.7).orElseThrow(), metrics);
+		List<BucketListSuggestion> second = SuggestionResponseMapper.toSuggestions(
+				cache.get("Teacher in Lyon", "gpt-4o", 0.7).orElseThrow(), metrics);
+
+		assertEquals(titles(first), titles(second));
+		Set<String> ids = first.stream().map(BucketListSuggestion::getId).collect(Collectors.toSet());
+		assertTrue(second.stream().map(BucketListSuggestion::getId).noneMatch(ids::contains));
+	}
+
+	private static SuggestionService.SuggestionResponse response(String personDescription) {
+		return SuggestionJsonParser.parseSuggestions(TemplateSuggestionGenerator.completion(personDescription,
+				Kind.INITIAL, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH).content());
+	}
+
+	private static List<String> titles(List<BucketListSuggestion> suggestions) {
+		return suggestions.stream().map(BucketListSuggestion::getTitle).toList();
+	}
+
+}
@@ -0,0 +1,295 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuggestionServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final CountingGenerator generator = new CountingGenerator();
+	private final Executor virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+	// Generations are handed to the executor as the service is called, so counting them shows
+	// whether a prefetch started without waiting for it
+	private final AtomicInteger generations = new AtomicInteger();
+	private final Executor generationExecutor = task -> {
+		generations.incrementAndGet();
+		virtualThreads.execute(task);
+	};
+	private final SessionStateBackend backend = new InMemorySessionStateBackend();
+	private final SuggestionStateStore states = new SuggestionStateStore(backend, meterRegistry);
+	private final PersonSessionService sessions = new PersonSessionService(new NoArchive(), backend, event -> { },
+			meterRegistry, Duration.ofMinutes(30), Duration.ofHours(24), 100);
+
+	@Test
+	void regenerationPicksUpThePrefetchedBatch() {
+		SuggestionService service = service(RegenerationMode.FULL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		List<BucketListSuggestion> first = service.generateSuggestionsForPerson(sessionId);
+
+		review(service, sessionId, first.subList(0, 3));
+		assertEquals(2, generations.get());
+		review(service, sessionId, first.subList(3, first.size()));
+		List<BucketListSuggestion> next = service.regenerateSuggestionsWithFeedback(sessionId);
+
+		assertEquals(2, generations.get());
+		assertEquals(2, generator.calls.get());
+		assertEquals(ids(next), ids(service.getSuggestions(sessionId)));
+	}
+
+	@Test
+	void prefetchedBatchIsDroppedOnceAnotherBatchTakesItsEpoch() {
+		SuggestionService service = service(RegenerationMode.FULL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		List<BucketListSuggestion> first = service.generateSuggestionsForPerson(sessionId);
+		review(service, sessionId, first.subList(0, 3));
+		assertEquals(2, generations.get());
+
+		// As when another node commits its own regeneration first
+		SessionSuggestionState state = states.find(sessionId).orElseThrow();
+		List<BucketListSuggestion> elsewhere = List.of(first.get(3), first.get(4));
+		states.record(state, new SessionEvent.BatchCommitted(2, elsewhere));
+		review(service, sessionId, elsewhere);
+		List<BucketListSuggestion> next = service.regenerateSuggestionsWithFeedback(sessionId);
+
+		assertEquals(3, generations.get());
+		assertEquals(3, state.getEpoch());
+		assertNotEquals(ids(elsewhere), ids(next));
+	}
+
+	@Test
+	void partialRegenerationIsNotPrefetched() {
+		SuggestionService service = service(RegenerationMode.PARTIAL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		List<BucketListSuggestion> first = service.generateSuggestionsForPerson(sessionId);
+
+		review(service, sessionId, first);
+		assertEquals(1, generations.get());
+
+		service.regenerateSuggestionsWithFeedback(sessionId);
+		assertEquals(2, generations.get());
+	}
+
+	@Test
+	void concurrentFirstBatchRequestsShareOneCall() throws Exception {
+		SuggestionService service = service(RegenerationMode.FULL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		generator.release = new CountDownLatch(1);
+
+		List<CompletableFuture<List<BucketListSuggestion>>> callers = concurrently(4,
+				() -> service.generateSuggestionsForPerson(sessionId));
+		generator.release.countDown();
+
+		List<String> batch = ids(callers.getFirst().get());
+		for (CompletableFuture<List<BucketListSuggestion>> caller : callers) {
+			assertEquals(batch, ids(caller.get()));
+		}
+		assertEquals(1, generator.calls.get());
+	}
+
+	@Test
+	void concurrentRegenerationsShareOneCallWhateverTheirMode() throws Exception {
+		SuggestionService service = service(RegenerationMode.PARTIAL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		review(service, sessionId, service.generateSuggestionsForPerson(sessionId));
+		generator.release = new CountDownLatch(1);
+
+		AtomicInteger caller = new AtomicInteger();
+		List<CompletableFuture<List<BucketListSuggestion>>> callers = concurrently(3,
+				() -> service.regenerateSuggestionsWithFeedback(sessionId,
+						caller.getAndIncrement() == 0 ? RegenerationMode.FULL : RegenerationMode.PARTIAL));
+		generator.release.countDown();
+
+		List<String> batch = ids(callers.getFirst().get());
+		for (CompletableFuture<List<BucketListSuggestion>> regeneration : callers) {
+			assertEquals(batch, ids(regeneration.get()));
+		}
+		assertEquals(2, generator.calls.get());
+		assertEquals(2, states.find(sessionId).orElseThrow().getEpoch());
+	}
+
+	@Test
+	void newerEpochWinsOverARegenerationStillRunning() throws Exception {
+		SuggestionService service = service(RegenerationMode.PARTIAL);
+		String sessionId = sessions.createSession("Carpenter in Porto").getSessionId();
+		List<BucketListSuggestion> first = service.generateSuggestionsForPerson(sessionId);
+		review(service, sessionId, first);
+		generator.release = new CountDownLatch(1);
+
+		CompletableFuture<List<BucketListSuggestion>> regeneration = concurrently(1,
+				() -> service.regenerateSuggestionsWithFeedback(sessionId)).getFirst();
+		// Another node gets two batches further while this one waits for the model
+		SessionSuggestionState state = states.find(sessionId).orElseThrow();
+		List<BucketListSuggestion> newer = List.of(first.get(1), first.get(3));
+		states.record(state, new SessionEvent.BatchCommitted(3, newer));
+		generator.release.countDown();
+
+		assertEquals(ids(newer), ids(regeneration.get()));
+		assertEquals(3, state.getEpoch());
+		assertEquals(ids(newer), ids(service.getSuggestions(sessionId)));
+	}
+
+	// Starts the calls and returns once all of them have reached the model or joined the call that did
+	private List<CompletableFuture<List<BucketListSuggestion>>> concurrently(int count,
+			Supplier<List<BucketListSuggestion>> call) throws InterruptedException {
+		int callsBefore = generator.calls.get();
+		CountDownLatch started = new CountDownLatch(count);
+		List<CompletableFuture<List<BucketListSuggestion>>> callers = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			callers.add(CompletableFuture.supplyAsync(() -> {
+				started.countDown();
+				return call.get();
+			}, virtualThreads));
+		}
+		started.await();
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (generator.calls.get() == callsBefore) {
+			assertTrue(System.nanoTime() < deadline, "No call reached the model within 5s");
+			Thread.sleep(10);
+		}
+		// The others only have to get from started to joining the call
+		Thread.sleep(100);
+		return callers;
+	}
+
+	private SuggestionService service(RegenerationMode mode) {
+		return service(generator, sessions, states, generationExecutor, mode);
+	}
+
+	// Prefetch on, no cache, deduplication or repair, and the generator as the only provider
+	static SuggestionService service(SuggestionGenerator generator, PersonSessionService sessions,
+			SuggestionStateStore states, Executor generationExecutor, RegenerationMode mode) {
+		SuggestionMetrics metrics = new SuggestionMetrics(new SimpleMeterRegistry());
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", true);
+		return new SuggestionService(router(generator), prompts,
+				new SuggestionDeduplicator(List.of(new HashingSuggestionEmbedder(0.6)), metrics, false, "hashing"), sessions,
+				new SuggestionResponseCache(false, 10, Duration.ofMinutes(1)), states, new NoArchive(), metrics,
+				new TokenBudgetPlanner(prompts, metrics, true, 180, 14, 1.3, 256), List.of(),
+				LlmResilienceTests.resilience(1, false), generationExecutor, Duration.ofSeconds(5), true, 0.6, 400, 0,
+				mode.name(), Executors.newVirtualThreadPerTaskExecutor(), "batch", 5, 1, false);
+	}
+
+	static SuggestionGeneratorRouter router(SuggestionGenerator generator) {
+		return new SuggestionGeneratorRouter(List.of(generator), LlmResilienceTests.resilience(1, false),
+				new SimpleMeterRegistry(), List.of(generator.getName()), List.of(), List.of(), Duration.ZERO, 0.95, 1,
+				Duration.ofMinutes(1));
+	}
+
+	// Accepts every other suggestion and rejects the rest
+	private static void review(SuggestionService service, String sessionId, List<BucketListSuggestion> suggestions) {
+		for (int i = 0; i < suggestions.size(); i++) {
+			String id = suggestions.get(i).getId();
+			if (i % 2 == 0) {
+				service.acceptSuggestion(sessionId, id);
+			} else {
+				service.rejectSuggestion(sessionId, new RejectionFeedback(id, "Not for me", false));
+			}
+		}
+	}
+
+	static List<String> ids(List<BucketListSuggestion> suggestions) {
+		return suggestions.stream().map(BucketListSuggestion::getId).toList();
+	}
+
+	// Answers like the template generator and counts its calls; calls wait for release when it is set
+	static final class CountingGenerator implements SuggestionGenerator {
+
+		final AtomicInteger calls = new AtomicInteger();
+		volatile CountDownLatch release = new CountDownLatch(0);
+
+		@Override
+		public String getName() {
+			return "counting";
+		}
+
+		@Override
+		public String getModel() {
+			return "counting";
+		}
+
+		@Override
+		public double getTemperature() {
+			return 0;
+		}
+
+		@Override
+		public int getMaxTokens() {
+			return 4096;
+		}
+
+		@Override
+		public boolean isAvailable() {
+			return true;
+		}
+
+		@Override
+		public ChatCompletion complete(String prompt) throws InterruptedException {
+			return complete(prompt, Kind.INITIAL, TokenBudgetPlanner.SUGGESTIONS_PER_BATCH, null, 0);
+		}
+
+		@Override
+		public ChatCompletion complete(String prompt, Kind kind, int items, ResponseSchema schema, int maxTokens)
+				throws InterruptedException {
+			calls.incrementAndGet();
+			release.await();
+			return TemplateSuggestionGenerator.completion(prompt, kind, items);
+		}
+	}
+
+	static class NoArchive implements SessionArchive {
+
+		@Override
+		public void sessionCreated(PersonSession session) {
+		}
+
+		@Override
+		public void suggestionsAdded(String sessionId, int epoch, int firstPosition, List<BucketListSuggestion> suggestions) {
+		}
+
+		@Override
+		public void suggestionMoved(String sessionId, String suggestionId, int epoch, int position) {
+		}
+
+		@Override
+		public void rejectionReasonsAdded(String sessionId, String suggestionId, List<String> reasons) {
+		}
+
+		@Override
+		public void suggestionAccepted(String sessionId, String suggestionId) {
+		}
+
+		@Override
+		public void suggestionRejected(String sessionId, RejectionFeedback feedback) {
+		}
+
+		@Override
+		public void sessionRemoved(String sessionId) {
+		}
+
+		@Override
+		public Optional<PersonSession> findSession(String sessionId) {
+			return Optional.empty();
+		}
+
+		@Override
+		public Optional<SuggestionHistory> findSuggestionHistory(String sessionId) {
+			return Optional.empty();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.bucketlist.domain;
+
+import com.bucketlist.domain.PromptTemplateRegistry.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenBudgetPlannerTests {
+
+	@Test
+	void countsTokensTheWayGpt4oDoes() {
+		assertEquals(0, TokenCounter.count(""));
+		assertEquals(2, TokenCounter.count("hello world"));
+		assertEquals(9, TokenCounter.countPrompt("hello world"));
+	}
+
+	@Test
+	void sizesMaxTokensFromTheItemsAndFieldsAsked() {
+		TokenBudgetPlanner eager = planner(false, true);
+		TokenBudgetPlanner lazy = planner(true, true);
+
+		// 16 + 5 * (180 + 5 * 14), plus 30% headroom
+		TokenBudgetPlanner.Budget batch = eager.plan(Kind.INITIAL, "hello world", 5);
+		assertEquals(1266, batch.completionTokens());
+		assertEquals(1646, batch.maxTokens());
+		assertEquals(9, batch.promptTokens());
+		assertEquals(996, eager.plan(Kind.REFILL, "", 3).maxTokens());
+		// Without reasons a single suggestion, or one set of reasons, needs less than the floor
+		assertEquals(256, lazy.plan(Kind.SLOT, "", 1).maxTokens());
+		assertEquals(86, lazy.plan(Kind.REASONS, "", 1).completionTokens());
+		assertEquals(256, lazy.plan(Kind.REASONS, "", 1).maxTokens());
+	}
+
+	@Test
+	void learnsFromLongerAnswersButNotFromCutOffOnes() {
+		TokenBudgetPlanner planner = planner(false, true);
+		TokenBudgetPlanner.Budget first = planner.plan(Kind.INITIAL, "", 5);
+
+		// Cut off at the cap, so it says nothing about how long the answer would have been
+		planner.recordUsage(first, new ChatCompletion("", 500, first.maxTokens()));
+		assertEquals(1646, planner.plan(Kind.INITIAL, "", 5).maxTokens());
+
+		planner.recordUsage(first, new ChatCompletion("", 500, 1616));
+		assertEquals(1616, planner.plan(Kind.INITIAL, "", 5).completionTokens());
+		assertEquals(1266, planner.plan(Kind.REGENERATION, "", 5).completionTokens());
+
+		// Shorter answers never push the estimate below what the fields need
+		planner.recordUsage(first, new ChatCompletion("", 500, 100));
+		planner.recordUsage(first, new ChatCompletion("", 500, 100));
+		assertEquals(1266, planner.plan(Kind.INITIAL, "", 5).completionTokens());
+	}
+
+	@Test
+	void leavesTheGeneratorsCapWhenDisabled() {
+		TokenBudgetPlanner planner = planner(false, false);
+
+		assertEquals(0, planner.plan(Kind.INITIAL, "", 5).maxTokens());
+		assertEquals(1646, planner.completionAllowance(Kind.PACKED, 5));
+	}
+
+	private static TokenBudgetPlanner planner(boolean lazyRejectionReasons, boolean enabled) {
+		PromptTemplateRegistry prompts = new PromptTemplateRegistry("v1", "v1", "v1", "v1", "v1", "v1", "v1", lazyRejectionReasons);
+		return new TokenBudgetPlanner(prompts, new SuggestionMetrics(new SimpleMeterRegistry()), enabled, 180, 14, 1.3, 256);
+	}
+
+}
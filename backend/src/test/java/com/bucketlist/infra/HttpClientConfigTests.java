@@ -0,0 +1,95 @@
+package com.bucketlist.infra;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpClientConfigTests {
+
+	private final HttpClientConfig config = new HttpClientConfig();
+	private final ExecutorService serverThreads = Executors.newCachedThreadPool();
+	// Client ports the server saw requests from; one port means one connection
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+	private HttpServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", exchange -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			if (exchange.getRequestURI().getPath().equals("/slow")) {
+				try {
+					Thread.sleep(2000);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			byte[] reply = "{}".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, reply.length);
+			exchange.getResponseBody().write(reply);
+			exchange.close();
+		});
+		server.setExecutor(serverThreads);
+		server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+		serverThreads.shutdownNow();
+	}
+
+	@Test
+	void clientKeepsTheConfiguredConnectTimeout() {
+		HttpClient client = config.llmHttpClient(Duration.ofSeconds(3));
+
+		assertEquals(Duration.ofSeconds(3), client.connectTimeout().orElseThrow());
+		assertEquals(HttpClient.Redirect.NORMAL, client.followRedirects());
+	}
+
+	@Test
+	void callsThroughTheRequestFactoryShareOnePooledConnection() throws IOException {
+		ClientHttpRequestFactory requestFactory = config.llmRequestFactory(config.llmHttpClient(Duration.ofSeconds(5)),
+				Duration.ofSeconds(5));
+
+		for (int i = 0; i < 3; i++) {
+			call(requestFactory, "/v1/chat/completions");
+		}
+
+		assertEquals(1, clientPorts.size());
+	}
+
+	@Test
+	void readTimeoutEndsACallThatHangs() {
+		ClientHttpRequestFactory requestFactory = config.llmRequestFactory(config.llmHttpClient(Duration.ofSeconds(5)),
+				Duration.ofMillis(200));
+
+		assertThrows(IOException.class, () -> call(requestFactory, "/slow"));
+	}
+
+	private void call(ClientHttpRequestFactory requestFactory, String path) throws IOException {
+		URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + path);
+		try (ClientHttpResponse response = requestFactory.createRequest(uri, HttpMethod.GET).execute()) {
+			response.getBody().readAllBytes();
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.BucketListSuggestion;
+import com.bucketlist.domain.LineItem;
+import com.bucketlist.domain.PersonSession;
+import com.bucketlist.domain.PriceBreakdown;
+import com.bucketlist.domain.RejectionFeedback;
+import com.bucketlist.domain.SessionArchive.SuggestionHistory;
+import com.bucketlist.domain.SpendingCategory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The archive commits in its own transactions, so tests must not wrap it in one
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({JpaSessionArchive.class, SimpleMeterRegistry.class})
+class JpaSessionArchiveTests {
+
+	@Autowired
+	private JpaSessionArchive archive;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void queuedWritesReachTheArchiveInOrder() {
+		PersonSession session = new PersonSession("Amateur astronomer");
+		String sessionId = session.getSessionId();
+		BucketListSuggestion telescope = suggestion("Buy a telescope");
+		BucketListSuggestion observatory = suggestion("Visit an observatory");
+		BucketListSuggestion safari = suggestion("Night safari");
+
+		archive.sessionCreated(session);
+		archive.suggestionsAdded(sessionId, 1, 0, List.of(telescope, observatory));
+		archive.suggestionAccepted(sessionId, telescope.getId());
+		archive.suggestionRejected(sessionId, new RejectionFeedback(observatory.getId(), "Too far", false));
+		// The next batch carries the rejected suggestion over behind a new one
+		archive.suggestionsAdded(sessionId, 2, 0, List.of(safari));
+		archive.suggestionMoved(sessionId, observatory.getId(), 2, 1);
+		archive.rejectionReasonsAdded(sessionId, safari.getId(), List.of("Too dark"));
+		// Only the latest review of a suggestion is kept
+		archive.suggestionAccepted(sessionId, observatory.getId());
+		archive.flush();
+
+		SuggestionHistory history = archive.findSuggestionHistory(sessionId).orElseThrow();
+		assertEquals(2, history.epoch());
+		assertEquals(List.of(telescope.getId(), safari.getId(), observatory.getId()), ids(history.suggestions()));
+		assertEquals(List.of(safari.getId(), observatory.getId()), ids(history.currentBatch()));
+		assertEquals(Set.of(telescope.getId(), observatory.getId()), Set.copyOf(history.acceptedIds()));
+		assertTrue(history.rejections().isEmpty());
+		assertEquals(List.of("Too dark"), history.currentBatch().getFirst().getRejectionReasons());
+	}
+
+	@Test
+	void restoresAnEvictedSessionFromWritesStillQueued() {
+		PersonSession session = new PersonSession("Retired sailor");
+		BucketListSuggestion regatta = suggestion("Join a regatta");
+		archive.sessionCreated(session);
+		archive.suggestionsAdded(session.getSessionId(), 1, 0, List.of(regatta));
+		archive.suggestionRejected(session.getSessionId(), new RejectionFeedback(regatta.getId(), "Seasick", true));
+
+		// Evicted before the scheduled flush ran; the lookup writes the session out first
+		assertEquals("Retired sailor", archive.findSession(session.getSessionId()).orElseThrow().getPersonDescription());
+		SuggestionHistory history = archive.findSuggestionHistory(session.getSessionId()).orElseThrow();
+		assertEquals(List.of(regatta.getId()), ids(history.currentBatch()));
+		assertEquals("Seasick", history.rejections().getFirst().getReason());
+		assertTrue(history.rejections().getFirst().isCustomReason());
+	}
+
+	@Test
+	void lookupsOfOtherSessionsLeaveQueuedWritesAlone() {
+		archive.sessionCreated(new PersonSession("Jazz pianist"));
+
+		assertTrue(archive.findSession("no-such-session").isEmpty());
+		assertEquals(1.0, meterRegistry.get("bucketlist.persistence.pending").gauge().value());
+		archive.flush();
+	}
+
+	@Test
+	void failedWriteIsDroppedWithoutTakingItsBatchAlong() {
+		double droppedBefore = meterRegistry.get("bucketlist.persistence.dropped").counter().count();
+		PersonSession pilot = new PersonSession("Retired pilot");
+		PersonSession nurse = new PersonSession("Student nurse");
+		BucketListSuggestion glider = suggestion("Fly a glider");
+
+		archive.sessionCreated(pilot);
+		// Reuses the pilot's id, so its insert can never commit
+		archive.sessionCreated(new PersonSession(pilot.getSessionId(), "Duplicate", LocalDateTime.now()));
+		archive.sessionCreated(nurse);
+		archive.suggestionsAdded(nurse.getSessionId(), 1, 0, List.of(glider));
+		archive.flush();
+
+		assertEquals(1.0, meterRegistry.get("bucketlist.persistence.dropped").counter().count() - droppedBefore);
+		assertEquals("Retired pilot", archive.findSession(pilot.getSessionId()).orElseThrow().getPersonDescription());
+		assertEquals("Student nurse", archive.findSession(nurse.getSessionId()).orElseThrow().getPersonDescription());
+		assertEquals(List.of(glider.getId()), ids(archive.findSuggestionHistory(nurse.getSessionId()).orElseThrow().suggestions()));
+	}
+
+	private static List<String> ids(List<BucketListSuggestion> suggestions) {
+		return suggestions.stream().map(BucketListSuggestion::getId).toList();
+	}
+
+	private static BucketListSuggestion suggestion(String title) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(300), "All in")), "USD");
+		return new BucketListSuggestion(title, title + " this year", SpendingCategory.TRAVEL_VACATION, prices, List.of());
+	}
+
+}
@@ -0,0 +1,196 @@
+package com.bucketlist.persistence;
+
+import com.bucketlist.domain.BucketListSuggestion;
+import com.bucketlist.domain.LineItem;
+import com.bucketlist.domain.PriceBreakdown;
+import com.bucketlist.domain.RejectionFeedback;
+import com.bucketlist.domain.SessionArchive;
+import com.bucketlist.domain.SessionEvent;
+import com.bucketlist.domain.SessionSuggestionState;
+import com.bucketlist.domain.SpendingCategory;
+import com.bucketlist.domain.SuggestionStateStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class RedisSessionStateBackendTests {
+
+	@Container
+	private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+	private final List<LettuceConnectionFactory> connections = new ArrayList<>();
+	private final List<RedisSessionStateBackend> backends = new ArrayList<>();
+	// Tests share the container, so each gets its own keys and invalidation channel
+	private final String keyPrefix = "test-" + UUID.randomUUID() + ":";
+	private RedisSessionStateBackend backendA;
+	private RedisSessionStateBackend backendB;
+	private SuggestionStateStore nodeA;
+	private SuggestionStateStore nodeB;
+
+	@BeforeEach
+	void startNodes() throws Exception {
+		backendA = backend(100);
+		backendB = backend(100);
+		nodeA = new SuggestionStateStore(backendA, new SimpleMeterRegistry());
+		nodeB = new SuggestionStateStore(backendB, new SimpleMeterRegistry());
+		awaitTrue(() -> subscribers() == 2);
+	}
+
+	@AfterEach
+	void stopNodes() {
+		backends.forEach(RedisSessionStateBackend::close);
+		connections.forEach(LettuceConnectionFactory::destroy);
+	}
+
+	@Test
+	void changeOnOneNodeReachesTheOthersNearCache() throws Exception {
+		BucketListSuggestion surf = suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS);
+		BucketListSuggestion car = suggestion("Buy a sports car", SpendingCategory.LUXURY_THINGS);
+		SessionSuggestionState onA = nodeA.getOrCreate("shared");
+		nodeA.record(onA, new SessionEvent.BatchCommitted(1, List.of(surf, car)));
+
+		SessionSuggestionState onB = nodeB.find("shared").orElseThrow();
+		assertEquals(1, onB.getEpoch());
+		assertEquals(List.of(surf.getId(), car.getId()), onB.getCurrentBatch().stream().map(BucketListSuggestion::getId).toList());
+
+		nodeA.record(onA, new SessionEvent.Accepted(surf.getId()));
+		awaitTrue(() -> nodeB.find("shared").orElseThrow().getAcceptedSuggestions().size() == 1);
+		assertEquals(surf.getId(), onB.getAcceptedSuggestions().getFirst().getId());
+	}
+
+	@Test
+	void appendCatchesUpOnEventsAnotherNodeAppendedFirst() {
+		BucketListSuggestion surf = suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS);
+		BucketListSuggestion car = suggestion("Buy a sports car", SpendingCategory.LUXURY_THINGS);
+		SessionSuggestionState onA = nodeA.getOrCreate("racing");
+		nodeA.record(onA, new SessionEvent.BatchCommitted(1, List.of(surf, car)));
+		SessionSuggestionState onB = nodeB.find("racing").orElseThrow();
+
+		nodeA.record(onA, new SessionEvent.Accepted(surf.getId()));
+		nodeB.record(onB, new SessionEvent.Rejected(new RejectionFeedback(car.getId(), "Too expensive", false)));
+
+		assertEquals(1, onB.getAcceptedSuggestions().size());
+		assertEquals(1, onB.getRejectedSuggestions().size());
+		assertTrue(onB.isBatchFullyReviewed());
+	}
+
+	@Test
+	void removalReachesEveryNode() throws Exception {
+		SessionSuggestionState onA = nodeA.getOrCreate("gone");
+		nodeA.record(onA, new SessionEvent.BatchCommitted(1, List.of(suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS))));
+		assertTrue(nodeB.find("gone").isPresent());
+
+		backendA.remove("gone");
+		nodeA.remove("gone");
+
+		awaitTrue(() -> nodeB.find("gone").isEmpty());
+		SuggestionStateStore nodeC = new SuggestionStateStore(backendB, new SimpleMeterRegistry());
+		assertTrue(nodeC.find("gone").isEmpty());
+	}
+
+	@Test
+	void longLogIsCompactedWithoutLosingState() throws Exception {
+		SuggestionStateStore compactingA = new SuggestionStateStore(backend(8), new SimpleMeterRegistry());
+		BucketListSuggestion surf = suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS);
+		BucketListSuggestion car = suggestion("Buy a sports car", SpendingCategory.LUXURY_THINGS);
+		SessionSuggestionState onA = compactingA.getOrCreate("long");
+		compactingA.record(onA, new SessionEvent.BatchCommitted(1, List.of(surf, car)));
+		SessionSuggestionState onB = nodeB.find("long").orElseThrow();
+
+		for (int i = 0; i < 20; i++) {
+			compactingA.record(onA, i % 2 == 0
+					? new SessionEvent.Accepted(surf.getId())
+					: new SessionEvent.Rejected(new RejectionFeedback(surf.getId(), "Changed my mind", false)));
+		}
+		compactingA.record(onA, new SessionEvent.Accepted(car.getId()));
+
+		assertTrue(redis().opsForList().size(keyPrefix + "session:{long}") <= 8);
+		// Node B last read before the compaction, so it catches up from the snapshot
+		awaitTrue(() -> nodeB.find("long").orElseThrow().isBatchFullyReviewed());
+		assertEquals(List.of(surf.getId()), onB.getRejectedSuggestions().stream().map(BucketListSuggestion::getId).toList());
+		SessionSuggestionState onC = new SuggestionStateStore(backend(8), new SimpleMeterRegistry()).find("long").orElseThrow();
+		assertEquals(1, onC.getEpoch());
+		assertEquals(List.of(car.getId()), onC.getAcceptedSuggestions().stream().map(BucketListSuggestion::getId).toList());
+		assertEquals(List.of(surf.getId()), onC.getRejectedSuggestions().stream().map(BucketListSuggestion::getId).toList());
+	}
+
+	@Test
+	void codecRoundTripsRestoredHistory() {
+		SessionEventCodec codec = new SessionEventCodec();
+		BucketListSuggestion surf = suggestion("Learn to surf", SpendingCategory.HEALTH_WELLNESS);
+		BucketListSuggestion car = suggestion("Buy a sports car", SpendingCategory.LUXURY_THINGS);
+		RejectionFeedback feedback = new RejectionFeedback(car.getId(), "Not my thing", true);
+		SessionArchive.SuggestionHistory history = new SessionArchive.SuggestionHistory(2,
+				List.of(surf, car), List.of(car), List.of(surf.getId()), List.of(feedback));
+
+		SessionEvent.Restored decoded = (SessionEvent.Restored) codec.decode(codec.encode(new SessionEvent.Restored(history)));
+
+		SessionArchive.SuggestionHistory restored = decoded.history();
+		assertEquals(2, restored.epoch());
+		assertEquals(car.getId(), restored.currentBatch().getFirst().getId());
+		assertEquals(List.of(surf.getId()), restored.acceptedIds());
+		assertEquals("Not my thing", restored.rejections().getFirst().getReason());
+		assertTrue(restored.rejections().getFirst().isCustomReason());
+		BucketListSuggestion decodedSurf = restored.suggestions().getFirst();
+		assertEquals(surf.getTitle(), decodedSurf.getTitle());
+		assertEquals(SpendingCategory.HEALTH_WELLNESS, decodedSurf.getCategory());
+		assertEquals(0, BigDecimal.valueOf(500).compareTo(decodedSurf.getPriceBreakdown().getTotalCost()));
+		assertEquals(List.of("Too expensive"), decodedSurf.getRejectionReasons());
+	}
+
+	private RedisSessionStateBackend backend(int compactAfter) {
+		LettuceConnectionFactory connection = new LettuceConnectionFactory(
+				new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+		connection.afterPropertiesSet();
+		connections.add(connection);
+		RedisSessionStateBackend backend = new RedisSessionStateBackend(new StringRedisTemplate(connection), keyPrefix,
+				Duration.ofHours(1), compactAfter);
+		backends.add(backend);
+		return backend;
+	}
+
+	private StringRedisTemplate redis() {
+		return new StringRedisTemplate(connections.getFirst());
+	}
+
+	// PUBSUB NUMSUB answers the channel followed by its subscriber count
+	private long subscribers() {
+		List<?> reply = (List<?>) redis().execute((RedisCallback<Object>) connection -> connection.execute("PUBSUB",
+				"NUMSUB".getBytes(StandardCharsets.UTF_8), (keyPrefix + "invalidations").getBytes(StandardCharsets.UTF_8)));
+		return (Long) reply.get(1);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met within 5s");
+			Thread.sleep(10);
+		}
+	}
+
+	private static BucketListSuggestion suggestion(String title, SpendingCategory category) {
+		PriceBreakdown prices = new PriceBreakdown(List.of(new LineItem("Total", BigDecimal.valueOf(500), "All in")), "USD");
+		return new BucketListSuggestion(title, title + " this year", category, prices, List.of("Too expensive"));
+	}
+
+}
@@ -1,4 +1,4 @@
-import { useState } from 'react';
+import { useRef, useState } from 'react';
 import { PersonDescriptionInput } from './components/PersonDescriptionInput';
 import { SuggestionHistoryLayout } from './components/SuggestionHistoryLayout';
 import { ApiKeyGuard } from './components/ApiKeyGuard';
@@ -17,11 +17,15 @@ function App() {
   const [totalSuggestions] = useState<number>(5); // Each batch has 5 suggestions
   const [error, setError] = useState<string>('');
   const [loadingNext, setLoadingNext] = useState<boolean>(false);
+  const [queuePosition, setQueuePosition] = useState<number | null>(null);
   
   // New state for accepted and rejected suggestions
   const [acceptedSuggestions, setAcceptedSuggestions] = useState<BucketListSuggestion[]>([]);
   const [rejectedSuggestions, setRejectedSuggestions] = useState<RejectedBucketListSuggestion[]>([]);
 
+  // Pending stream of the first batch; cards are shown as soon as they arrive
+  const batchStream = useRef<Promise<BucketListSuggestion[]> | null>(null);
+
   const loadAcceptedAndRejectedSuggestions = async (sessionId: string) => {
     try {
       const [accepted, rejected] = await Promise.all([
@@ -39,23 +43,30 @@ function App() {
   const handlePersonDescriptionSubmit = async (description: string) => {
     setState('loading');
     setError('');
+    setQueuePosition(null);
     
     try {
       const sessionResponse = await apiService.createSession(description);
       setSessionId(sessionResponse.sessionId);
       
-      // Initialize suggestions and get the first one
-      await apiService.getSuggestions(sessionResponse.sessionId); // This generates the initial batch
-      const firstSuggestion = await apiService.getNextSuggestion(sessionResponse.sessionId);
+      // Stream the initial batch and show the first card as soon as it is parsed
+      let firstShown = false;
+      const stream = apiService.streamSuggestions(sessionResponse.sessionId, (suggestion) => {
+        if (!firstShown) {
+          firstShown = true;
+          setCurrentSuggestion(suggestion);
+          setSuggestionsReviewed(0);
+          setQueuePosition(null);
+          setState('suggestions');
+        }
+      }, setQueuePosition);
+      batchStream.current = stream;
       
       // Load any existing accepted/rejected suggestions (in case of page refresh)
       await loadAcceptedAndRejectedSuggestions(sessionResponse.sessionId);
       
-      if (firstSuggestion) {
-        setCurrentSuggestion(firstSuggestion);
-        setSuggestionsReviewed(0);
-        setState('suggestions');
-      } else {
+      const suggestions = await stream;
+      if (suggestions.length === 0) {
         throw new Error('No suggestions were generated');
       }
     } catch (err) {
@@ -75,7 +86,14 @@ function App() {
   const loadNextSuggestion = async () => {
     setLoadingNext(true);
     try {
-      const nextSuggestion = await apiService.getNextSuggestion(sessionId);
+      let nextSuggestion = await apiService.getNextSuggestion(sessionId);
+      
+      if (!nextSuggestion && batchStream.current) {
+        // The rest of the first batch may still be streaming in
+        await batchStream.current;
+        batchStream.current = null;
+        nextSuggestion = await apiService.getNextSuggestion(sessionId);
+      }
       
       if (nextSuggestion) {
         setCurrentSuggestion(nextSuggestion);
@@ -145,12 +163,17 @@ function App() {
     }
   };
 
+  const loadRejectionReasons = (suggestionId: string) =>
+    apiService.getRejectionReasons(sessionId, suggestionId);
+
   const resetApp = () => {
+    batchStream.current = null;
     setState('input');
     setSessionId('');
     setCurrentSuggestion(null);
     setSuggestionsReviewed(0);
     setError('');
+    setQueuePosition(null);
     setAcceptedSuggestions([]);
     setRejectedSuggestions([]);
   };
@@ -176,6 +199,7 @@ function App() {
           <PersonDescriptionInput
             onSubmit={handlePersonDescriptionSubmit}
             isLoading={true}
+            queuePosition={queuePosition}
           />
         )}
 
@@ -192,6 +216,7 @@ function App() {
             onAcceptSuggestion={handleAcceptSuggestion}
             onRejectSuggestion={handleRejectSuggestion}
             onStartOver={resetApp}
+            loadRejectionReasons={loadRejectionReasons}
           />
         )}
 
@@ -7,9 +7,10 @@ import { Loader2 } from 'lucide-react';
 interface PersonDescriptionInputProps {
   onSubmit: (description: string) => void;
   isLoading?: boolean;
+  queuePosition?: number | null;
 }
 
-export function PersonDescriptionInput({ onSubmit, isLoading = false }: PersonDescriptionInputProps) {
+export function PersonDescriptionInput({ onSubmit, isLoading = false, queuePosition = null }: PersonDescriptionInputProps) {
   const [description, setDescription] = useState('');
 
   const handleSubmit = (e: React.FormEvent) => {
@@ -52,6 +53,11 @@ export function PersonDescriptionInput({ onSubmit, isLoading = false }: PersonDe
                 'Get Suggestions'
               )}
             </Button>
+            {isLoading && queuePosition !== null && (
+              <p className="text-sm text-center text-gray-600">
+                Waiting in line for the suggestion service (position {queuePosition})...
+              </p>
+            )}
           </form>
         </CardContent>
       </Card>
@@ -1,4 +1,4 @@
-import { useState } from "react";
+import { useEffect, useRef, useState } from "react";
 import type { BucketListSuggestion } from "../types";
 import { Button } from "./ui/button";
 import { Card, CardContent, CardHeader, CardTitle } from "./ui/card";
@@ -10,6 +10,8 @@ interface SuggestionCardProps {
   disabled?: boolean;
   onAccept: () => void;
   onReject: (reason: string, isCustom: boolean) => void;
+  // Fetches the reasons when the suggestion came without them
+  loadRejectionReasons?: () => Promise<string[]>;
 }
 
 export function SuggestionCard({
@@ -17,10 +19,40 @@ export function SuggestionCard({
   disabled = false,
   onAccept,
   onReject,
+  loadRejectionReasons,
 }: SuggestionCardProps) {
   const [showRejectOptions, setShowRejectOptions] = useState(false);
   const [customReason, setCustomReason] = useState("");
   const [showCustomInput, setShowCustomInput] = useState(false);
+  const [rejectionReasons, setRejectionReasons] = useState(
+    suggestion.rejectionReasons,
+  );
+  const [loadingReasons, setLoadingReasons] = useState(false);
+  const currentSuggestionId = useRef(suggestion.id);
+
+  useEffect(() => {
+    currentSuggestionId.current = suggestion.id;
+    setRejectionReasons(suggestion.rejectionReasons);
+    setLoadingReasons(false);
+  }, [suggestion]);
+
+  // Without reasons the options still offer "Other reason..." while they load or if they fail
+  const openRejectOptions = () => {
+    setShowRejectOptions(true);
+    if (rejectionReasons.length > 0 || loadingReasons || !loadRejectionReasons) {
+      return;
+    }
+    const suggestionId = suggestion.id;
+    setLoadingReasons(true);
+    loadRejectionReasons()
+      .then((reasons) => {
+        if (currentSuggestionId.current === suggestionId) setRejectionReasons(reasons);
+      })
+      .catch(() => {})
+      .finally(() => {
+        if (currentSuggestionId.current === suggestionId) setLoadingReasons(false);
+      });
+  };
 
   const handleRejectWithReason = (reason: string, isCustom = false) => {
     onReject(reason, isCustom);
@@ -115,7 +147,7 @@ export function SuggestionCard({
               Accept
             </Button>
             <Button
-              onClick={() => setShowRejectOptions(true)}
+              onClick={openRejectOptions}
               variant="outline"
               className="flex-1"
               disabled={disabled}
@@ -127,7 +159,10 @@ export function SuggestionCard({
           <div className="space-y-3">
             <p className="text-sm font-medium">Why would you reject this?</p>
             <div className="space-y-2">
-              {suggestion.rejectionReasons.map((reason, index) => (
+              {loadingReasons && (
+                <p className="text-sm text-gray-600">Loading reasons...</p>
+              )}
+              {rejectionReasons.map((reason, index) => (
                 <Button
                   key={index}
                   variant="outline"
@@ -25,6 +25,7 @@ interface SuggestionHistoryLayoutProps {
   onAcceptSuggestion: (suggestionId: string) => void;
   onRejectSuggestion: (suggestionId: string, reason: string, isCustom: boolean) => void;
   onStartOver: () => void;
+  loadRejectionReasons?: (suggestionId: string) => Promise<string[]>;
   
   // Optional click handlers for history panels
   onAcceptedSuggestionClick?: (suggestion: BucketListSuggestion) => void;
@@ -159,6 +160,10 @@ export function SuggestionHistoryLayout({
                 onReject={(reason, isCustom) =>
                   onRejectSuggestion(currentSuggestion.id, reason, isCustom)
                 }
+                loadRejectionReasons={
+                  loadRejectionReasons &&
+                  (() => loadRejectionReasons(currentSuggestion.id))
+                }
               />
             )}
           </div>
@@ -6,12 +6,31 @@ import type {
   SuggestionsResponse,
   PersonDescriptionRequest,
   AcceptRequest,
-  RejectRequest
+  RejectRequest,
+  StreamError,
+  QueuedResponse,
+  QueuePosition,
+  RejectionReasonsResponse
 } from '../types';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
+const delay = (ms: number) => new Promise((resolve) => setTimeout(resolve, ms));
+
 class ApiService {
+  // Generation requests answer 202 with a queue position while the backend waits for an LLM slot;
+  // asking again joins the same queued generation, so poll until a final response arrives
+  private async fetchWhileQueued(url: string, init: RequestInit): Promise<Response> {
+    for (;;) {
+      const response = await fetch(url, init);
+      if (response.status !== 202) {
+        return response;
+      }
+      const queued: QueuedResponse = await response.json();
+      await delay(queued.retryAfterSeconds * 1000);
+    }
+  }
+
   async createSession(personDescription: string): Promise<SessionResponse> {
     const response = await fetch(`${API_BASE_URL}/session/create`, {
       method: 'POST',
@@ -27,7 +46,7 @@ class ApiService {
   }
 
   async getSuggestions(sessionId: string): Promise<BucketListSuggestion[]> {
-    const response = await fetch(`${API_BASE_URL}/suggestions/${sessionId}`, {
+    const response = await this.fetchWhileQueued(`${API_BASE_URL}/suggestions/${sessionId}`, {
       method: 'GET',
       headers: { 'Content-Type': 'application/json' },
     });
@@ -44,6 +63,47 @@ class ApiService {
     return data.suggestions;
   }
 
+  streamSuggestions(
+    sessionId: string,
+    onSuggestion: (suggestion: BucketListSuggestion) => void,
+    onQueued?: (position: number) => void
+  ): Promise<BucketListSuggestion[]> {
+    return new Promise((resolve, reject) => {
+      const received: BucketListSuggestion[] = [];
+      const source = new EventSource(`${API_BASE_URL}/suggestions/stream/${sessionId}`);
+
+      // Sent while the generation waits for an LLM slot; no suggestions arrive until it starts
+      source.addEventListener('queued', (event) => {
+        const queued: QueuePosition = JSON.parse((event as MessageEvent).data);
+        onQueued?.(queued.position);
+      });
+
+      source.addEventListener('suggestion', (event) => {
+        const suggestion: BucketListSuggestion = JSON.parse((event as MessageEvent).data);
+        received.push(suggestion);
+        onSuggestion(suggestion);
+      });
+
+      source.addEventListener('complete', () => {
+        source.close();
+        resolve(received);
+      });
+
+      // Fires both for server-sent error events (with data) and for connection failures (without)
+      source.addEventListener('error', (event) => {
+        source.close();
+        const data = (event as MessageEvent).data;
+        const error: StreamError | null = data ? JSON.parse(data) : null;
+
+        if (error?.status === 401) {
+          reject(new Error('API key required - please configure your OpenAI API key'));
+        } else {
+          reject(new Error('Failed to get suggestions'));
+        }
+      });
+    });
+  }
+
   async acceptSuggestion(sessionId: string, suggestionId: string): Promise<void> {
     const response = await fetch(`${API_BASE_URL}/suggestions/accept`, {
       method: 'POST',
@@ -78,6 +138,25 @@ class ApiService {
     }
   }
 
+  // Reasons are generated on first request when the backend leaves them out of its batches
+  async getRejectionReasons(sessionId: string, suggestionId: string): Promise<string[]> {
+    const response = await fetch(`${API_BASE_URL}/suggestions/${sessionId}/${suggestionId}/rejection-reasons`, {
+      method: 'GET',
+      headers: { 'Content-Type': 'application/json' },
+    });
+
+    if (response.status === 401) {
+      throw new Error('API key required - please configure your OpenAI API key');
+    }
+
+    if (!response.ok) {
+      throw new Error('Failed to get rejection reasons');
+    }
+
+    const data: RejectionReasonsResponse = await response.json();
+    return data.rejectionReasons;
+  }
+
   async getAcceptedSuggestions(sessionId: string): Promise<BucketListSuggestion[]> {
     const response = await fetch(`${API_BASE_URL}/suggestions/accepted/${sessionId}`, {
       method: 'GET',
@@ -107,7 +186,7 @@ class ApiService {
   }
 
   async getNextSuggestion(sessionId: string): Promise<BucketListSuggestion | null> {
-    const response = await fetch(`${API_BASE_URL}/suggestions/next/${sessionId}`, {
+    const response = await this.fetchWhileQueued(`${API_BASE_URL}/suggestions/next/${sessionId}`, {
       method: 'GET',
       headers: { 'Content-Type': 'application/json' },
     });
@@ -128,7 +207,7 @@ class ApiService {
   }
 
   async regenerateSuggestions(sessionId: string): Promise<BucketListSuggestion[]> {
-    const response = await fetch(`${API_BASE_URL}/suggestions/regenerate`, {
+    const response = await this.fetchWhileQueued(`${API_BASE_URL}/suggestions/regenerate`, {
       method: 'POST',
       headers: { 'Content-Type': 'application/json' },
       body: JSON.stringify({ sessionId }),
@@ -27,6 +27,24 @@ export interface SuggestionsResponse {
   suggestions: BucketListSuggestion[];
 }
 
+export interface StreamError {
+  status: number;
+  message: string;
+}
+
+export interface QueuePosition {
+  position: number;
+}
+
+export interface QueuedResponse {
+  position: number;
+  retryAfterSeconds: number;
+}
+
+export interface RejectionReasonsResponse {
+  rejectionReasons: string[];
+}
+
 export interface PersonDescriptionRequest {
   personDescription: string;
 }